@@ -20,24 +20,39 @@ import co.cask.cdap.api.annotation.Beta;
 import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.data.schema.Schema;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
 /**
- * Instance of a record structured by a {@link Schema}. Fields are accessible by name.
+ * Instance of a record structured by a {@link Schema}. Fields are accessible by name, or by their position in the
+ * list of fields of the schema. Field values are stored in an array in the order of the schema fields.
  */
 @Beta
 public class StructuredRecord implements Serializable {
-  private final Schema schema;
-  private final Map<String, Object> fields;
 
   private static final long serialVersionUID = -4648752378975451591L;
 
-  private StructuredRecord(Schema schema, Map<String, Object> fields) {
+  // Serialize the fields as a map by field name, which is the serialized form of earlier versions of this class
+  private static final ObjectStreamField[] serialPersistentFields = {
+    new ObjectStreamField("schema", Schema.class),
+    new ObjectStreamField("fields", Map.class)
+  };
+
+  // Not final because they are set when deserializing
+  private Schema schema;
+  private Object[] values;
+
+  private StructuredRecord(Schema schema, Object[] values) {
     this.schema = schema;
-    this.fields = fields;
+    this.values = values;
   }
 
   /**
@@ -58,7 +73,21 @@ public class StructuredRecord implements Serializable {
    */
   @SuppressWarnings("unchecked")
   public <T> T get(String fieldName) {
-    return (T) fields.get(fieldName);
+    int position = schema.getFieldIndex(fieldName);
+    return position < 0 ? null : (T) values[position];
+  }
+
+  /**
+   * Get the value of a field in the record by the position of the field in the schema.
+   *
+   * @param position position of the field to get in the fields of the schema.
+   * @param <T> type of object of the field value.
+   * @return value of the field.
+   * @throws IndexOutOfBoundsException if the position is not the position of a field in the schema.
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T get(int position) {
+    return (T) values[position];
   }
 
   /**
@@ -75,17 +104,43 @@ public class StructuredRecord implements Serializable {
     return new Builder(schema);
   }
 
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    List<Schema.Field> fields = schema.getFields();
+    Map<String, Object> fieldMap = new HashMap<>();
+    for (int i = 0; i < values.length; i++) {
+      fieldMap.put(fields.get(i).getName(), values[i]);
+    }
+    ObjectOutputStream.PutField putField = out.putFields();
+    putField.put("schema", schema);
+    putField.put("fields", fieldMap);
+    out.writeFields();
+  }
+
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    ObjectInputStream.GetField getField = in.readFields();
+    schema = (Schema) getField.get("schema", null);
+    Map<?, ?> fieldMap = (Map<?, ?>) getField.get("fields", null);
+    List<Schema.Field> fields = schema.getFields();
+    values = new Object[fields.size()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = fieldMap.get(fields.get(i).getName());
+    }
+  }
+
   /**
-   * Builder for creating a {@link StructuredRecord}.
+   * Builder for creating a {@link StructuredRecord}. A builder can be used to build multiple records. Field values
+   * are kept after {@link #build()}, and records built earlier are not affected by setting field values afterwards.
    * TODO: enforce schema correctness?
    */
   public static class Builder {
     private final Schema schema;
-    private Map<String, Object> fields;
+    private final List<Schema.Field> fields;
+    private final Object[] values;
 
     private Builder(Schema schema) {
       this.schema = schema;
-      this.fields = new HashMap<>();
+      this.fields = schema.getFields();
+      this.values = new Object[fields.size()];
     }
 
     /**
@@ -98,8 +153,22 @@ public class StructuredRecord implements Serializable {
      *                                   value is given.
      */
     public Builder set(String fieldName, Object value) {
-      validateAndGetField(fieldName, value);
-      fields.put(fieldName, value);
+      values[validateAndGetPosition(fieldName, value)] = value;
+      return this;
+    }
+
+    /**
+     * Set the field at the given position in the fields of the schema to the given value.
+     *
+     * @param position Position of the field to set.
+     * @param value Value for the field.
+     * @return This builder.
+     * @throws UnexpectedFormatException if there is no field at the given position, or the field is not nullable but
+     *                                   a null value is given.
+     */
+    public Builder set(int position, Object value) {
+      validatePosition(position, value);
+      values[position] = value;
       return this;
     }
 
@@ -114,8 +183,8 @@ public class StructuredRecord implements Serializable {
      *                                   value is given, or the string cannot be converted to the type for the field.
      */
     public Builder convertAndSet(String fieldName, String strVal) throws UnexpectedFormatException {
-      Schema.Field field = validateAndGetField(fieldName, strVal);
-      fields.put(fieldName, convertString(field.getSchema(), strVal));
+      int position = validateAndGetPosition(fieldName, strVal);
+      values[position] = convertString(fields.get(position).getSchema(), strVal);
       return this;
     }
 
@@ -126,20 +195,14 @@ public class StructuredRecord implements Serializable {
      * @throws UnexpectedFormatException if there is at least one non-nullable field without a value.
      */
     public StructuredRecord build() throws UnexpectedFormatException {
-      // check that all non-nullable fields have a value.
-      for (Schema.Field field : schema.getFields()) {
-        String fieldName = field.getName();
-        if (!fields.containsKey(fieldName)) {
-          // if the field is not nullable and there is no value set for the field, this is invalid.
-          if (!field.getSchema().isNullable()) {
-            throw new UnexpectedFormatException("Field " + fieldName + " must contain a value.");
-          } else {
-            // otherwise, set the value for the field to null
-            fields.put(fieldName, null);
-          }
+      // check that all non-nullable fields have a value. Fields without a value are null.
+      // Non-nullable fields can't be set to null, so a null value means the field was not set.
+      for (int i = 0; i < values.length; i++) {
+        if (values[i] == null && !fields.get(i).getSchema().isNullable()) {
+          throw new UnexpectedFormatException("Field " + fields.get(i).getName() + " must contain a value.");
         }
       }
-      return new StructuredRecord(schema, fields);
+      return new StructuredRecord(schema, Arrays.copyOf(values, values.length));
     }
 
     private Object convertString(Schema schema, String strVal) throws UnexpectedFormatException {
@@ -181,15 +244,25 @@ public class StructuredRecord implements Serializable {
       }
     }
 
-    private Schema.Field validateAndGetField(String fieldName, Object val) {
-      Schema.Field field = schema.getField(fieldName);
-      if (field == null) {
+    private int validateAndGetPosition(String fieldName, Object val) {
+      int position = schema.getFieldIndex(fieldName);
+      if (position < 0) {
         throw new UnexpectedFormatException("field " + fieldName + " is not in the schema.");
       }
-      if (!field.getSchema().isNullable() && val == null) {
+      if (val == null && !fields.get(position).getSchema().isNullable()) {
         throw new UnexpectedFormatException("field " + fieldName + " cannot be set to a null value.");
       }
-      return field;
+      return position;
+    }
+
+    private void validatePosition(int position, Object val) {
+      if (position < 0 || position >= values.length) {
+        throw new UnexpectedFormatException("field position " + position + " is not in the schema.");
+      }
+      if (val == null && !fields.get(position).getSchema().isNullable()) {
+        throw new UnexpectedFormatException("field " + fields.get(position).getName() +
+                                              " cannot be set to a null value.");
+      }
     }
   }
 
@@ -204,12 +277,12 @@ public class StructuredRecord implements Serializable {
 
     StructuredRecord that = (StructuredRecord) o;
 
-    return Objects.equals(schema, that.schema) && Objects.equals(fields, that.fields);
+    return Objects.equals(schema, that.schema) && Arrays.equals(values, that.values);
 
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(schema, fields);
+    return 31 * Objects.hashCode(schema) + Arrays.hashCode(values);
   }
 }
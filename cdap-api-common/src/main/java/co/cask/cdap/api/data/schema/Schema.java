@@ -43,6 +43,7 @@ import java.util.Set;
 @Beta
 public final class Schema implements Serializable {
   private static final SchemaTypeAdapter SCHEMA_TYPE_ADAPTER = new SchemaTypeAdapter();
+  private static final SchemaCache SCHEMA_CACHE = new SchemaCache(1024);
   private static final long serialVersionUID = -1891891892562027345L;
 
   /**
@@ -125,13 +126,21 @@ public final class Schema implements Serializable {
 
   /**
    * Parse the given JSON representation, as returned by {@link #toString()} into a Schema object.
+   * Parsed schemas are cached, and the same instance is returned for equal schemas, as long as they are cached.
    *
    * @param schemaJson the json representation of the schema
    * @return the json representation parsed into a schema object
    * @throws IOException if there was an exception parsing the schema
    */
   public static Schema parseJson(String schemaJson) throws IOException {
-    return SCHEMA_TYPE_ADAPTER.fromJson(schemaJson);
+    Schema schema = SCHEMA_CACHE.getIfPresent(schemaJson);
+    if (schema == null) {
+      schema = SCHEMA_TYPE_ADAPTER.fromJson(schemaJson);
+      if (schema != null) {
+        schema = SCHEMA_CACHE.intern(schemaJson, schema);
+      }
+    }
+    return schema;
   }
 
   /**
@@ -382,6 +391,9 @@ public final class Schema implements Serializable {
   // It can be recomputed on demand (and usually it is not used in the context that serialization is used)
   private transient String schemaString;
   private SchemaHash schemaHash;
+  // Positions of the record fields by name, computed on demand. The map is wrapped in an unmodifiable map,
+  // so that it is safely published through the final field of the wrapper.
+  private transient Map<String, Integer> fieldIndexes;
 
   private Schema(Type type, Set<String> enumValues, Schema componentSchema, Schema keySchema, Schema valueSchema,
                  String recordName, Map<String, Field> fieldMap, List<Schema> unionSchemas) {
@@ -485,6 +497,30 @@ public final class Schema implements Serializable {
     return fieldMap.get(name);
   }
 
+  /**
+   * Returns the position of the record {@link Field} of the given name in the list returned by {@link #getFields()}.
+   *
+   * @param name Name of the field
+   * @return Position of the field or {@code -1} if there is no such field in this record
+   *         or this is not a {@link Type#RECORD RECORD} schema.
+   */
+  public int getFieldIndex(String name) {
+    if (fields == null) {
+      return -1;
+    }
+    Map<String, Integer> indexes = fieldIndexes;
+    if (indexes == null) {
+      Map<String, Integer> map = new HashMap<>();
+      for (int i = 0; i < fields.size(); i++) {
+        map.put(fields.get(i).getName(), i);
+      }
+      indexes = Collections.unmodifiableMap(map);
+      fieldIndexes = indexes;
+    }
+    Integer idx = indexes.get(name);
+    return idx == null ? -1 : idx;
+  }
+
   /**
    * @return An immutable {@link List} of schemas inside this union
    *         or {@code null} if this is not a {@link Type#UNION UNION} schema.
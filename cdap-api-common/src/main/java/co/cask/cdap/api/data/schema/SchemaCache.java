@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.api.data.schema;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A bounded cache of canonical {@link Schema} instances, keyed by JSON representation and by {@link SchemaHash}.
+ * Since {@link Schema} is immutable, the same instance can be returned for every equal schema, which saves
+ * parsing and makes equality checks between canonical instances identity checks. This class is thread safe.
+ */
+final class SchemaCache {
+
+  private final int maxSize;
+  private final ConcurrentMap<String, Schema> schemasByJson = new ConcurrentHashMap<>();
+  private final ConcurrentMap<SchemaHash, Schema> schemasByHash = new ConcurrentHashMap<>();
+
+  /**
+   * Creates a new instance.
+   *
+   * @param maxSize the maximum number of schemas to keep in each of the JSON and the hash index
+   */
+  SchemaCache(int maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Returns the canonical schema for the given JSON representation, or {@code null} if it is not in the cache.
+   */
+  Schema getIfPresent(String json) {
+    return schemasByJson.get(json);
+  }
+
+  /**
+   * Returns the canonical instance of the given schema, and caches it for the given JSON representation.
+   *
+   * @param json the JSON representation that the schema was parsed from
+   * @param schema the parsed schema
+   * @return the canonical instance of the schema, which is either the given schema or an equal schema with the same
+   *         representation that was cached before
+   */
+  Schema intern(String json, Schema schema) {
+    Schema canonical = schemasByHash.get(schema.getSchemaHash());
+    if (canonical == null) {
+      makeRoom(schemasByHash);
+      canonical = schemasByHash.putIfAbsent(schema.getSchemaHash(), schema);
+      if (canonical == null) {
+        canonical = schema;
+      }
+    }
+    // The schema hash doesn't cover record names, hence only substitute a schema that has the same representation
+    if (canonical != schema && !canonical.toString().equals(schema.toString())) {
+      canonical = schema;
+    }
+    makeRoom(schemasByJson);
+    schemasByJson.put(json, canonical);
+    return canonical;
+  }
+
+  /**
+   * Removes an arbitrary entry from the given map if it is full. Concurrent calls may remove more entries than
+   * needed, which is fine for a cache.
+   */
+  private <K> void makeRoom(ConcurrentMap<K, Schema> map) {
+    if (map.size() < maxSize) {
+      return;
+    }
+    Iterator<K> iterator = map.keySet().iterator();
+    if (iterator.hasNext()) {
+      iterator.next();
+      iterator.remove();
+    }
+  }
+}
@@ -114,7 +114,7 @@ public abstract class AbstractPartitionConsumer implements PartitionConsumer {
 
     PartitionConsumerResult partitionsResult = doConsume(workingSet, acceptor);
 
-    statePersistor.persistState(workingSet.toBytes());
+    persistState(workingSet);
     return partitionsResult;
   }
 
@@ -128,7 +128,7 @@ public abstract class AbstractPartitionConsumer implements PartitionConsumer {
     ConsumerWorkingSet workingSet = readState();
 
     doFinish(workingSet, partitionKeys, succeeded);
-    statePersistor.persistState(workingSet.toBytes());
+    persistState(workingSet);
   }
 
   @Override
@@ -140,7 +140,7 @@ public abstract class AbstractPartitionConsumer implements PartitionConsumer {
   public void untakeWithKeys(List<? extends PartitionKey> partitionKeys) {
     ConsumerWorkingSet workingSet = readState();
     untake(workingSet, partitionKeys);
-    statePersistor.persistState(workingSet.toBytes());
+    persistState(workingSet);
   }
 
   private List<? extends PartitionKey> toKeys(final List<? extends Partition> partitions) {
@@ -168,6 +168,10 @@ public abstract class AbstractPartitionConsumer implements PartitionConsumer {
     };
   }
 
+  private void persistState(ConsumerWorkingSet workingSet) {
+    statePersistor.persistState(workingSet.toBytes(getConfiguration().getStateFormatVersion()));
+  }
+
   private ConsumerWorkingSet readState() {
     byte[] bytes = statePersistor.readState();
     return bytes == null ? new ConsumerWorkingSet() : ConsumerWorkingSet.fromBytes(bytes);
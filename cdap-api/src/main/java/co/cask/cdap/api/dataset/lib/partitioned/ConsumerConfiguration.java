@@ -35,13 +35,15 @@ public class ConsumerConfiguration {
   private final int maxWorkingSetSize;
   private final long timeout;
   private final int maxRetries;
+  private final int stateFormatVersion;
 
   private ConsumerConfiguration(Predicate<PartitionDetail> partitionPredicate,
-                                int maxWorkingSetSize, long timeout, int maxRetries) {
+                                int maxWorkingSetSize, long timeout, int maxRetries, int stateFormatVersion) {
     this.partitionPredicate = partitionPredicate;
     this.maxWorkingSetSize = maxWorkingSetSize;
     this.timeout = timeout;
     this.maxRetries = maxRetries;
+    this.stateFormatVersion = stateFormatVersion;
   }
 
   /**
@@ -78,6 +80,15 @@ public class ConsumerConfiguration {
     return maxRetries;
   }
 
+  /**
+   * @return The version of the format in which the consumer's state is persisted. Version 0, the default, serializes
+   *         each partition key as JSON. Version 1 serializes the partition keys in a compact binary form, which
+   *         can only be read by consumers that support it. State of either version can be read.
+   */
+  public int getStateFormatVersion() {
+    return stateFormatVersion;
+  }
+
   /**
    * @return a {@link Builder} instance to build an instance of a ConsumerConfiguration.
    */
@@ -102,6 +113,7 @@ public class ConsumerConfiguration {
     // 12 hour timeout
     private long timeout = TimeUnit.HOURS.toSeconds(12);
     private int maxRetries = 1;
+    private int stateFormatVersion = 0;
 
     private Builder() {
     }
@@ -138,12 +150,24 @@ public class ConsumerConfiguration {
       return this;
     }
 
+    /**
+     * Sets the version of the format of the consumer's state. See {@link #getStateFormatVersion()}.
+     */
+    public Builder setStateFormatVersion(int stateFormatVersion) {
+      if (stateFormatVersion != 0 && stateFormatVersion != 1) {
+        throw new IllegalArgumentException("Unsupported state format version: " + stateFormatVersion);
+      }
+      this.stateFormatVersion = stateFormatVersion;
+      return this;
+    }
+
     /**
      * Create a ConsumerConfiguration from this builder, using the private ConsumerConfiguration
      * constructor.
      */
     public ConsumerConfiguration build() {
-      return new ConsumerConfiguration(partitionPredicate, maxWorkingSetSize, timeout, maxRetries);
+      return new ConsumerConfiguration(partitionPredicate, maxWorkingSetSize, timeout, maxRetries,
+                                       stateFormatVersion);
     }
   }
 }
@@ -24,16 +24,31 @@ import co.cask.cdap.api.dataset.lib.PartitionKey;
 import co.cask.cdap.api.dataset.lib.PartitionedFileSet;
 
 import java.nio.ByteBuffer;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Keeps track of a list of partitions that are either available for consuming or are currently being consumed.
  */
 public class ConsumerWorkingSet {
 
-  private static final int VERSION = 0;
+  // Version 0 serializes each partition key as JSON. Version 1 serializes the partition keys in binary form,
+  // with the field names written only once for the whole working set.
+  private static final int VERSION_JSON_KEYS = 0;
+  private static final int VERSION_BINARY_KEYS = 1;
 
+  // Type tags of the partition key field values in the serialization format
+  private static final byte STRING_FIELD = 0;
+  private static final byte LONG_FIELD = 1;
+  private static final byte INT_FIELD = 2;
+
+  // partitions by partition key, in the order they were added, so that lookups and removals by key
+  // don't need to go through the whole list
+  private final Map<PartitionKey, ConsumablePartition> partitionMap;
   private final List<ConsumablePartition> partitions;
 
   private PartitionConsumerState partitionConsumerState;
@@ -52,7 +67,11 @@ public class ConsumerWorkingSet {
   private ConsumerWorkingSet(PartitionConsumerState partitionConsumerState,
                                     List<ConsumablePartition> partitions) {
     this.partitionConsumerState = partitionConsumerState;
-    this.partitions = partitions;
+    this.partitionMap = new LinkedHashMap<>();
+    this.partitions = new PartitionList();
+    for (ConsumablePartition partition : partitions) {
+      partitionMap.put(partition.getPartitionKey(), partition);
+    }
   }
 
   /**
@@ -74,24 +93,22 @@ public class ConsumerWorkingSet {
    *         the partitions list
    */
   public ConsumablePartition remove(PartitionKey partitionKey) {
-    for (int i = 0; i < partitions.size(); i++) {
-      if (partitionKey.equals(partitions.get(i).getPartitionKey())) {
-        return partitions.remove(i);
-      }
+    ConsumablePartition partition = partitionMap.remove(partitionKey);
+    if (partition == null) {
+      throw new IllegalArgumentException("PartitionKey not found: " + partitionKey);
     }
-    throw new IllegalArgumentException("PartitionKey not found: " + partitionKey);
+    return partition;
   }
 
   /**
    * @return the ConsumablePartition with the given PartitionKey, from the working set
    */
   public ConsumablePartition lookup(PartitionKey partitionKey) {
-    for (int i = 0; i < partitions.size(); i++) {
-      if (partitionKey.equals(partitions.get(i).getPartitionKey())) {
-        return partitions.get(i);
-      }
+    ConsumablePartition partition = partitionMap.get(partitionKey);
+    if (partition == null) {
+      throw new IllegalArgumentException("PartitionKey not found: " + partitionKey);
     }
-    throw new IllegalArgumentException("PartitionKey not found: " + partitionKey);
+    return partition;
   }
 
   /**
@@ -102,6 +119,10 @@ public class ConsumerWorkingSet {
    */
   public void populate(PartitionedFileSet partitionedFileSet, ConsumerConfiguration configuration) {
     int numToPopulate = configuration.getMaxWorkingSetSize() - partitions.size();
+    if (numToPopulate <= 0) {
+      // the working set is full; fetching would only carry the same consumer state over to the next call
+      return;
+    }
     Predicate<PartitionDetail> predicate = configuration.getPartitionPredicate();
     co.cask.cdap.api.dataset.lib.PartitionConsumerResult result =
       partitionedFileSet.consumePartitions(partitionConsumerState, numToPopulate, predicate);
@@ -116,17 +137,33 @@ public class ConsumerWorkingSet {
   public static ConsumerWorkingSet fromBytes(byte[] bytes) {
     ByteBuffer bb = ByteBuffer.wrap(bytes);
     byte serializationFormatVersion = bb.get();
-    if (serializationFormatVersion != VERSION) {
+    if (serializationFormatVersion != VERSION_JSON_KEYS && serializationFormatVersion != VERSION_BINARY_KEYS) {
       throw new IllegalArgumentException("Unsupported serialization format: " + serializationFormatVersion);
     }
 
+    String[] fieldNames = null;
+    if (serializationFormatVersion == VERSION_BINARY_KEYS) {
+      fieldNames = new String[bb.getInt()];
+      for (int i = 0; i < fieldNames.length; i++) {
+        fieldNames[i] = getString(bb);
+      }
+    }
+
     int numPartitions = bb.getInt();
     List<ConsumablePartition> partitions = new ArrayList<>(numPartitions);
     for (int i = 0; i < numPartitions; i++) {
-      int consumablePartitionBytesLength = bb.getInt();
-      byte[] consumablePartitionBytes = new byte[consumablePartitionBytesLength];
-      bb.get(consumablePartitionBytes, 0, consumablePartitionBytesLength);
-      partitions.add(DefaultConsumablePartition.fromBytes(consumablePartitionBytes));
+      if (fieldNames == null) {
+        int consumablePartitionBytesLength = bb.getInt();
+        byte[] consumablePartitionBytes = new byte[consumablePartitionBytesLength];
+        bb.get(consumablePartitionBytes, 0, consumablePartitionBytesLength);
+        partitions.add(DefaultConsumablePartition.fromBytes(consumablePartitionBytes));
+      } else {
+        ProcessState processState = ProcessState.fromByte(bb.get());
+        long timestamp = bb.getLong();
+        int numFailures = bb.getInt();
+        PartitionKey partitionKey = getPartitionKey(bb, fieldNames);
+        partitions.add(new DefaultConsumablePartition(partitionKey, processState, timestamp, numFailures));
+      }
     }
 
     int sizeOfMarker = bb.getInt();
@@ -135,14 +172,35 @@ public class ConsumerWorkingSet {
     return new ConsumerWorkingSet(PartitionConsumerState.fromBytes(markerBytes), partitions);
   }
 
-  // serializes this ConsumerWorkingSet into a byte array
+  // serializes this ConsumerWorkingSet into a byte array, in the format of version 0
   public byte[] toBytes() {
+    return toBytes(VERSION_JSON_KEYS);
+  }
+
+  /**
+   * Serializes this ConsumerWorkingSet into a byte array.
+   *
+   * @param version the version of the serialization format; see {@link ConsumerConfiguration#getStateFormatVersion()}
+   */
+  public byte[] toBytes(int version) {
+    if (version == VERSION_JSON_KEYS) {
+      return toBytesWithJsonKeys();
+    }
+    if (version == VERSION_BINARY_KEYS) {
+      return toBytesWithBinaryKeys();
+    }
+    throw new IllegalArgumentException("Unsupported serialization format: " + version);
+  }
+
+  private byte[] toBytesWithJsonKeys() {
     // first byte for serialization format version
     int numBytes = 1;
     numBytes += Bytes.SIZEOF_INT;
 
+    List<byte[]> partitionsBytes = new ArrayList<>(partitions.size());
     for (ConsumablePartition partition : partitions) {
       byte[] partitionBytes = ((DefaultConsumablePartition) partition).toBytes();
+      partitionsBytes.add(partitionBytes);
       numBytes += Bytes.SIZEOF_INT;
       numBytes += partitionBytes.length;
     }
@@ -152,12 +210,86 @@ public class ConsumerWorkingSet {
     numBytes += markerBytes.length;
 
     ByteBuffer bb = ByteBuffer.allocate(numBytes);
-    bb.put((byte) VERSION);
+    bb.put((byte) VERSION_JSON_KEYS);
+    bb.putInt(partitionsBytes.size());
+    for (byte[] partitionBytes : partitionsBytes) {
+      putBytes(bb, partitionBytes);
+    }
+
+    bb.putInt(markerBytes.length);
+    bb.put(markerBytes);
+    return bb.array();
+  }
+
+  private byte[] toBytesWithBinaryKeys() {
+    // assign an index to each distinct field name, in the order they are encountered
+    Map<String, Integer> fieldIndices = new LinkedHashMap<>();
+    // first byte for serialization format version
+    int numBytes = 1;
+    numBytes += Bytes.SIZEOF_INT;
+    numBytes += Bytes.SIZEOF_INT;
+
+    List<byte[]> encodedValues = new ArrayList<>();
+    for (ConsumablePartition partition : partitions) {
+      // process state, timestamp, number of failures and number of fields
+      numBytes += 1 + Bytes.SIZEOF_LONG + Bytes.SIZEOF_INT + Bytes.SIZEOF_INT;
+      for (Map.Entry<String, ? extends Comparable> field : partition.getPartitionKey().getFields().entrySet()) {
+        if (!fieldIndices.containsKey(field.getKey())) {
+          fieldIndices.put(field.getKey(), fieldIndices.size());
+          numBytes += Bytes.SIZEOF_INT + Bytes.toBytes(field.getKey()).length;
+        }
+        // field index and type tag
+        numBytes += Bytes.SIZEOF_INT + 1;
+        Comparable value = field.getValue();
+        if (value instanceof Long) {
+          numBytes += Bytes.SIZEOF_LONG;
+        } else if (value instanceof Integer) {
+          numBytes += Bytes.SIZEOF_INT;
+        } else if (value instanceof String) {
+          byte[] valueBytes = Bytes.toBytes((String) value);
+          encodedValues.add(valueBytes);
+          numBytes += Bytes.SIZEOF_INT + valueBytes.length;
+        } else {
+          // only these types are allowed by the Partitioning of a PartitionedFileSet
+          throw new IllegalArgumentException(String.format("Unsupported type %s of partition key field '%s'",
+                                                           value.getClass().getName(), field.getKey()));
+        }
+      }
+    }
+
+    byte[] markerBytes = partitionConsumerState.toBytes();
+    numBytes += Bytes.SIZEOF_INT;
+    numBytes += markerBytes.length;
+
+    ByteBuffer bb = ByteBuffer.allocate(numBytes);
+    bb.put((byte) VERSION_BINARY_KEYS);
+    bb.putInt(fieldIndices.size());
+    for (String fieldName : fieldIndices.keySet()) {
+      putBytes(bb, Bytes.toBytes(fieldName));
+    }
+
+    int encodedValueIndex = 0;
     bb.putInt(partitions.size());
     for (ConsumablePartition partition : partitions) {
-      byte[] partitionBytes = ((DefaultConsumablePartition) partition).toBytes();
-      bb.putInt(partitionBytes.length);
-      bb.put(partitionBytes);
+      bb.put(partition.getProcessState().toByte());
+      bb.putLong(partition.getTimestamp());
+      bb.putInt(partition.getNumFailures());
+      Map<String, ? extends Comparable> fields = partition.getPartitionKey().getFields();
+      bb.putInt(fields.size());
+      for (Map.Entry<String, ? extends Comparable> field : fields.entrySet()) {
+        bb.putInt(fieldIndices.get(field.getKey()));
+        Comparable value = field.getValue();
+        if (value instanceof Long) {
+          bb.put(LONG_FIELD);
+          bb.putLong((Long) value);
+        } else if (value instanceof Integer) {
+          bb.put(INT_FIELD);
+          bb.putInt((Integer) value);
+        } else {
+          bb.put(STRING_FIELD);
+          putBytes(bb, encodedValues.get(encodedValueIndex++));
+        }
+      }
     }
 
     bb.putInt(markerBytes.length);
@@ -165,6 +297,40 @@ public class ConsumerWorkingSet {
     return bb.array();
   }
 
+  private static PartitionKey getPartitionKey(ByteBuffer bb, String[] fieldNames) {
+    PartitionKey.Builder builder = PartitionKey.builder();
+    int numFields = bb.getInt();
+    for (int i = 0; i < numFields; i++) {
+      String fieldName = fieldNames[bb.getInt()];
+      byte type = bb.get();
+      switch (type) {
+        case STRING_FIELD:
+          builder.addField(fieldName, getString(bb));
+          break;
+        case LONG_FIELD:
+          builder.addField(fieldName, bb.getLong());
+          break;
+        case INT_FIELD:
+          builder.addField(fieldName, bb.getInt());
+          break;
+        default:
+          throw new IllegalArgumentException("Unsupported partition key field type: " + type);
+      }
+    }
+    return builder.build();
+  }
+
+  private static void putBytes(ByteBuffer bb, byte[] bytes) {
+    bb.putInt(bytes.length);
+    bb.put(bytes);
+  }
+
+  private static String getString(ByteBuffer bb) {
+    byte[] bytes = new byte[bb.getInt()];
+    bb.get(bytes);
+    return Bytes.toString(bytes);
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -176,7 +342,7 @@ public class ConsumerWorkingSet {
 
     ConsumerWorkingSet that = (ConsumerWorkingSet) o;
 
-    return partitions.equals(that.partitions)
+    return new ArrayList<>(partitionMap.values()).equals(new ArrayList<>(that.partitionMap.values()))
       && partitionConsumerState.equals(that.partitionConsumerState);
 
   }
@@ -187,4 +353,83 @@ public class ConsumerWorkingSet {
     result = 31 * result + partitionConsumerState.hashCode();
     return result;
   }
+
+  /**
+   * The list of partitions of the working set, as a view of the partitions by partition key. Partitions are
+   * removed in constant time through its iterators. Positional access and modification go through the partitions
+   * up to the position.
+   */
+  private final class PartitionList extends AbstractList<ConsumablePartition> {
+
+    @Override
+    public Iterator<ConsumablePartition> iterator() {
+      return partitionMap.values().iterator();
+    }
+
+    @Override
+    public ConsumablePartition get(int index) {
+      checkIndex(index, size());
+      Iterator<ConsumablePartition> iterator = iterator();
+      for (int i = 0; i < index; i++) {
+        iterator.next();
+      }
+      return iterator.next();
+    }
+
+    @Override
+    public int size() {
+      return partitionMap.size();
+    }
+
+    @Override
+    public ConsumablePartition set(int index, ConsumablePartition partition) {
+      ConsumablePartition previous = get(index);
+      if (previous.getPartitionKey().equals(partition.getPartitionKey())) {
+        // replacing the value of an existing key keeps its position
+        partitionMap.put(partition.getPartitionKey(), partition);
+      } else {
+        List<ConsumablePartition> copy = new ArrayList<>(partitionMap.values());
+        copy.set(index, partition);
+        reset(copy);
+      }
+      return previous;
+    }
+
+    @Override
+    public void add(int index, ConsumablePartition partition) {
+      checkIndex(index, size() + 1);
+      if (index == size()) {
+        partitionMap.put(partition.getPartitionKey(), partition);
+      } else {
+        List<ConsumablePartition> copy = new ArrayList<>(partitionMap.values());
+        copy.add(index, partition);
+        reset(copy);
+      }
+    }
+
+    @Override
+    public ConsumablePartition remove(int index) {
+      ConsumablePartition removed = get(index);
+      partitionMap.remove(removed.getPartitionKey());
+      return removed;
+    }
+
+    @Override
+    public void clear() {
+      partitionMap.clear();
+    }
+
+    private void reset(List<ConsumablePartition> partitions) {
+      partitionMap.clear();
+      for (ConsumablePartition partition : partitions) {
+        partitionMap.put(partition.getPartitionKey(), partition);
+      }
+    }
+
+    private void checkIndex(int index, int size) {
+      if (index < 0 || index >= size) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+      }
+    }
+  }
 }
@@ -0,0 +1,199 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.api.service.http;
+
+import co.cask.cdap.api.annotation.TransactionControl;
+import co.cask.cdap.api.annotation.TransactionPolicy;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * An instance of this class is for sending the response of an HTTP request asynchronously. Methods defined in
+ * {@link HttpServiceHandler} can return an instance of this class to release the request handling thread while
+ * waiting for a slow operation, such as a call to a remote service, to complete. The request is completed
+ * by calling either {@link #complete(Object)} or {@link #fail(Throwable)} from any thread, which in turn
+ * invokes the {@link #onComplete(HttpServiceResponder, Object)} or
+ * {@link #onError(HttpServiceResponder, Throwable)} method respectively from the calling thread.
+ *
+ * The handler instance that returned the response is free to handle other requests while the response is pending.
+ * Therefore the {@link #onComplete(HttpServiceResponder, Object)} and {@link #onError(HttpServiceResponder, Throwable)}
+ * methods should not use the state or the datasets of that handler instance. If the response is not completed within
+ * the timeout configured for the service, it is failed with a {@link java.util.concurrent.TimeoutException}.
+ *
+ * Example:
+ *
+ * <p>
+ *   <pre><code>
+ *      public class MyHttpHandler extends AbstractHttpServiceHandler {
+ *
+ *        {@literal @}GET
+ *        {@literal @}Path("/lookup/{key}")
+ *        public AsyncHttpServiceResponse&lt;String&gt; lookup(HttpServiceRequest request,
+ *                                                         HttpServiceResponder responder,
+ *                                                         {@literal @}PathParam("key") String key) {
+ *          final AsyncHttpServiceResponse&lt;String&gt; response = new AsyncHttpServiceResponse&lt;String&gt;() {
+ *
+ *            {@literal @}Override
+ *            public void onComplete(HttpServiceResponder responder, String value) throws Exception {
+ *              responder.sendString(value);
+ *            }
+ *
+ *            {@literal @}Override
+ *            public void onError(HttpServiceResponder responder, Throwable failureCause) {
+ *              responder.sendError(500, failureCause.getMessage());
+ *            }
+ *          };
+ *
+ *          // Calls response.complete(value) or response.fail(cause) when the lookup is done
+ *          remoteClient.lookup(key, response);
+ *          return response;
+ *        }
+ *      }
+ *   </code></pre>
+ * </p>
+ *
+ * @param <T> type of the result that the response is completed with
+ */
+public abstract class AsyncHttpServiceResponse<T> {
+
+  private final List<Callback<T>> callbacks = new ArrayList<>();
+  private boolean done;
+  private T result;
+  private Throwable failure;
+
+  /**
+   * Completes this response with the given result. Only the first call to either this method or
+   * {@link #fail(Throwable)} has effect.
+   *
+   * @param result the result to complete with
+   * @return {@code true} if this response is completed by this call; {@code false} if it was already completed
+   */
+  public final boolean complete(@Nullable T result) {
+    List<Callback<T>> callbacks;
+    synchronized (this) {
+      if (done) {
+        return false;
+      }
+      done = true;
+      this.result = result;
+      callbacks = new ArrayList<>(this.callbacks);
+      this.callbacks.clear();
+    }
+    for (Callback<T> callback : callbacks) {
+      callback.completed(result);
+    }
+    return true;
+  }
+
+  /**
+   * Completes this response with the given failure. Only the first call to either this method or
+   * {@link #complete(Object)} has effect.
+   *
+   * @param failureCause the reason of the failure
+   * @return {@code true} if this response is completed by this call; {@code false} if it was already completed
+   */
+  public final boolean fail(Throwable failureCause) {
+    List<Callback<T>> callbacks;
+    synchronized (this) {
+      if (done) {
+        return false;
+      }
+      done = true;
+      this.failure = failureCause;
+      callbacks = new ArrayList<>(this.callbacks);
+      this.callbacks.clear();
+    }
+    for (Callback<T> callback : callbacks) {
+      callback.failed(failureCause);
+    }
+    return true;
+  }
+
+  /**
+   * Returns {@code true} if this response is already completed, either successfully or with failure.
+   */
+  public final synchronized boolean isDone() {
+    return done;
+  }
+
+  /**
+   * Adds a {@link Callback} to be called when this response is completed. If this response is already completed,
+   * the callback is called immediately from the caller thread. This method is used by the CDAP runtime to
+   * resume processing of the request and is normally not needed by handler code.
+   *
+   * @param callback the {@link Callback} to add
+   */
+  public final void addCallback(Callback<T> callback) {
+    synchronized (this) {
+      if (!done) {
+        callbacks.add(callback);
+        return;
+      }
+    }
+    if (failure == null) {
+      callback.completed(result);
+    } else {
+      callback.failed(failure);
+    }
+  }
+
+  /**
+   * This method is invoked when this response is {@link #complete(Object) completed}. It must use the given
+   * {@link HttpServiceResponder} to send the response in order to complete the HTTP call. This method is
+   * always executed inside a single transaction unless annotated with
+   * {@link TransactionPolicy(TransactionControl}.
+   *
+   * @param responder a {@link HttpServiceResponder} for sending response
+   * @param result the result that this response is completed with
+   * @throws Exception if there is any error
+   */
+  @TransactionPolicy(TransactionControl.IMPLICIT)
+  public abstract void onComplete(HttpServiceResponder responder, @Nullable T result) throws Exception;
+
+  /**
+   * This method is invoked when this response is {@link #fail(Throwable) failed} or when the
+   * {@link #onComplete(HttpServiceResponder, Object)} method raised an exception. It must use the given
+   * {@link HttpServiceResponder} to send the response in order to complete the HTTP call. This method is
+   * always executed inside a single transaction unless annotated with
+   * {@link TransactionPolicy(TransactionControl}.
+   *
+   * @param responder a {@link HttpServiceResponder} for sending response
+   * @param failureCause the reason of the failure
+   */
+  @TransactionPolicy(TransactionControl.IMPLICIT)
+  public abstract void onError(HttpServiceResponder responder, Throwable failureCause);
+
+  /**
+   * Callback to be notified when an {@link AsyncHttpServiceResponse} is completed.
+   *
+   * @param <T> type of the result
+   */
+  public interface Callback<T> {
+
+    /**
+     * Called when the response is completed successfully.
+     */
+    void completed(@Nullable T result);
+
+    /**
+     * Called when the response is completed with failure.
+     */
+    void failed(Throwable failureCause);
+  }
+}
@@ -58,6 +58,8 @@ import javax.ws.rs.Path;
  * To handle HTTP request with large body, it is better to have the handler method to return
  * a {@link HttpContentConsumer} to avoid running out of memory. Similarly, to return a response
  * with a large body, it is preferable to return respond with {@link HttpContentProducer}.
+ * If the response depends on a slow operation, such as a call to a remote service, the handler method
+ * can return an {@link AsyncHttpServiceResponse} to release the request handling thread while waiting.
  *
  * By default, all handler methods are executed within an implicit transaction, that is, you
  * can access datasets and perform transactional data operations from the handler method.
@@ -78,6 +80,7 @@ import javax.ws.rs.Path;
  *
  * @see HttpContentConsumer
  * @see HttpContentProducer
+ * @see AsyncHttpServiceResponse
  */
 public interface HttpServiceHandler extends ProgramLifecycle<HttpServiceContext> {
 
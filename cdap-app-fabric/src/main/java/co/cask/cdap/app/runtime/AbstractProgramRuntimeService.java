@@ -26,8 +26,9 @@ import co.cask.cdap.common.app.RunIds;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.io.Locations;
-import co.cask.cdap.common.lang.jar.BundleJarUtil;
+import co.cask.cdap.common.lang.jar.UnpackedJarCache;
 import co.cask.cdap.common.utils.DirUtils;
+import co.cask.cdap.internal.app.program.ForwardingProgram;
 import co.cask.cdap.internal.app.runtime.AbstractListener;
 import co.cask.cdap.internal.app.runtime.BasicArguments;
 import co.cask.cdap.internal.app.runtime.ProgramOptionConstants;
@@ -48,7 +49,6 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.common.collect.Table;
 import com.google.common.io.Closeables;
-import com.google.common.io.Files;
 import com.google.common.util.concurrent.AbstractIdleService;
 import org.apache.twill.api.RunId;
 import org.apache.twill.common.Threads;
@@ -141,19 +141,30 @@ public abstract class AbstractProgramRuntimeService extends AbstractIdleService
     final Location programJarLocation = artifactDetail.getDescriptor().getLocation();
 
     // Take a snapshot of the JAR file to avoid program mutation
-    final File unpackedDir = new File(tempDir, "unpacked");
-    unpackedDir.mkdirs();
+    File programJar = Locations.linkOrCopy(programJarLocation, new File(tempDir, "program.jar"));
+    // Unpack the JAR file through the shared cache. The entry is addressed by the artifact location, since the
+    // snapshot is at a different location for every run.
+    final UnpackedJarCache.Entry unpacked = UnpackedJarCache.get(cConf).acquire(programJarLocation, programJar);
+
+    Program program;
     try {
-      File programJar = Locations.linkOrCopy(programJarLocation, new File(tempDir, "program.jar"));
-      // Unpack the JAR file
-      BundleJarUtil.unJar(Files.newInputStreamSupplier(programJar), unpackedDir);
-    } catch (IOException ioe) {
-      throw ioe;
-    } catch (Exception e) {
-      // should not happen
-      throw Throwables.propagate(e);
+      program = Programs.create(cConf, programRunner, programDescriptor, programJarLocation, unpacked.getDirectory());
+    } catch (Throwable t) {
+      unpacked.close();
+      throw t;
     }
-    return Programs.create(cConf, programRunner, programDescriptor, programJarLocation, unpackedDir);
+
+    // Release the unpacked directory when the program is closed
+    return new ForwardingProgram(program) {
+      @Override
+      public void close() throws IOException {
+        try {
+          super.close();
+        } finally {
+          unpacked.close();
+        }
+      }
+    };
   }
 
   private Runnable createCleanupTask(final Object... resources) {
@@ -43,6 +43,8 @@ import co.cask.cdap.app.runtime.ProgramOptions;
 import co.cask.cdap.app.services.AbstractServiceDiscoverer;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.common.lang.ClassLoaders;
+import co.cask.cdap.common.lang.DirectoryClassLoader;
 import co.cask.cdap.data.dataset.SystemDatasetInstantiator;
 import co.cask.cdap.data2.dataset2.DatasetFramework;
 import co.cask.cdap.data2.dataset2.DynamicDatasetCache;
@@ -244,6 +246,18 @@ public abstract class AbstractContext extends AbstractServiceDiscoverer
     return programMetrics;
   }
 
+  /**
+   * Emits the time spent in loading classes from the program {@link ClassLoader} so far as a gauge metric.
+   * Program runtime services call this once the program is initialized to report class loading as part of
+   * the program startup time.
+   */
+  public void emitClassLoadingMetrics() {
+    DirectoryClassLoader classLoader = ClassLoaders.find(program.getClassLoader(), DirectoryClassLoader.class);
+    if (classLoader != null) {
+      programMetrics.gauge("program.startup.classloading.ms", classLoader.getClassLoadingTimeMillis());
+    }
+  }
+
   public DynamicDatasetCache getDatasetCache() {
     return datasetCache;
   }
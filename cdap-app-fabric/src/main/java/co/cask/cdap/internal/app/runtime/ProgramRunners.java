@@ -36,6 +36,7 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URL;
 import java.security.PrivilegedExceptionAction;
 import java.util.Map;
@@ -129,23 +130,44 @@ public final class ProgramRunners {
    */
   @Nullable
   public static Location createLogbackJar(Location targetDir) throws IOException {
-    ILoggerFactory loggerFactory = LoggerFactory.getILoggerFactory();
-    if (!(loggerFactory instanceof Context)) {
+    URL logbackURL = getLogbackURL();
+    if (logbackURL == null) {
       return null;
     }
 
-    URL logbackURL = ConfigurationWatchListUtil.getMainWatchURL((Context) loggerFactory);
-    if (logbackURL == null) {
+    Location logbackJar = targetDir.append("logback").getTempFile(".jar");
+    writeLogbackJar(logbackURL, logbackJar.getOutputStream());
+    return logbackJar;
+  }
+
+  /**
+   * Returns the {@link URL} of the logback.xml that configures the current process or {@code null} if
+   * "logback.xml" is not found in the current ClassLoader.
+   */
+  @Nullable
+  public static URL getLogbackURL() {
+    ILoggerFactory loggerFactory = LoggerFactory.getILoggerFactory();
+    if (!(loggerFactory instanceof Context)) {
       return null;
     }
+    return ConfigurationWatchListUtil.getMainWatchURL((Context) loggerFactory);
+  }
 
-    try (InputStream input = logbackURL.openStream()) {
-      Location logbackJar = targetDir.append("logback").getTempFile(".jar");
-      try (JarOutputStream output = new JarOutputStream(logbackJar.getOutputStream())) {
-        output.putNextEntry(new JarEntry("logback.xml"));
-        ByteStreams.copy(input, output);
-      }
-      return logbackJar;
+  /**
+   * Writes a jar that contains the logback.xml from the given {@link URL} to the given {@link OutputStream}.
+   * The output stream will be closed when this method returns.
+   *
+   * @param logbackURL the {@link URL} to read the logback.xml from
+   * @param outputStream the {@link OutputStream} to write the jar to
+   * @throws IOException if failed in reading the logback xml or writing out the jar
+   */
+  public static void writeLogbackJar(URL logbackURL, OutputStream outputStream) throws IOException {
+    try (
+      JarOutputStream output = new JarOutputStream(outputStream);
+      InputStream input = logbackURL.openStream()
+    ) {
+      output.putNextEntry(new JarEntry("logback.xml"));
+      ByteStreams.copy(input, output);
     }
   }
 
@@ -50,6 +50,7 @@ import co.cask.cdap.proto.id.EntityId;
 import co.cask.cdap.proto.id.NamespaceId;
 import co.cask.cdap.proto.security.Action;
 import co.cask.cdap.proto.security.Principal;
+import co.cask.cdap.security.authorization.AuthorizationUtil;
 import co.cask.cdap.security.spi.authentication.AuthenticationContext;
 import co.cask.cdap.security.spi.authorization.AuthorizationEnforcer;
 import co.cask.cdap.security.spi.authorization.PrivilegesManager;
@@ -208,16 +209,13 @@ public class ArtifactRepository {
 
     Principal principal = authenticationContext.getPrincipal();
     final Predicate<EntityId> filter = authorizationEnforcer.createFilter(principal);
-    return Lists.newArrayList(
-      Iterables.filter(artifacts, new com.google.common.base.Predicate<ArtifactDetail>() {
-        @Override
-        public boolean apply(ArtifactDetail artifactDetail) {
-          ArtifactId artifactId = artifactDetail.getDescriptor().getArtifactId();
-          return filter.apply(range.getNamespace().toEntityId().artifact(artifactId.getName(),
-                                                                         artifactId.getVersion().getVersion()));
-        }
-      })
-    );
+    return AuthorizationUtil.filter(filter, artifacts, new Function<ArtifactDetail, EntityId>() {
+      @Override
+      public EntityId apply(ArtifactDetail artifactDetail) {
+        ArtifactId artifactId = artifactDetail.getDescriptor().getArtifactId();
+        return range.getNamespace().toEntityId().artifact(artifactId.getName(), artifactId.getVersion().getVersion());
+      }
+    });
   }
 
   /**
@@ -0,0 +1,432 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.internal.app.runtime.batch;
+
+import co.cask.cdap.common.io.Locations;
+import co.cask.cdap.common.utils.DirUtils;
+import co.cask.cdap.common.utils.ProjectInfo;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Charsets;
+import com.google.common.base.Splitter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import org.apache.twill.filesystem.Location;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A cache of the jars that are localized to the containers of MapReduce jobs, shared by all runs of MapReduce
+ * programs. Jars are stored in a directory through the {@link Location} API, one sub-directory per cache key,
+ * so that runs with identical jars refer to the same file and YARN only localizes it once per node.
+ *
+ * Copies of existing jars are keyed by the SHA-256 of their content. Jars generated for a run are keyed by the
+ * SHA-256 of a build key that describes the inputs of the generation, since the generated bytes contain
+ * timestamps. Generated jars are also kept in a local directory, so that they can be reused without being
+ * rebuilt or downloaded.
+ *
+ * Each run adds a reference to the entries it uses and removes them when it is {@link #close() closed}.
+ * Entries without references are kept for the retention period after their last use, and are deleted by the
+ * first run that closes after that. Since runs in different processes share the cache, an expired entry is first
+ * renamed atomically to a tombstone, which no run adds references to. The tombstone is only deleted if no reference
+ * was added to the entry before the rename, otherwise it is restored.
+ */
+final class MapReduceJarCache implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MapReduceJarCache.class);
+  private static final String REFS_DIR = "refs";
+  // References left behind by runs that failed to cleanup are ignored after this time
+  private static final long STALE_REFERENCE_MILLIS = TimeUnit.DAYS.toMillis(30);
+  // Memorize the content hash of a location based on its URI, size and last modified time to avoid rehashing
+  private static final Cache<String, String> CONTENT_HASHES = CacheBuilder.newBuilder().maximumSize(1000).build();
+  // Expired entries are renamed to the entry name followed by this separator and a unique id before deletion
+  private static final String TOMBSTONE_SEPARATOR = ".deleted.";
+  // Number of attempts to add a reference, in case the entry is renamed for deletion concurrently
+  private static final int ADD_REFERENCE_ATTEMPTS = 3;
+
+  private final Location cacheDir;
+  private final File localCacheDir;
+  private final String runId;
+  private final long retentionMillis;
+  private final List<Location> references;
+
+  /**
+   * Creates a new instance for one MapReduce run.
+   *
+   * @param cacheDir the shared cache directory that jars are localized from
+   * @param localCacheDir the local directory for keeping generated jars
+   * @param runId the run id of the MapReduce program, used for reference tracking
+   * @param retentionMillis time in milliseconds to keep unreferenced entries after their last use
+   */
+  MapReduceJarCache(Location cacheDir, File localCacheDir, String runId, long retentionMillis) {
+    this.cacheDir = cacheDir;
+    this.localCacheDir = localCacheDir;
+    this.runId = runId;
+    this.retentionMillis = retentionMillis;
+    this.references = new ArrayList<>();
+  }
+
+  /**
+   * Returns a {@link Location} in the cache that has the same content as the given location. The content is copied
+   * into the cache if there is no such entry yet.
+   *
+   * @param source the location to copy from
+   * @param name file name of the cached jar
+   * @return the {@link Location} of the cached jar
+   * @throws IOException if failed to read the source or to write to the cache
+   */
+  synchronized Location getLocation(Location source, String name) throws IOException {
+    Location target = addReference(getContentHash(source)).append(name);
+    if (!target.exists()) {
+      upload(Locations.newInputSupplier(source).getInput(), target);
+      LOG.info("Copied {} to jar cache at {}", source, target);
+    }
+    return target;
+  }
+
+  /**
+   * Returns a {@link Location} in the cache of the jar built with the given {@link JarBuilder}. The builder is only
+   * called if there is no entry for the given build key yet.
+   *
+   * @param buildKey a key that uniquely identifies the content of the jar
+   * @param name file name of the cached jar
+   * @param builder the {@link JarBuilder} for building the jar
+   * @return the {@link Location} of the cached jar
+   * @throws IOException if failed to build the jar or to write to the cache
+   */
+  synchronized Location getLocation(String buildKey, String name, JarBuilder builder) throws IOException {
+    Location target = addReference(hash(buildKey)).append(name);
+    if (target.exists()) {
+      return target;
+    }
+    getFile(buildKey, name, builder);
+    return target;
+  }
+
+  /**
+   * Returns a local {@link File} of the jar built with the given {@link JarBuilder}. If the jar is not in the local
+   * cache, it is downloaded from the shared cache if available, or built by the builder otherwise.
+   *
+   * @param buildKey a key that uniquely identifies the content of the jar
+   * @param name file name of the cached jar
+   * @param builder the {@link JarBuilder} for building the jar
+   * @return the local {@link File} of the jar
+   * @throws IOException if failed to build the jar or to write to the cache
+   */
+  synchronized File getFile(String buildKey, String name, JarBuilder builder) throws IOException {
+    String key = hash(buildKey);
+    File localDir = new File(localCacheDir, key);
+    File localJar = new File(localDir, name);
+    Location target = addReference(key).append(name);
+
+    if (localJar.isFile()) {
+      localJar.setLastModified(System.currentTimeMillis());
+      if (!target.exists()) {
+        upload(Files.newInputStreamSupplier(localJar).getInput(), target);
+      }
+      return localJar;
+    }
+
+    DirUtils.mkdirs(localDir);
+    File tmpJar = File.createTempFile(name, ".tmp", localDir);
+    try {
+      if (target.exists()) {
+        Files.copy(Locations.newInputSupplier(target), tmpJar);
+        LOG.debug("Downloaded cached jar {} to {}", target, localJar);
+      } else {
+        builder.build(tmpJar);
+        upload(Files.newInputStreamSupplier(tmpJar).getInput(), target);
+        LOG.debug("Built jar {} and added it to jar cache at {}", localJar, target);
+      }
+      // Another run in the same process may have added the same jar concurrently, which has the same content.
+      if (!tmpJar.renameTo(localJar) && !localJar.isFile()) {
+        throw new IOException("Failed to rename " + tmpJar + " to " + localJar);
+      }
+      return localJar;
+    } finally {
+      tmpJar.delete();
+    }
+  }
+
+  /**
+   * Removes all references added by this instance and deletes expired entries from the cache.
+   */
+  @Override
+  public synchronized void close() {
+    for (Location reference : references) {
+      try {
+        reference.delete();
+      } catch (IOException e) {
+        LOG.warn("Failed to remove jar cache reference {}", reference, e);
+      }
+    }
+    references.clear();
+
+    long now = System.currentTimeMillis();
+    try {
+      if (cacheDir.exists()) {
+        for (Location entry : cacheDir.list()) {
+          try {
+            if (isExpired(entry, now)) {
+              expire(entry);
+            }
+          } catch (IOException e) {
+            LOG.warn("Failed to cleanup jar cache entry {}", entry, e);
+          }
+        }
+      }
+    } catch (IOException e) {
+      LOG.warn("Failed to cleanup jar cache at {}", cacheDir, e);
+    }
+
+    File[] localEntries = localCacheDir.listFiles();
+    if (localEntries == null) {
+      return;
+    }
+    for (File entry : localEntries) {
+      File[] files = entry.listFiles();
+      long lastModified = entry.lastModified();
+      for (File file : files == null ? new File[0] : files) {
+        lastModified = Math.max(lastModified, file.lastModified());
+      }
+      if (lastModified + retentionMillis < now) {
+        try {
+          DirUtils.deleteDirectoryContents(entry);
+        } catch (IOException e) {
+          LOG.warn("Failed to delete local jar cache entry {}", entry, e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns a key that identifies the runtime environment, including the CDAP version and every entry in the
+   * class path. It should be included in build keys of jars that contain classes traced from the class path.
+   */
+  static String getClassPathKey() {
+    return getClassPathKey(System.getProperty("java.class.path"));
+  }
+
+  /**
+   * Returns a key that identifies the CDAP version and the given class path. Files are identified by their path,
+   * size and last modified time, and directories by the path, size and last modified time of the files under them,
+   * so that no file content is read.
+   */
+  @VisibleForTesting
+  static String getClassPathKey(String classPath) {
+    StringBuilder key = new StringBuilder(ProjectInfo.getVersion().toString());
+    for (String path : Splitter.on(File.pathSeparatorChar).omitEmptyStrings().split(classPath)) {
+      File file = new File(path);
+      key.append(File.pathSeparatorChar).append(path);
+      if (file.isFile()) {
+        key.append('@').append(file.length()).append('@').append(file.lastModified());
+      } else if (file.isDirectory()) {
+        Hasher hasher = Hashing.sha256().newHasher();
+        addDirectory(hasher, file, "");
+        key.append('@').append(hasher.hash().toString());
+      }
+    }
+    return key.toString();
+  }
+
+  /**
+   * Adds the path, size and last modified time of all files under the given directory to the given {@link Hasher}.
+   */
+  private static void addDirectory(Hasher hasher, File dir, String prefix) {
+    File[] files = dir.listFiles();
+    if (files == null) {
+      return;
+    }
+    Arrays.sort(files);
+    for (File file : files) {
+      String path = prefix + file.getName();
+      if (file.isDirectory()) {
+        addDirectory(hasher, file, path + "/");
+      } else {
+        hasher.putString(path, Charsets.UTF_8).putLong(file.length()).putLong(file.lastModified());
+      }
+    }
+  }
+
+  /**
+   * Returns the SHA-256 of the content of the given location.
+   */
+  static String getContentHash(Location location) throws IOException {
+    String key = location.toURI() + ":" + location.length() + ":" + location.lastModified();
+    String hash = CONTENT_HASHES.getIfPresent(key);
+    if (hash == null) {
+      hash = ByteStreams.hash(Locations.newInputSupplier(location), Hashing.sha256()).toString();
+      CONTENT_HASHES.put(key, hash);
+    }
+    return hash;
+  }
+
+  private static String hash(String buildKey) {
+    Hasher hasher = Hashing.sha256().newHasher();
+    hasher.putString(buildKey, Charsets.UTF_8);
+    return hasher.hash().toString();
+  }
+
+  /**
+   * Adds a reference from this run to the cache entry of the given key. The reference is added before the
+   * entry content is checked, so that the entry won't be deleted by other runs once it is seen.
+   *
+   * @return the {@link Location} of the entry directory
+   */
+  private Location addReference(String key) throws IOException {
+    Location entry = cacheDir.append(key);
+    Location refsDir = entry.append(REFS_DIR);
+    Location reference = refsDir.append(runId);
+    if (references.contains(reference)) {
+      return entry;
+    }
+    int attempts = 0;
+    while (true) {
+      try {
+        refsDir.mkdirs();
+        reference.createNew();
+        break;
+      } catch (IOException e) {
+        // The entry may have been renamed for deletion by another run between creating the directory and the
+        // reference, in which case the entry is created again.
+        if (++attempts >= ADD_REFERENCE_ATTEMPTS) {
+          throw e;
+        }
+        LOG.debug("Retrying to add jar cache reference {}", reference, e);
+      }
+    }
+    references.add(reference);
+    return entry;
+  }
+
+  /**
+   * Deletes the given expired cache entry. The entry is renamed to a tombstone first, so that a reference added
+   * concurrently by another run either moves along with it and is seen when checking the tombstone, or creates
+   * a new entry. If the tombstone is no longer expired, it is restored.
+   */
+  private void expire(Location entry) throws IOException {
+    if (entry.getName().contains(TOMBSTONE_SEPARATOR)) {
+      // Tombstone left behind by a run that failed in the middle of deleting an entry
+      LOG.debug("Deleting expired jar cache tombstone {}", entry);
+      Locations.deleteQuietly(entry, true);
+      return;
+    }
+
+    Location tombstone;
+    try {
+      tombstone = entry.renameTo(cacheDir.append(entry.getName() + TOMBSTONE_SEPARATOR + UUID.randomUUID()));
+    } catch (IOException e) {
+      // The entry was deleted by another run concurrently
+      LOG.trace("Failed to rename jar cache entry {} for deletion", entry, e);
+      return;
+    }
+    if (tombstone == null) {
+      return;
+    }
+    if (isExpired(tombstone, System.currentTimeMillis())) {
+      LOG.debug("Deleting expired jar cache entry {}", entry);
+      Locations.deleteQuietly(tombstone, true);
+      return;
+    }
+
+    LOG.debug("Restoring jar cache entry {} that is referenced again", entry);
+    try {
+      if (tombstone.renameTo(entry) != null) {
+        return;
+      }
+    } catch (IOException e) {
+      // The entry was created again by another run
+      LOG.trace("Failed to rename {} to {}", tombstone, entry, e);
+    }
+    // Move the references to the new entry, which has the same content
+    Location tombstoneRefsDir = tombstone.append(REFS_DIR);
+    if (tombstoneRefsDir.exists()) {
+      Location refsDir = entry.append(REFS_DIR);
+      refsDir.mkdirs();
+      for (Location reference : tombstoneRefsDir.list()) {
+        refsDir.append(reference.getName()).createNew();
+      }
+    }
+    Locations.deleteQuietly(tombstone, true);
+  }
+
+  /**
+   * Returns {@code true} if the given cache entry has no live reference and hasn't been used for longer than
+   * the retention time.
+   */
+  private boolean isExpired(Location entry, long now) throws IOException {
+    Location refsDir = entry.append(REFS_DIR);
+    long lastUsed = entry.lastModified();
+    if (refsDir.exists()) {
+      lastUsed = Math.max(lastUsed, refsDir.lastModified());
+      for (Location reference : refsDir.list()) {
+        if (reference.lastModified() + STALE_REFERENCE_MILLIS >= now) {
+          return false;
+        }
+      }
+    }
+    return lastUsed + retentionMillis < now;
+  }
+
+  /**
+   * Writes the given stream to a temporary file next to the target and renames it to the target. If the target
+   * is created by another run concurrently, the temporary file is simply discarded.
+   */
+  private void upload(InputStream input, Location target) throws IOException {
+    Location tmpLocation = target.getTempFile(".tmp");
+    try {
+      try (OutputStream output = tmpLocation.getOutputStream()) {
+        ByteStreams.copy(input, output);
+      } finally {
+        input.close();
+      }
+      if (tmpLocation.renameTo(target) == null && !target.exists()) {
+        throw new IOException("Failed to rename " + tmpLocation + " to " + target);
+      }
+    } finally {
+      Locations.deleteQuietly(tmpLocation);
+    }
+  }
+
+  /**
+   * Builds a jar file for the cache.
+   */
+  interface JarBuilder {
+
+    /**
+     * Builds the jar to the given file.
+     *
+     * @param jarFile the file to write the jar to
+     * @throws IOException if failed to build the jar
+     */
+    void build(File jarFile) throws IOException;
+  }
+}
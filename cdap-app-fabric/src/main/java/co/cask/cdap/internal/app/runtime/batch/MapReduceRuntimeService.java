@@ -69,6 +69,7 @@ import co.cask.cdap.security.spi.authentication.AuthenticationContext;
 import co.cask.cdap.security.spi.authorization.AuthorizationEnforcer;
 import co.cask.cdap.security.store.SecureStoreUtils;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Charsets;
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
@@ -105,6 +106,7 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Field;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
@@ -239,6 +241,14 @@ final class MapReduceRuntimeService extends AbstractExecutionThreadService {
       Location tempLocation = createTempLocationDirectory();
       cleanupTask = createCleanupTask(cleanupTask, tempLocation);
 
+      // Jars that are identical across runs are reused through the jar cache in distributed mode
+      MapReduceJarCache jarCache = null;
+      if (!MapReduceTaskContextProvider.isLocal(mapredConf)
+        && cConf.getBoolean(Constants.AppFabric.MAPREDUCE_JAR_CACHE_ENABLED)) {
+        jarCache = createJarCache();
+        cleanupTask = createCleanupTask(cleanupTask, jarCache);
+      }
+
       // For local mode, everything is in the configuration classloader already, hence no need to create new jar
       if (!MapReduceTaskContextProvider.isLocal(mapredConf)) {
         // After calling initialize, we know what plugins are needed for the program, hence construct the proper
@@ -263,17 +273,18 @@ final class MapReduceRuntimeService extends AbstractExecutionThreadService {
       RawComparatorWrapper.KeyComparatorWrapper.wrap(job);
 
       // packaging job jar which includes cdap classes with dependencies
-      File jobJar = buildJobJar(job, tempDir);
+      File jobJar = buildJobJar(job, tempDir, jarCache);
       job.setJar(jobJar.toURI().toString());
 
       Location programJar = programJarLocation;
       if (!MapReduceTaskContextProvider.isLocal(mapredConf)) {
         // Copy and localize the program jar in distributed mode
-        programJar = copyProgramJar(tempLocation);
+        programJar = jarCache == null ? copyProgramJar(tempLocation)
+                                      : jarCache.getLocation(programJarLocation, "program.jar");
         job.addCacheFile(programJar.toURI());
 
         // Generate and localize the launcher jar to control the classloader of MapReduce containers processes
-        Location launcherJar = createLauncherJar(tempLocation);
+        Location launcherJar = createLauncherJar(tempLocation, jarCache);
         job.addCacheFile(launcherJar.toURI());
 
         // Launcher.jar should be the first one in the classpath
@@ -281,7 +292,7 @@ final class MapReduceRuntimeService extends AbstractExecutionThreadService {
         classpath.add(launcherJar.getName());
 
         // Localize logback.xml
-        Location logbackLocation = ProgramRunners.createLogbackJar(tempLocation);
+        Location logbackLocation = createLogbackJar(tempLocation, jarCache);
         if (logbackLocation != null) {
           job.addCacheFile(logbackLocation.toURI());
           classpath.add(logbackLocation.getName());
@@ -340,6 +351,7 @@ final class MapReduceRuntimeService extends AbstractExecutionThreadService {
 
         this.job = job;
         this.transaction = tx;
+        context.emitClassLoadingMetrics();
       } catch (Throwable t) {
         Transactions.invalidateQuietly(txClient, tx);
         throw t;
@@ -511,6 +523,22 @@ final class MapReduceRuntimeService extends AbstractExecutionThreadService {
     return location;
   }
 
+  /**
+   * Creates a {@link MapReduceJarCache} for this run. The shared cache directory is in the namespace of the program,
+   * while generated jars are also kept in the local temp directory.
+   */
+  private MapReduceJarCache createJarCache() throws IOException {
+    Id.Program programId = context.getProgram().getId().toId();
+    String cacheDirName = cConf.get(Constants.AppFabric.MAPREDUCE_JAR_CACHE_DIR);
+    Location cacheDir = locationFactory.get(programId.getNamespace(),
+                                            cConf.get(Constants.AppFabric.TEMP_DIR) + "/" + cacheDirName);
+    File localCacheDir = new File(new File(cConf.get(Constants.CFG_LOCAL_DATA_DIR),
+                                           cConf.get(Constants.AppFabric.TEMP_DIR)), cacheDirName).getAbsoluteFile();
+    long retentionMillis = TimeUnit.SECONDS.toMillis(
+      cConf.getLong(Constants.AppFabric.MAPREDUCE_JAR_CACHE_RETENTION_SECONDS));
+    return new MapReduceJarCache(cacheDir, localCacheDir, context.getRunId().getId(), retentionMillis);
+  }
+
   /**
    * For pre 3.5 MapReduce programs, calls the {@link MapReduce#beforeSubmit(MapReduceContext)} method.
    * For MapReduce programs created after 3.5, calls the initialize method of the {@link ProgramLifecycle}.
@@ -879,10 +907,13 @@ final class MapReduceRuntimeService extends AbstractExecutionThreadService {
 
   /**
    * Creates a jar that contains everything that are needed for running the MapReduce program by Hadoop.
+   * If a {@link MapReduceJarCache} is provided, a jar built by a previous run with the same classes and
+   * class path is reused.
    *
    * @return a new {@link File} containing the job jar
    */
-  private File buildJobJar(Job job, File tempDir) throws IOException, URISyntaxException {
+  private File buildJobJar(Job job, File tempDir,
+                           @Nullable MapReduceJarCache jarCache) throws IOException, URISyntaxException {
     File jobJar = new File(tempDir, "job.jar");
     LOG.debug("Creating Job jar: {}", jobJar);
 
@@ -897,7 +928,7 @@ final class MapReduceRuntimeService extends AbstractExecutionThreadService {
     // Hadoop - Available from the cluster
     // Spark - MR never uses Spark
     final HadoopClassExcluder hadoopClassExcluder = new HadoopClassExcluder();
-    ApplicationBundler appBundler = new ApplicationBundler(new ClassAcceptor() {
+    final ApplicationBundler appBundler = new ApplicationBundler(new ClassAcceptor() {
       @Override
       public boolean accept(String className, URL classUrl, URL classPathUrl) {
         if (className.startsWith("org.apache.spark") || classPathUrl.toString().contains("spark-assembly")) {
@@ -906,7 +937,7 @@ final class MapReduceRuntimeService extends AbstractExecutionThreadService {
         return hadoopClassExcluder.accept(className, classUrl, classPathUrl);
       }
     });
-    Set<Class<?>> classes = Sets.newHashSet();
+    final Set<Class<?>> classes = Sets.newHashSet();
     classes.add(MapReduce.class);
     classes.add(MapperWrapper.class);
     classes.add(ReducerWrapper.class);
@@ -955,12 +986,82 @@ final class MapReduceRuntimeService extends AbstractExecutionThreadService {
       LOG.warn("Not including HBaseTableUtil classes in submitted Job Jar since they are not available");
     }
 
-    ClassLoader oldCLassLoader = ClassLoaders.setContextClassLoader(job.getConfiguration().getClassLoader());
-    appBundler.createBundle(Locations.toLocation(jobJar), classes);
-    ClassLoaders.setContextClassLoader(oldCLassLoader);
+    final Configuration jobConf = job.getConfiguration();
+    String buildKey = jarCache == null ? null : getJobJarKey(classes);
+    if (jarCache == null || buildKey == null) {
+      createJobJarBundle(appBundler, classes, jobConf, jobJar);
+      LOG.info("Built MapReduce Job Jar at {}", jobJar.toURI());
+      return jobJar;
+    }
+
+    File cachedJobJar = jarCache.getFile(buildKey, "job.jar", new MapReduceJarCache.JarBuilder() {
+      @Override
+      public void build(File jarFile) throws IOException {
+        createJobJarBundle(appBundler, classes, jobConf, jarFile);
+      }
+    });
+    LOG.info("Using MapReduce Job Jar at {}", cachedJobJar.toURI());
+    return cachedJobJar;
+  }
 
-    LOG.info("Built MapReduce Job Jar at {}", jobJar.toURI());
-    return jobJar;
+  /**
+   * Creates the job jar bundle with the context ClassLoader set to the ClassLoader of the job configuration.
+   */
+  private void createJobJarBundle(ApplicationBundler appBundler, Set<Class<?>> classes,
+                                  Configuration jobConf, File jobJar) throws IOException {
+    ClassLoader oldCLassLoader = ClassLoaders.setContextClassLoader(jobConf.getClassLoader());
+    try {
+      appBundler.createBundle(Locations.toLocation(jobJar), classes);
+    } finally {
+      ClassLoaders.setContextClassLoader(oldCLassLoader);
+    }
+  }
+
+  /**
+   * Returns the key for caching the job jar that contains the given classes, or {@code null} if the job jar
+   * shouldn't be cached. Classes are traced from the class path of the current process or from the program jar,
+   * hence both are part of the key. Jars that contain classes from plugins are not cached.
+   */
+  @Nullable
+  private String getJobJarKey(Set<Class<?>> classes) throws IOException {
+    ClassLoader programClassLoader = context.getProgram().getClassLoader();
+    boolean hasProgramClass = false;
+    List<String> classNames = new ArrayList<>();
+    for (Class<?> cls : classes) {
+      if (cls.getClassLoader() == programClassLoader) {
+        hasProgramClass = true;
+      } else if (!isSystemClassLoader(cls.getClassLoader())) {
+        return null;
+      }
+      classNames.add(cls.getName());
+    }
+    Collections.sort(classNames);
+
+    StringBuilder key = new StringBuilder("job.jar:").append(MapReduceJarCache.getClassPathKey());
+    for (String className : classNames) {
+      key.append(':').append(className);
+    }
+    if (hasProgramClass) {
+      key.append(':').append(MapReduceJarCache.getContentHash(programJarLocation));
+    }
+    return key.toString();
+  }
+
+  /**
+   * Returns {@code true} if the given {@link ClassLoader} is the one that loaded this class or one of its parents.
+   */
+  private boolean isSystemClassLoader(@Nullable ClassLoader classLoader) {
+    if (classLoader == null) {
+      return true;
+    }
+    ClassLoader cl = getClass().getClassLoader();
+    while (cl != null) {
+      if (cl == classLoader) {
+        return true;
+      }
+      cl = cl.getParent();
+    }
+    return false;
   }
 
   /**
@@ -1133,15 +1234,55 @@ final class MapReduceRuntimeService extends AbstractExecutionThreadService {
    * @see MapReduceContainerLauncher
    * @see ContainerLauncherGenerator
    */
-  private Location createLauncherJar(Location targetDir) throws IOException {
-    Location launcherJar = targetDir.append("launcher.jar");
-
-    ContainerLauncherGenerator.generateLauncherJar(
-      Arrays.asList(
-        "org.apache.hadoop.mapreduce.v2.app.MRAppMaster",
-        "org.apache.hadoop.mapred.YarnChild"
-      ), MapReduceContainerLauncher.class, Locations.newOutputSupplier(launcherJar));
-    return launcherJar;
+  private Location createLauncherJar(Location targetDir, @Nullable MapReduceJarCache jarCache) throws IOException {
+    final List<String> mainClassNames = Arrays.asList(
+      "org.apache.hadoop.mapreduce.v2.app.MRAppMaster",
+      "org.apache.hadoop.mapred.YarnChild"
+    );
+
+    if (jarCache == null) {
+      Location launcherJar = targetDir.append("launcher.jar");
+      ContainerLauncherGenerator.generateLauncherJar(mainClassNames, MapReduceContainerLauncher.class,
+                                                     Locations.newOutputSupplier(launcherJar));
+      return launcherJar;
+    }
+
+    String buildKey = "launcher.jar:" + MapReduceJarCache.getClassPathKey() + ":" + Joiner.on(':').join(mainClassNames);
+    return jarCache.getLocation(buildKey, "launcher.jar", new MapReduceJarCache.JarBuilder() {
+      @Override
+      public void build(File jarFile) throws IOException {
+        ContainerLauncherGenerator.generateLauncherJar(mainClassNames, MapReduceContainerLauncher.class,
+                                                       Files.newOutputStreamSupplier(jarFile));
+      }
+    });
+  }
+
+  /**
+   * Creates a jar that contains the logback.xml of the current process.
+   *
+   * @return the {@link Location} of the jar or {@code null} if there is no logback.xml
+   * @see ProgramRunners#createLogbackJar(Location)
+   */
+  @Nullable
+  private Location createLogbackJar(Location targetDir, @Nullable MapReduceJarCache jarCache) throws IOException {
+    if (jarCache == null) {
+      return ProgramRunners.createLogbackJar(targetDir);
+    }
+
+    final URL logbackURL = ProgramRunners.getLogbackURL();
+    if (logbackURL == null) {
+      return null;
+    }
+    String buildKey;
+    try (InputStream input = logbackURL.openStream()) {
+      buildKey = "logback.jar:" + new String(ByteStreams.toByteArray(input), Charsets.UTF_8);
+    }
+    return jarCache.getLocation(buildKey, "logback.jar", new MapReduceJarCache.JarBuilder() {
+      @Override
+      public void build(File jarFile) throws IOException {
+        ProgramRunners.writeLogbackJar(logbackURL, new FileOutputStream(jarFile));
+      }
+    });
   }
 
   private Runnable createCleanupTask(final Object...resources) {
@@ -74,6 +74,7 @@ final class FlowletRuntimeService extends AbstractIdleService {
     serviceHook.startAndWait();
     initFlowlet();
     flowletProcessDriver.startAndWait();
+    flowletContext.emitClassLoadingMetrics();
   }
 
   @Override
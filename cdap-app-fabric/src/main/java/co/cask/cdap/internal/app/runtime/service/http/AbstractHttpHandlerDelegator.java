@@ -18,6 +18,7 @@ package co.cask.cdap.internal.app.runtime.service.http;
 
 import co.cask.cdap.api.metrics.MetricsContext;
 import co.cask.cdap.api.service.http.AbstractHttpServiceHandler;
+import co.cask.cdap.api.service.http.AsyncHttpServiceResponse;
 import co.cask.cdap.api.service.http.HttpContentConsumer;
 import co.cask.cdap.api.service.http.HttpContentProducer;
 import co.cask.cdap.api.service.http.HttpServiceContext;
@@ -38,6 +39,7 @@ import org.apache.twill.common.Cancellable;
 import org.jboss.netty.handler.codec.http.HttpRequest;
 
 import java.util.Arrays;
+import java.util.concurrent.TimeoutException;
 
 /**
  * An abstract base class for all {@link HttpHandler} generated through the {@link HttpHandlerGenerator}.
@@ -168,4 +170,43 @@ public abstract class AbstractHttpHandlerDelegator<T extends HttpServiceHandler>
       }
     }), consumer, serviceContext, programContextClassLoader, contextReleaser);
   }
+
+  /**
+   * Registers a callback to the given {@link AsyncHttpServiceResponse} to send the response through the given
+   * {@link DelayedHttpServiceResponder} when the {@link AsyncHttpServiceResponse} is completed. The thread calling
+   * this method is then free to handle other requests.
+   *
+   * The context associated with the current thread is not captured, so that it can be used by the thread for other
+   * requests while the response is pending. A context is acquired again when the response is completed. If the
+   * response is not completed within the configured timeout, it is failed with a {@link TimeoutException}.
+   *
+   * This method is called from handler class generated by {@link HttpHandlerGenerator}.
+   */
+  @SuppressWarnings("unused")
+  protected final <V> void wrapAsyncResponse(final AsyncHttpServiceResponse<V> asyncResponse,
+                                             DelayedHttpServiceResponder responder) {
+    Preconditions.checkState(!responder.hasBufferedResponse(),
+                             "AsyncHttpServiceResponse may not be used after a response has already been sent.");
+    // Close the provided responder since a new one will be created for the AsyncResponseAdapter to use.
+    responder.close();
+
+    // All transactional operations of the handler method are completed, hence the context can be used
+    // by the current thread for other requests.
+    HttpServiceContext serviceContext = context.getServiceContext();
+    Preconditions.checkState(serviceContext instanceof TransactionalHttpServiceContext,
+                             "This instance of HttpServiceContext does not support transactions.");
+    ((TransactionalHttpServiceContext) serviceContext).dismissTransactionContext();
+
+    ClassLoader programContextClassLoader = new CombineClassLoader(
+      null, ImmutableList.of(asyncResponse.getClass().getClassLoader(), getClass().getClassLoader()));
+
+    Cancellable timeoutCanceller = context.scheduleAsyncResponseTimeout(new Runnable() {
+      @Override
+      public void run() {
+        asyncResponse.fail(new TimeoutException("Timeout in waiting for the asynchronous response to complete"));
+      }
+    });
+    asyncResponse.addCallback(new AsyncResponseAdapter<V>(responder, asyncResponse, context,
+                                                          programContextClassLoader, timeoutCanceller));
+  }
 }
@@ -0,0 +1,200 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.internal.app.runtime.service.http;
+
+import co.cask.cdap.api.Transactional;
+import co.cask.cdap.api.TxRunnable;
+import co.cask.cdap.api.annotation.TransactionControl;
+import co.cask.cdap.api.data.DatasetContext;
+import co.cask.cdap.api.service.http.AsyncHttpServiceResponse;
+import co.cask.cdap.api.service.http.HttpContentProducer;
+import co.cask.cdap.api.service.http.HttpServiceContext;
+import co.cask.cdap.api.service.http.HttpServiceResponder;
+import co.cask.cdap.common.lang.ClassLoaders;
+import co.cask.cdap.data2.transaction.Transactions;
+import co.cask.http.BodyProducer;
+import org.apache.twill.common.Cancellable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import javax.annotation.Nullable;
+
+/**
+ * An adapter class to resume the processing of a request when an {@link AsyncHttpServiceResponse} is completed.
+ * No context is held while the request is suspended. A context is acquired when the request is resumed, and is
+ * released after the response is sent.
+ *
+ * @param <T> type of the result of the {@link AsyncHttpServiceResponse}
+ */
+final class AsyncResponseAdapter<T> implements AsyncHttpServiceResponse.Callback<T> {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AsyncResponseAdapter.class);
+
+  private final DelayedHttpServiceResponder suspendedResponder;
+  private final AsyncHttpServiceResponse<T> delegate;
+  private final DelegatorContext<?> context;
+  private final ClassLoader programContextClassLoader;
+  private final Cancellable timeoutCanceller;
+
+  /**
+   * Constructs a new instance.
+   *
+   * @param suspendedResponder the closed responder of the suspended request, used for creating the responder
+   *                           for sending response back to client
+   * @param delegate the {@link AsyncHttpServiceResponse} to delegate calls to
+   * @param context the {@link DelegatorContext} for acquiring a context when the request is resumed
+   * @param programContextClassLoader the context ClassLoader to use to execute user code
+   * @param timeoutCanceller A {@link Cancellable} for cancelling the timeout of the response
+   */
+  AsyncResponseAdapter(DelayedHttpServiceResponder suspendedResponder, AsyncHttpServiceResponse<T> delegate,
+                       DelegatorContext<?> context, ClassLoader programContextClassLoader,
+                       Cancellable timeoutCanceller) {
+    this.suspendedResponder = suspendedResponder;
+    this.delegate = delegate;
+    this.context = context;
+    this.programContextClassLoader = programContextClassLoader;
+    this.timeoutCanceller = timeoutCanceller;
+  }
+
+  @Override
+  public void completed(@Nullable final T result) {
+    timeoutCanceller.cancel();
+    DelegatorContext.AcquiredContext acquiredContext = context.acquire();
+    TransactionalHttpServiceContext serviceContext = getServiceContext(acquiredContext);
+    final DelayedHttpServiceResponder responder = createResponder(serviceContext, acquiredContext);
+
+    TransactionControl txCtrl = getOnCompleteTransactionControl();
+    ClassLoader oldClassLoader = ClassLoaders.setContextClassLoader(programContextClassLoader);
+    try {
+      if (TransactionControl.IMPLICIT == txCtrl) {
+        serviceContext.execute(new TxRunnable() {
+          @Override
+          public void run(DatasetContext context) throws Exception {
+            delegate.onComplete(responder, result);
+          }
+        });
+      } else {
+        delegate.onComplete(responder, result);
+      }
+    } catch (Throwable t) {
+      onError(responder, serviceContext, acquiredContext, t);
+      return;
+    } finally {
+      ClassLoaders.setContextClassLoader(oldClassLoader);
+    }
+
+    execute(responder, acquiredContext);
+  }
+
+  @Override
+  public void failed(Throwable failureCause) {
+    timeoutCanceller.cancel();
+    DelegatorContext.AcquiredContext acquiredContext = context.acquire();
+    TransactionalHttpServiceContext serviceContext = getServiceContext(acquiredContext);
+    onError(createResponder(serviceContext, acquiredContext), serviceContext, acquiredContext, failureCause);
+  }
+
+  private TransactionalHttpServiceContext getServiceContext(DelegatorContext.AcquiredContext acquiredContext) {
+    HttpServiceContext serviceContext = acquiredContext.getServiceContext();
+    if (!(serviceContext instanceof TransactionalHttpServiceContext)) {
+      acquiredContext.cancel();
+      throw new IllegalStateException("This instance of HttpServiceContext does not support transactions.");
+    }
+    return (TransactionalHttpServiceContext) serviceContext;
+  }
+
+  /**
+   * Creates a {@link DelayedHttpServiceResponder} that uses the given acquired context for sending the response.
+   */
+  private DelayedHttpServiceResponder createResponder(TransactionalHttpServiceContext serviceContext,
+                                                     final Cancellable contextReleaser) {
+    return new DelayedHttpServiceResponder(suspendedResponder, new BodyProducerFactory() {
+      @Override
+      public BodyProducer create(HttpContentProducer contentProducer, TransactionalHttpServiceContext serviceContext) {
+        // Transfer the acquired context to the content producer
+        return new BodyProducerAdapter(contentProducer, serviceContext, programContextClassLoader, contextReleaser);
+      }
+    }, serviceContext);
+  }
+
+  /**
+   * Sends the response and releases the acquired context, unless it is transferred to a content producer.
+   */
+  private void execute(DelayedHttpServiceResponder responder, Cancellable contextReleaser) {
+    try {
+      responder.execute();
+    } finally {
+      if (!responder.hasContentProducer()) {
+        contextReleaser.cancel();
+      }
+    }
+  }
+
+  /**
+   * Returns the {@link TransactionControl} of the {@link AsyncHttpServiceResponse#onComplete} method. Since the
+   * method is generic, the overriding method is looked up by name instead of by the erased parameter types.
+   */
+  private TransactionControl getOnCompleteTransactionControl() {
+    Class<?> cls = delegate.getClass();
+    while (cls != AsyncHttpServiceResponse.class) {
+      for (Method method : cls.getDeclaredMethods()) {
+        Class<?>[] params = method.getParameterTypes();
+        if (!method.isBridge() && "onComplete".equals(method.getName())
+          && params.length == 2 && HttpServiceResponder.class.equals(params[0])) {
+          return Transactions.getTransactionControl(TransactionControl.IMPLICIT, AsyncHttpServiceResponse.class,
+                                                    delegate, "onComplete", params);
+        }
+      }
+      cls = cls.getSuperclass();
+    }
+    return TransactionControl.IMPLICIT;
+  }
+
+  /**
+   * Calls the {@link AsyncHttpServiceResponse#onError(HttpServiceResponder, Throwable)} method from a transaction.
+   */
+  private void onError(final DelayedHttpServiceResponder responder, Transactional transactional,
+                       Cancellable contextReleaser, final Throwable cause) {
+    TransactionControl txCtrl = Transactions.getTransactionControl(
+      TransactionControl.IMPLICIT, AsyncHttpServiceResponse.class, delegate,
+      "onError", HttpServiceResponder.class, Throwable.class);
+    ClassLoader oldClassLoader = ClassLoaders.setContextClassLoader(programContextClassLoader);
+    try {
+      if (TransactionControl.IMPLICIT == txCtrl) {
+        transactional.execute(new TxRunnable() {
+          @Override
+          public void run(DatasetContext context) throws Exception {
+            delegate.onError(responder, cause);
+          }
+        });
+      } else {
+        delegate.onError(responder, cause);
+      }
+    } catch (Throwable t) {
+      responder.setTransactionFailureResponse(t);
+      LOG.warn("Exception in calling AsyncHttpServiceResponse.onError", t);
+    } finally {
+      ClassLoaders.setContextClassLoader(oldClassLoader);
+    }
+
+    if (!responder.hasBufferedResponse()) {
+      responder.setTransactionFailureResponse(cause);
+    }
+    execute(responder, contextReleaser);
+  }
+}
@@ -70,9 +70,18 @@ public class DelayedHttpServiceResponder extends AbstractHttpServiceResponder im
    * with a different {@link BodyProducerFactory}.
    */
   DelayedHttpServiceResponder(DelayedHttpServiceResponder other, BodyProducerFactory bodyProducerFactory) {
+    this(other, bodyProducerFactory, other.serviceContext);
+  }
+
+  /**
+   * Intantiates the class from another {@link DelayedHttpServiceResponder}
+   * with a different {@link BodyProducerFactory} and {@link TransactionalHttpServiceContext}.
+   */
+  DelayedHttpServiceResponder(DelayedHttpServiceResponder other, BodyProducerFactory bodyProducerFactory,
+                              TransactionalHttpServiceContext serviceContext) {
     this.responder = other.responder;
     this.bodyProducerFactory = bodyProducerFactory;
-    this.serviceContext = other.serviceContext;
+    this.serviceContext = serviceContext;
     this.metricsContext = other.metricsContext;
     this.bufferedResponse = other.bufferedResponse;
   }
@@ -16,6 +16,7 @@
 
 package co.cask.cdap.internal.app.runtime.service.http;
 
+import co.cask.cdap.api.service.http.AsyncHttpServiceResponse;
 import co.cask.cdap.api.service.http.HttpServiceContext;
 import co.cask.cdap.api.service.http.HttpServiceHandler;
 import org.apache.twill.common.Cancellable;
@@ -51,4 +52,34 @@ public interface DelegatorContext<T extends HttpServiceHandler> {
    *         to be reused.
    */
   Cancellable capture();
+
+  /**
+   * Acquires a context that is not associated with any thread. It is used to resume the processing of a request
+   * that doesn't hold on to a context while it is suspended, such as while waiting for an
+   * {@link AsyncHttpServiceResponse} to complete.
+   *
+   * @return an {@link AcquiredContext} that provides the {@link HttpServiceContext}, and must be cancelled to
+   *         release the context once the request is completed
+   */
+  AcquiredContext acquire();
+
+  /**
+   * Schedules the given task to be executed if an {@link AsyncHttpServiceResponse} is not completed within
+   * the configured timeout.
+   *
+   * @param task the task to execute on timeout
+   * @return a {@link Cancellable} to cancel the task once the {@link AsyncHttpServiceResponse} is completed
+   */
+  Cancellable scheduleAsyncResponseTimeout(Runnable task);
+
+  /**
+   * A context acquired through {@link #acquire()}. Calling {@link #cancel()} releases the context.
+   */
+  interface AcquiredContext extends Cancellable {
+
+    /**
+     * Returns the instance of the service context.
+     */
+    HttpServiceContext getServiceContext();
+  }
 }
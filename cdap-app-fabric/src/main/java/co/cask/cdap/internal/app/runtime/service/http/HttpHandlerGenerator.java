@@ -19,6 +19,7 @@ package co.cask.cdap.internal.app.runtime.service.http;
 import co.cask.cdap.api.annotation.TransactionControl;
 import co.cask.cdap.api.annotation.TransactionPolicy;
 import co.cask.cdap.api.metrics.MetricsContext;
+import co.cask.cdap.api.service.http.AsyncHttpServiceResponse;
 import co.cask.cdap.api.service.http.HttpContentConsumer;
 import co.cask.cdap.api.service.http.HttpServiceHandler;
 import co.cask.cdap.api.service.http.HttpServiceRequest;
@@ -65,6 +66,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import javax.annotation.Nullable;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
 import javax.ws.rs.HEAD;
@@ -98,7 +100,13 @@ import javax.ws.rs.Path;
  *
  *     @literal @PUT
  *     @literal @Path("/upload")
- *     public HttpContentConsumer userUpload(HttpRequest request, HttpResponder responder) {
+ *     public BodyConsumer userUpload(HttpRequest request, HttpResponder responder) {
+ *       // see generateTransactionalDelegateBody() for generated method body.
+ *     }
+ *
+ *     @literal @GET
+ *     @literal @Path("/async")
+ *     public void userAsync(HttpRequest request, HttpResponder responder) {
  *       // see generateTransactionalDelegateBody() for generated method body.
  *     }
  *   }
@@ -430,11 +438,18 @@ final class HttpHandlerGenerator {
 
       // If the return type is an instance of HttpContentConsumer, the generated method need to have
       // netty-http BodyConsumer as return type.
+      // If the return type is an instance of AsyncHttpServiceResponse, the generated method returns void, since
+      // the response will be sent when the AsyncHttpServiceResponse is completed.
+      Type returnValueType = null;
       if (returnType.getSort() == Type.OBJECT) {
         try {
           Class<?> returnClass = delegateType.getRawType().getClassLoader().loadClass(returnType.getClassName());
           if (HttpContentConsumer.class.isAssignableFrom(returnClass)) {
+            returnValueType = Type.getType(HttpContentConsumer.class);
             returnType = Type.getType(BodyConsumer.class);
+          } else if (AsyncHttpServiceResponse.class.isAssignableFrom(returnClass)) {
+            returnValueType = Type.getType(AsyncHttpServiceResponse.class);
+            returnType = Type.VOID_TYPE;
           }
         } catch (ClassNotFoundException e) {
           // Shouldn't happen since the delegateType (user handler class) is already loaded and the method return
@@ -446,7 +461,9 @@ final class HttpHandlerGenerator {
       // Copy the method signature with the first two parameter types changed and return type changed
       String methodDesc = Type.getMethodDescriptor(returnType, argTypes);
       MethodVisitor methodVisitor = classWriter.visitMethod(access, name, methodDesc,
-                                                            rewriteMethodSignature(signature), exceptions);
+                                                            rewriteMethodSignature(signature, returnValueType == null
+                                                                                      ? null : returnType),
+                                                            exceptions);
       final GeneratorAdapter mg = new GeneratorAdapter(methodVisitor, access, name, desc);
 
       // Replay all annotations before generating the body.
@@ -460,7 +477,7 @@ final class HttpHandlerGenerator {
       }
 
       // Each request method is wrapped by a transaction lifecycle.
-      generateTransactionalDelegateBody(mg, new Method(name, desc), txCtrl);
+      generateTransactionalDelegateBody(mg, new Method(name, desc), txCtrl, returnValueType);
 
       super.visitEnd();
     }
@@ -498,15 +515,32 @@ final class HttpHandlerGenerator {
     /**
      * Rewrite the handler method signature to have the first two parameters rewritten from
      * {@link HttpServiceRequest} and {@link HttpServiceResponder} into
-     * {@link HttpRequest} and {@link HttpResponder}.
+     * {@link HttpRequest} and {@link HttpResponder}. The return type is rewritten to the given type if it is not
+     * {@code null}.
      */
-    private String rewriteMethodSignature(String signature) {
+    private String rewriteMethodSignature(String signature, @Nullable final Type returnType) {
       if (signature == null) {
         return null;
       }
 
       SignatureReader reader = new SignatureReader(signature);
       SignatureWriter writer = new SignatureWriter() {
+        @Override
+        public SignatureVisitor visitReturnType() {
+          if (returnType == null) {
+            return super.visitReturnType();
+          }
+          super.visitReturnType();
+          if (returnType.getSort() == Type.OBJECT) {
+            super.visitClassType(returnType.getInternalName());
+            super.visitEnd();
+          } else {
+            super.visitBaseType(returnType.getDescriptor().charAt(0));
+          }
+          // Ignore the original return type
+          return new SignatureVisitor(Opcodes.ASM5) { };
+        }
+
         @Override
         public void visitClassType(String name) {
           if (name.equals(Type.getInternalName(HttpServiceRequest.class))) {
@@ -535,7 +569,8 @@ final class HttpHandlerGenerator {
      * <pre>{@code
      *   public void|BodyConsumer handle(HttpRequest request, HttpResponder responder, ...) {
      *     T handler = getHandler();
-     *     HttpContentConsumer contentConsumer = null;
+     *     // Only generated if handler method returns HttpContentConsumer or AsyncHttpServiceResponse
+     *     [HttpContentConsumer|AsyncHttpServiceResponse returnValue = null;]
      *     DelayedHttpServiceResponder wrappedResponder = wrapResponder(responder);
      *     try {
      *       // only start tx if transaction control is IMPLICIT
@@ -544,8 +579,8 @@ final class HttpHandlerGenerator {
      *       try {
      *         ClassLoader classLoader = ClassLoaders.setContextClassLoader(createHandlerContextClassLoader());
      *         try {
-     *           // Only do assignment if handler method returns HttpContentConsumer
-     *           [contentConsumer = ]handler.handle(wrapRequest(request), wrappedResponder, ...);
+     *           // Only do assignment if handler method returns HttpContentConsumer or AsyncHttpServiceResponse
+     *           [returnValue = ]handler.handle(wrapRequest(request), wrappedResponder, ...);
      *         } finally {
      *           ClassLoaders.setContextClassLoader(classLoader);
      *         }
@@ -559,32 +594,36 @@ final class HttpHandlerGenerator {
      *     } catch (TransactionFailureException e) { // generate only if transaction constrol is IMPLICIT
      *        LOG.error("Transaction failure: ", e);
      *        wrappedResponder.setTransactionFailureResponse(e);
-     *        contentConsumer = null;
+     *        [returnValue = null;]
      *     } catch (Throwable t) { // generate only if transaction constrol is EXPLICIT
      *        LOG.error("User Handler exception", t);
      *        wrappedResponder.setTransactionFailureResponse(t);
-     *        contentConsumer = null;
+     *        [returnValue = null;]
      *     }
-     *     if (contentConsumer == null) {
+     *     if (returnValue == null) {
      *       wrappedResponder.execute();
      *       // Only return null if handler method returns HttpContentConsumer
      *       [return null;]
      *     }
      *
      *     // Only generated if handler method returns HttpContentConsumer
-     *     [return wrapContentConsumer(httpContentConsumer, wrappedResponder);]
+     *     [return wrapContentConsumer(returnValue, wrappedResponder);]
+     *
+     *     // Only generated if handler method returns AsyncHttpServiceResponse
+     *     [wrapAsyncResponse(returnValue, wrappedResponder);]
      *   }
      * }
      * </pre>
      */
-    private void generateTransactionalDelegateBody(GeneratorAdapter mg, Method method, TransactionControl txCtrl) {
+    private void generateTransactionalDelegateBody(GeneratorAdapter mg, Method method, TransactionControl txCtrl,
+                                                   @Nullable Type returnValueType) {
       Type handlerType = Type.getType(delegateType.getRawType());
       Type txContextType = Type.getType(TransactionContext.class);
       Type txFailureExceptionType = Type.getType(TransactionFailureException.class);
       Type loggerType = Type.getType(Logger.class);
       Type throwableType = Type.getType(Throwable.class);
       Type delayedHttpServiceResponderType = Type.getType(DelayedHttpServiceResponder.class);
-      Type httpContentConsumerType = Type.getType(HttpContentConsumer.class);
+      boolean contentConsumer = Type.getType(HttpContentConsumer.class).equals(returnValueType);
 
       Label txTryBegin = mg.newLabel();
       Label txTryEnd = mg.newLabel();
@@ -611,10 +650,13 @@ final class HttpHandlerGenerator {
       mg.checkCast(handlerType);
       mg.storeLocal(handler, handlerType);
 
-      // HttpContentConsumer contentConsumer = null;
-      int contentConsumer = mg.newLocal(httpContentConsumerType);
-      mg.visitInsn(Opcodes.ACONST_NULL);
-      mg.storeLocal(contentConsumer, httpContentConsumerType);
+      // HttpContentConsumer|AsyncHttpServiceResponse returnValue = null;
+      int returnValue = -1;
+      if (returnValueType != null) {
+        returnValue = mg.newLocal(returnValueType);
+        mg.visitInsn(Opcodes.ACONST_NULL);
+        mg.storeLocal(returnValue, returnValueType);
+      }
 
       // DelayedHttpServiceResponder wrappedResponder = wrapResponder(responder);;
       int wrappedResponder = mg.newLocal(delayedHttpServiceResponderType);
@@ -642,14 +684,18 @@ final class HttpHandlerGenerator {
         // try { // Inner try for user handler failure
         mg.mark(handlerTryBegin);
       }
-      // If no body consumer, generates:
+      // If no body consumer or async response, generates:
       // this.getHandler(wrapRequest(request), wrappedResponder, ...);
       //
       // otherwise, generates:
-      // contentConsumer = this.getHandler(wrapRequest(reuqest), wrappedResponder, ...);
+      // returnValue = this.getHandler(wrapRequest(reuqest), wrappedResponder, ...);
       generateInvokeDelegate(mg, handler, method, wrappedResponder);
-      if (method.getReturnType().getSort() == Type.OBJECT) {
-        mg.storeLocal(contentConsumer, httpContentConsumerType);
+      if (returnValueType != null) {
+        mg.storeLocal(returnValue, returnValueType);
+      } else if (method.getReturnType().getSize() == 2) {
+        mg.pop2();
+      } else if (method.getReturnType().getSize() == 1) {
+        mg.pop();
       }
 
       if (TransactionControl.IMPLICIT == txCtrl) {
@@ -717,49 +763,65 @@ final class HttpHandlerGenerator {
       mg.invokeVirtual(delayedHttpServiceResponderType, Methods.getMethod(void.class, "setTransactionFailureResponse",
                                                                           Throwable.class));
 
-      // contentConsumer = null;
-      mg.visitInsn(Opcodes.ACONST_NULL);
-      mg.storeLocal(contentConsumer);
+      // returnValue = null;
+      if (returnValueType != null) {
+        mg.visitInsn(Opcodes.ACONST_NULL);
+        mg.storeLocal(returnValue);
+      }
 
       // } // end of outer catch
       mg.mark(txFinish);
 
-      // If body consumer is used, generates:
+      // If body consumer or async response is used, generates:
       //
-      // if (httpContentConsumer == null) {
+      // if (returnValue == null) {
       //   wrappedResponder.execute();
-      //   return null;
+      //   return [null];
       // }
-      // return wrapContentConsumer(httpContentConsumer, wrappedResponder);
+      // [return] wrapContentConsumer|wrapAsyncResponse(returnValue, wrappedResponder);
       //
       // Otherwise, generates
       // wrappedResponder.execute();
-      if (method.getReturnType().getSort() == Type.OBJECT) {
-        Label hasContentConsumer = mg.newLabel();
-        mg.loadLocal(contentConsumer);
+      if (returnValueType != null) {
+        Label hasReturnValue = mg.newLabel();
+        mg.loadLocal(returnValue);
 
-        // if contentConsumer != null, goto label hasContentConsumer
-        mg.ifNonNull(hasContentConsumer);
+        // if returnValue != null, goto label hasReturnValue
+        mg.ifNonNull(hasReturnValue);
 
         //   wrappedResponder.execute();
-        //   return null;
+        //   return [null];
         mg.loadLocal(wrappedResponder);
         mg.invokeVirtual(delayedHttpServiceResponderType, Methods.getMethod(void.class, "execute"));
-        mg.visitInsn(Opcodes.ACONST_NULL);
-        mg.returnValue();
+        // The generator adapter is created with the user method descriptor, hence return explicitly based on
+        // the return type of the generated method
+        if (contentConsumer) {
+          mg.visitInsn(Opcodes.ACONST_NULL);
+          mg.visitInsn(Opcodes.ARETURN);
+        } else {
+          mg.visitInsn(Opcodes.RETURN);
+        }
 
-        mg.mark(hasContentConsumer);
+        mg.mark(hasReturnValue);
 
-        // IMPORTANT: If body consumer is used, calling wrapContentConsumer must be
-        // the last thing to do in this generated method since the current context will be captured
-        // return wrapContentConsumer(httpContentConsumer, wrappedResponder);
+        // IMPORTANT: If body consumer or async response is used, calling wrapContentConsumer or wrapAsyncResponse
+        // must be the last thing to do in this generated method since the current context will be captured
         mg.loadThis();
-        mg.loadLocal(contentConsumer);
+        mg.loadLocal(returnValue);
         mg.loadLocal(wrappedResponder);
-        mg.invokeVirtual(classType, Methods.getMethod(BodyConsumer.class, "wrapContentConsumer",
-                                                      HttpContentConsumer.class,
-                                                      DelayedHttpServiceResponder.class));
-        mg.returnValue();
+        if (contentConsumer) {
+          // return wrapContentConsumer(returnValue, wrappedResponder);
+          mg.invokeVirtual(classType, Methods.getMethod(BodyConsumer.class, "wrapContentConsumer",
+                                                        HttpContentConsumer.class,
+                                                        DelayedHttpServiceResponder.class));
+          mg.visitInsn(Opcodes.ARETURN);
+        } else {
+          // wrapAsyncResponse(returnValue, wrappedResponder);
+          mg.invokeVirtual(classType, Methods.getMethod(void.class, "wrapAsyncResponse",
+                                                        AsyncHttpServiceResponse.class,
+                                                        DelayedHttpServiceResponder.class));
+          mg.visitInsn(Opcodes.RETURN);
+        }
       } else {
         // wrappedResponder.execute()
         mg.loadLocal(wrappedResponder);
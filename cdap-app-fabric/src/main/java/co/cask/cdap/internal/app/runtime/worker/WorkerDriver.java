@@ -77,6 +77,7 @@ public class WorkerDriver extends AbstractExecutionThreadService {
 
     // Initialize worker
     initialize();
+    context.emitClassLoadingMetrics();
   }
 
   @Override
@@ -29,6 +29,7 @@ import co.cask.cdap.api.data.DatasetContext;
 import co.cask.cdap.api.dataset.DatasetManagementException;
 import co.cask.cdap.api.dataset.DatasetProperties;
 import co.cask.cdap.api.metrics.MetricsCollectionService;
+import co.cask.cdap.api.metrics.MetricsContext;
 import co.cask.cdap.api.schedule.SchedulableProgramType;
 import co.cask.cdap.api.security.store.SecureStore;
 import co.cask.cdap.api.security.store.SecureStoreManager;
@@ -73,6 +74,7 @@ import co.cask.cdap.proto.id.DatasetId;
 import co.cask.cdap.proto.id.ProgramRunId;
 import co.cask.http.NettyHttpService;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Stopwatch;
 import com.google.common.base.Supplier;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
@@ -80,7 +82,6 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.reflect.TypeToken;
 import com.google.common.util.concurrent.AbstractExecutionThreadService;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.tephra.TransactionSystemClient;
 import org.apache.twill.discovery.DiscoveryServiceClient;
 import org.slf4j.Logger;
@@ -89,21 +90,16 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
-import java.util.concurrent.CompletionService;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorCompletionService;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
@@ -117,6 +113,8 @@ final class WorkflowDriver extends AbstractExecutionThreadService {
 
   private static final Logger LOG = LoggerFactory.getLogger(WorkflowDriver.class);
   private static final String ACTION_SCOPE = "action";
+  private static final String NODE_QUEUE_TIME_METRIC = "workflow.node.queue.ms";
+  private static final String NODE_RUN_TIME_METRIC = "workflow.node.run.ms";
 
   private final Program program;
   private final ProgramOptions programOptions;
@@ -141,6 +139,7 @@ final class WorkflowDriver extends AbstractExecutionThreadService {
   private final PluginInstantiator pluginInstantiator;
   private final SecureStore secureStore;
   private final SecureStoreManager secureStoreManager;
+  private final WorkflowNodeScheduler nodeScheduler;
 
   private NettyHttpService httpService;
   private volatile Thread runningThread;
@@ -184,6 +183,9 @@ final class WorkflowDriver extends AbstractExecutionThreadService {
     this.pluginInstantiator = pluginInstantiator;
     this.secureStore = secureStore;
     this.secureStoreManager = secureStoreManager;
+    this.nodeScheduler = new WorkflowNodeScheduler(workflowSpec.getName(), workflowSpec.getNodes(),
+                                                   cConf.getInt(Constants.AppFabric.WORKFLOW_MAX_CONCURRENT_ACTIONS,
+                                                                0));
   }
 
   @Override
@@ -202,6 +204,7 @@ final class WorkflowDriver extends AbstractExecutionThreadService {
     runningThread = Thread.currentThread();
     createLocalDatasets();
     workflow = initializeWorkflow();
+    basicWorkflowContext.emitClassLoadingMetrics();
   }
 
   @SuppressWarnings("unchecked")
@@ -289,6 +292,7 @@ final class WorkflowDriver extends AbstractExecutionThreadService {
 
   @Override
   protected void shutDown() throws Exception {
+    nodeScheduler.shutdown();
     httpService.stopAndWait();
     deleteLocalDatasets();
     destroyWorkflow();
@@ -333,32 +337,36 @@ final class WorkflowDriver extends AbstractExecutionThreadService {
 
   private void executeAction(WorkflowActionNode node, WorkflowToken token) throws Exception {
     WorkflowActionSpecification actionSpec = getActionSpecification(node, node.getProgram().getProgramType());
+    Stopwatch stopwatch = new Stopwatch().start();
+    nodeScheduler.acquire(node.getNodeId());
+    MetricsContext nodeMetrics = emitQueueTime(node, stopwatch);
     status.put(node.getNodeId(), node);
 
-    BasicWorkflowContext workflowContext = createWorkflowContext(actionSpec, token, node.getNodeId());
-    final WorkflowAction action = new ProgramWorkflowAction(node.getProgram().getProgramName(),
-                                                            node.getProgram().getProgramType());
-    action.initialize(workflowContext);
-
-    CountDownLatch executorTerminateLatch = new CountDownLatch(1);
-    ExecutorService executorService = createExecutor(1, executorTerminateLatch, "action-" + node.getNodeId() + "-%d");
-
+    WorkflowNodeScheduler.Task<Void> task = null;
     try {
-      // Run the action in new thread
-      Future<?> future = executorService.submit(new Callable<Void>() {
+      BasicWorkflowContext workflowContext = createWorkflowContext(actionSpec, token, node.getNodeId());
+      final WorkflowAction action = new ProgramWorkflowAction(node.getProgram().getProgramName(),
+                                                              node.getProgram().getProgramType());
+      action.initialize(workflowContext);
+
+      // Run the action in a thread of the shared pool
+      task = nodeScheduler.submit("action-" + node.getNodeId(), new Callable<Void>() {
         @Override
         public Void call() throws Exception {
           action.run();
           return null;
         }
       });
-      future.get();
+      task.get();
     } catch (Throwable t) {
       Throwables.propagateIfPossible(t, Exception.class);
       throw Throwables.propagate(t);
     } finally {
-      executorService.shutdownNow();
-      executorTerminateLatch.await();
+      if (task != null) {
+        task.cancelAndAwait();
+      }
+      nodeScheduler.release();
+      nodeMetrics.gauge(NODE_RUN_TIME_METRIC, stopwatch.elapsedTime(TimeUnit.MILLISECONDS));
       status.remove(node.getNodeId());
     }
     runtimeStore.updateWorkflowToken(workflowRunId, token);
@@ -388,28 +396,28 @@ final class WorkflowDriver extends AbstractExecutionThreadService {
                            final InstantiatorFactory instantiator, final ClassLoader classLoader,
                            final WorkflowToken token) throws Exception {
 
-    CountDownLatch executorTerminateLatch = new CountDownLatch(1);
-    ExecutorService executorService = createExecutor(fork.getBranches().size(), executorTerminateLatch,
-                                                     "fork-" + fork.getNodeId() + "-%d");
-    CompletionService<Map.Entry<String, WorkflowToken>> completionService =
-      new ExecutorCompletionService<>(executorService);
+    // Branches are run in the shared pool and are added to the completion queue when they finish
+    BlockingQueue<WorkflowNodeScheduler.Task<Map.Entry<String, WorkflowToken>>> completed =
+      new LinkedBlockingQueue<>();
+    List<WorkflowNodeScheduler.Task<Map.Entry<String, WorkflowToken>>> tasks = new ArrayList<>();
 
     try {
+      int branchId = 0;
       for (final List<WorkflowNode> branch : fork.getBranches()) {
-        completionService.submit(new Callable<Map.Entry<String, WorkflowToken>>() {
-          @Override
-          public Map.Entry<String, WorkflowToken> call() throws Exception {
-            WorkflowToken copiedToken = ((BasicWorkflowToken) token).deepCopy();
-            executeAll(branch.iterator(), appSpec, instantiator, classLoader, copiedToken);
-            return Maps.immutableEntry(branch.toString(), copiedToken);
-          }
-        });
+        tasks.add(nodeScheduler.submit(
+          "fork-" + fork.getNodeId() + "-" + branchId++, new Callable<Map.Entry<String, WorkflowToken>>() {
+            @Override
+            public Map.Entry<String, WorkflowToken> call() throws Exception {
+              WorkflowToken copiedToken = ((BasicWorkflowToken) token).deepCopy();
+              executeAll(branch.iterator(), appSpec, instantiator, classLoader, copiedToken);
+              return Maps.immutableEntry(branch.toString(), copiedToken);
+            }
+          }, completed));
       }
 
       for (int i = 0; i < fork.getBranches().size(); i++) {
         try {
-          Future<Map.Entry<String, WorkflowToken>> forkBranchResult = completionService.take();
-          Map.Entry<String, WorkflowToken> retValue = forkBranchResult.get();
+          Map.Entry<String, WorkflowToken> retValue = completed.take().get();
           String branchInfo = retValue.getKey();
           WorkflowToken branchToken = retValue.getValue();
           ((BasicWorkflowToken) token).mergeToken(branchToken);
@@ -431,9 +439,10 @@ final class WorkflowDriver extends AbstractExecutionThreadService {
     } finally {
       // Update the WorkflowToken after the execution of the FORK node completes.
       runtimeStore.updateWorkflowToken(workflowRunId, token);
-      executorService.shutdownNow();
-      // Wait for the executor termination
-      executorTerminateLatch.await();
+      // Stop the branches that are still running and wait for them to finish
+      for (WorkflowNodeScheduler.Task<?> task : tasks) {
+        task.cancelAndAwait();
+      }
     }
   }
 
@@ -468,6 +477,10 @@ final class WorkflowDriver extends AbstractExecutionThreadService {
       customActionExecutor = new CustomActionExecutor(workflowRunId, context, instantiator, classLoader);
     }
 
+    Stopwatch stopwatch = new Stopwatch().start();
+    nodeScheduler.acquire(node.getNodeId());
+    MetricsContext nodeMetrics = emitQueueTime(node, stopwatch);
+
     status.put(node.getNodeId(), node);
     runtimeStore.addWorkflowNodeState(workflowRunId, new WorkflowNodeStateDetail(node.getNodeId(), NodeStatus.RUNNING));
     Throwable failureCause = null;
@@ -477,6 +490,8 @@ final class WorkflowDriver extends AbstractExecutionThreadService {
       failureCause = t;
       throw t;
     } finally {
+      nodeScheduler.release();
+      nodeMetrics.gauge(NODE_RUN_TIME_METRIC, stopwatch.elapsedTime(TimeUnit.MILLISECONDS));
       status.remove(node.getNodeId());
       runtimeStore.updateWorkflowToken(workflowRunId, token);
       NodeStatus status = failureCause == null ? NodeStatus.COMPLETED : NodeStatus.FAILED;
@@ -651,22 +666,17 @@ final class WorkflowDriver extends AbstractExecutionThreadService {
   }
 
   /**
-   * Creates an {@link ExecutorService} that has the given number of threads.
+   * Emits the time that the given action node waited for its turn to run, and restarts the given stopwatch for
+   * timing the run of the node.
    *
-   * @param threads number of core threads in the executor
-   * @param terminationLatch a {@link CountDownLatch} that will be counted down when the executor terminated
-   * @param threadNameFormat name format for the {@link ThreadFactory} provided to the executor
-   * @return a new {@link ExecutorService}.
+   * @return the {@link MetricsContext} of the node
    */
-  private ExecutorService createExecutor(int threads, final CountDownLatch terminationLatch, String threadNameFormat) {
-    return new ThreadPoolExecutor(
-      threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
-      new ThreadFactoryBuilder().setNameFormat(threadNameFormat).build()) {
-      @Override
-      protected void terminated() {
-        terminationLatch.countDown();
-      }
-    };
+  private MetricsContext emitQueueTime(WorkflowActionNode node, Stopwatch stopwatch) {
+    MetricsContext nodeMetrics = basicWorkflowContext.getProgramMetrics().childContext(Constants.Metrics.Tag.NODE,
+                                                                                      node.getNodeId());
+    nodeMetrics.gauge(NODE_QUEUE_TIME_METRIC, stopwatch.elapsedTime(TimeUnit.MILLISECONDS));
+    stopwatch.reset().start();
+    return nodeMetrics;
   }
 
   private ClassLoader setContextCombinedClassLoader(Workflow workflow) {
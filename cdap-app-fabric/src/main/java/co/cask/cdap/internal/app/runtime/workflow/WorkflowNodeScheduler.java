@@ -0,0 +1,293 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.internal.app.runtime.workflow;
+
+import co.cask.cdap.api.workflow.WorkflowActionNode;
+import co.cask.cdap.api.workflow.WorkflowConditionNode;
+import co.cask.cdap.api.workflow.WorkflowForkNode;
+import co.cask.cdap.api.workflow.WorkflowNode;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.annotation.Nullable;
+
+/**
+ * Schedules the execution of the nodes of a workflow run. All fork branches and actions of the run are executed
+ * by one shared thread pool. The number of actions that run at the same time across all fork branches can be
+ * bounded, in which case waiting actions are started in the order of the length of their critical path, which is
+ * the largest number of actions from the action to the end of the workflow. This way actions that hold up the most
+ * remaining work start first.
+ *
+ * Only the running of an action is bounded, not the branches themselves, so that nested forks cannot deadlock
+ * by having all the permits held by branches that wait for their inner branches.
+ */
+final class WorkflowNodeScheduler {
+
+  private final ExecutorService executor;
+  private final int maxConcurrentActions;
+  private final Map<String, Integer> criticalPathLengths;
+
+  private final Lock lock = new ReentrantLock();
+  private final Condition permitAvailable = lock.newCondition();
+  private final PriorityQueue<Waiter> waiters = new PriorityQueue<>();
+  private int runningActions;
+  private long waiterSequence;
+
+  /**
+   * Creates a new instance.
+   *
+   * @param workflowName name of the workflow, used for naming the threads
+   * @param nodes the nodes of the workflow
+   * @param maxConcurrentActions maximum number of actions to run at the same time; a non-positive value means
+   *                             no limit
+   */
+  WorkflowNodeScheduler(String workflowName, List<WorkflowNode> nodes, int maxConcurrentActions) {
+    this.executor = Executors.newCachedThreadPool(
+      new ThreadFactoryBuilder().setNameFormat("workflow-" + workflowName + "-%d").build());
+    this.maxConcurrentActions = maxConcurrentActions;
+    this.criticalPathLengths = new HashMap<>();
+    computeCriticalPathLengths(nodes, 0, criticalPathLengths);
+  }
+
+  /**
+   * Returns the critical path length of the given action node.
+   */
+  int getCriticalPathLength(String nodeId) {
+    Integer length = criticalPathLengths.get(nodeId);
+    return length == null ? 0 : length;
+  }
+
+  /**
+   * Submits a task to the shared thread pool. The thread is named after the given name while running the task.
+   */
+  <T> Task<T> submit(String name, Callable<T> callable) {
+    return submit(name, callable, null);
+  }
+
+  /**
+   * Submits a task to the shared thread pool. The thread is named after the given name while running the task.
+   *
+   * @param name name of the task
+   * @param callable the {@link Callable} to run
+   * @param completionQueue if not {@code null}, the task is added to this queue when it finished running
+   */
+  <T> Task<T> submit(String name, Callable<T> callable, @Nullable BlockingQueue<Task<T>> completionQueue) {
+    Task<T> task = new Task<>(name, callable, completionQueue);
+    task.future = executor.submit(task);
+    return task;
+  }
+
+  /**
+   * Blocks until the given action node is allowed to run. Each successful call must be followed by a call to
+   * {@link #release()} once the action completed.
+   *
+   * @param nodeId id of the action node
+   * @throws InterruptedException if interrupted while waiting
+   */
+  void acquire(String nodeId) throws InterruptedException {
+    if (maxConcurrentActions <= 0) {
+      return;
+    }
+    lock.lock();
+    try {
+      Waiter waiter = new Waiter(getCriticalPathLength(nodeId), waiterSequence++);
+      waiters.add(waiter);
+      try {
+        while (runningActions >= maxConcurrentActions || waiters.peek() != waiter) {
+          permitAvailable.await();
+        }
+      } catch (InterruptedException e) {
+        waiters.remove(waiter);
+        // Let the next waiter check if it can proceed
+        permitAvailable.signalAll();
+        throw e;
+      }
+      waiters.poll();
+      runningActions++;
+      // The next waiter might also be able to run
+      permitAvailable.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Releases the permit acquired by {@link #acquire(String)}.
+   */
+  void release() {
+    if (maxConcurrentActions <= 0) {
+      return;
+    }
+    lock.lock();
+    try {
+      runningActions--;
+      permitAvailable.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of actions waiting for a permit.
+   */
+  @VisibleForTesting
+  int getWaitingActions() {
+    lock.lock();
+    try {
+      return waiters.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Stops all the running tasks.
+   */
+  void shutdown() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Computes the critical path lengths of the action nodes in the given list of nodes.
+   *
+   * @param nodes the nodes to compute
+   * @param tail the critical path length of what follows the list of nodes
+   * @param result map for storing the critical path lengths by node id
+   * @return the critical path length from the start of the list of nodes
+   */
+  private static int computeCriticalPathLengths(List<WorkflowNode> nodes, int tail, Map<String, Integer> result) {
+    int length = tail;
+    for (int i = nodes.size() - 1; i >= 0; i--) {
+      WorkflowNode node = nodes.get(i);
+      int nodeLength = length;
+      if (node instanceof WorkflowActionNode) {
+        nodeLength = length + 1;
+        result.put(node.getNodeId(), nodeLength);
+      } else if (node instanceof WorkflowForkNode) {
+        for (List<WorkflowNode> branch : ((WorkflowForkNode) node).getBranches()) {
+          nodeLength = Math.max(nodeLength, computeCriticalPathLengths(branch, length, result));
+        }
+      } else if (node instanceof WorkflowConditionNode) {
+        WorkflowConditionNode condition = (WorkflowConditionNode) node;
+        nodeLength = Math.max(computeCriticalPathLengths(condition.getIfBranch(), length, result),
+                              computeCriticalPathLengths(condition.getElseBranch(), length, result));
+      }
+      length = nodeLength;
+    }
+    return length;
+  }
+
+  /**
+   * A task submitted to the shared thread pool. Unlike a {@link Future}, it can wait for the task to actually
+   * finish after it was cancelled.
+   *
+   * @param <T> type of the result
+   */
+  static final class Task<T> implements Callable<T> {
+
+    private static final int NEW = 0;
+    private static final int RUNNING = 1;
+    private static final int CANCELLED = 2;
+
+    private final String name;
+    private final Callable<T> callable;
+    private final BlockingQueue<Task<T>> completionQueue;
+    private final AtomicInteger state = new AtomicInteger(NEW);
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private volatile Future<T> future;
+
+    private Task(String name, Callable<T> callable, @Nullable BlockingQueue<Task<T>> completionQueue) {
+      this.name = name;
+      this.callable = callable;
+      this.completionQueue = completionQueue;
+    }
+
+    @Override
+    public T call() throws Exception {
+      if (!state.compareAndSet(NEW, RUNNING)) {
+        return null;
+      }
+      Thread thread = Thread.currentThread();
+      String threadName = thread.getName();
+      thread.setName(name);
+      try {
+        return callable.call();
+      } finally {
+        thread.setName(threadName);
+        finished.countDown();
+        if (completionQueue != null) {
+          completionQueue.add(this);
+        }
+      }
+    }
+
+    /**
+     * Waits for the task to complete and returns its result. Must be called by the thread that submitted the task
+     * or after the task was taken from the completion queue.
+     */
+    T get() throws InterruptedException, ExecutionException {
+      return future.get();
+    }
+
+    /**
+     * Cancels the task, interrupting it if it is running, and waits for it to finish.
+     */
+    void cancelAndAwait() throws InterruptedException {
+      if (state.compareAndSet(NEW, CANCELLED)) {
+        finished.countDown();
+      }
+      future.cancel(true);
+      finished.await();
+    }
+  }
+
+  /**
+   * An action waiting for a permit. Actions with longer critical paths come first, then the earlier ones.
+   */
+  private static final class Waiter implements Comparable<Waiter> {
+    private final int criticalPathLength;
+    private final long sequence;
+
+    Waiter(int criticalPathLength, long sequence) {
+      this.criticalPathLength = criticalPathLength;
+      this.sequence = sequence;
+    }
+
+    @Override
+    public int compareTo(Waiter other) {
+      if (criticalPathLength != other.criticalPathLength) {
+        return criticalPathLength > other.criticalPathLength ? -1 : 1;
+      }
+      return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+    }
+  }
+}
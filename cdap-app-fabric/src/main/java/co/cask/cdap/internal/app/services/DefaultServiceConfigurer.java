@@ -190,5 +190,17 @@ public class DefaultServiceConfigurer extends DefaultPluginConfigurer implements
         }
       };
     }
+
+    @Override
+    public AcquiredContext acquire() {
+      // Never used. (It's only used during server runtime, which we don't verify).
+      return null;
+    }
+
+    @Override
+    public Cancellable scheduleAsyncResponseTimeout(Runnable task) {
+      // Never used. (It's only used during server runtime, which we don't verify).
+      return null;
+    }
   }
 }
@@ -60,11 +60,13 @@ import co.cask.cdap.proto.id.ProgramRunId;
 import co.cask.cdap.proto.id.ScheduleId;
 import co.cask.cdap.proto.security.Action;
 import co.cask.cdap.proto.security.Principal;
+import co.cask.cdap.security.authorization.AuthorizationUtil;
 import co.cask.cdap.security.spi.authentication.AuthenticationContext;
 import co.cask.cdap.security.spi.authorization.AuthorizationEnforcer;
 import co.cask.cdap.security.spi.authorization.UnauthorizedException;
 import co.cask.cdap.store.NamespaceStore;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Function;
 import com.google.common.base.Throwables;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableMap;
@@ -682,43 +684,48 @@ public class ProgramLifecycleService extends AbstractIdleService {
    * @param namespaceId the namespace to list datasets for
    * @return the programs in the provided namespace
    */
-  public List<ProgramRecord> list(NamespaceId namespaceId, ProgramType type) throws Exception {
+  public List<ProgramRecord> list(final NamespaceId namespaceId, ProgramType type) throws Exception {
     Collection<ApplicationSpecification> appSpecs = store.getAllApplications(namespaceId);
     List<ProgramRecord> programRecords = new ArrayList<>();
     for (ApplicationSpecification appSpec : appSpecs) {
       switch (type) {
         case FLOW:
-          createProgramRecords(namespaceId, appSpec.getName(), type, appSpec.getFlows().values(), programRecords);
+          createProgramRecords(appSpec.getName(), type, appSpec.getFlows().values(), programRecords);
           break;
         case MAPREDUCE:
-          createProgramRecords(namespaceId, appSpec.getName(), type, appSpec.getMapReduce().values(), programRecords);
+          createProgramRecords(appSpec.getName(), type, appSpec.getMapReduce().values(), programRecords);
           break;
         case SPARK:
-          createProgramRecords(namespaceId, appSpec.getName(), type, appSpec.getSpark().values(), programRecords);
+          createProgramRecords(appSpec.getName(), type, appSpec.getSpark().values(), programRecords);
           break;
         case SERVICE:
-          createProgramRecords(namespaceId, appSpec.getName(), type, appSpec.getServices().values(), programRecords);
+          createProgramRecords(appSpec.getName(), type, appSpec.getServices().values(), programRecords);
           break;
         case WORKER:
-          createProgramRecords(namespaceId, appSpec.getName(), type, appSpec.getWorkers().values(), programRecords);
+          createProgramRecords(appSpec.getName(), type, appSpec.getWorkers().values(), programRecords);
           break;
         case WORKFLOW:
-          createProgramRecords(namespaceId, appSpec.getName(), type, appSpec.getWorkflows().values(), programRecords);
+          createProgramRecords(appSpec.getName(), type, appSpec.getWorkflows().values(), programRecords);
           break;
         default:
           throw new Exception("Unknown program type: " + type.name());
       }
     }
-    return programRecords;
+
+    Predicate<EntityId> filter = authorizationEnforcer.createFilter(authenticationContext.getPrincipal());
+    return AuthorizationUtil.filter(filter, programRecords, new Function<ProgramRecord, EntityId>() {
+      @Override
+      public EntityId apply(ProgramRecord programRecord) {
+        return namespaceId.app(programRecord.getApp()).program(programRecord.getType(), programRecord.getName());
+      }
+    });
   }
 
-  private void createProgramRecords(NamespaceId namespaceId, String appId, ProgramType type,
+  private void createProgramRecords(String appId, ProgramType type,
                                     Iterable<? extends ProgramSpecification> programSpecs,
-                                    List<ProgramRecord> programRecords) throws Exception {
+                                    List<ProgramRecord> programRecords) {
     for (ProgramSpecification programSpec : programSpecs) {
-      if (hasAccess(namespaceId.app(appId).program(type, programSpec.getName()))) {
-        programRecords.add(new ProgramRecord(type, appId, programSpec.getName(), programSpec.getDescription()));
-      }
+      programRecords.add(new ProgramRecord(type, appId, programSpec.getName(), programSpec.getDescription()));
     }
   }
 
@@ -65,6 +65,7 @@ import com.google.common.util.concurrent.AbstractIdleService;
 import org.apache.tephra.TransactionSystemClient;
 import org.apache.twill.api.ServiceAnnouncer;
 import org.apache.twill.common.Cancellable;
+import org.apache.twill.common.Threads;
 import org.apache.twill.discovery.DiscoveryServiceClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -78,6 +79,8 @@ import java.util.Queue;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -106,6 +109,8 @@ public class ServiceHttpServer extends AbstractIdleService {
   private final ServiceAnnouncer serviceAnnouncer;
   private final List<HandlerDelegatorContext> handlerContexts;
   private final NettyHttpService service;
+  private final ScheduledThreadPoolExecutor asyncTimeoutExecutor;
+  private final long asyncResponseTimeoutMillis;
 
   private Cancellable cancelDiscovery;
   private Timer timer;
@@ -121,6 +126,11 @@ public class ServiceHttpServer extends AbstractIdleService {
     this.cConf = cConf;
     this.instanceCount = new AtomicInteger(instanceCount);
     this.serviceAnnouncer = serviceAnnouncer;
+    this.asyncTimeoutExecutor = new ScheduledThreadPoolExecutor(
+      1, Threads.createDaemonThreadFactory("service-async-response-timeout"));
+    this.asyncTimeoutExecutor.setRemoveOnCancelPolicy(true);
+    this.asyncResponseTimeoutMillis = TimeUnit.SECONDS.toMillis(
+      cConf.getLong(Constants.AppFabric.SERVICE_ASYNC_RESPONSE_TIMEOUT_SECONDS));
     BasicHttpServiceContextFactory contextFactory = createContextFactory(program, programOptions,
                                                                          instanceId, this.instanceCount,
                                                                          metricsCollectionService,
@@ -263,6 +273,7 @@ public class ServiceHttpServer extends AbstractIdleService {
       cleanupPeriod = Long.parseLong(cleanupPeriodProperty);
     }
     timer.scheduleAtFixedRate(createHandlerDestroyTask(), cleanupPeriod, cleanupPeriod);
+    context.emitClassLoadingMetrics();
   }
 
   @Override
@@ -272,6 +283,7 @@ public class ServiceHttpServer extends AbstractIdleService {
       service.stopAndWait();
     } finally {
       timer.cancel();
+      asyncTimeoutExecutor.shutdownNow();
 
       // Go through all non-cleanup'ed handler and call destroy() upon them
       // At this point, there should be no call to any handler method, hence it's safe to call from this thread
@@ -431,6 +443,42 @@ public class ServiceHttpServer extends AbstractIdleService {
         throw new IllegalStateException("Handler context not found for thread " + Thread.currentThread());
       }
 
+      return createReleaser(contextPair);
+    }
+
+    @Override
+    public AcquiredContext acquire() {
+      final HandlerContextPair contextPair = pollContextPair();
+      final Cancellable releaser = createReleaser(contextPair);
+      return new AcquiredContext() {
+        @Override
+        public HttpServiceContext getServiceContext() {
+          return contextPair.getContext();
+        }
+
+        @Override
+        public void cancel() {
+          releaser.cancel();
+        }
+      };
+    }
+
+    @Override
+    public Cancellable scheduleAsyncResponseTimeout(Runnable task) {
+      final ScheduledFuture<?> future = asyncTimeoutExecutor.schedule(task, asyncResponseTimeoutMillis,
+                                                                      TimeUnit.MILLISECONDS);
+      return new Cancellable() {
+        @Override
+        public void cancel() {
+          future.cancel(false);
+        }
+      };
+    }
+
+    /**
+     * Returns a {@link Cancellable} that releases the given context pair back to the pool.
+     */
+    private Cancellable createReleaser(final HandlerContextPair contextPair) {
       final AtomicBoolean cancelled = new AtomicBoolean(false);
       return new Cancellable() {
         @Override
@@ -449,6 +497,18 @@ public class ServiceHttpServer extends AbstractIdleService {
       };
     }
 
+    /**
+     * Takes a context pair from the pool, or creates a new one if the pool is empty.
+     */
+    private HandlerContextPair pollContextPair() {
+      HandlerContextPair contextPair = contextPairPool.poll();
+      if (contextPair == null) {
+        return createContextPair();
+      }
+      context.getProgramMetrics().gauge("context.pool.size", contextPairPoolSize.decrementAndGet());
+      return contextPair;
+    }
+
     TypeToken<HttpServiceHandler> getHandlerType() {
       return handlerType;
     }
@@ -502,12 +562,7 @@ public class ServiceHttpServer extends AbstractIdleService {
         .build(new CacheLoader<Thread, HandlerContextPair>() {
           @Override
           public HandlerContextPair load(Thread key) throws Exception {
-            HandlerContextPair contextPair = contextPairPool.poll();
-            if (contextPair == null) {
-              return createContextPair();
-            }
-            context.getProgramMetrics().gauge("context.pool.size", contextPairPoolSize.decrementAndGet());
-            return contextPair;
+            return pollContextPair();
           }
         });
     }
@@ -19,6 +19,8 @@ import co.cask.cdap.api.Transactional;
 import co.cask.cdap.api.TxRunnable;
 import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.data.DatasetContext;
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
 import co.cask.cdap.api.dataset.DatasetAdmin;
 import co.cask.cdap.api.dataset.DatasetManagementException;
 import co.cask.cdap.api.dataset.DatasetProperties;
@@ -39,13 +41,18 @@ import co.cask.cdap.proto.id.NamespaceId;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableMap;
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSerializationContext;
+import com.google.gson.JsonSerializer;
 import com.google.inject.Inject;
 import org.apache.tephra.RetryStrategies;
 import org.apache.tephra.TransactionFailureException;
 import org.apache.tephra.TransactionSystemClient;
 
 import java.io.IOException;
+import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -63,10 +70,12 @@ public class DefaultPreviewStore implements PreviewStore {
   private static final byte[] PROPERTY = Bytes.toBytes("p");
   private static final byte[] VALUE = Bytes.toBytes("v");
   private static final byte[][] COLUMNS = new byte[][] {TRACER, PROPERTY, VALUE };
+  private static final Gson GSON = new GsonBuilder()
+    .registerTypeAdapter(StructuredRecord.class, new StructuredRecordSerializer())
+    .create();
 
   private final DatasetFramework dsFramework;
   private final Transactional transactional;
-  private final Gson gson = new Gson();
   private final AtomicLong counter = new AtomicLong(0L);
 
   @Inject
@@ -157,7 +166,7 @@ public class DefaultPreviewStore implements PreviewStore {
     byte[][] values = new byte[][] {
       Bytes.toBytes(tracerName),
       Bytes.toBytes(propertyName),
-      Bytes.toBytes(gson.toJson(value))
+      Bytes.toBytes(GSON.toJson(value))
     };
     table.put(mdsKey.getKey(), COLUMNS, values);
   }
@@ -173,7 +182,7 @@ public class DefaultPreviewStore implements PreviewStore {
       while ((indexRow = scanner.next()) != null) {
         Map<byte[], byte[]> columns = indexRow.getColumns();
         String propertyName = Bytes.toString(columns.get(PROPERTY));
-        JsonElement value = gson.fromJson(Bytes.toString(columns.get(VALUE)), JsonElement.class);
+        JsonElement value = GSON.fromJson(Bytes.toString(columns.get(VALUE)), JsonElement.class);
         List<JsonElement> values = result.get(propertyName);
         if (values == null) {
           values = new ArrayList<>();
@@ -196,4 +205,22 @@ public class DefaultPreviewStore implements PreviewStore {
       }
     }
   }
+
+  /**
+   * Serializes a {@link StructuredRecord} as its schema and an object of its field values keyed by field name.
+   */
+  private static final class StructuredRecordSerializer implements JsonSerializer<StructuredRecord> {
+
+    @Override
+    public JsonElement serialize(StructuredRecord record, Type typeOfSrc, JsonSerializationContext context) {
+      JsonObject fields = new JsonObject();
+      for (Schema.Field field : record.getSchema().getFields()) {
+        fields.add(field.getName(), context.serialize(record.get(field.getName())));
+      }
+      JsonObject json = new JsonObject();
+      json.add("schema", context.serialize(record.getSchema()));
+      json.add("fields", fields);
+      return json;
+    }
+  }
 }
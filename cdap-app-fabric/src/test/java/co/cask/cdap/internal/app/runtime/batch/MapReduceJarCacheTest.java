@@ -0,0 +1,235 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.internal.app.runtime.batch;
+
+import co.cask.cdap.common.io.Locations;
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CharStreams;
+import com.google.common.io.Files;
+import org.apache.twill.filesystem.LocalLocationFactory;
+import org.apache.twill.filesystem.Location;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for {@link MapReduceJarCache}.
+ */
+public class MapReduceJarCacheTest {
+
+  @ClassRule
+  public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
+
+  @Test
+  public void testContentAddressed() throws IOException {
+    File baseDir = TEMP_FOLDER.newFolder();
+    Location cacheDir = new LocalLocationFactory(baseDir).create("cache");
+    File localCacheDir = new File(baseDir, "local");
+    long retention = TimeUnit.DAYS.toMillis(1);
+
+    Location source = new LocalLocationFactory(baseDir).create("program.jar");
+    write(source, "program");
+
+    Location cached1;
+    Location cached2;
+    try (MapReduceJarCache cache = new MapReduceJarCache(cacheDir, localCacheDir, "run1", retention)) {
+      cached1 = cache.getLocation(source, "program.jar");
+      Assert.assertEquals("program", read(cached1));
+      Assert.assertEquals("program.jar", cached1.getName());
+    }
+    try (MapReduceJarCache cache = new MapReduceJarCache(cacheDir, localCacheDir, "run2", retention)) {
+      // Same content is reused
+      cached2 = cache.getLocation(source, "program.jar");
+      Assert.assertEquals(cached1, cached2);
+      Assert.assertEquals(cached1.lastModified(), cached2.lastModified());
+
+      // Different content is cached separately
+      write(source, "program2");
+      Location cached3 = cache.getLocation(source, "program.jar");
+      Assert.assertNotEquals(cached1, cached3);
+      Assert.assertEquals("program2", read(cached3));
+    }
+  }
+
+  @Test
+  public void testBuiltJar() throws IOException {
+    File baseDir = TEMP_FOLDER.newFolder();
+    Location cacheDir = new LocalLocationFactory(baseDir).create("cache");
+    File localCacheDir = new File(baseDir, "local");
+    long retention = TimeUnit.DAYS.toMillis(1);
+
+    final AtomicInteger builds = new AtomicInteger();
+    MapReduceJarCache.JarBuilder builder = new MapReduceJarCache.JarBuilder() {
+      @Override
+      public void build(File jarFile) throws IOException {
+        builds.incrementAndGet();
+        Files.write("built", jarFile, Charsets.UTF_8);
+      }
+    };
+
+    File localJar;
+    try (MapReduceJarCache cache = new MapReduceJarCache(cacheDir, localCacheDir, "run1", retention)) {
+      localJar = cache.getFile("key", "job.jar", builder);
+      Assert.assertEquals("built", Files.toString(localJar, Charsets.UTF_8));
+      Assert.assertEquals("job.jar", localJar.getName());
+      Assert.assertEquals(localJar.getName(), cache.getLocation("key", "job.jar", builder).getName());
+    }
+    Assert.assertEquals(1, builds.get());
+
+    // Build again from a new run, it should reuse the local jar
+    try (MapReduceJarCache cache = new MapReduceJarCache(cacheDir, localCacheDir, "run2", retention)) {
+      Assert.assertEquals(localJar, cache.getFile("key", "job.jar", builder));
+    }
+    Assert.assertEquals(1, builds.get());
+
+    // Simulate a run in a different host. The jar should be downloaded from the shared cache.
+    File otherLocalCacheDir = new File(baseDir, "other");
+    try (MapReduceJarCache cache = new MapReduceJarCache(cacheDir, otherLocalCacheDir, "run3", retention)) {
+      File otherJar = cache.getFile("key", "job.jar", builder);
+      Assert.assertNotEquals(localJar, otherJar);
+      Assert.assertEquals("built", Files.toString(otherJar, Charsets.UTF_8));
+    }
+    Assert.assertEquals(1, builds.get());
+
+    // A different key builds a new jar
+    try (MapReduceJarCache cache = new MapReduceJarCache(cacheDir, localCacheDir, "run4", retention)) {
+      cache.getLocation("key2", "job.jar", builder);
+    }
+    Assert.assertEquals(2, builds.get());
+  }
+
+  @Test
+  public void testCleanup() throws IOException {
+    File baseDir = TEMP_FOLDER.newFolder();
+    Location cacheDir = new LocalLocationFactory(baseDir).create("cache");
+    File localCacheDir = new File(baseDir, "local");
+
+    Location source = new LocalLocationFactory(baseDir).create("program.jar");
+    write(source, "program");
+
+    // Without retention, unreferenced entries are deleted when a run is closed
+    MapReduceJarCache cache1 = new MapReduceJarCache(cacheDir, localCacheDir, "run1", -1L);
+    MapReduceJarCache cache2 = new MapReduceJarCache(cacheDir, localCacheDir, "run2", -1L);
+    Location cached = cache1.getLocation(source, "program.jar");
+    Assert.assertEquals(cached, cache2.getLocation(source, "program.jar"));
+
+    // Still referenced by run2
+    cache1.close();
+    Assert.assertTrue(cached.exists());
+
+    cache2.close();
+    Assert.assertFalse(cached.exists());
+
+    // Entries within the retention time are kept
+    try (MapReduceJarCache cache = new MapReduceJarCache(cacheDir, localCacheDir, "run3",
+                                                         TimeUnit.DAYS.toMillis(1))) {
+      cached = cache.getLocation(source, "program.jar");
+    }
+    Assert.assertTrue(cached.exists());
+  }
+
+  @Test
+  public void testConcurrentExpiration() throws Exception {
+    File baseDir = TEMP_FOLDER.newFolder();
+    Location cacheDir = new LocalLocationFactory(baseDir).create("cache");
+    File localCacheDir = new File(baseDir, "local");
+    long retention = TimeUnit.DAYS.toMillis(1);
+
+    Location source = new LocalLocationFactory(baseDir).create("program.jar");
+    write(source, "program");
+
+    // Race a run that uses an unreferenced entry against a run in another process that deletes expired entries.
+    // The entry must survive, and must keep the reference of the run that uses it.
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      for (int i = 0; i < 50; i++) {
+        final MapReduceJarCache expiring = new MapReduceJarCache(cacheDir, localCacheDir, "expire" + i, -1L);
+        final CyclicBarrier barrier = new CyclicBarrier(2);
+        Future<?> future = executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            barrier.await();
+            expiring.close();
+            return null;
+          }
+        });
+
+        try (MapReduceJarCache cache = new MapReduceJarCache(cacheDir, localCacheDir, "run" + i, retention)) {
+          barrier.await();
+          Location cached = cache.getLocation(source, "program.jar");
+          future.get();
+          Assert.assertEquals("program", read(cached));
+
+          new MapReduceJarCache(cacheDir, localCacheDir, "check" + i, -1L).close();
+          Assert.assertEquals("program", read(cached));
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testClassPathKey() throws IOException {
+    File baseDir = TEMP_FOLDER.newFolder();
+    File jarFile = new File(baseDir, "lib.jar");
+    Files.write("content1", jarFile, Charsets.UTF_8);
+    File classesDir = new File(baseDir, "classes");
+    File classFile = new File(new File(classesDir, "pkg"), "A.class");
+    Files.createParentDirs(classFile);
+    Files.write("class1", classFile, Charsets.UTF_8);
+
+    String classPath = jarFile.getAbsolutePath() + File.pathSeparator + classesDir.getAbsolutePath();
+    String key = MapReduceJarCache.getClassPathKey(classPath);
+    Assert.assertEquals(key, MapReduceJarCache.getClassPathKey(classPath));
+
+    // Changing the jar without changing its name and size changes the key
+    Files.write("content2", jarFile, Charsets.UTF_8);
+    Assert.assertTrue(jarFile.setLastModified(jarFile.lastModified() + 10000));
+    String newKey = MapReduceJarCache.getClassPathKey(classPath);
+    Assert.assertNotEquals(key, newKey);
+    key = newKey;
+
+    // Changing a file in a directory changes the key
+    Files.write("class2", classFile, Charsets.UTF_8);
+    Assert.assertTrue(classFile.setLastModified(classFile.lastModified() + 10000));
+    Assert.assertNotEquals(key, MapReduceJarCache.getClassPathKey(classPath));
+  }
+
+  private void write(Location location, String content) throws IOException {
+    ByteStreams.write(content.getBytes(Charsets.UTF_8), Locations.newOutputSupplier(location));
+  }
+
+  private String read(Location location) throws IOException {
+    try (InputStreamReader reader = new InputStreamReader(location.getInputStream(), Charsets.UTF_8)) {
+      return CharStreams.toString(reader);
+    }
+  }
+}
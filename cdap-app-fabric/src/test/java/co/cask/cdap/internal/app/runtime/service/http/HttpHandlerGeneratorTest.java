@@ -33,6 +33,7 @@ import co.cask.cdap.api.plugin.PluginProperties;
 import co.cask.cdap.api.preview.DataTracer;
 import co.cask.cdap.api.security.store.SecureStoreData;
 import co.cask.cdap.api.service.http.AbstractHttpServiceHandler;
+import co.cask.cdap.api.service.http.AsyncHttpServiceResponse;
 import co.cask.cdap.api.service.http.HttpContentConsumer;
 import co.cask.cdap.api.service.http.HttpContentProducer;
 import co.cask.cdap.api.service.http.HttpServiceContext;
@@ -42,6 +43,7 @@ import co.cask.cdap.api.service.http.HttpServiceRequest;
 import co.cask.cdap.api.service.http.HttpServiceResponder;
 import co.cask.cdap.common.io.Locations;
 import co.cask.cdap.common.metrics.NoOpMetricsCollectionService;
+import co.cask.cdap.common.utils.Tasks;
 import co.cask.cdap.internal.app.preview.NoopDataTracerFactory;
 import co.cask.http.HttpHandler;
 import co.cask.http.NettyHttpService;
@@ -71,6 +73,7 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.InetSocketAddress;
@@ -82,6 +85,14 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
@@ -296,6 +307,119 @@ public class HttpHandlerGeneratorTest {
     }
   }
 
+  /**
+   * A testing handler for testing asynchronous response through usage of {@link AsyncHttpServiceResponse}.
+   */
+  public static final class AsyncHandler extends AbstractHttpServiceHandler {
+
+    private final List<Map.Entry<AsyncHttpServiceResponse<String>, String>> pending;
+    private final int batchSize;
+
+    public AsyncHandler(List<Map.Entry<AsyncHttpServiceResponse<String>, String>> pending, int batchSize) {
+      this.pending = pending;
+      this.batchSize = batchSize;
+    }
+
+    // Responses are only completed when there are batchSize number of concurrent requests
+    @Path("/batch/{name}")
+    @GET
+    public AsyncHttpServiceResponse<String> batch(HttpServiceRequest request, HttpServiceResponder responder,
+                                                  @PathParam("name") String name) {
+      AsyncHttpServiceResponse<String> response = new EchoAsyncResponse();
+      final List<Map.Entry<AsyncHttpServiceResponse<String>, String>> completing;
+      synchronized (pending) {
+        pending.add(Maps.immutableEntry(response, name));
+        if (pending.size() < batchSize) {
+          return response;
+        }
+        completing = new ArrayList<>(pending);
+        pending.clear();
+      }
+
+      new Thread() {
+        @Override
+        public void run() {
+          for (Map.Entry<AsyncHttpServiceResponse<String>, String> entry : completing) {
+            entry.getKey().complete(entry.getValue());
+          }
+        }
+      }.start();
+      return response;
+    }
+
+    @Path("/echo/{name}")
+    @GET
+    public AsyncHttpServiceResponse<String> echo(HttpServiceRequest request, HttpServiceResponder responder,
+                                                 @PathParam("name") String name) {
+      Assert.assertNotNull(System.getProperty(IN_TX));
+      AsyncHttpServiceResponse<String> response = new EchoAsyncResponse() {
+        @Override
+        public void onComplete(HttpServiceResponder responder, String result) throws Exception {
+          Assert.assertNotNull(System.getProperty(IN_TX));
+          super.onComplete(responder, result);
+        }
+      };
+      // Complete the response before returning it
+      response.complete(name);
+      return response;
+    }
+
+    @Path("/echo-no-tx/{name}")
+    @GET
+    public AsyncHttpServiceResponse<String> echoNoTx(HttpServiceRequest request, HttpServiceResponder responder,
+                                                     @PathParam("name") String name) {
+      AsyncHttpServiceResponse<String> response = new EchoAsyncResponse() {
+        @Override
+        @TransactionPolicy(TransactionControl.EXPLICIT)
+        public void onComplete(HttpServiceResponder responder, String result) throws Exception {
+          Assert.assertNull(System.getProperty(IN_TX));
+          super.onComplete(responder, result);
+        }
+      };
+      response.complete(name);
+      return response;
+    }
+
+    @Path("/fail")
+    @GET
+    public AsyncHttpServiceResponse<String> fail(HttpServiceRequest request, HttpServiceResponder responder) {
+      AsyncHttpServiceResponse<String> response = new EchoAsyncResponse();
+      response.fail(new IllegalArgumentException("Failure"));
+      return response;
+    }
+
+    @Path("/never")
+    @GET
+    public AsyncHttpServiceResponse<String> never(HttpServiceRequest request, HttpServiceResponder responder) {
+      // The response is never completed
+      return new EchoAsyncResponse();
+    }
+
+    @Path("/sync")
+    @GET
+    public AsyncHttpServiceResponse<String> sync(HttpServiceRequest request, HttpServiceResponder responder) {
+      // Not using the async response
+      responder.sendString("sync");
+      return null;
+    }
+  }
+
+  /**
+   * A {@link AsyncHttpServiceResponse} that responds with the result.
+   */
+  private static class EchoAsyncResponse extends AsyncHttpServiceResponse<String> {
+
+    @Override
+    public void onComplete(HttpServiceResponder responder, String result) throws Exception {
+      responder.sendString(result);
+    }
+
+    @Override
+    public void onError(HttpServiceResponder responder, Throwable failureCause) {
+      responder.sendError(400, failureCause.getMessage());
+    }
+  }
+
   @Test
   public void testHttpHeaders() throws Exception {
     MetricsContext noOpsMetricsContext =
@@ -563,6 +687,134 @@ public class HttpHandlerGeneratorTest {
     }
   }
 
+  @Test
+  public void testAsyncResponse() throws Exception {
+    MetricsContext noOpsMetricsContext =
+      new NoOpMetricsCollectionService().getContext(new HashMap<String, String>());
+    HttpHandlerFactory factory = new HttpHandlerFactory("/async", noOpsMetricsContext);
+
+    final int batchSize = 10;
+    final List<Map.Entry<AsyncHttpServiceResponse<String>, String>> pending = new ArrayList<>();
+    HttpHandler httpHandler = factory.createHttpHandler(
+      TypeToken.of(AsyncHandler.class), new AbstractDelegatorContext<AsyncHandler>() {
+        @Override
+        protected AsyncHandler createHandler() {
+          return new AsyncHandler(pending, batchSize);
+        }
+      });
+
+    // With only one exec thread, concurrent requests can only be served if the thread is not blocked
+    NettyHttpService service = NettyHttpService.builder()
+      .addHttpHandlers(ImmutableList.of(httpHandler))
+      .setExecThreadPoolSize(1)
+      .build();
+
+    service.startAndWait();
+    try {
+      final InetSocketAddress bindAddress = service.getBindAddress();
+
+      Assert.assertEquals("test", getContent(bindAddress, "/async/echo/test", 200));
+      Assert.assertEquals("test", getContent(bindAddress, "/async/echo-no-tx/test", 200));
+      Assert.assertEquals("Failure", getContent(bindAddress, "/async/fail", 400));
+      Assert.assertEquals("sync", getContent(bindAddress, "/async/sync", 200));
+
+      ExecutorService executor = Executors.newFixedThreadPool(batchSize);
+      try {
+        List<Future<String>> futures = new ArrayList<>();
+        for (int i = 0; i < batchSize; i++) {
+          final String name = "name" + i;
+          futures.add(executor.submit(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+              return getContent(bindAddress, "/async/batch/" + name, 200);
+            }
+          }));
+        }
+        for (int i = 0; i < batchSize; i++) {
+          Assert.assertEquals("name" + i, futures.get(i).get(10, TimeUnit.SECONDS));
+        }
+      } finally {
+        executor.shutdownNow();
+      }
+    } finally {
+      service.stopAndWait();
+    }
+  }
+
+  @Test
+  public void testAsyncResponseContextPool() throws Exception {
+    MetricsContext noOpsMetricsContext =
+      new NoOpMetricsCollectionService().getContext(new HashMap<String, String>());
+    HttpHandlerFactory factory = new HttpHandlerFactory("/async", noOpsMetricsContext);
+
+    // There are more pending requests than contexts, which only works if contexts are not held by pending requests
+    final int batchSize = 10;
+    final Semaphore contexts = new Semaphore(2);
+    final List<Map.Entry<AsyncHttpServiceResponse<String>, String>> pending = new ArrayList<>();
+    ScheduledExecutorService timeoutExecutor = Executors.newSingleThreadScheduledExecutor();
+    HttpHandler httpHandler = factory.createHttpHandler(
+      TypeToken.of(AsyncHandler.class), new PooledDelegatorContext<AsyncHandler>(contexts, timeoutExecutor, 500L) {
+        @Override
+        protected AsyncHandler createHandler() {
+          return new AsyncHandler(pending, batchSize);
+        }
+      });
+
+    NettyHttpService service = NettyHttpService.builder()
+      .addHttpHandlers(ImmutableList.of(httpHandler))
+      .setExecThreadPoolSize(1)
+      .build();
+
+    service.startAndWait();
+    ExecutorService executor = Executors.newFixedThreadPool(batchSize);
+    try {
+      final InetSocketAddress bindAddress = service.getBindAddress();
+
+      List<Future<String>> futures = new ArrayList<>();
+      for (int i = 0; i < batchSize; i++) {
+        final String name = "name" + i;
+        futures.add(executor.submit(new Callable<String>() {
+          @Override
+          public String call() throws Exception {
+            return getContent(bindAddress, "/async/batch/" + name, 200);
+          }
+        }));
+      }
+      for (int i = 0; i < batchSize; i++) {
+        Assert.assertEquals("name" + i, futures.get(i).get(10, TimeUnit.SECONDS));
+      }
+
+      // A response that is not completed is failed on timeout
+      Assert.assertEquals("Timeout in waiting for the asynchronous response to complete",
+                          getContent(bindAddress, "/async/never", 400));
+
+      // Only the context of the exec thread is not released
+      Tasks.waitFor(1, new Callable<Integer>() {
+        @Override
+        public Integer call() throws Exception {
+          return contexts.availablePermits();
+        }
+      }, 5, TimeUnit.SECONDS, 100, TimeUnit.MILLISECONDS);
+    } finally {
+      executor.shutdownNow();
+      timeoutExecutor.shutdownNow();
+      service.stopAndWait();
+    }
+  }
+
+  private String getContent(InetSocketAddress bindAddress, String path, int expectedCode) throws IOException {
+    HttpURLConnection urlConn = (HttpURLConnection) new URL(
+      String.format("http://%s:%d%s", bindAddress.getHostName(), bindAddress.getPort(), path)).openConnection();
+    try {
+      urlConn.setReadTimeout(10000);
+      Assert.assertEquals(expectedCode, urlConn.getResponseCode());
+      InputStream is = expectedCode == 200 ? urlConn.getInputStream() : urlConn.getErrorStream();
+      return new String(ByteStreams.toByteArray(is), Charsets.UTF_8);
+    } finally {
+      urlConn.disconnect();
+    }
+  }
+
   private abstract static class AbstractDelegatorContext<T extends HttpServiceHandler> implements DelegatorContext<T> {
 
     private final ThreadLocal<T> threadLocal = new ThreadLocal<T>() {
@@ -593,6 +845,116 @@ public class HttpHandlerGeneratorTest {
       };
     }
 
+    @Override
+    public AcquiredContext acquire() {
+      return new AcquiredContext() {
+        @Override
+        public HttpServiceContext getServiceContext() {
+          return new NoOpHttpServiceContext();
+        }
+
+        @Override
+        public void cancel() {
+          // no-op
+        }
+      };
+    }
+
+    @Override
+    public Cancellable scheduleAsyncResponseTimeout(Runnable task) {
+      return new Cancellable() {
+        @Override
+        public void cancel() {
+          // no-op
+        }
+      };
+    }
+
+    protected abstract T createHandler();
+  }
+
+  /**
+   * A {@link DelegatorContext} that fails if more contexts are used than the permits of the given {@link Semaphore}.
+   */
+  private abstract static class PooledDelegatorContext<T extends HttpServiceHandler> implements DelegatorContext<T> {
+
+    private final Semaphore contexts;
+    private final ScheduledExecutorService timeoutExecutor;
+    private final long timeoutMillis;
+    private final ThreadLocal<T> threadLocal = new ThreadLocal<T>() {
+      @Override
+      protected T initialValue() {
+        takeContext();
+        return createHandler();
+      }
+    };
+
+    PooledDelegatorContext(Semaphore contexts, ScheduledExecutorService timeoutExecutor, long timeoutMillis) {
+      this.contexts = contexts;
+      this.timeoutExecutor = timeoutExecutor;
+      this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public final T getHandler() {
+      return threadLocal.get();
+    }
+
+    @Override
+    public final HttpServiceContext getServiceContext() {
+      threadLocal.get();
+      return new NoOpHttpServiceContext();
+    }
+
+    @Override
+    public Cancellable capture() {
+      threadLocal.remove();
+      return createReleaser();
+    }
+
+    @Override
+    public AcquiredContext acquire() {
+      takeContext();
+      final Cancellable releaser = createReleaser();
+      return new AcquiredContext() {
+        @Override
+        public HttpServiceContext getServiceContext() {
+          return new NoOpHttpServiceContext();
+        }
+
+        @Override
+        public void cancel() {
+          releaser.cancel();
+        }
+      };
+    }
+
+    @Override
+    public Cancellable scheduleAsyncResponseTimeout(Runnable task) {
+      final ScheduledFuture<?> future = timeoutExecutor.schedule(task, timeoutMillis, TimeUnit.MILLISECONDS);
+      return new Cancellable() {
+        @Override
+        public void cancel() {
+          future.cancel(false);
+        }
+      };
+    }
+
+    private void takeContext() {
+      if (!contexts.tryAcquire()) {
+        throw new IllegalStateException("No context available");
+      }
+    }
+
+    private Cancellable createReleaser() {
+      return new Cancellable() {
+        @Override
+        public void cancel() {
+          contexts.release();
+        }
+      };
+    }
+
     protected abstract T createHandler();
   }
 
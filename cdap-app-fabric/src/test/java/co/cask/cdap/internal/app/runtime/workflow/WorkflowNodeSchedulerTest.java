@@ -0,0 +1,205 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.internal.app.runtime.workflow;
+
+import co.cask.cdap.api.schedule.SchedulableProgramType;
+import co.cask.cdap.api.workflow.ScheduleProgramInfo;
+import co.cask.cdap.api.workflow.WorkflowActionNode;
+import co.cask.cdap.api.workflow.WorkflowConditionNode;
+import co.cask.cdap.api.workflow.WorkflowForkNode;
+import co.cask.cdap.api.workflow.WorkflowNode;
+import com.google.common.collect.ImmutableList;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for {@link WorkflowNodeScheduler}.
+ */
+public class WorkflowNodeSchedulerTest {
+
+  @Test
+  public void testCriticalPathLength() {
+    // a -> fork(b -> c, d) -> condition(e, f -> g) -> h
+    List<WorkflowNode> nodes = ImmutableList.<WorkflowNode>of(
+      action("a"),
+      new WorkflowForkNode("fork", ImmutableList.<List<WorkflowNode>>of(
+        ImmutableList.of(action("b"), action("c")),
+        ImmutableList.of(action("d")))),
+      new WorkflowConditionNode("condition", "predicate",
+                                ImmutableList.of(action("e")),
+                                ImmutableList.of(action("f"), action("g"))),
+      action("h"));
+
+    WorkflowNodeScheduler scheduler = new WorkflowNodeScheduler("test", nodes, 0);
+    try {
+      Assert.assertEquals(1, scheduler.getCriticalPathLength("h"));
+      Assert.assertEquals(2, scheduler.getCriticalPathLength("e"));
+      Assert.assertEquals(2, scheduler.getCriticalPathLength("g"));
+      Assert.assertEquals(3, scheduler.getCriticalPathLength("f"));
+      Assert.assertEquals(4, scheduler.getCriticalPathLength("d"));
+      Assert.assertEquals(4, scheduler.getCriticalPathLength("c"));
+      Assert.assertEquals(5, scheduler.getCriticalPathLength("b"));
+      Assert.assertEquals(6, scheduler.getCriticalPathLength("a"));
+    } finally {
+      scheduler.shutdown();
+    }
+  }
+
+  @Test
+  public void testBoundedConcurrency() throws Exception {
+    List<WorkflowNode> nodes = ImmutableList.<WorkflowNode>of(
+      new WorkflowForkNode("fork", ImmutableList.<List<WorkflowNode>>of(
+        ImmutableList.of(action("a")),
+        ImmutableList.of(action("b")),
+        ImmutableList.of(action("c")),
+        ImmutableList.of(action("d")))));
+
+    final WorkflowNodeScheduler scheduler = new WorkflowNodeScheduler("test", nodes, 2);
+    try {
+      final AtomicInteger running = new AtomicInteger();
+      final AtomicInteger maxRunning = new AtomicInteger();
+      BlockingQueue<WorkflowNodeScheduler.Task<Void>> completed = new LinkedBlockingQueue<>();
+      for (final String nodeId : ImmutableList.of("a", "b", "c", "d")) {
+        scheduler.submit("branch-" + nodeId, new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            scheduler.acquire(nodeId);
+            try {
+              int current = running.incrementAndGet();
+              int max = maxRunning.get();
+              while (current > max && !maxRunning.compareAndSet(max, current)) {
+                max = maxRunning.get();
+              }
+              TimeUnit.MILLISECONDS.sleep(50);
+              running.decrementAndGet();
+            } finally {
+              scheduler.release();
+            }
+            return null;
+          }
+        }, completed);
+      }
+
+      for (int i = 0; i < 4; i++) {
+        WorkflowNodeScheduler.Task<Void> task = completed.poll(10, TimeUnit.SECONDS);
+        Assert.assertNotNull(task);
+        task.get();
+      }
+      Assert.assertEquals(2, maxRunning.get());
+    } finally {
+      scheduler.shutdown();
+    }
+  }
+
+  @Test
+  public void testCriticalPathPriority() throws Exception {
+    // Action "long" has a longer path to the end of the workflow than action "short"
+    List<WorkflowNode> nodes = ImmutableList.<WorkflowNode>of(
+      new WorkflowForkNode("fork", ImmutableList.<List<WorkflowNode>>of(
+        ImmutableList.of(action("running")),
+        ImmutableList.of(action("short")),
+        ImmutableList.of(action("long"), action("next")))));
+
+    final WorkflowNodeScheduler scheduler = new WorkflowNodeScheduler("test", nodes, 1);
+    try {
+      scheduler.acquire("running");
+
+      final BlockingQueue<String> started = new LinkedBlockingQueue<>();
+      final CountDownLatch finishLatch = new CountDownLatch(1);
+      List<WorkflowNodeScheduler.Task<Void>> tasks = ImmutableList.of(
+        submitAction(scheduler, "short", started, finishLatch),
+        submitAction(scheduler, "long", started, finishLatch));
+
+      // Wait for both actions to be waiting for the permit
+      long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+      while (scheduler.getWaitingActions() < 2 && System.currentTimeMillis() < deadline) {
+        TimeUnit.MILLISECONDS.sleep(10);
+      }
+      Assert.assertEquals(2, scheduler.getWaitingActions());
+
+      // Although "short" waited first, "long" should start first once the permit is released
+      scheduler.release();
+      Assert.assertEquals("long", started.poll(10, TimeUnit.SECONDS));
+      finishLatch.countDown();
+      Assert.assertEquals("short", started.poll(10, TimeUnit.SECONDS));
+
+      for (WorkflowNodeScheduler.Task<Void> task : tasks) {
+        task.get();
+      }
+    } finally {
+      scheduler.shutdown();
+    }
+  }
+
+  @Test
+  public void testCancelAndAwait() throws Exception {
+    WorkflowNodeScheduler scheduler = new WorkflowNodeScheduler("test", ImmutableList.<WorkflowNode>of(), 0);
+    try {
+      final CountDownLatch startLatch = new CountDownLatch(1);
+      final CountDownLatch interruptedLatch = new CountDownLatch(1);
+      WorkflowNodeScheduler.Task<Void> task = scheduler.submit("task", new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          startLatch.countDown();
+          try {
+            TimeUnit.SECONDS.sleep(60);
+          } catch (InterruptedException e) {
+            interruptedLatch.countDown();
+          }
+          return null;
+        }
+      });
+      Assert.assertTrue(startLatch.await(10, TimeUnit.SECONDS));
+      task.cancelAndAwait();
+      // The task must have been interrupted and completed when cancelAndAwait returns
+      Assert.assertEquals(0, interruptedLatch.getCount());
+    } finally {
+      scheduler.shutdown();
+    }
+  }
+
+  private WorkflowNodeScheduler.Task<Void> submitAction(final WorkflowNodeScheduler scheduler, final String nodeId,
+                                                        final BlockingQueue<String> started,
+                                                        final CountDownLatch finishLatch) {
+    return scheduler.submit(nodeId, new Callable<Void>() {
+      @Override
+      public Void call() throws Exception {
+        scheduler.acquire(nodeId);
+        try {
+          started.add(nodeId);
+          finishLatch.await();
+        } finally {
+          scheduler.release();
+        }
+        return null;
+      }
+    });
+  }
+
+  private WorkflowNode action(String nodeId) {
+    return new WorkflowActionNode(nodeId, new ScheduleProgramInfo(SchedulableProgramType.MAPREDUCE, nodeId));
+  }
+}
@@ -15,12 +15,15 @@
  */
 package co.cask.cdap.internal.app.store.preview;
 
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
 import co.cask.cdap.common.app.RunIds;
 import co.cask.cdap.internal.AppFabricTestHelper;
 import co.cask.cdap.proto.NamespaceMeta;
 import co.cask.cdap.proto.id.ApplicationId;
 import com.google.gson.Gson;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 import com.google.gson.reflect.TypeToken;
 import com.google.inject.Injector;
 
@@ -95,4 +98,28 @@ public class DefaultPreviewStoreTest {
     firstApplicationData = store.get(firstApplicationId, "mytracer");
     Assert.assertEquals(0, firstApplicationData.size());
   }
+
+  @Test
+  public void testStructuredRecord() throws Exception {
+    ApplicationId applicationId = new ApplicationId(NamespaceMeta.DEFAULT.getName(), RunIds.generate().getId());
+
+    Schema innerSchema = Schema.recordOf("inner", Schema.Field.of("x", Schema.of(Schema.Type.INT)));
+    Schema schema = Schema.recordOf("record",
+                                    Schema.Field.of("name", Schema.of(Schema.Type.STRING)),
+                                    Schema.Field.of("count", Schema.nullableOf(Schema.of(Schema.Type.LONG))),
+                                    Schema.Field.of("inner", innerSchema));
+    StructuredRecord record = StructuredRecord.builder(schema)
+      .set("name", "abc")
+      .set("inner", StructuredRecord.builder(innerSchema).set("x", 5).build())
+      .build();
+    store.put(applicationId, "mytracer", "records", record);
+
+    // records are stored with their field values keyed by field name
+    JsonObject json = store.get(applicationId, "mytracer").get("records").get(0).getAsJsonObject();
+    Assert.assertTrue(json.has("schema"));
+    JsonObject fields = json.getAsJsonObject("fields");
+    Assert.assertEquals("abc", fields.get("name").getAsString());
+    Assert.assertFalse(fields.has("count"));
+    Assert.assertEquals(5, fields.getAsJsonObject("inner").getAsJsonObject("fields").get("x").getAsInt());
+  }
 }
@@ -33,14 +33,14 @@ public final class CacheConfig {
   }
 
   /**
-   * @return expiry after write in seconds
+   * @return expiry after write in seconds; values don't expire if it is not positive
    */
   public long getExpirySeconds() {
     return expirySeconds;
   }
 
   /**
-   * @return maximum number of elements in the cache
+   * @return maximum number of elements in the cache; the size is not bounded if it is not positive
    */
   public int getMaxSize() {
     return maxSize;
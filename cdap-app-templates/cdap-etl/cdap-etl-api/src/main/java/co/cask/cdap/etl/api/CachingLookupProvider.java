@@ -0,0 +1,37 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.etl.api;
+
+/**
+ * A {@link LookupProvider} that can also provide {@link Lookup} instances configured by a {@link LookupTableConfig},
+ * caching values if caching is enabled in the config. Plugins can check whether the {@link LookupProvider} they are
+ * given is an instance of this interface to opt into caching.
+ */
+public interface CachingLookupProvider extends LookupProvider {
+
+  /**
+   * Provides a {@link Lookup} that is initialized with the dataset properties of the given table config. If caching
+   * is enabled in the table config, values are cached according to its {@link CacheConfig}. The cache is kept for
+   * the lifetime of the provider and is shared by all the {@link Lookup} instances provided for the same table.
+   *
+   * @param table the name of the {@link Lookup} table
+   * @param tableConfig the configuration of the {@link Lookup} table
+   * @param <T> the type of value returned by the {@link Lookup}
+   * @return a {@link Lookup} instance
+   */
+  <T> Lookup<T> provide(String table, LookupTableConfig tableConfig);
+}
@@ -18,8 +18,10 @@ package co.cask.cdap.etl.common;
 
 import co.cask.cdap.api.metrics.Metrics;
 import co.cask.cdap.api.plugin.PluginContext;
+import co.cask.cdap.etl.api.CachingLookupProvider;
 import co.cask.cdap.etl.api.Lookup;
 import co.cask.cdap.etl.api.LookupProvider;
+import co.cask.cdap.etl.api.LookupTableConfig;
 import co.cask.cdap.etl.api.TransformContext;
 
 import java.util.Map;
@@ -29,18 +31,28 @@ import java.util.Map;
  * This context scopes plugin ids by the id of the stage. This allows multiple transforms to use plugins with
  * the same id without clobbering each other.
  */
-public abstract class AbstractTransformContext extends AbstractStageContext implements TransformContext {
+public abstract class AbstractTransformContext extends AbstractStageContext
+  implements TransformContext, CachingLookupProvider {
 
   private final LookupProvider lookup;
+  private final LookupCaches lookupCaches;
 
   public AbstractTransformContext(PluginContext pluginContext,
                                   Metrics metrics, LookupProvider lookup, String stageName) {
     super(pluginContext, metrics, stageName);
     this.lookup = lookup;
+    this.lookupCaches = new LookupCaches();
   }
 
   @Override
   public <T> Lookup<T> provide(String table, Map<String, String> arguments) {
     return lookup.provide(table, arguments);
   }
+
+  @Override
+  public <T> Lookup<T> provide(String table, LookupTableConfig tableConfig) {
+    // cache in this context rather than in the provider, so that the cache is scoped to the stage
+    return lookupCaches.wrap(table, tableConfig, this.<T>provide(table, tableConfig.getDatasetProperties()),
+                             getMetrics());
+  }
 }
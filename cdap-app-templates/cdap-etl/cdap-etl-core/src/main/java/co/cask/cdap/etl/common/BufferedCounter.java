@@ -0,0 +1,83 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.etl.common;
+
+import co.cask.cdap.etl.api.StageMetrics;
+
+/**
+ * Counts a metric of a stage in a local counter, and adds the count to the {@link StageMetrics} of the stage in
+ * batches. The count is flushed when the number of pending increments reaches a maximum, when the first increment
+ * after the flush interval is made, and when {@link #flush()} is called. Instances of this class are not thread safe.
+ */
+public final class BufferedCounter {
+
+  /**
+   * The default maximum number of increments to accumulate before flushing.
+   */
+  public static final int DEFAULT_MAX_PENDING = 1000;
+
+  private static final long FLUSH_INTERVAL_MILLIS = 1000L;
+
+  private final StageMetrics metrics;
+  private final String name;
+  private final int maxPending;
+  private int pending;
+  private long lastFlushTime;
+
+  /**
+   * Creates a new instance.
+   *
+   * @param metrics the {@link StageMetrics} to flush the count to
+   * @param name the name of the metric
+   * @param maxPending the maximum number of increments to accumulate before flushing. A value of {@code 1} makes
+   *                   every increment go directly to the {@link StageMetrics}
+   */
+  public BufferedCounter(StageMetrics metrics, String name, int maxPending) {
+    this.metrics = metrics;
+    this.name = name;
+    this.maxPending = maxPending;
+    this.lastFlushTime = System.currentTimeMillis();
+  }
+
+  /**
+   * Returns the name of the metric.
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Increments the count by one.
+   */
+  public void increment() {
+    if (++pending >= maxPending || System.currentTimeMillis() - lastFlushTime >= FLUSH_INTERVAL_MILLIS) {
+      flush();
+    }
+  }
+
+  /**
+   * Adds the pending count to the {@link StageMetrics}.
+   */
+  public void flush() {
+    if (pending > 0) {
+      metrics.count(name, pending);
+      pending = 0;
+    }
+    lastFlushTime = System.currentTimeMillis();
+  }
+}
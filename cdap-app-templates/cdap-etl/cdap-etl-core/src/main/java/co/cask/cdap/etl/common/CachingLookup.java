@@ -0,0 +1,135 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.etl.common;
+
+import co.cask.cdap.etl.api.CacheConfig;
+import co.cask.cdap.etl.api.Lookup;
+import co.cask.cdap.etl.api.StageMetrics;
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link Lookup} that caches the values returned by another {@link Lookup}. Keys that don't have a value are
+ * cached too, so that looking them up again doesn't go to the underlying {@link Lookup}. A batch lookup fetches
+ * all the keys that are not cached with one batch lookup on the underlying {@link Lookup}.
+ *
+ * @param <T> the type of value returned by the lookup
+ */
+public class CachingLookup<T> implements Lookup<T> {
+
+  public static final String CACHE_HITS = "lookup.cache.hits";
+  public static final String CACHE_MISSES = "lookup.cache.misses";
+
+  private final Lookup<T> delegate;
+  private final Cache<String, Optional<T>> cache;
+  private final StageMetrics metrics;
+
+  /**
+   * Creates a new instance.
+   *
+   * @param delegate the {@link Lookup} to get values that are not cached from
+   * @param cache the cache of values
+   * @param metrics the {@link StageMetrics} to count cache hits and misses in, or {@code null} to not count them
+   */
+  public CachingLookup(Lookup<T> delegate, Cache<String, Optional<T>> cache, @Nullable StageMetrics metrics) {
+    this.delegate = delegate;
+    this.cache = cache;
+    this.metrics = metrics;
+  }
+
+  /**
+   * Creates a cache for {@link CachingLookup} that is configured with the given {@link CacheConfig}.
+   */
+  public static <T> Cache<String, Optional<T>> createCache(CacheConfig cacheConfig) {
+    CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder();
+    if (cacheConfig.getExpirySeconds() > 0) {
+      builder.expireAfterWrite(cacheConfig.getExpirySeconds(), TimeUnit.SECONDS);
+    }
+    if (cacheConfig.getMaxSize() > 0) {
+      builder.maximumSize(cacheConfig.getMaxSize());
+    }
+    return builder.build();
+  }
+
+  @Override
+  public T lookup(String key) {
+    Optional<T> value = cache.getIfPresent(key);
+    if (value != null) {
+      count(1, 0);
+      return value.orNull();
+    }
+    count(0, 1);
+    T result = delegate.lookup(key);
+    cache.put(key, Optional.fromNullable(result));
+    return result;
+  }
+
+  @Override
+  public Map<String, T> lookup(String... keys) {
+    return lookup(ImmutableSet.copyOf(keys));
+  }
+
+  @Override
+  public Map<String, T> lookup(Set<String> keys) {
+    Map<String, T> result = new HashMap<>();
+    Set<String> missingKeys = new HashSet<>();
+    for (String key : keys) {
+      Optional<T> value = cache.getIfPresent(key);
+      if (value == null) {
+        missingKeys.add(key);
+      } else if (value.isPresent()) {
+        result.put(key, value.get());
+      }
+    }
+    count(keys.size() - missingKeys.size(), missingKeys.size());
+    if (missingKeys.isEmpty()) {
+      return result;
+    }
+
+    Map<String, T> fetched = delegate.lookup(missingKeys);
+    for (String key : missingKeys) {
+      T value = fetched.get(key);
+      cache.put(key, Optional.fromNullable(value));
+      if (value != null) {
+        result.put(key, value);
+      }
+    }
+    return result;
+  }
+
+  private void count(int hits, int misses) {
+    if (metrics == null) {
+      return;
+    }
+    if (hits > 0) {
+      metrics.count(CACHE_HITS, hits);
+    }
+    if (misses > 0) {
+      metrics.count(CACHE_MISSES, misses);
+    }
+  }
+}
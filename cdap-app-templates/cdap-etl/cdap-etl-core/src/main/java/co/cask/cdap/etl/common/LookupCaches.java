@@ -0,0 +1,56 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.etl.common;
+
+import co.cask.cdap.etl.api.Lookup;
+import co.cask.cdap.etl.api.LookupTableConfig;
+import co.cask.cdap.etl.api.StageMetrics;
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Keeps the caches of {@link CachingLookup CachingLookups} by table name, so that all the lookups of a table share
+ * the same cache for the lifetime of this object. The cache of a table is configured by the
+ * {@link LookupTableConfig} the table is first looked up with.
+ */
+final class LookupCaches {
+
+  private final Map<String, Cache<String, Optional<Object>>> caches = new HashMap<>();
+
+  /**
+   * Returns a {@link Lookup} that caches the values of the given {@link Lookup} if caching is enabled in the given
+   * {@link LookupTableConfig}, or the given {@link Lookup} otherwise.
+   */
+  @SuppressWarnings("unchecked")
+  synchronized <T> Lookup<T> wrap(String table, LookupTableConfig tableConfig, Lookup<T> lookup,
+                                  @Nullable StageMetrics metrics) {
+    if (!tableConfig.isCacheEnabled()) {
+      return lookup;
+    }
+    Cache<String, Optional<Object>> cache = caches.get(table);
+    if (cache == null) {
+      cache = CachingLookup.createCache(tableConfig.getCacheConfig());
+      caches.put(table, cache);
+    }
+    return new CachingLookup<>(lookup, (Cache<String, Optional<T>>) (Cache) cache, metrics);
+  }
+}
@@ -27,32 +27,48 @@ import co.cask.cdap.etl.api.StageMetrics;
  * @param <T> the type of object to emit
  */
 public class TrackedEmitter<T> implements Emitter<T> {
-  private static final String RECORDS_ERROR = "records.error";
+  static final String RECORDS_ERROR = "records.error";
   private final Emitter<T> delegate;
-  private final StageMetrics stageMetrics;
-  private final String emitMetricName;
+  private final BufferedCounter emitCounter;
+  private final BufferedCounter errorCounter;
   private final DataTracer dataTracer;
 
   public TrackedEmitter(Emitter<T> delegate, StageMetrics stageMetrics, String emitMetricName, DataTracer dataTracer) {
+    this(delegate, new BufferedCounter(stageMetrics, emitMetricName, 1),
+         new BufferedCounter(stageMetrics, RECORDS_ERROR, 1), dataTracer);
+  }
+
+  /**
+   * Creates an emitter that counts records with the given counters. The counters are not flushed by this emitter.
+   */
+  TrackedEmitter(Emitter<T> delegate, BufferedCounter emitCounter, BufferedCounter errorCounter,
+                 DataTracer dataTracer) {
     this.delegate = delegate;
-    this.stageMetrics = stageMetrics;
-    this.emitMetricName = emitMetricName;
+    this.emitCounter = emitCounter;
+    this.errorCounter = errorCounter;
     this.dataTracer = dataTracer;
   }
 
+  /**
+   * Returns the emitter that this emitter delegates to.
+   */
+  Emitter<T> getDelegate() {
+    return delegate;
+  }
+
   @Override
   public void emit(T value) {
     delegate.emit(value);
-    stageMetrics.count(emitMetricName, 1);
+    emitCounter.increment();
     if (dataTracer.isEnabled()) {
-      dataTracer.info(emitMetricName, value);
+      dataTracer.info(emitCounter.getName(), value);
     }
   }
 
   @Override
   public void emitError(InvalidEntry<T> value) {
     delegate.emitError(value);
-    stageMetrics.count(RECORDS_ERROR, 1);
+    errorCounter.increment();
     if (dataTracer.isEnabled()) {
       dataTracer.info(RECORDS_ERROR, value);
     }
@@ -27,6 +27,8 @@ import javax.annotation.Nullable;
 /**
  * A {@link Transformation} that delegates transform operations while emitting metrics
  * around how many records were input into the transform and output by it.
+ * Counts are accumulated locally and added to the {@link StageMetrics} in batches, hence {@link #destroy()} or
+ * {@link #flushMetrics()} must be called once the transform is done to emit the remaining counts.
  *
  * @param <IN> Type of input object
  * @param <OUT> Type of output object
@@ -35,11 +37,13 @@ public class TrackedTransform<IN, OUT> implements Transformation<IN, OUT>, Destr
   public static final String RECORDS_IN = "records.in";
   public static final String RECORDS_OUT = "records.out";
   private final Transformation<IN, OUT> transform;
-  private final StageMetrics metrics;
-  private final String metricInName;
-  private final String metricOutName;
+  private final BufferedCounter inCounter;
+  private final BufferedCounter outCounter;
+  private final BufferedCounter errorCounter;
   private final String previewInName;
   private final DataTracer dataTracer;
+  // The emitter is usually the same for every record, hence keep the wrapper around it
+  private TrackedEmitter<OUT> trackedEmitter;
 
   public TrackedTransform(Transformation<IN, OUT> transform, StageMetrics metrics, DataTracer dataTracer) {
     this(transform, metrics, RECORDS_IN, RECORDS_OUT, dataTracer, RECORDS_IN);
@@ -49,27 +53,50 @@ public class TrackedTransform<IN, OUT> implements Transformation<IN, OUT>, Destr
                           @Nullable String metricInName, @Nullable String metricOutName, DataTracer dataTracer,
                           String previewInName) {
     this.transform = transform;
-    this.metrics = metrics;
-    this.metricInName = metricInName;
-    this.metricOutName = metricOutName;
+    this.inCounter = metricInName == null ?
+      null : new BufferedCounter(metrics, metricInName, BufferedCounter.DEFAULT_MAX_PENDING);
+    this.outCounter = metricOutName == null ?
+      null : new BufferedCounter(metrics, metricOutName, BufferedCounter.DEFAULT_MAX_PENDING);
+    this.errorCounter = metricOutName == null ?
+      null : new BufferedCounter(metrics, TrackedEmitter.RECORDS_ERROR, BufferedCounter.DEFAULT_MAX_PENDING);
     this.dataTracer = dataTracer;
     this.previewInName = previewInName;
   }
 
   @Override
   public void transform(IN input, Emitter<OUT> emitter) throws Exception {
-    if (metricInName != null) {
-      metrics.count(metricInName, 1);
+    if (inCounter != null) {
+      inCounter.increment();
     }
     if (dataTracer.isEnabled() && previewInName != null) {
       dataTracer.info(previewInName, input);
     }
-    transform.transform(input, metricOutName == null ? emitter :
-      new TrackedEmitter<>(emitter, metrics, metricOutName, dataTracer));
+    if (outCounter == null) {
+      transform.transform(input, emitter);
+      return;
+    }
+    if (trackedEmitter == null || trackedEmitter.getDelegate() != emitter) {
+      trackedEmitter = new TrackedEmitter<>(emitter, outCounter, errorCounter, dataTracer);
+    }
+    transform.transform(input, trackedEmitter);
+  }
+
+  /**
+   * Emits the counts that are accumulated locally to the {@link StageMetrics}.
+   */
+  public void flushMetrics() {
+    if (inCounter != null) {
+      inCounter.flush();
+    }
+    if (outCounter != null) {
+      outCounter.flush();
+      errorCounter.flush();
+    }
   }
 
   @Override
   public void destroy() {
+    flushMetrics();
     if (transform instanceof Destroyable) {
       ((Destroyable) transform).destroy();
     }
@@ -22,14 +22,19 @@ import co.cask.cdap.etl.api.InvalidEntry;
 import co.cask.cdap.etl.api.Transformation;
 
 import java.util.Collection;
+import java.util.List;
 
 /**
  * Encapsulates {@link Transformation} list of next stages, current stage name, and {@link DefaultEmitter}.
+ * Once linked to the details of its next stages by the {@link TransformExecutor}, the records emitted by the
+ * transformation are passed directly to the next stages instead of being collected. Only the records emitted by
+ * stages without next stages, and errors, are collected.
  */
 public class TransformDetail implements Emitter<Object> {
   private final Transformation transformation;
   private final Collection<String> nextStages;
   private final DefaultEmitter<Object> defaultEmitter;
+  private TransformDetail[] nextStageDetails;
 
   public TransformDetail(Transformation transformation, Collection<String> nextStages) {
     this.transformation = transformation;
@@ -40,7 +45,20 @@ public class TransformDetail implements Emitter<Object> {
 
   @Override
   public void emit(Object value) {
-    this.defaultEmitter.emit(value);
+    if (nextStageDetails == null) {
+      this.defaultEmitter.emit(value);
+      return;
+    }
+    for (TransformDetail nextStageDetail : nextStageDetails) {
+      try {
+        nextStageDetail.doTransform(value);
+      } catch (RuntimeException e) {
+        throw e;
+      } catch (Exception e) {
+        // Emitter methods can't throw checked exceptions, hence wrap it and unwrap it in transform
+        throw new NextStageException(e);
+      }
+    }
   }
 
   @Override
@@ -48,6 +66,30 @@ public class TransformDetail implements Emitter<Object> {
     this.defaultEmitter.emitError(invalidEntry);
   }
 
+  /**
+   * Transforms the given input with the transformation of this stage, and of all the stages after it.
+   */
+  void transform(Object input) throws Exception {
+    try {
+      doTransform(input);
+    } catch (NextStageException e) {
+      throw e.getException();
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void doTransform(Object input) throws Exception {
+    transformation.transform(input, this);
+  }
+
+  /**
+   * Links this stage to the details of its next stages, so that emitted records are passed to them directly.
+   */
+  void linkNextStages(List<TransformDetail> nextStageDetails) {
+    this.nextStageDetails = nextStageDetails.isEmpty()
+      ? null : nextStageDetails.toArray(new TransformDetail[nextStageDetails.size()]);
+  }
+
   public Collection<Object> getEntries() {
     return defaultEmitter.getEntries();
   }
@@ -60,6 +102,15 @@ public class TransformDetail implements Emitter<Object> {
     defaultEmitter.reset();
   }
 
+  /**
+   * Emits the metrics that the transformation accumulated locally, if it is a {@link TrackedTransform}.
+   */
+  public void flushMetrics() {
+    if (transformation instanceof TrackedTransform) {
+      ((TrackedTransform) transformation).flushMetrics();
+    }
+  }
+
   public void destroy() {
     if (transformation instanceof Destroyable) {
       Destroyables.destroyQuietly((Destroyable) transformation);
@@ -77,4 +128,20 @@ public class TransformDetail implements Emitter<Object> {
     return nextStages;
   }
 
+  /**
+   * Carries a checked exception thrown by the transformation of a next stage through {@link #emit(Object)}.
+   */
+  private static final class NextStageException extends RuntimeException {
+
+    private final Exception exception;
+
+    NextStageException(Exception exception) {
+      super(exception);
+      this.exception = exception;
+    }
+
+    Exception getException() {
+      return exception;
+    }
+  }
 }
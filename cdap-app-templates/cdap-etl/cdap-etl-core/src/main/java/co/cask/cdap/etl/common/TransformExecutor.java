@@ -18,11 +18,13 @@ package co.cask.cdap.etl.common;
 
 import co.cask.cdap.etl.api.Destroyable;
 import co.cask.cdap.etl.api.InvalidEntry;
-import co.cask.cdap.etl.api.Transformation;
-import com.google.common.collect.ImmutableList;
+import com.google.common.base.Preconditions;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -31,80 +33,95 @@ import java.util.Set;
  * Executes Transforms one iteration at a time, tracking how many records were input into and output from
  * each transform.
  *
+ * The transforms are linked into a chain when the executor is created, so that each record emitted by a transform
+ * is passed directly to the transforms of the next stages. Only the records emitted by the terminal stages and the
+ * errors emitted by any stage are collected, until {@link #resetEmitter()} is called.
+ *
  * @param <IN> the type of input object to the first transform
  *
  */
 public class TransformExecutor<IN> implements Destroyable {
 
-  private final Set<String> startingPoints;
-  private final Map<String, TransformDetail> transformDetailMap;
+  private final TransformDetail[] startingPoints;
+  private final String[] stageNames;
+  private final TransformDetail[] transformDetails;
+  private final TransformResponse responseWithoutErrors;
 
   public TransformExecutor(Map<String, TransformDetail> transformDetailMap, Set<String> startingPoints) {
-    this.transformDetailMap = transformDetailMap;
-    this.startingPoints = startingPoints;
-  }
-
-  public TransformResponse runOneIteration(IN input) throws Exception {
-    for (String stageName : startingPoints) {
-      // no prevStage for starting points
-      executeTransformation(stageName, ImmutableList.of(input));
-    }
+    this.stageNames = new String[transformDetailMap.size()];
+    this.transformDetails = new TransformDetail[transformDetailMap.size()];
 
     Map<String, Collection<Object>> terminalNodeEntriesMap = new HashMap<>();
-    Map<String, Collection<InvalidEntry<Object>>> errors = new HashMap<>();
-
+    int i = 0;
     for (Map.Entry<String, TransformDetail> transformDetailEntry : transformDetailMap.entrySet()) {
-      if (transformDetailEntry.getValue().getNextStages().isEmpty()) {
-        // terminal node
-        Collection<Object> entries = transformDetailEntry.getValue().getEntries();
-        if (entries != null) {
-          terminalNodeEntriesMap.put(transformDetailEntry.getKey(), entries);
-        }
+      TransformDetail transformDetail = transformDetailEntry.getValue();
+      List<TransformDetail> nextStageDetails = new ArrayList<>();
+      for (String nextStage : transformDetail.getNextStages()) {
+        nextStageDetails.add(getTransformDetail(transformDetailMap, nextStage));
       }
-
-      if (!transformDetailEntry.getValue().getErrors().isEmpty()) {
-        errors.put(transformDetailEntry.getKey(), transformDetailEntry.getValue().getErrors());
+      transformDetail.linkNextStages(nextStageDetails);
+      if (nextStageDetails.isEmpty()) {
+        // terminal node; its entries are collected in the same collection across iterations
+        terminalNodeEntriesMap.put(transformDetailEntry.getKey(), transformDetail.getEntries());
       }
+      stageNames[i] = transformDetailEntry.getKey();
+      transformDetails[i++] = transformDetail;
     }
-    return new TransformResponse(terminalNodeEntriesMap, errors);
-  }
 
-  private <T> void executeTransformation(final String stageName,
-                                         Collection<T> input) throws Exception {
-    if (input == null) {
-      return;
+    this.startingPoints = new TransformDetail[startingPoints.size()];
+    i = 0;
+    for (String stageName : startingPoints) {
+      this.startingPoints[i++] = getTransformDetail(transformDetailMap, stageName);
     }
 
-    TransformDetail transformDetail = transformDetailMap.get(stageName);
-    Transformation<T, Object> transformation = transformDetail.getTransformation();
-
-
-    // clear old data for this stageName if its not a terminal node
-    if (!transformDetail.getNextStages().isEmpty()) {
-      transformDetail.getEntries().clear();
-    }
+    Map<String, Collection<InvalidEntry<Object>>> noErrors = Collections.emptyMap();
+    this.responseWithoutErrors = new TransformResponse(Collections.unmodifiableMap(terminalNodeEntriesMap), noErrors);
+  }
 
-    for (T inputEntry : input) {
-      transformation.transform(inputEntry, transformDetail);
+  public TransformResponse runOneIteration(IN input) throws Exception {
+    for (TransformDetail startingPoint : startingPoints) {
+      startingPoint.transform(input);
     }
 
-    Collection<String> nextStages = transformDetail.getNextStages();
-    for (String nextStage : nextStages) {
-      executeTransformation(nextStage, transformDetail.getEntries());
+    Map<String, Collection<InvalidEntry<Object>>> errors = null;
+    for (int i = 0; i < transformDetails.length; i++) {
+      Collection<InvalidEntry<Object>> stageErrors = transformDetails[i].getErrors();
+      if (!stageErrors.isEmpty()) {
+        if (errors == null) {
+          errors = new HashMap<>();
+        }
+        errors.put(stageNames[i], stageErrors);
+      }
     }
+    return errors == null
+      ? responseWithoutErrors : new TransformResponse(responseWithoutErrors.getSinksResults(), errors);
+  }
 
+  private TransformDetail getTransformDetail(Map<String, TransformDetail> transformDetailMap, String stageName) {
+    TransformDetail transformDetail = transformDetailMap.get(stageName);
+    Preconditions.checkArgument(transformDetail != null, "Missing transform detail for stage %s", stageName);
+    return transformDetail;
   }
 
   public void resetEmitter() {
-    for (TransformDetail transformDetailEntry : transformDetailMap.values()) {
-      transformDetailEntry.resetEmitter();
+    for (TransformDetail transformDetail : transformDetails) {
+      transformDetail.resetEmitter();
+    }
+  }
+
+  /**
+   * Emits the metrics that the stages accumulated locally. Metrics are also emitted when this executor is destroyed.
+   */
+  public void flushMetrics() {
+    for (TransformDetail transformDetail : transformDetails) {
+      transformDetail.flushMetrics();
     }
   }
 
   @Override
   public void destroy() {
-    for (TransformDetail transformDetailEntry : transformDetailMap.values()) {
-      transformDetailEntry.destroy();
+    for (TransformDetail transformDetail : transformDetails) {
+      transformDetail.destroy();
     }
   }
 }
@@ -0,0 +1,136 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.etl.common;
+
+import co.cask.cdap.etl.api.CacheConfig;
+import co.cask.cdap.etl.api.Lookup;
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Unit tests for {@link CachingLookup}.
+ */
+public class CachingLookupTest {
+
+  @Test
+  public void testLookup() {
+    CountingLookup delegate = new CountingLookup(ImmutableMap.of("k1", "v1", "k2", "v2"));
+    MockMetrics metrics = new MockMetrics();
+    Lookup<String> lookup = new CachingLookup<>(delegate, CachingLookup.<String>createCache(new CacheConfig()),
+                                                new DefaultStageMetrics(metrics, "stage"));
+
+    Assert.assertEquals("v1", lookup.lookup("k1"));
+    Assert.assertEquals("v1", lookup.lookup("k1"));
+    // Keys without value are cached too
+    Assert.assertNull(lookup.lookup("k3"));
+    Assert.assertNull(lookup.lookup("k3"));
+    Assert.assertEquals(2, delegate.keyLookups);
+    Assert.assertEquals(2, metrics.getCount("stage." + CachingLookup.CACHE_HITS));
+    Assert.assertEquals(2, metrics.getCount("stage." + CachingLookup.CACHE_MISSES));
+  }
+
+  @Test
+  public void testBatchLookup() {
+    CountingLookup delegate = new CountingLookup(ImmutableMap.of("k1", "v1", "k2", "v2", "k3", "v3"));
+    Lookup<String> lookup = new CachingLookup<>(delegate, CachingLookup.<String>createCache(new CacheConfig()), null);
+
+    Assert.assertEquals("v1", lookup.lookup("k1"));
+
+    // Only the keys that are not cached are fetched, in one batch
+    Assert.assertEquals(ImmutableMap.of("k1", "v1", "k2", "v2"), lookup.lookup("k1", "k2", "k4"));
+    Assert.assertEquals(1, delegate.batchLookups);
+    Assert.assertEquals(ImmutableSet.of("k2", "k4"), delegate.lastBatch);
+
+    // All the keys are cached now
+    Assert.assertEquals(ImmutableMap.of("k1", "v1", "k2", "v2"), lookup.lookup("k1", "k2", "k4"));
+    Assert.assertEquals(1, delegate.batchLookups);
+    Assert.assertNull(lookup.lookup("k4"));
+    Assert.assertEquals(1, delegate.keyLookups);
+  }
+
+  @Test
+  public void testMaxSize() {
+    CountingLookup delegate = new CountingLookup(ImmutableMap.of("k1", "v1", "k2", "v2"));
+    Lookup<String> lookup = new CachingLookup<>(delegate, CachingLookup.<String>createCache(new CacheConfig(0, 1)),
+                                                null);
+
+    Assert.assertEquals("v1", lookup.lookup("k1"));
+    Assert.assertEquals("v2", lookup.lookup("k2"));
+    // k1 is evicted by k2
+    Assert.assertEquals("v1", lookup.lookup("k1"));
+    Assert.assertEquals(3, delegate.keyLookups);
+  }
+
+  @Test
+  public void testSharedCache() {
+    CountingLookup delegate1 = new CountingLookup(ImmutableMap.of("k1", "v1"));
+    CountingLookup delegate2 = new CountingLookup(ImmutableMap.of("k1", "v1"));
+    Cache<String, Optional<String>> cache = CachingLookup.createCache(new CacheConfig());
+
+    Assert.assertEquals("v1", new CachingLookup<>(delegate1, cache, null).lookup("k1"));
+    Assert.assertEquals("v1", new CachingLookup<>(delegate2, cache, null).lookup("k1"));
+    Assert.assertEquals(1, delegate1.keyLookups);
+    Assert.assertEquals(0, delegate2.keyLookups);
+  }
+
+  /**
+   * A {@link Lookup} backed by a map that counts the lookups.
+   */
+  private static final class CountingLookup implements Lookup<String> {
+    private final Map<String, String> values;
+    private int keyLookups;
+    private int batchLookups;
+    private Set<String> lastBatch;
+
+    CountingLookup(Map<String, String> values) {
+      this.values = values;
+    }
+
+    @Override
+    public String lookup(String key) {
+      keyLookups++;
+      return values.get(key);
+    }
+
+    @Override
+    public Map<String, String> lookup(String... keys) {
+      return lookup(ImmutableSet.copyOf(keys));
+    }
+
+    @Override
+    public Map<String, String> lookup(Set<String> keys) {
+      batchLookups++;
+      lastBatch = ImmutableSet.copyOf(keys);
+      Map<String, String> result = new HashMap<>();
+      for (String key : keys) {
+        if (values.containsKey(key)) {
+          result.put(key, values.get(key));
+        }
+      }
+      return result;
+    }
+  }
+}
@@ -27,6 +27,7 @@ import com.google.common.collect.ImmutableSet;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -56,7 +57,6 @@ public class TransformExecutorTest {
     executor.resetEmitter();
   }
 
-
   @Test
   public void testTransforms() throws Exception {
     MockMetrics mockMetrics = new MockMetrics();
@@ -98,6 +98,7 @@ public class TransformExecutorTest {
 
     assertResults(transformResponse.getMapTransformIdToErrorEmitter(), ImmutableMap.of("transform2", 3));
 
+    executor.flushMetrics();
     Assert.assertEquals(3, mockMetrics.getCount("transform1.records.out"));
     Assert.assertEquals(0, mockMetrics.getCount("transform2.records.out"));
     Assert.assertEquals(3, mockMetrics.getCount("sink1.records.out"));
@@ -105,13 +106,13 @@ public class TransformExecutorTest {
     executor.resetEmitter();
     mockMetrics.clearMetrics();
 
-
     transformResponse = executor.runOneIteration(10);
 
     assertResults(transformResponse.getSinksResults(), ImmutableMap.of("sink1", 3, "sink2", 1));
 
     assertResults(transformResponse.getMapTransformIdToErrorEmitter(), ImmutableMap.of("transform2", 2));
 
+    executor.flushMetrics();
     Assert.assertEquals(3, mockMetrics.getCount("transform1.records.out"));
     Assert.assertEquals(1, mockMetrics.getCount("transform2.records.out"));
     Assert.assertEquals(3, mockMetrics.getCount("sink1.records.out"));
@@ -124,6 +125,7 @@ public class TransformExecutorTest {
     assertResults(transformResponse.getSinksResults(), ImmutableMap.of("sink1", 3, "sink2", 2));
 
     assertResults(transformResponse.getMapTransformIdToErrorEmitter(), ImmutableMap.of("transform2", 1));
+    executor.flushMetrics();
     Assert.assertEquals(3, mockMetrics.getCount("transform1.records.out"));
     Assert.assertEquals(2, mockMetrics.getCount("transform2.records.out"));
     Assert.assertEquals(3, mockMetrics.getCount("sink1.records.out"));
@@ -136,6 +138,7 @@ public class TransformExecutorTest {
     assertResults(transformResponse.getSinksResults(), ImmutableMap.of("sink1", 3, "sink2", 3));
 
     assertResults(transformResponse.getMapTransformIdToErrorEmitter(), new HashMap<String, Integer>());
+    executor.flushMetrics();
     Assert.assertEquals(3, mockMetrics.getCount("transform1.records.out"));
     Assert.assertEquals(3, mockMetrics.getCount("transform2.records.out"));
     Assert.assertEquals(3, mockMetrics.getCount("sink1.records.out"));
@@ -170,7 +173,6 @@ public class TransformExecutorTest {
                                                    dataTracerFactory.getDataTracer(null, "filter2")),
                             ImmutableList.of("limiter1", "sink2")));
 
-
     transformationMap.put("limiter1",
                           new TransformDetail(
                             new TrackedTransform<>(new Filter(5000d, Threshold.UPPER),
@@ -199,14 +201,13 @@ public class TransformExecutorTest {
                                                    dataTracerFactory.getDataTracer(null, "sink3")),
                             ImmutableList.<String>of()));
 
-
-
     TransformExecutor<Integer> executor = new TransformExecutor<>(transformationMap,
                                                                   ImmutableSet.of("conversion"));
 
     TransformResponse transformResponse = executor.runOneIteration(200);
     assertResults(transformResponse.getSinksResults(), ImmutableMap.of("sink1", 3, "sink2", 2, "sink3", 3));
     assertResults(transformResponse.getMapTransformIdToErrorEmitter(), ImmutableMap.of("filter2", 1, "limiter1", 2));
+    executor.flushMetrics();
     Assert.assertEquals(3, mockMetrics.getCount("filter1.records.in"));
     Assert.assertEquals(3, mockMetrics.getCount("filter1.records.out"));
 
@@ -226,7 +227,6 @@ public class TransformExecutorTest {
     MockMetrics mockMetrics = new MockMetrics();
     Map<String, TransformDetail> transformationMap = new HashMap<>();
 
-
     transformationMap.put("filter1",
                           new TransformDetail(
                             new TrackedTransform<>(new Filter(100d, Threshold.LOWER),
@@ -241,7 +241,6 @@ public class TransformExecutorTest {
                                                    dataTracerFactory.getDataTracer(null, "filter2")),
                             ImmutableList.of("limiter1", "sink2")));
 
-
     transformationMap.put("limiter1",
                           new TransformDetail(
                             new TrackedTransform<>(new Filter(5000d, Threshold.UPPER),
@@ -278,6 +277,7 @@ public class TransformExecutorTest {
     TransformResponse transformResponse = executor.runOneIteration(20000d);
     assertResults(transformResponse.getSinksResults(), ImmutableMap.of("sink1", 3, "sink2", 2, "sink3", 3));
     assertResults(transformResponse.getMapTransformIdToErrorEmitter(), ImmutableMap.of("filter2", 1, "limiter1", 2));
+    executor.flushMetrics();
     Assert.assertEquals(3, mockMetrics.getCount("filter1.records.in"));
     Assert.assertEquals(3, mockMetrics.getCount("filter1.records.out"));
 
@@ -292,6 +292,91 @@ public class TransformExecutorTest {
     Assert.assertEquals(3, mockMetrics.getCount("sink3.records.out"));
   }
 
+  @Test
+  public void testMetricsFlushedOnDestroy() throws Exception {
+    MockMetrics mockMetrics = new MockMetrics();
+    Map<String, TransformDetail> transformationMap = new HashMap<>();
+    transformationMap.put("filter",
+                          new TransformDetail(
+                            new TrackedTransform<>(new Filter(100d, Threshold.LOWER),
+                                                   new DefaultStageMetrics(mockMetrics, "filter"),
+                                                   dataTracerFactory.getDataTracer(null, "filter")),
+                            ImmutableList.of("sink")));
+    transformationMap.put("sink",
+                          new TransformDetail(
+                            new TrackedTransform<>(new DoubleToString(),
+                                                   new DefaultStageMetrics(mockMetrics, "sink"),
+                                                   dataTracerFactory.getDataTracer(null, "sink")),
+                            ImmutableList.<String>of()));
+    TransformExecutor<Double> executor = new TransformExecutor<>(transformationMap, ImmutableSet.of("filter"));
+
+    // More records than the counts that are accumulated before they are emitted
+    int records = 2 * BufferedCounter.DEFAULT_MAX_PENDING + 10;
+    for (int i = 0; i < records; i++) {
+      executor.runOneIteration((double) i);
+      executor.resetEmitter();
+    }
+    executor.destroy();
+
+    Assert.assertEquals(records, mockMetrics.getCount("filter.records.in"));
+    Assert.assertEquals(records - 101, mockMetrics.getCount("filter.records.out"));
+    Assert.assertEquals(101, mockMetrics.getCount("filter.records.error"));
+    Assert.assertEquals(records - 101, mockMetrics.getCount("sink.records.in"));
+    Assert.assertEquals(records - 101, mockMetrics.getCount("sink.records.out"));
+  }
+
+  @Test
+  public void testLinearChain() throws Exception {
+    // Runs records through a linear chain of transforms, which is the common shape of batch pipelines.
+    int numTransforms = 8;
+    TransformExecutor<Double> executor = new TransformExecutor<>(createLinearChain(numTransforms),
+                                                                 ImmutableSet.of("transform0"));
+
+    for (int i = 0; i < 10; i++) {
+      TransformResponse transformResponse = executor.runOneIteration((double) i);
+      Assert.assertEquals(ImmutableList.of(String.valueOf((double) i)),
+                          ImmutableList.copyOf(transformResponse.getSinksResults().get("sink")));
+      executor.resetEmitter();
+    }
+
+    TransformResponse transformResponse = executor.runOneIteration(-5d);
+    assertResults(transformResponse.getSinksResults(), ImmutableMap.of("sink", 0));
+    assertResults(transformResponse.getMapTransformIdToErrorEmitter(), ImmutableMap.of("transform0", 1));
+    executor.resetEmitter();
+
+    transformResponse = executor.runOneIteration(7d);
+    Assert.assertEquals(ImmutableList.of("7.0"), ImmutableList.copyOf(transformResponse.getSinksResults().get("sink")));
+    Assert.assertTrue(transformResponse.getMapTransformIdToErrorEmitter().isEmpty());
+  }
+
+  private Map<String, TransformDetail> createLinearChain(int numTransforms) {
+    Map<String, TransformDetail> transformationMap = new HashMap<>();
+    for (int i = 0; i < numTransforms; i++) {
+      String nextStage = i == numTransforms - 1 ? "sink" : "transform" + (i + 1);
+      transformationMap.put("transform" + i, new TransformDetail(new Filter(-1d, Threshold.LOWER),
+                                                                 ImmutableList.of(nextStage)));
+    }
+    transformationMap.put("sink", new TransformDetail(new DoubleToString(), ImmutableList.<String>of()));
+    return transformationMap;
+  }
+
+  @Test
+  public void testExceptionInNextStage() throws Exception {
+    Map<String, TransformDetail> transformationMap = new HashMap<>();
+    transformationMap.put("transform", new TransformDetail(new IntToDouble(), ImmutableList.of("failing")));
+    transformationMap.put("failing", new TransformDetail(new Failing(), ImmutableList.of("sink")));
+    transformationMap.put("sink", new TransformDetail(new DoubleToString(), ImmutableList.<String>of()));
+    TransformExecutor<Integer> executor = new TransformExecutor<>(transformationMap, ImmutableSet.of("transform"));
+
+    // the exception thrown by a transform further down the chain should be thrown as is
+    try {
+      executor.runOneIteration(1);
+      Assert.fail("Expected the transform to fail");
+    } catch (IOException e) {
+      Assert.assertEquals("failed on 1.0", e.getMessage());
+    }
+  }
+
   private <T> void assertResults(Map<String, Collection<T>> results, Map<String, Integer> expectedListsSize) {
     Assert.assertEquals(expectedListsSize.size(), results.size());
     for (Map.Entry<String, Integer> entry : expectedListsSize.entrySet()) {
@@ -300,8 +385,6 @@ public class TransformExecutorTest {
     }
   }
 
-
-
   private static class IntToDouble extends Transform<Integer, Double> {
 
     @Override
@@ -344,6 +427,14 @@ public class TransformExecutorTest {
     }
   }
 
+  private static class Failing extends Transform<Double, Double> {
+
+    @Override
+    public void transform(Double input, Emitter<Double> emitter) throws Exception {
+      throw new IOException("failed on " + input);
+    }
+  }
+
   private static class DoubleToString extends Transform<Double, String> {
 
     @Override
@@ -390,6 +390,8 @@ public class ETLWorker extends AbstractWorker {
         }
       }
       sourceEmitter.reset();
+      // Emit the metrics of this poll, since the source may not emit anything for a long time
+      transformExecutor.flushMetrics();
 
       // Start a Transaction if there is data to persist or if the Source state has changed.
       try {
@@ -0,0 +1,111 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.etl.spark;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.dataset.lib.CloseableIterator;
+import co.cask.cdap.api.dataset.lib.KeyValue;
+import co.cask.cdap.api.dataset.lib.KeyValueTable;
+import co.cask.cdap.etl.api.Lookup;
+import com.google.common.collect.ImmutableSet;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link Lookup} over an in-memory copy of a {@link KeyValueTable}, which is small enough to be shipped to Spark
+ * executors as a broadcast variable. Entries are kept as two arrays of keys and values sorted by key, so that the
+ * serialized form is compact and lookups are binary searches.
+ */
+public final class BroadcastLookup implements Lookup<String>, Serializable {
+
+  private static final long serialVersionUID = 2870536452219546170L;
+
+  private final byte[][] keys;
+  private final byte[][] values;
+
+  private BroadcastLookup(byte[][] keys, byte[][] values) {
+    this.keys = keys;
+    this.values = values;
+  }
+
+  /**
+   * Reads all the entries of the given {@link KeyValueTable}.
+   *
+   * @param table the table to read
+   * @param maxBytes the maximum number of bytes of keys and values to read
+   * @return a {@link BroadcastLookup} of the table entries, or {@code null} if the table has more than
+   *         {@code maxBytes} bytes of keys and values
+   */
+  @Nullable
+  public static BroadcastLookup fromTable(KeyValueTable table, long maxBytes) {
+    List<byte[]> keys = new ArrayList<>();
+    List<byte[]> values = new ArrayList<>();
+    long bytes = 0L;
+    try (CloseableIterator<KeyValue<byte[], byte[]>> iterator = table.scan(null, null)) {
+      while (iterator.hasNext()) {
+        KeyValue<byte[], byte[]> entry = iterator.next();
+        bytes += entry.getKey().length + entry.getValue().length;
+        if (bytes > maxBytes) {
+          return null;
+        }
+        keys.add(entry.getKey());
+        values.add(entry.getValue());
+      }
+    }
+
+    // Scan returns entries in key order, hence the keys are already sorted
+    return new BroadcastLookup(keys.toArray(new byte[keys.size()][]), values.toArray(new byte[values.size()][]));
+  }
+
+  /**
+   * Returns the number of entries.
+   */
+  public int size() {
+    return keys.length;
+  }
+
+  @Override
+  public String lookup(String key) {
+    int idx = Arrays.binarySearch(keys, Bytes.toBytes(key), Bytes.BYTES_COMPARATOR);
+    return idx < 0 ? null : Bytes.toString(values[idx]);
+  }
+
+  @Override
+  public Map<String, String> lookup(String... keys) {
+    return lookup(ImmutableSet.copyOf(keys));
+  }
+
+  @Override
+  public Map<String, String> lookup(Set<String> keys) {
+    Map<String, String> result = new HashMap<>();
+    for (String key : keys) {
+      String value = lookup(key);
+      if (value != null) {
+        result.put(key, value);
+      }
+    }
+    return result;
+  }
+}
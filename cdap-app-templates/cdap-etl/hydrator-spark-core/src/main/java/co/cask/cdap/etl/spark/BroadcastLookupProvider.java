@@ -0,0 +1,141 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.etl.spark;
+
+import co.cask.cdap.api.data.DatasetContext;
+import co.cask.cdap.api.dataset.Dataset;
+import co.cask.cdap.api.dataset.lib.KeyValueTable;
+import co.cask.cdap.etl.api.Lookup;
+import co.cask.cdap.etl.api.LookupProvider;
+import com.google.common.base.Splitter;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.broadcast.Broadcast;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link LookupProvider} for Spark pipelines that serves lookups from tables that were read once in the driver
+ * and shipped to the executors as broadcast variables. The tables to broadcast are given by the
+ * {@link #BROADCAST_TABLES} runtime argument. Only {@link KeyValueTable KeyValueTables} are supported, and tables
+ * larger than the {@link #BROADCAST_MAX_BYTES} runtime argument are not broadcast.
+ *
+ * <p>The broadcast tables are a snapshot taken when the pipeline starts. Batch pipelines never see later writes to
+ * the tables. Data streams pipelines only see them if the {@link #BROADCAST_REFRESH_SECONDS} runtime argument is set,
+ * in which case the tables are read and broadcast again once that many seconds of batches have passed.</p>
+ */
+public final class BroadcastLookupProvider implements LookupProvider, Serializable {
+
+  /**
+   * Runtime argument for the comma separated names of the lookup tables to broadcast.
+   */
+  public static final String BROADCAST_TABLES = "pipeline.lookup.broadcast.tables";
+
+  /**
+   * Runtime argument for the maximum number of bytes of keys and values of a lookup table to broadcast.
+   */
+  public static final String BROADCAST_MAX_BYTES = "pipeline.lookup.broadcast.max.bytes";
+
+  /**
+   * Runtime argument for the number of seconds after which data streams pipelines broadcast the lookup tables again.
+   * If it is not set, the tables are broadcast only once and lookups never see later writes to the tables.
+   */
+  public static final String BROADCAST_REFRESH_SECONDS = "pipeline.lookup.broadcast.refresh.seconds";
+
+  private static final long DEFAULT_BROADCAST_MAX_BYTES = 32 * 1024 * 1024L;
+  private static final long serialVersionUID = -4472209725693530297L;
+  private static final Logger LOG = LoggerFactory.getLogger(BroadcastLookupProvider.class);
+
+  private final Map<String, Broadcast<BroadcastLookup>> lookups;
+
+  private BroadcastLookupProvider(Map<String, Broadcast<BroadcastLookup>> lookups) {
+    this.lookups = lookups;
+  }
+
+  /**
+   * Reads the lookup tables given by the runtime arguments and broadcasts them. Must be called in the driver.
+   *
+   * @param jsc the {@link JavaSparkContext} for creating the broadcast variables
+   * @param datasetContext the {@link DatasetContext} for reading the tables
+   * @param runtimeArguments the runtime arguments of the pipeline
+   * @return a {@link BroadcastLookupProvider} for the tables that were broadcast
+   */
+  public static BroadcastLookupProvider create(JavaSparkContext jsc, DatasetContext datasetContext,
+                                               Map<String, String> runtimeArguments) {
+    Map<String, Broadcast<BroadcastLookup>> lookups = new HashMap<>();
+    String tables = runtimeArguments.get(BROADCAST_TABLES);
+    if (tables == null) {
+      return new BroadcastLookupProvider(lookups);
+    }
+
+    String maxBytesArg = runtimeArguments.get(BROADCAST_MAX_BYTES);
+    long maxBytes = maxBytesArg == null ? DEFAULT_BROADCAST_MAX_BYTES : Long.parseLong(maxBytesArg);
+    for (String table : Splitter.on(',').trimResults().omitEmptyStrings().split(tables)) {
+      Dataset dataset = datasetContext.getDataset(table);
+      if (!(dataset instanceof KeyValueTable)) {
+        LOG.warn("Not broadcasting lookup table {} because it is not a KeyValueTable.", table);
+        continue;
+      }
+      BroadcastLookup lookup = BroadcastLookup.fromTable((KeyValueTable) dataset, maxBytes);
+      if (lookup == null) {
+        LOG.warn("Not broadcasting lookup table {} because it is larger than {} bytes.", table, maxBytes);
+        continue;
+      }
+      LOG.debug("Broadcasting {} entries of lookup table {}.", lookup.size(), table);
+      lookups.put(table, jsc.broadcast(lookup));
+    }
+    return new BroadcastLookupProvider(lookups);
+  }
+
+  /**
+   * Returns the interval in milliseconds at which lookup tables should be broadcast again, or {@code 0} if they
+   * should never be broadcast again.
+   *
+   * @param runtimeArguments the runtime arguments of the pipeline
+   */
+  public static long getRefreshIntervalMillis(Map<String, String> runtimeArguments) {
+    String refreshSeconds = runtimeArguments.get(BROADCAST_REFRESH_SECONDS);
+    return refreshSeconds == null ? 0L : TimeUnit.SECONDS.toMillis(Long.parseLong(refreshSeconds));
+  }
+
+  /**
+   * Removes the broadcast lookup tables from the executors. Must be called in the driver. This provider must not
+   * be used afterwards.
+   */
+  public void unpersist() {
+    for (Broadcast<BroadcastLookup> lookup : lookups.values()) {
+      lookup.unpersist();
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public <T> Lookup<T> provide(String table, Map<String, String> arguments) {
+    Broadcast<BroadcastLookup> lookup = lookups.get(table);
+    if (lookup == null) {
+      throw new UnsupportedOperationException(
+        String.format("Lookup of table %s is not supported in Spark pipelines unless the table is broadcast. " +
+                        "Broadcast tables are given by the '%s' runtime argument.", table, BROADCAST_TABLES));
+    }
+    return (Lookup<T>) lookup.getValue();
+  }
+}
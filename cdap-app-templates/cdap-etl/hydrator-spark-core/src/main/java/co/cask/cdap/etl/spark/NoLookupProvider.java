@@ -22,7 +22,7 @@ import co.cask.cdap.etl.api.LookupProvider;
 import java.util.Map;
 
 /**
- * A LookupProvider that doesn't work because lookups don't work in Spark.
+ * A LookupProvider that doesn't work, for Spark pipelines that don't broadcast lookup tables.
  */
 public class NoLookupProvider implements LookupProvider {
   public static final LookupProvider INSTANCE = new NoLookupProvider();
@@ -44,6 +44,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import javax.annotation.Nullable;
 
 /**
  * Base Spark program to run a Hydrator pipeline.
@@ -61,6 +62,15 @@ public abstract class SparkPipelineRunner {
     StageInfo stageInfo,
     SparkPairCollection<Object, List<JoinElement<Object>>> joinedInputs) throws Exception;
 
+  /**
+   * Returns the {@link BroadcastLookupProvider} for lookups in the plugins of the pipeline, or {@code null} if
+   * lookup tables are not broadcast.
+   */
+  @Nullable
+  protected BroadcastLookupProvider getBroadcastLookupProvider() {
+    return null;
+  }
+
   public void runPipeline(PipelinePhase pipelinePhase, String sourcePluginType,
                           JavaSparkExecutionContext sec,
                           Map<String, Integer> stagePartitions) throws Exception {
@@ -97,7 +107,8 @@ public abstract class SparkPipelineRunner {
         }
       }
 
-      PluginFunctionContext pluginFunctionContext = new PluginFunctionContext(stageInfo, sec);
+      PluginFunctionContext pluginFunctionContext =
+        new PluginFunctionContext(stageInfo, sec, getBroadcastLookupProvider());
       if (stageData == null) {
 
         // this if-else is nested inside the stageRDD null check to avoid warnings about stageRDD possibly being
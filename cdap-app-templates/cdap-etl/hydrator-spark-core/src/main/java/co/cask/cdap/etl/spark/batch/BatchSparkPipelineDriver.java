@@ -30,6 +30,7 @@ import co.cask.cdap.etl.batch.BatchPhaseSpec;
 import co.cask.cdap.etl.common.Constants;
 import co.cask.cdap.etl.common.SetMultimapCodec;
 import co.cask.cdap.etl.planner.StageInfo;
+import co.cask.cdap.etl.spark.BroadcastLookupProvider;
 import co.cask.cdap.etl.spark.SparkCollection;
 import co.cask.cdap.etl.spark.SparkPairCollection;
 import co.cask.cdap.etl.spark.SparkPipelineRunner;
@@ -70,6 +71,7 @@ public class BatchSparkPipelineDriver extends SparkPipelineRunner
   private transient SparkBatchSinkFactory sinkFactory;
   private transient DatasetContext datasetContext;
   private transient Map<String, Integer> stagePartitions;
+  private transient BroadcastLookupProvider lookupProvider;
 
   @Override
   protected SparkCollection<Object> getSource(StageInfo stageInfo) {
@@ -95,6 +97,11 @@ public class BatchSparkPipelineDriver extends SparkPipelineRunner
     return joinedInputs.flatMap(new JoinMergeFunction<>(pluginFunctionContext));
   }
 
+  @Override
+  protected BroadcastLookupProvider getBroadcastLookupProvider() {
+    return lookupProvider;
+  }
+
   @Override
   public void run(JavaSparkExecutionContext sec) throws Exception {
     this.jsc = new JavaSparkContext();
@@ -120,6 +127,7 @@ public class BatchSparkPipelineDriver extends SparkPipelineRunner
       stagePartitions = sourceSinkInfo.getStagePartitions();
     }
     datasetContext = context;
+    lookupProvider = BroadcastLookupProvider.create(jsc, context, sec.getRuntimeArguments());
     runPipeline(phaseSpec.getPhase(), BatchSource.PLUGIN_TYPE, sec, stagePartitions);
   }
 }
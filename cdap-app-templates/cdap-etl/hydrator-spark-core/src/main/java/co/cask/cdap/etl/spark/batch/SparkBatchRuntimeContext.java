@@ -20,9 +20,9 @@ import co.cask.cdap.api.data.DatasetInstantiationException;
 import co.cask.cdap.api.dataset.Dataset;
 import co.cask.cdap.api.metrics.Metrics;
 import co.cask.cdap.api.plugin.PluginContext;
+import co.cask.cdap.etl.api.LookupProvider;
 import co.cask.cdap.etl.api.batch.BatchRuntimeContext;
 import co.cask.cdap.etl.common.AbstractTransformContext;
-import co.cask.cdap.etl.spark.NoLookupProvider;
 
 import java.util.Map;
 
@@ -34,9 +34,9 @@ public class SparkBatchRuntimeContext extends AbstractTransformContext implement
   private final long logicalStartTime;
   private final Map<String, String> runtimeArguments;
 
-  public SparkBatchRuntimeContext(PluginContext pluginContext, Metrics metrics,
+  public SparkBatchRuntimeContext(PluginContext pluginContext, Metrics metrics, LookupProvider lookup,
                                   long logicalStartTime, Map<String, String> runtimeArguments, String stageId) {
-    super(pluginContext, metrics, NoLookupProvider.INSTANCE, stageId);
+    super(pluginContext, metrics, lookup, stageId);
     this.logicalStartTime = logicalStartTime;
     this.runtimeArguments = runtimeArguments;
   }
@@ -19,6 +19,7 @@ package co.cask.cdap.etl.spark.batch;
 import co.cask.cdap.api.data.schema.Schema;
 import co.cask.cdap.api.metrics.Metrics;
 import co.cask.cdap.api.plugin.PluginContext;
+import co.cask.cdap.etl.api.LookupProvider;
 import co.cask.cdap.etl.api.batch.BatchJoinerRuntimeContext;
 import com.google.common.collect.ImmutableMap;
 
@@ -31,11 +32,11 @@ public class SparkJoinerRuntimeContext extends SparkBatchRuntimeContext implemen
   private final Map<String, Schema> inputSchemas;
   private final Schema outputSchema;
 
-  public SparkJoinerRuntimeContext(PluginContext pluginContext, Metrics metrics,
+  public SparkJoinerRuntimeContext(PluginContext pluginContext, Metrics metrics, LookupProvider lookup,
                                    long logicalStartTime, Map<String, String> runtimeArgs,
                                    String stageName,
                                    Map<String, Schema> inputSchemas, Schema outputSchema) {
-    super(pluginContext, metrics, logicalStartTime, runtimeArgs, stageName);
+    super(pluginContext, metrics, lookup, logicalStartTime, runtimeArgs, stageName);
     this.inputSchemas = ImmutableMap.copyOf(inputSchemas);
     this.outputSchema = outputSchema;
   }
@@ -52,6 +52,7 @@ public class AggregatorAggregateFunction<GROUP_KEY, GROUP_VAL, OUT>
                                                   "aggregator.groups",
                                                   TrackedTransform.RECORDS_OUT, pluginFunctionContext.getDataTracer(),
                                                   null);
+      TaskMetrics.flushOnTaskCompletion(aggregateTransform);
       emitter = new DefaultEmitter<>();
     }
     emitter.reset();
@@ -51,6 +51,7 @@ public class AggregatorGroupByFunction<GROUP_KEY, GROUP_VAL>
                                                TrackedTransform.RECORDS_IN,
                                                null, pluginFunctionContext.getDataTracer(),
                                                TrackedTransform.RECORDS_IN);
+      TaskMetrics.flushOnTaskCompletion(groupByFunction);
       emitter = new DefaultEmitter<>();
     }
     emitter.reset();
@@ -44,6 +44,7 @@ public class BatchSinkFunction implements PairFlatMapFunction<Object, Object, Ob
       batchSink.initialize(pluginFunctionContext.createBatchRuntimeContext());
       transform = new TrackedTransform<>(batchSink, pluginFunctionContext.createStageMetrics(),
                                          pluginFunctionContext.getDataTracer());
+      TaskMetrics.flushOnTaskCompletion(transform);
       emitter = new TransformingEmitter<>(new Function<KeyValue<Object, Object>, Tuple2<Object, Object>>() {
         @Override
         public Tuple2<Object, Object> apply(KeyValue<Object, Object> input) {
@@ -43,6 +43,7 @@ public class BatchSourceFunction implements FlatMapFunction<Tuple2<Object, Objec
       batchSource.initialize(pluginFunctionContext.createBatchRuntimeContext());
       transform = new TrackedTransform<>(batchSource, pluginFunctionContext.createStageMetrics(),
                                          pluginFunctionContext.getDataTracer());
+      TaskMetrics.flushOnTaskCompletion(transform);
       emitter = new DefaultEmitter<>();
     }
     emitter.reset();
@@ -56,6 +56,7 @@ public class JoinMergeFunction<JOIN_KEY, INPUT_RECORD, OUT>
                                             pluginFunctionContext.createStageMetrics(),
                                             "joiner.keys",
                                             TrackedTransform.RECORDS_OUT, pluginFunctionContext.getDataTracer(), null);
+      TaskMetrics.flushOnTaskCompletion(joinFunction);
       emitter = new DefaultEmitter<>();
     }
     emitter.reset();
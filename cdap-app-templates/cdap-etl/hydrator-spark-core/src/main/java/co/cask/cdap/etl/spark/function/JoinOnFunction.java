@@ -56,6 +56,7 @@ public class JoinOnFunction<JOIN_KEY, INPUT_RECORD>
                                                TrackedTransform.RECORDS_IN,
                                                null, pluginFunctionContext.getDataTracer(),
                                                TrackedTransform.RECORDS_IN);
+      TaskMetrics.flushOnTaskCompletion(joinFunction);
       emitter = new DefaultEmitter<>();
     }
     emitter.reset();
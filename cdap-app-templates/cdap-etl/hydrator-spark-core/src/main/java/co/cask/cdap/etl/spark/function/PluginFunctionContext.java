@@ -24,18 +24,22 @@ import co.cask.cdap.api.preview.DataTracer;
 import co.cask.cdap.api.security.store.SecureStore;
 import co.cask.cdap.api.spark.JavaSparkExecutionContext;
 import co.cask.cdap.api.workflow.WorkflowToken;
+import co.cask.cdap.etl.api.LookupProvider;
 import co.cask.cdap.etl.api.StageMetrics;
 import co.cask.cdap.etl.api.batch.BatchJoinerRuntimeContext;
 import co.cask.cdap.etl.api.batch.BatchRuntimeContext;
 import co.cask.cdap.etl.common.DefaultMacroEvaluator;
 import co.cask.cdap.etl.common.DefaultStageMetrics;
 import co.cask.cdap.etl.planner.StageInfo;
+import co.cask.cdap.etl.spark.BroadcastLookupProvider;
+import co.cask.cdap.etl.spark.NoLookupProvider;
 import co.cask.cdap.etl.spark.batch.SparkBatchRuntimeContext;
 import co.cask.cdap.etl.spark.batch.SparkJoinerRuntimeContext;
 
 import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Map;
+import javax.annotation.Nullable;
 
 /**
  * Serializable collection of objects that can be used in Spark closures to instantiate plugins.
@@ -54,13 +58,31 @@ public class PluginFunctionContext implements Serializable {
   private final Metrics metrics;
   private final SecureStore secureStore;
   private final DataTracer dataTracer;
+  private final BroadcastLookupProvider lookupProvider;
 
   public PluginFunctionContext(StageInfo stageInfo, JavaSparkExecutionContext sec) {
-    this(stageInfo.getName(), sec, stageInfo.getInputSchemas(), stageInfo.getOutputSchema());
+    this(stageInfo, sec, null);
+  }
+
+  public PluginFunctionContext(StageInfo stageInfo, JavaSparkExecutionContext sec,
+                               @Nullable BroadcastLookupProvider lookupProvider) {
+    this(stageInfo.getName(), sec, stageInfo.getInputSchemas(), stageInfo.getOutputSchema(), lookupProvider);
   }
 
   public PluginFunctionContext(String stageName, JavaSparkExecutionContext sec,
                                Map<String, Schema> inputSchemas, Schema outputSchema) {
+    this(stageName, sec, inputSchemas, outputSchema, null);
+  }
+
+  /**
+   * Creates a new instance.
+   *
+   * @param lookupProvider the {@link BroadcastLookupProvider} for lookups in the plugin, or {@code null} if the
+   *                       plugin can't do lookups
+   */
+  public PluginFunctionContext(String stageName, JavaSparkExecutionContext sec,
+                               Map<String, Schema> inputSchemas, Schema outputSchema,
+                               @Nullable BroadcastLookupProvider lookupProvider) {
     this.namespace = sec.getNamespace();
     this.stageName = stageName;
     this.logicalStartTime = sec.getLogicalStartTime();
@@ -79,6 +101,7 @@ public class PluginFunctionContext implements Serializable {
     this.metrics = sec.getMetrics();
     this.secureStore = sec.getSecureStore();
     this.dataTracer = sec.getDataTracer(stageName);
+    this.lookupProvider = lookupProvider;
   }
 
   public <T> T createPlugin() throws Exception {
@@ -95,14 +118,19 @@ public class PluginFunctionContext implements Serializable {
   }
 
   public BatchRuntimeContext createBatchRuntimeContext() {
-    return new SparkBatchRuntimeContext(pluginContext, metrics, logicalStartTime, arguments, stageName);
+    return new SparkBatchRuntimeContext(pluginContext, metrics, getLookupProvider(), logicalStartTime, arguments,
+                                        stageName);
   }
 
   public BatchJoinerRuntimeContext createJoinerRuntimeContext() {
-    return new SparkJoinerRuntimeContext(pluginContext, metrics, logicalStartTime, arguments,
+    return new SparkJoinerRuntimeContext(pluginContext, metrics, getLookupProvider(), logicalStartTime, arguments,
                                          stageName, inputSchemas, outputSchema);
   }
 
+  private LookupProvider getLookupProvider() {
+    return lookupProvider == null ? NoLookupProvider.INSTANCE : lookupProvider;
+  }
+
   public DataTracer getDataTracer() {
     return dataTracer;
   }
@@ -0,0 +1,49 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.etl.spark.function;
+
+import co.cask.cdap.etl.common.TrackedTransform;
+import org.apache.spark.TaskContext;
+import org.apache.spark.util.TaskCompletionListener;
+
+/**
+ * Utility for emitting the metrics of {@link TrackedTransform TrackedTransforms} used in Spark functions. Such
+ * transforms are never destroyed, hence their metrics are emitted when the Spark task completes.
+ */
+final class TaskMetrics {
+
+  private TaskMetrics() {
+    // no-op
+  }
+
+  /**
+   * Flushes the metrics of the given {@link TrackedTransform} when the current Spark task completes.
+   */
+  static void flushOnTaskCompletion(final TrackedTransform<?, ?> transform) {
+    TaskContext taskContext = TaskContext.get();
+    if (taskContext == null) {
+      throw new IllegalStateException("Spark functions must be called in a Spark task.");
+    }
+    taskContext.addTaskCompletionListener(new TaskCompletionListener() {
+      @Override
+      public void onTaskCompletion(TaskContext context) {
+        transform.flushMetrics();
+      }
+    });
+  }
+}
@@ -44,6 +44,7 @@ public class TransformFunction<T, U> implements FlatMapFunction<T, U> {
       plugin.initialize(pluginFunctionContext.createBatchRuntimeContext());
       transform = new TrackedTransform<>(plugin, pluginFunctionContext.createStageMetrics(),
                                          pluginFunctionContext.getDataTracer());
+      TaskMetrics.flushOnTaskCompletion(transform);
       emitter = new DefaultEmitter<>();
     }
     emitter.reset();
@@ -19,6 +19,7 @@ package co.cask.cdap.etl.spark.streaming;
 import co.cask.cdap.api.data.schema.Schema;
 import co.cask.cdap.api.spark.JavaSparkExecutionContext;
 import co.cask.cdap.etl.planner.StageInfo;
+import co.cask.cdap.etl.spark.BroadcastLookupProvider;
 import co.cask.cdap.etl.spark.function.PluginFunctionContext;
 
 import java.io.Externalizable;
@@ -92,4 +93,11 @@ public class DynamicDriverContext implements Externalizable {
   public PluginFunctionContext getPluginFunctionContext() {
     return pluginFunctionContext;
   }
+
+  /**
+   * Creates a {@link PluginFunctionContext} that serves lookups from the given {@link BroadcastLookupProvider}.
+   */
+  public PluginFunctionContext createPluginFunctionContext(BroadcastLookupProvider lookupProvider) {
+    return new PluginFunctionContext(stageName, sec, inputSchemas, outputSchema, lookupProvider);
+  }
 }
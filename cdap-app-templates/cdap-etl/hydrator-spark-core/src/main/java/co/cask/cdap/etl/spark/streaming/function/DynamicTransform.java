@@ -16,9 +16,14 @@
 
 package co.cask.cdap.etl.spark.streaming.function;
 
+import co.cask.cdap.api.TxRunnable;
+import co.cask.cdap.api.data.DatasetContext;
+import co.cask.cdap.api.spark.JavaSparkExecutionContext;
+import co.cask.cdap.etl.spark.BroadcastLookupProvider;
 import co.cask.cdap.etl.spark.function.TransformFunction;
 import co.cask.cdap.etl.spark.streaming.DynamicDriverContext;
 import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
 import org.apache.spark.api.java.function.Function2;
 import org.apache.spark.streaming.Time;
 
@@ -33,15 +38,40 @@ import org.apache.spark.streaming.Time;
 public class DynamicTransform<T, U> implements Function2<JavaRDD<T>, Time, JavaRDD<U>> {
   private final DynamicDriverContext dynamicDriverContext;
   private transient TransformFunction<T, U> transformFunction;
+  private transient BroadcastLookupProvider lookupProvider;
+  private transient long broadcastTime;
 
   public DynamicTransform(DynamicDriverContext dynamicDriverContext) {
     this.dynamicDriverContext = dynamicDriverContext;
   }
 
   @Override
-  public JavaRDD<U> call(JavaRDD<T> input, Time batchTime) throws Exception {
-    if (transformFunction == null) {
-      transformFunction = new TransformFunction<>(dynamicDriverContext.getPluginFunctionContext());
+  public JavaRDD<U> call(final JavaRDD<T> input, Time batchTime) throws Exception {
+    final JavaSparkExecutionContext sec = dynamicDriverContext.getSparkExecutionContext();
+    if (!sec.getRuntimeArguments().containsKey(BroadcastLookupProvider.BROADCAST_TABLES)) {
+      if (transformFunction == null) {
+        transformFunction = new TransformFunction<>(dynamicDriverContext.getPluginFunctionContext());
+      }
+      return input.flatMap(transformFunction);
+    }
+
+    long refreshMillis = BroadcastLookupProvider.getRefreshIntervalMillis(sec.getRuntimeArguments());
+    if (transformFunction == null
+      || (refreshMillis > 0 && batchTime.milliseconds() - broadcastTime >= refreshMillis)) {
+      // This is called in the driver. Lookup tables are broadcast here rather than when the stream is created,
+      // because broadcast variables can't be recovered from a checkpoint.
+      if (lookupProvider != null) {
+        lookupProvider.unpersist();
+      }
+      sec.execute(new TxRunnable() {
+        @Override
+        public void run(DatasetContext context) throws Exception {
+          lookupProvider = BroadcastLookupProvider.create(new JavaSparkContext(input.context()), context,
+                                                          sec.getRuntimeArguments());
+        }
+      });
+      broadcastTime = batchTime.milliseconds();
+      transformFunction = new TransformFunction<>(dynamicDriverContext.createPluginFunctionContext(lookupProvider));
     }
     return input.flatMap(transformFunction);
   }
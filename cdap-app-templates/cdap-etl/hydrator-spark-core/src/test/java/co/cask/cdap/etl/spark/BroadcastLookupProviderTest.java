@@ -0,0 +1,156 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.etl.spark;
+
+import co.cask.cdap.api.data.DatasetContext;
+import co.cask.cdap.api.data.DatasetInstantiationException;
+import co.cask.cdap.api.dataset.Dataset;
+import co.cask.cdap.etl.api.Lookup;
+import com.google.common.collect.ImmutableMap;
+import org.apache.spark.SparkConf;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Tests for {@link BroadcastLookupProvider}.
+ */
+public class BroadcastLookupProviderTest {
+
+  private static JavaSparkContext jsc;
+  private static DatasetContext datasetContext;
+
+  @BeforeClass
+  public static void init() {
+    jsc = new JavaSparkContext(new SparkConf().setMaster("local").setAppName("BroadcastLookupProviderTest"));
+
+    BroadcastLookupTest.InMemoryKeyValueTable small = new BroadcastLookupTest.InMemoryKeyValueTable("small");
+    small.put("a", "1");
+    small.put("b", "2");
+    BroadcastLookupTest.InMemoryKeyValueTable large = new BroadcastLookupTest.InMemoryKeyValueTable("large");
+    large.put("key", "some long value");
+    Dataset other = new Dataset() {
+      @Override
+      public void close() {
+        // no-op
+      }
+    };
+    datasetContext = new MapDatasetContext(ImmutableMap.<String, Dataset>of("small", small, "large", large,
+                                                                            "other", other));
+  }
+
+  @AfterClass
+  public static void finish() {
+    jsc.stop();
+  }
+
+  @Test
+  public void testProvide() {
+    BroadcastLookupProvider provider = BroadcastLookupProvider.create(
+      jsc, datasetContext, ImmutableMap.of(BroadcastLookupProvider.BROADCAST_TABLES, " small, large,other ,",
+                                           BroadcastLookupProvider.BROADCAST_MAX_BYTES, "10"));
+
+    Lookup<String> lookup = provider.provide("small", Collections.<String, String>emptyMap());
+    Assert.assertEquals("1", lookup.lookup("a"));
+    Assert.assertEquals(ImmutableMap.of("a", "1", "b", "2"), lookup.lookup("a", "b", "c"));
+
+    // Tables that are too large, that are not KeyValueTables, or that are not named are not broadcast
+    assertNotProvided(provider, "large");
+    assertNotProvided(provider, "other");
+    assertNotProvided(provider, "unknown");
+
+    provider.unpersist();
+  }
+
+  @Test
+  public void testNoBroadcastTables() {
+    BroadcastLookupProvider provider =
+      BroadcastLookupProvider.create(jsc, datasetContext, Collections.<String, String>emptyMap());
+    assertNotProvided(provider, "small");
+  }
+
+  @Test
+  public void testRefreshInterval() {
+    Assert.assertEquals(0L, BroadcastLookupProvider.getRefreshIntervalMillis(Collections.<String, String>emptyMap()));
+    Assert.assertEquals(90000L, BroadcastLookupProvider.getRefreshIntervalMillis(
+      ImmutableMap.of(BroadcastLookupProvider.BROADCAST_REFRESH_SECONDS, "90")));
+  }
+
+  private void assertNotProvided(BroadcastLookupProvider provider, String table) {
+    try {
+      provider.provide(table, Collections.<String, String>emptyMap());
+      Assert.fail("Expected lookup of table " + table + " to be unsupported");
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+  }
+
+  /**
+   * A {@link DatasetContext} that returns datasets from a map.
+   */
+  private static final class MapDatasetContext implements DatasetContext {
+
+    private final Map<String, Dataset> datasets;
+
+    MapDatasetContext(Map<String, Dataset> datasets) {
+      this.datasets = datasets;
+    }
+
+    @Override
+    public <T extends Dataset> T getDataset(String name) throws DatasetInstantiationException {
+      return getDataset(name, Collections.<String, String>emptyMap());
+    }
+
+    @Override
+    public <T extends Dataset> T getDataset(String namespace, String name) throws DatasetInstantiationException {
+      return getDataset(name);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T extends Dataset> T getDataset(String name,
+                                            Map<String, String> arguments) throws DatasetInstantiationException {
+      Dataset dataset = datasets.get(name);
+      if (dataset == null) {
+        throw new DatasetInstantiationException("Dataset " + name + " does not exist");
+      }
+      return (T) dataset;
+    }
+
+    @Override
+    public <T extends Dataset> T getDataset(String namespace, String name,
+                                            Map<String, String> arguments) throws DatasetInstantiationException {
+      return getDataset(name, arguments);
+    }
+
+    @Override
+    public void releaseDataset(Dataset dataset) {
+      // no-op
+    }
+
+    @Override
+    public void discardDataset(Dataset dataset) {
+      // no-op
+    }
+  }
+}
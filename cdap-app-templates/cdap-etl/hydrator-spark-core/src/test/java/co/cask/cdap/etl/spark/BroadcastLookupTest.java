@@ -0,0 +1,127 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.etl.spark;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.dataset.lib.AbstractCloseableIterator;
+import co.cask.cdap.api.dataset.lib.CloseableIterator;
+import co.cask.cdap.api.dataset.lib.KeyValue;
+import co.cask.cdap.api.dataset.lib.KeyValueTable;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Tests for {@link BroadcastLookup}.
+ */
+public class BroadcastLookupTest {
+
+  @Test
+  public void testLookup() {
+    InMemoryKeyValueTable table = new InMemoryKeyValueTable("lookup");
+    table.put("c", "3");
+    table.put("a", "1");
+    table.put("b", "2");
+
+    BroadcastLookup lookup = BroadcastLookup.fromTable(table, Long.MAX_VALUE);
+    Assert.assertNotNull(lookup);
+    Assert.assertTrue(table.closed);
+    Assert.assertEquals(3, lookup.size());
+
+    Assert.assertEquals("1", lookup.lookup("a"));
+    Assert.assertEquals("2", lookup.lookup("b"));
+    Assert.assertEquals("3", lookup.lookup("c"));
+    Assert.assertNull(lookup.lookup("d"));
+    Assert.assertNull(lookup.lookup(""));
+
+    Assert.assertEquals(ImmutableMap.of("a", "1", "c", "3"), lookup.lookup(ImmutableSet.of("a", "c", "d")));
+    Assert.assertEquals(ImmutableMap.of("b", "2"), lookup.lookup("b", "x"));
+    Assert.assertTrue(lookup.lookup(ImmutableSet.<String>of()).isEmpty());
+  }
+
+  @Test
+  public void testEmptyTable() {
+    BroadcastLookup lookup = BroadcastLookup.fromTable(new InMemoryKeyValueTable("empty"), 0L);
+    Assert.assertNotNull(lookup);
+    Assert.assertEquals(0, lookup.size());
+    Assert.assertNull(lookup.lookup("a"));
+    Assert.assertTrue(lookup.lookup("a", "b").isEmpty());
+  }
+
+  @Test
+  public void testMaxBytes() {
+    InMemoryKeyValueTable table = new InMemoryKeyValueTable("lookup");
+    table.put("k1", "v1");
+    table.put("k2", "v2");
+    table.put("k3", "v3");
+
+    // Each entry has 4 bytes of key and value
+    BroadcastLookup lookup = BroadcastLookup.fromTable(table, 12L);
+    Assert.assertNotNull(lookup);
+    Assert.assertEquals(3, lookup.size());
+    Assert.assertEquals("v3", lookup.lookup("k3"));
+
+    table.closed = false;
+    Assert.assertNull(BroadcastLookup.fromTable(table, 11L));
+    Assert.assertTrue(table.closed);
+  }
+
+  /**
+   * A {@link KeyValueTable} that keeps its entries in memory and remembers whether its last scanner was closed.
+   */
+  static final class InMemoryKeyValueTable extends KeyValueTable {
+
+    private final NavigableMap<byte[], byte[]> entries = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    private boolean closed;
+
+    InMemoryKeyValueTable(String name) {
+      super(name, null);
+    }
+
+    void put(String key, String value) {
+      entries.put(Bytes.toBytes(key), Bytes.toBytes(value));
+    }
+
+    @Override
+    public CloseableIterator<KeyValue<byte[], byte[]>> scan(byte[] startRow, byte[] stopRow) {
+      final Iterator<Map.Entry<byte[], byte[]>> iterator = entries.entrySet().iterator();
+      closed = false;
+      return new AbstractCloseableIterator<KeyValue<byte[], byte[]>>() {
+        @Override
+        protected KeyValue<byte[], byte[]> computeNext() {
+          if (!iterator.hasNext()) {
+            return endOfData();
+          }
+          Map.Entry<byte[], byte[]> entry = iterator.next();
+          return new KeyValue<>(entry.getKey(), entry.getValue());
+        }
+
+        @Override
+        public void close() {
+          closed = true;
+        }
+      };
+    }
+  }
+}
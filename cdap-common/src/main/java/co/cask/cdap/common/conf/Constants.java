@@ -133,6 +133,8 @@ public final class Constants {
     public static final String SERVER_SSL_PORT = "app.ssl.bind.port";
     public static final String OUTPUT_DIR = "app.output.dir";
     public static final String TEMP_DIR = "app.temp.dir";
+    public static final String UNPACK_CACHE_DIR = "app.artifact.unpack.cache.dir";
+    public static final String UNPACK_CACHE_SIZE_MB = "app.artifact.unpack.cache.size.mb";
     public static final String REST_PORT = "app.rest.port";
     public static final String PROGRAM_JVM_OPTS = "app.program.jvm.opts";
     public static final String BACKLOG_CONNECTIONS = "app.connection.backlog";
@@ -142,6 +144,9 @@ public final class Constants {
     public static final String APP_SCHEDULER_QUEUE = "apps.scheduler.queue";
     public static final String MAPREDUCE_JOB_CLIENT_CONNECT_MAX_RETRIES = "mapreduce.jobclient.connect.max.retries";
     public static final String MAPREDUCE_INCLUDE_CUSTOM_CLASSES = "mapreduce.include.custom.format.classes";
+    public static final String MAPREDUCE_JAR_CACHE_ENABLED = "mapreduce.jar.cache.enabled";
+    public static final String MAPREDUCE_JAR_CACHE_DIR = "mapreduce.jar.cache.dir";
+    public static final String MAPREDUCE_JAR_CACHE_RETENTION_SECONDS = "mapreduce.jar.cache.retention.seconds";
     public static final String PROGRAM_RUNID_CORRECTOR_INTERVAL_SECONDS = "app.program.runid.corrector.interval";
     public static final String SYSTEM_ARTIFACTS_DIR = "app.artifact.dir";
     public static final String PROGRAM_EXTRA_CLASSPATH = "app.program.extra.classpath";
@@ -149,6 +154,8 @@ public final class Constants {
     public static final String RUNTIME_EXT_DIR = "app.program.runtime.extensions.dir";
     public static final String PROGRAM_MAX_START_SECONDS = "app.program.max.start.seconds";
     public static final String PROGRAM_MAX_STOP_SECONDS = "app.program.max.stop.seconds";
+    public static final String SERVICE_ASYNC_RESPONSE_TIMEOUT_SECONDS =
+      "app.program.service.async.response.timeout.seconds";
 
     /**
      * Guice named bindings.
@@ -190,6 +197,11 @@ public final class Constants {
      */
     public static final String WORKFLOW_TOKEN_MAX_SIZE_MB = "workflow.token.max.size.mb";
 
+    /**
+     * Configuration setting to set the maximum number of actions of a workflow run that can run at the same time
+     */
+    public static final String WORKFLOW_MAX_CONCURRENT_ACTIONS = "workflow.max.concurrent.actions";
+
     /**
      * Name of the property used to identify whether the dataset is local or not.
      */
@@ -376,6 +388,7 @@ public final class Constants {
     public static final String FILE_PREFIX = "stream.file.prefix";
     public static final String INSTANCE_FILE_PREFIX = "stream.instance.file.prefix";
     public static final String CONSUMER_TABLE_PRESPLITS = "stream.consumer.table.presplits";
+    public static final String CONSUMER_FIFO_RANGE_SIZE = "stream.consumer.fifo.range.size";
     public static final String FILE_CLEANUP_PERIOD = "stream.file.cleanup.period";
     public static final String BATCH_BUFFER_THRESHOLD = "stream.batch.buffer.threshold";
     public static final String NOTIFICATION_THRESHOLD = "stream.notification.threshold";
@@ -510,10 +523,15 @@ public final class Constants {
 
     public static final String SERVER_ADDRESS = "metrics.query.bind.address";
     public static final String SERVER_PORT = "metrics.query.bind.port";
+    public static final String QUERY_CACHE_MAX_VALUES = "metrics.query.cache.max.values";
+    public static final String QUERY_CACHE_CLOSE_DELAY_SECONDS = "metrics.query.cache.close.delay.seconds";
+    public static final String QUERY_CACHE_EXPIRE_SECONDS = "metrics.query.cache.expire.seconds";
 
     public static final String KAFKA_TOPIC_PREFIX = "metrics.kafka.topic.prefix";
     public static final String KAFKA_PARTITION_SIZE = "metrics.kafka.partition.size";
     public static final String KAFKA_CONSUMER_PERSIST_THRESHOLD = "metrics.kafka.consumer.persist.threshold";
+    public static final String KAFKA_CONSUMER_FLUSH_INTERVAL_MS = "metrics.kafka.consumer.flush.interval.ms";
+    public static final String KAFKA_CONSUMER_MAX_BUFFERED_METRICS = "metrics.kafka.consumer.max.buffered.metrics";
     public static final String KAFKA_META_TABLE = "metrics.kafka.meta.table";
 
     public static final String DEFAULT_KAFKA_META_TABLE = "metrics.kafka.meta";
@@ -526,8 +544,15 @@ public final class Constants {
     public static final long DEFAULT_RETENTION_HOURS = 2;
 
     public static final int DEFAULT_KAFKA_CONSUMER_PERSIST_THRESHOLD = 100;
+    public static final long DEFAULT_KAFKA_CONSUMER_FLUSH_INTERVAL_MS = 1000L;
+    public static final int DEFAULT_KAFKA_CONSUMER_MAX_BUFFERED_METRICS = 100000;
     public static final int DEFAULT_KAFKA_PARTITION_SIZE = 1;
 
+    // Query result cache is disabled by default, since it doesn't see data deleted or backfilled by other processes
+    public static final long DEFAULT_QUERY_CACHE_MAX_VALUES = 0L;
+    public static final long DEFAULT_QUERY_CACHE_CLOSE_DELAY_SECONDS = 60L;
+    public static final long DEFAULT_QUERY_CACHE_EXPIRE_SECONDS = 600L;
+
     /**
      * Metric's dataset related constants.
      */
@@ -626,6 +651,8 @@ public final class Constants {
       public static final class Log {
         public static final String PROCESS_DELAY = "log.process.delay";
         public static final String PROCESS_MESSAGES_COUNT = "log.process.message.count";
+        public static final String BUFFER_BYTES = "log.buffer.bytes";
+        public static final String BUFFER_SPILL_BYTES = "log.buffer.spill.bytes";
       }
     }
 
@@ -828,6 +855,10 @@ public final class Constants {
 
       /** Paths to exclude from authentication, given by a single regular expression */
       public static final String BYPASS_AUTHENTICATION_REGEX = "router.bypass.auth.regex";
+      /** Maximum number of validated access tokens to cache */
+      public static final String TOKEN_CACHE_SIZE = "router.token.cache.size";
+      /** Maximum time in milliseconds to accept a cached access token without validating it again */
+      public static final String TOKEN_CACHE_EXPIRATION_MS = "router.token.cache.expiration.ms";
     }
 
     /**
@@ -0,0 +1,255 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.common.lang;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import javax.annotation.Nullable;
+
+/**
+ * An index of the packages and directories that contain resources in a list of class path entries. It is used
+ * by {@link DirectoryClassLoader} to answer whether a class or resource can possibly be found in its class path
+ * with a single lookup, instead of probing every directory and jar file.
+ *
+ * Indices of jar files are cached based on the file path, size and last modified time. Indices of directories
+ * are only cached if the directory is {@link #register(File) registered}, which is done for directories that are
+ * immutable once created, such as the ones created by the
+ * {@link co.cask.cdap.common.lang.jar.UnpackedJarCache UnpackedJarCache}. Directories that are not registered may
+ * change after the index is created, hence a miss in the index is confirmed by checking those directories, as well
+ * as class path entries that did not exist when the index was created, on the file system.
+ */
+public final class ClassPathIndex {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ClassPathIndex.class);
+
+  private static final Cache<String, Set<String>> JAR_INDICES = CacheBuilder.newBuilder().maximumSize(2000).build();
+  private static final ConcurrentMap<File, Set<String>> DIR_INDICES = new ConcurrentHashMap<>();
+
+  // Contains names of directories that directly contain files, as well as names of all directories
+  // with a trailing "/". A null value means the index is incomplete, hence every lookup may succeed.
+  private final Set<String> packages;
+  // Directories that are not known to be immutable and class path entries that did not exist during indexing
+  private final List<File> mutableEntries;
+
+  /**
+   * Creates a {@link ClassPathIndex} for the given list of class path {@link URL}s. If any of the URLs cannot be
+   * indexed, for example if it is not a local file or if it is a jar with a {@code Class-Path} manifest attribute,
+   * the resulting index will treat every resource as possibly present.
+   */
+  public static ClassPathIndex create(URL[] urls) {
+    Set<String> packages = new HashSet<>();
+    List<File> mutableEntries = new ArrayList<>();
+    for (URL url : urls) {
+      Set<String> urlPackages = getPackages(url, mutableEntries);
+      if (urlPackages == null) {
+        return new ClassPathIndex(null, Collections.<File>emptyList());
+      }
+      packages.addAll(urlPackages);
+    }
+    return new ClassPathIndex(packages, mutableEntries);
+  }
+
+  /**
+   * Indexes the given directory and caches the result. The directory content must not be changed until
+   * it is {@link #unregister(File) unregistered}.
+   */
+  public static void register(File dir) throws IOException {
+    dir = dir.getAbsoluteFile();
+    DIR_INDICES.put(dir, indexDirectory(dir.toPath()));
+  }
+
+  /**
+   * Removes the cached index of the given directory.
+   */
+  public static void unregister(File dir) {
+    DIR_INDICES.remove(dir.getAbsoluteFile());
+  }
+
+  private ClassPathIndex(@Nullable Set<String> packages, List<File> mutableEntries) {
+    this.packages = packages;
+    this.mutableEntries = mutableEntries;
+  }
+
+  /**
+   * Returns {@code false} if the given resource definitely cannot be found in the class path represented by
+   * this index; otherwise return {@code true}.
+   *
+   * @param resourceName name of the resource in the format as used by {@link ClassLoader#getResource(String)}
+   */
+  public boolean mayContain(String resourceName) {
+    if (packages == null || resourceName.isEmpty()
+      || resourceName.contains("..") || resourceName.contains("./")) {
+      return true;
+    }
+    if (resourceName.startsWith("/")) {
+      resourceName = resourceName.substring(1);
+    }
+    // A name ending with "/" is a lookup of a directory.
+    // A name without "/" at the end can also be a lookup of a directory.
+    boolean indexed = resourceName.endsWith("/")
+      ? packages.contains(resourceName)
+      : packages.contains(getParent(resourceName)) || packages.contains(resourceName + "/");
+    return indexed || existsInMutableEntries(resourceName);
+  }
+
+  /**
+   * Checks on the file system whether the given resource was added to the class path after the index was created.
+   */
+  private boolean existsInMutableEntries(String resourceName) {
+    for (File entry : mutableEntries) {
+      if (entry.isDirectory()) {
+        if (new File(entry, resourceName).exists()) {
+          return true;
+        }
+      } else if (entry.exists()) {
+        // A class path entry that is created after indexing, which can be a jar file
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the set of directories that contain resources from the given {@link URL} or {@code null} if the
+   * URL cannot be indexed.
+   */
+  @Nullable
+  private static Set<String> getPackages(URL url, List<File> mutableEntries) {
+    if (!"file".equals(url.getProtocol())) {
+      return null;
+    }
+
+    File file;
+    try {
+      file = new File(url.toURI()).getAbsoluteFile();
+    } catch (URISyntaxException | IllegalArgumentException e) {
+      return null;
+    }
+
+    try {
+      if (file.isDirectory()) {
+        Set<String> packages = DIR_INDICES.get(file);
+        if (packages == null) {
+          mutableEntries.add(file);
+          packages = indexDirectory(file.toPath());
+        }
+        return packages;
+      }
+      if (!file.isFile()) {
+        // The URLClassLoader ignores non-existing class path entry until it gets created
+        mutableEntries.add(file);
+        return ImmutableSet.of();
+      }
+
+      String key = file.getPath() + ":" + file.length() + ":" + file.lastModified();
+      Set<String> packages = JAR_INDICES.getIfPresent(key);
+      if (packages == null) {
+        packages = indexJar(file);
+        if (packages != null) {
+          JAR_INDICES.put(key, packages);
+        }
+      }
+      return packages;
+    } catch (IOException e) {
+      LOG.debug("Failed to index class path entry {}", url, e);
+      return null;
+    }
+  }
+
+  private static Set<String> indexDirectory(final Path dir) throws IOException {
+    final Set<String> packages = new HashSet<>();
+    Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path path, BasicFileAttributes attrs) throws IOException {
+        packages.add(toResourceName(dir.relativize(path)) + "/");
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+        packages.add(getParent(toResourceName(dir.relativize(file))));
+        return FileVisitResult.CONTINUE;
+      }
+    });
+    return ImmutableSet.copyOf(packages);
+  }
+
+  @Nullable
+  private static Set<String> indexJar(File file) throws IOException {
+    try (JarFile jarFile = new JarFile(file)) {
+      // URLClassLoader follows the Class-Path in the manifest, which is not handled by the index
+      Manifest manifest = jarFile.getManifest();
+      if (manifest != null && manifest.getMainAttributes().getValue(Attributes.Name.CLASS_PATH) != null) {
+        return null;
+      }
+
+      Set<String> packages = new HashSet<>();
+      packages.add("/");
+      Enumeration<? extends ZipEntry> entries = jarFile.entries();
+      while (entries.hasMoreElements()) {
+        String name = entries.nextElement().getName();
+        String dir;
+        if (name.endsWith("/")) {
+          dir = name.substring(0, name.length() - 1);
+        } else {
+          dir = getParent(name);
+          packages.add(dir);
+        }
+        // Add all parent directories of the entry, since there may be no explicit entries for directories
+        while (!dir.isEmpty() && packages.add(dir + "/")) {
+          dir = getParent(dir);
+        }
+      }
+      return ImmutableSet.copyOf(packages);
+    }
+  }
+
+  private static String toResourceName(Path path) {
+    String name = path.toString();
+    return File.separatorChar == '/' ? name : name.replace(File.separatorChar, '/');
+  }
+
+  private static String getParent(String name) {
+    int idx = name.lastIndexOf('/');
+    return idx < 0 ? "" : name.substring(0, idx);
+  }
+}
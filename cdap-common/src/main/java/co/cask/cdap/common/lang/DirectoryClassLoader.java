@@ -33,8 +33,12 @@ import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
 import javax.annotation.Nullable;
@@ -55,7 +59,17 @@ public class DirectoryClassLoader extends InterceptableClassLoader {
 
   private static final Logger LOG = LoggerFactory.getLogger(DirectoryClassLoader.class);
 
+  // Tracks the nesting of findClass calls on the current thread so that nested class loading is not double counted
+  private static final ThreadLocal<int[]> FIND_CLASS_DEPTH = new ThreadLocal<int[]>() {
+    @Override
+    protected int[] initialValue() {
+      return new int[1];
+    }
+  };
+
   private final Manifest manifest;
+  private final ClassPathIndex classPathIndex;
+  private final AtomicLong findClassNanos;
 
   public DirectoryClassLoader(File dir, ClassLoader parent, String...libDirs) {
     this(dir, "", parent, ImmutableSet.copyOf(libDirs));
@@ -85,6 +99,8 @@ public class DirectoryClassLoader extends InterceptableClassLoader {
       LOG.trace("No Manifest file under {}", dir, e);
     }
     this.manifest = manifest;
+    this.classPathIndex = ClassPathIndex.create(getURLs());
+    this.findClassNanos = new AtomicLong();
   }
 
   /**
@@ -96,6 +112,42 @@ public class DirectoryClassLoader extends InterceptableClassLoader {
     return manifest;
   }
 
+  /**
+   * Returns the total time in milliseconds spent in finding and defining classes from the class path of this
+   * {@link ClassLoader}.
+   */
+  public long getClassLoadingTimeMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(findClassNanos.get());
+  }
+
+  @Override
+  protected Class<?> findClass(String name) throws ClassNotFoundException {
+    // Consult the index first to avoid probing every class path entry for classes that are not there
+    if (!classPathIndex.mayContain(name.replace('.', '/') + ".class")) {
+      throw new ClassNotFoundException(name);
+    }
+
+    int[] depth = FIND_CLASS_DEPTH.get();
+    long startTime = depth[0]++ == 0 ? System.nanoTime() : 0L;
+    try {
+      return super.findClass(name);
+    } finally {
+      if (--depth[0] == 0) {
+        findClassNanos.addAndGet(System.nanoTime() - startTime);
+      }
+    }
+  }
+
+  @Override
+  public URL findResource(String name) {
+    return classPathIndex.mayContain(name) ? super.findResource(name) : null;
+  }
+
+  @Override
+  public Enumeration<URL> findResources(String name) throws IOException {
+    return classPathIndex.mayContain(name) ? super.findResources(name) : Collections.<URL>emptyEnumeration();
+  }
+
   /**
    * Always return {@code false} as this class won't do any class rewriting. Subclasses overriding this method
    * should also override {@link #rewriteClass(String, InputStream)}.
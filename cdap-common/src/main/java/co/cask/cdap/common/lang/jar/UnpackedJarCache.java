@@ -0,0 +1,371 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.common.lang.jar;
+
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.common.io.Locations;
+import co.cask.cdap.common.lang.ClassPathIndex;
+import co.cask.cdap.common.utils.DirUtils;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Charsets;
+import com.google.common.base.Throwables;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.apache.twill.filesystem.Location;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A local cache of expanded jar files, addressed by the location, size and last modified time of the jar, so that
+ * finding a cached jar never reads the jar content. Callers {@link #acquire(Location)} a reference to an expanded
+ * directory and release it by closing the returned {@link Entry}. Expanded directories
+ * that are no longer referenced are kept around for reuse and evicted in least recently used order once the
+ * total size of the cache exceeds the configured disk budget. Directories that are still referenced are never
+ * evicted, hence the cache may temporarily go over the budget.
+ *
+ * The expanded directories are shared and must be treated as read-only by the callers.
+ */
+public final class UnpackedJarCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(UnpackedJarCache.class);
+  private static final ConcurrentMap<File, UnpackedJarCache> INSTANCES = new ConcurrentHashMap<>();
+
+  private static final String INSTANCE_DIR_PREFIX = "instance.";
+  private static final String LOCK_FILE = ".lock";
+  // Instance directories without a lock file are only considered stale after this time, since the owning process
+  // may be between creating the directory and locking it
+  private static final long UNLOCKED_DIR_STALE_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+  private final File cacheDir;
+  private final FileChannel lockChannel;
+  private final long maxBytes;
+  // Entries ordered by access order for LRU eviction. All accesses are guarded by "this".
+  private final Map<String, CacheEntry> entries;
+  private long totalBytes;
+
+  /**
+   * Returns the {@link UnpackedJarCache} for the cache directory configured in the given {@link CConfiguration}.
+   * All callers in the same process that use the same cache directory share the same instance.
+   */
+  public static UnpackedJarCache get(CConfiguration cConf) {
+    File tmpDir = new File(cConf.get(Constants.CFG_LOCAL_DATA_DIR), cConf.get(Constants.AppFabric.TEMP_DIR));
+    File cacheDir = new File(tmpDir, cConf.get(Constants.AppFabric.UNPACK_CACHE_DIR)).getAbsoluteFile();
+
+    UnpackedJarCache cache = INSTANCES.get(cacheDir);
+    if (cache != null) {
+      return cache;
+    }
+    long maxBytes = cConf.getLong(Constants.AppFabric.UNPACK_CACHE_SIZE_MB) * 1024L * 1024L;
+    cache = new UnpackedJarCache(cacheDir, maxBytes);
+    UnpackedJarCache existing = INSTANCES.putIfAbsent(cacheDir, cache);
+    return existing == null ? cache : existing;
+  }
+
+  @VisibleForTesting
+  UnpackedJarCache(File cacheRoot, long maxBytes) {
+    this.maxBytes = maxBytes;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    // The cache root can be shared by multiple processes on the same host, hence each instance expands jars into
+    // its own directory, which is locked for the lifetime of the process. Only directories left by processes that
+    // no longer hold the lock are stale and can be removed.
+    deleteStaleDirectories(cacheRoot);
+    try {
+      DirUtils.mkdirs(cacheRoot);
+      this.cacheDir = Files.createTempDirectory(cacheRoot.toPath(), INSTANCE_DIR_PREFIX).toFile();
+      this.lockChannel = FileChannel.open(new File(cacheDir, LOCK_FILE).toPath(),
+                                          StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+      // Keep the lock until the process exits
+      this.lockChannel.lock();
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  /**
+   * Acquires a reference to the expanded directory of the given jar file.
+   *
+   * @see #acquire(Location)
+   */
+  public Entry acquire(File jarFile) throws IOException {
+    return acquire(Locations.toLocation(jarFile));
+  }
+
+  /**
+   * Acquires a reference to the expanded directory of the given jar. If the jar was expanded before and has not
+   * changed since, the existing directory is returned without expanding the jar again.
+   *
+   * @param jarLocation location of the jar file
+   * @return an {@link Entry} that gives the expanded directory; it must be closed when the directory is no
+   *         longer needed
+   * @throws IOException if failed to read or expand the jar
+   */
+  public Entry acquire(Location jarLocation) throws IOException {
+    return doAcquire(jarLocation, jarLocation);
+  }
+
+  /**
+   * Acquires a reference to the expanded directory of the given jar, expanding it from a snapshot copy of the jar
+   * if it is not in the cache. This allows callers that copy a jar before using it to still share the expanded
+   * directory, since the cache entry is addressed by the original jar.
+   *
+   * @param jarLocation location of the jar file, which addresses the cache entry
+   * @param snapshot a copy of the jar file to expand
+   * @return an {@link Entry} that gives the expanded directory; it must be closed when the directory is no
+   *         longer needed
+   * @throws IOException if failed to read or expand the jar
+   */
+  public Entry acquire(Location jarLocation, File snapshot) throws IOException {
+    return doAcquire(jarLocation, Locations.toLocation(snapshot));
+  }
+
+  private Entry doAcquire(Location jarLocation, Location source) throws IOException {
+    String hash = getKey(jarLocation);
+
+    CacheEntry entry;
+    boolean owner = false;
+    synchronized (this) {
+      entry = entries.get(hash);
+      if (entry == null) {
+        entry = new CacheEntry(hash);
+        entries.put(hash, entry);
+        owner = true;
+      }
+      entry.refCount++;
+    }
+
+    if (owner) {
+      expand(entry, source);
+    }
+
+    try {
+      Uninterruptibles.getUninterruptibly(entry.directory);
+    } catch (ExecutionException e) {
+      release(entry);
+      Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+      throw Throwables.propagate(e.getCause());
+    }
+    return new Entry(entry);
+  }
+
+  /**
+   * Returns the total number of bytes of all expanded directories currently in the cache.
+   */
+  @VisibleForTesting
+  synchronized long getTotalBytes() {
+    return totalBytes;
+  }
+
+  /**
+   * Expands the jar into a new directory and completes the given entry with it.
+   */
+  private void expand(CacheEntry entry, Location jarLocation) {
+    File dir = null;
+    try {
+      DirUtils.mkdirs(cacheDir);
+      dir = Files.createTempDirectory(cacheDir.toPath(), entry.hash + ".").toFile();
+      BundleJarUtil.unJar(jarLocation, dir);
+      // Index the directory once, so that ClassLoaders created from it don't have to
+      ClassPathIndex.register(dir);
+      long size = sizeOf(dir.toPath());
+      LOG.debug("Expanded {} to {} with size {} bytes", jarLocation, dir, size);
+
+      synchronized (this) {
+        entry.size = size;
+        totalBytes += size;
+      }
+      entry.directory.set(dir);
+    } catch (Throwable t) {
+      synchronized (this) {
+        entries.remove(entry.hash);
+      }
+      deleteQuietly(dir);
+      entry.directory.setException(t);
+    }
+  }
+
+  /**
+   * Releases one reference to the given entry and evicts unused entries if the cache is over budget.
+   */
+  private void release(CacheEntry entry) {
+    List<File> evicted = new ArrayList<>();
+    synchronized (this) {
+      entry.refCount--;
+      if (totalBytes <= maxBytes) {
+        return;
+      }
+      Iterator<CacheEntry> iterator = entries.values().iterator();
+      while (totalBytes > maxBytes && iterator.hasNext()) {
+        CacheEntry candidate = iterator.next();
+        if (candidate.refCount > 0 || !candidate.directory.isDone()) {
+          continue;
+        }
+        iterator.remove();
+        totalBytes -= candidate.size;
+        evicted.add(Futures.getUnchecked(candidate.directory));
+      }
+    }
+
+    for (File dir : evicted) {
+      LOG.debug("Evicting expanded directory {} from cache", dir);
+      deleteQuietly(dir);
+    }
+  }
+
+  /**
+   * Returns the key of the cache entry for the given jar. The key is a hash of the jar location, size and last
+   * modified time, which is also safe to use as a directory name prefix.
+   */
+  private String getKey(Location jarLocation) throws IOException {
+    String key = jarLocation.toURI() + ":" + jarLocation.length() + ":" + jarLocation.lastModified();
+    return Hashing.sha256().hashString(key, Charsets.UTF_8).toString();
+  }
+
+  /**
+   * Deletes the instance directories under the given cache root that are not locked by any live process.
+   */
+  private static void deleteStaleDirectories(File cacheRoot) {
+    File[] dirs = cacheRoot.listFiles();
+    if (dirs == null) {
+      return;
+    }
+    for (File dir : dirs) {
+      if (!dir.isDirectory() || !dir.getName().startsWith(INSTANCE_DIR_PREFIX)) {
+        continue;
+      }
+      File lockFile = new File(dir, LOCK_FILE);
+      try {
+        if (!lockFile.exists()) {
+          if (System.currentTimeMillis() - dir.lastModified() > UNLOCKED_DIR_STALE_MILLIS) {
+            DirUtils.deleteDirectoryContents(dir);
+          }
+          continue;
+        }
+        try (FileChannel channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.WRITE)) {
+          FileLock lock = channel.tryLock();
+          if (lock == null) {
+            // Locked by another process
+            continue;
+          }
+          try {
+            LOG.debug("Deleting stale cache directory {}", dir);
+            DirUtils.deleteDirectoryContents(dir);
+          } finally {
+            lock.release();
+          }
+        }
+      } catch (OverlappingFileLockException e) {
+        // Locked by another instance in this process
+      } catch (IOException e) {
+        LOG.warn("Failed to cleanup stale cache directory {}", dir, e);
+      }
+    }
+  }
+
+  private long sizeOf(Path dir) throws IOException {
+    final long[] size = new long[1];
+    Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+        size[0] += attrs.size();
+        return FileVisitResult.CONTINUE;
+      }
+    });
+    return size[0];
+  }
+
+  private void deleteQuietly(File dir) {
+    if (dir == null) {
+      return;
+    }
+    ClassPathIndex.unregister(dir);
+    try {
+      DirUtils.deleteDirectoryContents(dir);
+    } catch (IOException e) {
+      LOG.warn("Failed to delete directory {}", dir, e);
+    }
+  }
+
+  /**
+   * A reference to an expanded directory in the cache. Closing it releases the reference.
+   */
+  public final class Entry implements Closeable {
+
+    private final CacheEntry entry;
+    private final AtomicBoolean closed;
+
+    private Entry(CacheEntry entry) {
+      this.entry = entry;
+      this.closed = new AtomicBoolean();
+    }
+
+    /**
+     * Returns the directory that the jar is expanded into. The directory content must not be modified.
+     */
+    public File getDirectory() {
+      return Futures.getUnchecked(entry.directory);
+    }
+
+    @Override
+    public void close() {
+      if (closed.compareAndSet(false, true)) {
+        release(entry);
+      }
+    }
+  }
+
+  /**
+   * Book keeping information about one expanded jar.
+   */
+  private static final class CacheEntry {
+    private final String hash;
+    private final SettableFuture<File> directory;
+    private int refCount;
+    private long size;
+
+    CacheEntry(String hash) {
+      this.hash = hash;
+      this.directory = SettableFuture.create();
+    }
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.common.lang;
+
+import co.cask.cdap.common.lang.jar.BundleJarUtil;
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+/**
+ * Unit tests for {@link ClassPathIndex} and its usage in {@link DirectoryClassLoader}.
+ */
+public class ClassPathIndexTest {
+
+  @ClassRule
+  public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
+
+  @Test
+  public void testIndex() throws IOException {
+    File dir = TEMP_FOLDER.newFolder();
+    writeFile(new File(dir, "co/cask/test/Test.class"));
+    writeFile(new File(dir, "root.txt"));
+
+    File jarDir = TEMP_FOLDER.newFolder();
+    writeFile(new File(jarDir, "org/example/lib/Lib.class"));
+    File jarFile = new File(TEMP_FOLDER.newFolder(), "lib.jar");
+    BundleJarUtil.createJar(jarDir, jarFile);
+
+    ClassPathIndex index = ClassPathIndex.create(new URL[] { dir.toURI().toURL(), jarFile.toURI().toURL() });
+
+    Assert.assertTrue(index.mayContain("co/cask/test/Test.class"));
+    Assert.assertTrue(index.mayContain("co/cask/test/Other.class"));
+    Assert.assertTrue(index.mayContain("org/example/lib/Lib.class"));
+    Assert.assertTrue(index.mayContain("root.txt"));
+    Assert.assertTrue(index.mayContain("co/cask/"));
+    Assert.assertTrue(index.mayContain("org/example/"));
+    Assert.assertTrue(index.mayContain("co/cask"));
+    Assert.assertTrue(index.mayContain("org/example/lib"));
+    Assert.assertTrue(index.mayContain("co/cask/../cask/test/Test.class"));
+
+    Assert.assertFalse(index.mayContain("co/cask/Test.class"));
+    Assert.assertFalse(index.mayContain("org/example/Lib.class"));
+    Assert.assertFalse(index.mayContain("com/google/Missing.class"));
+    Assert.assertFalse(index.mayContain("org/apache/"));
+
+    // A registered directory uses the cached index, which is not affected by later changes
+    ClassPathIndex.register(dir);
+    try {
+      writeFile(new File(dir, "co/cask/other/Other.class"));
+      index = ClassPathIndex.create(new URL[] { dir.toURI().toURL() });
+      Assert.assertFalse(index.mayContain("co/cask/other/Other.class"));
+    } finally {
+      ClassPathIndex.unregister(dir);
+    }
+    index = ClassPathIndex.create(new URL[] { dir.toURI().toURL() });
+    Assert.assertTrue(index.mayContain("co/cask/other/Other.class"));
+  }
+
+  @Test
+  public void testMutableEntries() throws IOException {
+    File dir = TEMP_FOLDER.newFolder();
+    writeFile(new File(dir, "co/cask/test/Test.class"));
+    File jarFile = new File(TEMP_FOLDER.newFolder(), "later.jar");
+
+    ClassPathIndex index = ClassPathIndex.create(new URL[] { dir.toURI().toURL(), jarFile.toURI().toURL() });
+    Assert.assertFalse(index.mayContain("co/cask/other/Other.class"));
+    Assert.assertFalse(index.mayContain("org/example/lib/Lib.class"));
+
+    // Resources added to a directory that is not registered after indexing can still be found
+    writeFile(new File(dir, "co/cask/other/Other.class"));
+    Assert.assertTrue(index.mayContain("co/cask/other/Other.class"));
+    Assert.assertTrue(index.mayContain("co/cask/other/"));
+    Assert.assertFalse(index.mayContain("org/example/lib/Lib.class"));
+
+    // A class path entry that is created after indexing may contain anything
+    File jarDir = TEMP_FOLDER.newFolder();
+    writeFile(new File(jarDir, "org/example/lib/Lib.class"));
+    BundleJarUtil.createJar(jarDir, jarFile);
+    Assert.assertTrue(index.mayContain("org/example/lib/Lib.class"));
+  }
+
+  @Test
+  public void testIncompleteIndex() throws IOException {
+    // A jar with Class-Path in the manifest cannot be indexed
+    Manifest manifest = new Manifest();
+    manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    manifest.getMainAttributes().put(Attributes.Name.CLASS_PATH, "other.jar");
+    File jarFile = new File(TEMP_FOLDER.newFolder(), "classpath.jar");
+    new JarOutputStream(new FileOutputStream(jarFile), manifest).close();
+
+    ClassPathIndex index = ClassPathIndex.create(new URL[] { jarFile.toURI().toURL() });
+    Assert.assertTrue(index.mayContain("com/google/Missing.class"));
+
+    // Non-file URL cannot be indexed
+    index = ClassPathIndex.create(new URL[] { new URL("http://localhost/test.jar") });
+    Assert.assertTrue(index.mayContain("com/google/Missing.class"));
+  }
+
+  @Test
+  public void testDirectoryClassLoader() throws Exception {
+    File dir = TEMP_FOLDER.newFolder();
+    writeFile(new File(dir, "co/cask/test/resource.txt"));
+
+    try (DirectoryClassLoader classLoader = new DirectoryClassLoader(dir, null)) {
+      Assert.assertNotNull(classLoader.getResource("co/cask/test/resource.txt"));
+      Assert.assertNull(classLoader.getResource("co/cask/resource.txt"));
+      Assert.assertFalse(classLoader.getResources("co/cask/resource.txt").hasMoreElements());
+      Assert.assertTrue(classLoader.getResources("co/cask/test/resource.txt").hasMoreElements());
+
+      try {
+        classLoader.loadClass("co.cask.missing.Missing");
+        Assert.fail("Expected ClassNotFoundException");
+      } catch (ClassNotFoundException e) {
+        // Expected
+      }
+
+      // Resources added after the class loader was created are visible, as with URLClassLoader
+      writeFile(new File(dir, "co/cask/added/resource.txt"));
+      Assert.assertNotNull(classLoader.getResource("co/cask/added/resource.txt"));
+    }
+  }
+
+  private void writeFile(File file) throws IOException {
+    Files.createParentDirs(file);
+    Files.write(file.getName(), file, Charsets.UTF_8);
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.common.lang.jar;
+
+import co.cask.cdap.common.io.Locations;
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.io.Files;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Unit tests for {@link UnpackedJarCache}.
+ */
+public class UnpackedJarCacheTest {
+
+  @ClassRule
+  public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
+
+  @Test
+  public void testSharedByLocation() throws IOException {
+    UnpackedJarCache cache = new UnpackedJarCache(TEMP_FOLDER.newFolder(), Long.MAX_VALUE);
+
+    // The same jar acquired twice shares the same directory
+    File jar1 = createJar("content");
+    File dir1;
+    try (
+      UnpackedJarCache.Entry entry1 = cache.acquire(jar1);
+      UnpackedJarCache.Entry entry2 = cache.acquire(jar1)
+    ) {
+      dir1 = entry1.getDirectory();
+      Assert.assertEquals(dir1, entry2.getDirectory());
+      Assert.assertEquals("content", Files.toString(new File(dir1, "file.txt"), Charsets.UTF_8));
+    }
+
+    // A snapshot of the jar is addressed by the original jar, hence it shares the directory too
+    File snapshot = new File(TEMP_FOLDER.newFolder(), "snapshot.jar");
+    Files.copy(jar1, snapshot);
+    try (UnpackedJarCache.Entry entry = cache.acquire(Locations.toLocation(jar1), snapshot)) {
+      Assert.assertEquals(dir1, entry.getDirectory());
+    }
+
+    // A copy at a different location gets a different directory
+    try (UnpackedJarCache.Entry entry = cache.acquire(snapshot)) {
+      Assert.assertNotEquals(dir1, entry.getDirectory());
+      Assert.assertEquals("content", Files.toString(new File(entry.getDirectory(), "file.txt"), Charsets.UTF_8));
+    }
+
+    // A jar that is replaced at the same location gets a different directory
+    File jar2 = createJar("other content");
+    Files.copy(jar2, jar1);
+    Assert.assertTrue(jar1.setLastModified(jar1.lastModified() + 10000));
+    try (UnpackedJarCache.Entry entry = cache.acquire(jar1)) {
+      Assert.assertNotEquals(dir1, entry.getDirectory());
+      Assert.assertEquals("other content",
+                          Files.toString(new File(entry.getDirectory(), "file.txt"), Charsets.UTF_8));
+    }
+  }
+
+  @Test
+  public void testEviction() throws IOException {
+    String content = Strings.repeat("0123456789", 100);
+    File jar1 = createJar(content + "1");
+    File jar2 = createJar(content + "2");
+
+    // Budget is smaller than two expanded jars
+    UnpackedJarCache cache = new UnpackedJarCache(TEMP_FOLDER.newFolder(), content.length() + 10);
+
+    File dir1;
+    try (UnpackedJarCache.Entry entry1 = cache.acquire(jar1)) {
+      dir1 = entry1.getDirectory();
+
+      // Directory in use should not be evicted even if over budget
+      File dir2;
+      try (UnpackedJarCache.Entry entry2 = cache.acquire(jar2)) {
+        dir2 = entry2.getDirectory();
+        Assert.assertTrue(dir1.isDirectory());
+        Assert.assertTrue(dir2.isDirectory());
+      }
+
+      // Releasing entry2 brings the cache over budget; only the unreferenced directory can be evicted
+      Assert.assertTrue(dir1.isDirectory());
+      Assert.assertFalse(dir2.exists());
+    }
+
+    // Within budget, so the released directory is kept for reuse
+    Assert.assertTrue(dir1.isDirectory());
+    try (UnpackedJarCache.Entry entry1 = cache.acquire(jar1)) {
+      Assert.assertEquals(dir1, entry1.getDirectory());
+    }
+    Assert.assertEquals(content.length() + 1, cache.getTotalBytes());
+  }
+
+  @Test
+  public void testSharedCacheRoot() throws IOException {
+    File cacheRoot = TEMP_FOLDER.newFolder();
+
+    // A directory left by a process that is gone (no longer locked) is stale
+    File staleDir = new File(cacheRoot, "instance.stale");
+    Assert.assertTrue(new File(staleDir, "expanded").mkdirs());
+    Assert.assertTrue(new File(staleDir, ".lock").createNewFile());
+
+    File jar = createJar("content");
+    UnpackedJarCache cache1 = new UnpackedJarCache(cacheRoot, Long.MAX_VALUE);
+    Assert.assertFalse(staleDir.exists());
+
+    try (UnpackedJarCache.Entry entry1 = cache1.acquire(jar)) {
+      // Another cache on the same root must not remove directories that are in use
+      UnpackedJarCache cache2 = new UnpackedJarCache(cacheRoot, Long.MAX_VALUE);
+      Assert.assertTrue(entry1.getDirectory().isDirectory());
+      Assert.assertEquals("content", Files.toString(new File(entry1.getDirectory(), "file.txt"), Charsets.UTF_8));
+
+      try (UnpackedJarCache.Entry entry2 = cache2.acquire(jar)) {
+        Assert.assertNotEquals(entry1.getDirectory(), entry2.getDirectory());
+        Assert.assertEquals("content", Files.toString(new File(entry2.getDirectory(), "file.txt"), Charsets.UTF_8));
+      }
+    }
+  }
+
+  private File createJar(String content) throws IOException {
+    File dir = TEMP_FOLDER.newFolder();
+    Files.write(content, new File(dir, "file.txt"), Charsets.UTF_8);
+    File jar = new File(TEMP_FOLDER.newFolder(), "test.jar");
+    BundleJarUtil.createJar(dir, jar);
+    return jar;
+  }
+}
@@ -220,6 +220,25 @@ public class SchemaTest {
     Assert.assertEquals(schema, Schema.parseJson(schema.toString()));
   }
 
+  @Test
+  public void testParseJsonInterning() throws IOException {
+    Schema schema = Schema.recordOf("interned",
+                                    Schema.Field.of("id", Schema.of(Schema.Type.LONG)),
+                                    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+    String json = schema.toString();
+    Schema parsed = Schema.parseJson(json);
+    Assert.assertEquals(schema, parsed);
+    Assert.assertSame(parsed, Schema.parseJson(json));
+
+    // Same schema with a different JSON representation
+    Assert.assertSame(parsed, Schema.parseJson(json.replace(",", " , ")));
+
+    // Equal schema with a different record name is not substituted
+    Schema renamed = Schema.parseJson(json.replace("\"interned\"", "\"renamed\""));
+    Assert.assertEquals(parsed, renamed);
+    Assert.assertEquals("renamed", renamed.getRecordName());
+  }
+
   @Test
   public void testSameRecordDifferentLevels() throws UnsupportedTypeException, IOException {
     Schema actual = new ReflectionSchemaGenerator().generate(Node6.class);
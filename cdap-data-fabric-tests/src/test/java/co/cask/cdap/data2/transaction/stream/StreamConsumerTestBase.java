@@ -30,6 +30,7 @@ import co.cask.cdap.proto.id.StreamId;
 import co.cask.cdap.test.SlowTests;
 import com.google.common.base.Charsets;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
@@ -312,6 +313,71 @@ public abstract class StreamConsumerTestBase {
     }
   }
 
+  @Test
+  public void testFIFORangeClaim() throws Exception {
+    String stream = "testFIFORangeClaim";
+    StreamId streamId = TEST_NAMESPACE.stream(stream);
+    StreamAdmin streamAdmin = getStreamAdmin();
+    streamAdmin.create(streamId);
+    StreamConfig streamConfig = streamAdmin.getConfig(streamId);
+
+    // Writes 5 events, which are all in the same range
+    writeEvents(streamConfig, "Testing ", 5);
+    cConf.setLong(Constants.Stream.CONSUMER_FIFO_RANGE_SIZE, 1024 * 1024);
+    try {
+      streamAdmin.configureInstances(streamId, 0L, 2);
+
+      StreamConsumerFactory consumerFactory = getConsumerFactory();
+      StreamConsumer consumer0 = consumerFactory.create(streamId, "fifo.range",
+                                                        new ConsumerConfig(0L, 0, 2, DequeueStrategy.FIFO, null));
+      StreamConsumer consumer1 = consumerFactory.create(streamId, "fifo.range",
+                                                        new ConsumerConfig(0L, 1, 2, DequeueStrategy.FIFO, null));
+
+      TransactionContext context0 = createTxContext(consumer0);
+      TransactionContext context1 = createTxContext(consumer1);
+
+      // Consumer 1 claims the range, hence consumer 0 gets nothing
+      context1.start();
+      context0.start();
+      Assert.assertEquals(ImmutableList.of("Testing 0", "Testing 1"),
+                          getBodies(consumer1.poll(2, 1, TimeUnit.SECONDS)));
+      Assert.assertTrue(consumer0.poll(2, 1, TimeUnit.SECONDS).isEmpty());
+
+      // Rollback, consumer 1 still holds the range and should get the same events
+      context1.abort();
+      context0.finish();
+
+      context1.start();
+      Assert.assertEquals(ImmutableList.of("Testing 0", "Testing 1"),
+                          getBodies(consumer1.poll(2, 1, TimeUnit.SECONDS)));
+      context1.finish();
+
+      consumer0.close();
+      consumer1.close();
+
+      // Reconfigure to have one consumer. It should take over the range and resume after the processed events.
+      streamAdmin.configureInstances(streamId, 0L, 1);
+      consumer0 = consumerFactory.create(streamId, "fifo.range",
+                                         new ConsumerConfig(0L, 0, 1, DequeueStrategy.FIFO, null));
+      context0 = createTxContext(consumer0);
+      context0.start();
+      Assert.assertEquals(ImmutableList.of("Testing 2", "Testing 3", "Testing 4"),
+                          getBodies(consumer0.poll(5, 1, TimeUnit.SECONDS)));
+      context0.finish();
+      consumer0.close();
+    } finally {
+      cConf.setLong(Constants.Stream.CONSUMER_FIFO_RANGE_SIZE, 0L);
+    }
+  }
+
+  private List<String> getBodies(Iterable<StreamEvent> events) {
+    List<String> bodies = Lists.newArrayList();
+    for (StreamEvent event : events) {
+      bodies.add(Charsets.UTF_8.decode(event.getBody()).toString());
+    }
+    return bodies;
+  }
+
   @Test
   public void testTTL() throws Exception {
     String stream = "testTTL";
@@ -16,10 +16,14 @@
 
 package co.cask.cdap.data.stream.service;
 
+import co.cask.cdap.api.data.schema.Schema;
 import co.cask.cdap.api.flow.flowlet.StreamEvent;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.common.io.BinaryEncoder;
+import co.cask.cdap.common.io.Encoder;
 import co.cask.cdap.common.security.Impersonator;
+import co.cask.cdap.common.stream.StreamEventDataCodec;
 import co.cask.cdap.common.stream.StreamEventTypeAdapter;
 import co.cask.cdap.common.utils.TimeMathParser;
 import co.cask.cdap.data.file.FileReader;
@@ -48,6 +52,8 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.stream.JsonWriter;
 import com.google.inject.Inject;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericDatumWriter;
 import org.apache.twill.filesystem.Location;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBufferOutputStream;
@@ -56,8 +62,11 @@ import org.jboss.netty.handler.codec.http.HttpHeaders;
 import org.jboss.netty.handler.codec.http.HttpRequest;
 import org.jboss.netty.handler.codec.http.HttpResponseStatus;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.Callable;
@@ -77,6 +86,9 @@ public final class StreamFetchHandler extends AbstractHttpHandler {
   private static final Gson GSON = StreamEventTypeAdapter.register(new GsonBuilder()).create();
   private static final int MAX_EVENTS_PER_READ = 100;
   private static final int CHUNK_SIZE = 8192;
+  private static final String AVRO_CONTENT_TYPE = "avro/binary";
+  // Schema of events in Avro responses, which is the stream event data schema with the event timestamp appended.
+  private static final org.apache.avro.Schema AVRO_EVENT_SCHEMA = createAvroEventSchema();
 
   private final CConfiguration cConf;
   private final StreamAdmin streamAdmin;
@@ -108,14 +120,16 @@ public final class StreamFetchHandler extends AbstractHttpHandler {
    * </ul>
    * </p>
    * <p>
-   * Response body is a JSON array of the StreamEvent object.
+   * Response body is a JSON array of the StreamEvent object. If the request has the {@code Accept: avro/binary}
+   * header, the response body is an Avro object container stream of events instead, with the schema of
+   * {@link StreamEventDataCodec#STREAM_DATA_SCHEMA} followed by a {@code timestamp} field of type long.
    * </p>
    *
    * @see StreamEventTypeAdapter StreamEventTypeAdapter for the format of the StreamEvent object
    */
   @GET
   @Path("/{stream}/events")
-  public void fetch(HttpRequest request, final HttpResponder responder,
+  public void fetch(final HttpRequest request, final HttpResponder responder,
                     @PathParam("namespace-id") String namespaceId,
                     @PathParam("stream") String stream,
                     @QueryParam("start") @DefaultValue("0") String start,
@@ -156,6 +170,11 @@ public final class StreamFetchHandler extends AbstractHttpHandler {
             return null;
           }
 
+          if (isAvroRequested(request)) {
+            sendAvroEvents(responder, reader, readFilter, events, eventsRead, limit);
+            return null;
+          }
+
           // Send with chunk response, as we don't want to buffer all events in memory to determine the content-length.
           ChunkResponder chunkResponder = responder.sendChunkStart(
             HttpResponseStatus.OK, ImmutableMultimap.of(HttpHeaders.Names.CONTENT_TYPE,
@@ -204,6 +223,66 @@ public final class StreamFetchHandler extends AbstractHttpHandler {
 
   }
 
+  /**
+   * Sends events as an Avro object container stream with the {@link #AVRO_EVENT_SCHEMA}. Events are encoded
+   * with {@link StreamEventDataCodec} and appended to the Avro data blocks as is, without Avro datum writer.
+   *
+   * @param events the first batch of events, which is already read from the reader
+   * @param eventsRead number of events in the first batch
+   * @param limit maximum number of events to send
+   */
+  private void sendAvroEvents(HttpResponder responder, FileReader<StreamEventOffset, Iterable<StreamFileOffset>> reader,
+                              TimeRangeReadFilter readFilter, List<StreamEvent> events,
+                              int eventsRead, int limit) throws IOException, InterruptedException {
+    ChunkResponder chunkResponder = responder.sendChunkStart(
+      HttpResponseStatus.OK, ImmutableMultimap.of(HttpHeaders.Names.CONTENT_TYPE, AVRO_CONTENT_TYPE));
+    ChannelBuffer buffer = ChannelBuffers.dynamicBuffer();
+    EventOutputStream eventOutput = new EventOutputStream();
+    Encoder encoder = new BinaryEncoder(eventOutput);
+
+    // The datum writer is never used, since events are appended in encoded form
+    try (DataFileWriter<StreamEvent> writer = new DataFileWriter<>(new GenericDatumWriter<StreamEvent>())) {
+      writer.create(AVRO_EVENT_SCHEMA, new ChannelBufferOutputStream(buffer));
+      while (limit > 0 && eventsRead > 0) {
+        limit -= eventsRead;
+
+        for (StreamEvent event : events) {
+          eventOutput.reset();
+          StreamEventDataCodec.encode(event, encoder);
+          encoder.writeLong(event.getTimestamp());
+          writer.appendEncoded(eventOutput.toByteBuffer());
+        }
+        events.clear();
+
+        // Each batch of events is written as one data block. Send a new chunk if exceeded chunk size limit.
+        writer.flush();
+        if (buffer.readableBytes() >= CHUNK_SIZE) {
+          // Need to copy the buffer because the buffer will get reused and send chunk is an async operation
+          chunkResponder.sendChunk(buffer.copy());
+          buffer.clear();
+        }
+
+        if (limit > 0) {
+          eventsRead = readEvents(reader, events, limit, readFilter);
+        }
+      }
+    }
+
+    // Send the last chunk that still has data
+    if (buffer.readable()) {
+      chunkResponder.sendChunk(buffer);
+    }
+    Closeables.closeQuietly(chunkResponder);
+  }
+
+  /**
+   * Returns {@code true} if the request accepts Avro binary response.
+   */
+  private boolean isAvroRequested(HttpRequest request) {
+    String accept = request.getHeader(HttpHeaders.Names.ACCEPT);
+    return accept != null && accept.contains(AVRO_CONTENT_TYPE);
+  }
+
   /**
    * Reads events from the given reader.
    */
@@ -356,4 +435,20 @@ public final class StreamFetchHandler extends AbstractHttpHandler {
   private int getReadLimit(int count) {
     return (count > MAX_EVENTS_PER_READ) ? MAX_EVENTS_PER_READ : count;
   }
+
+  private static org.apache.avro.Schema createAvroEventSchema() {
+    List<Schema.Field> fields = new ArrayList<>(StreamEventDataCodec.STREAM_DATA_SCHEMA.getFields());
+    fields.add(Schema.Field.of("timestamp", Schema.of(Schema.Type.LONG)));
+    return new org.apache.avro.Schema.Parser().parse(Schema.recordOf("StreamEvent", fields).toString());
+  }
+
+  /**
+   * A {@link ByteArrayOutputStream} that exposes the written bytes as {@link ByteBuffer} without copying.
+   */
+  private static final class EventOutputStream extends ByteArrayOutputStream {
+
+    ByteBuffer toByteBuffer() {
+      return ByteBuffer.wrap(buf, 0, count);
+    }
+  }
 }
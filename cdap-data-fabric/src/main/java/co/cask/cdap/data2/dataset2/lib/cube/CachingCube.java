@@ -0,0 +1,373 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.lib.cube;
+
+import co.cask.cdap.api.dataset.lib.cube.AggregationFunction;
+import co.cask.cdap.api.dataset.lib.cube.Cube;
+import co.cask.cdap.api.dataset.lib.cube.CubeDeleteQuery;
+import co.cask.cdap.api.dataset.lib.cube.CubeExploreQuery;
+import co.cask.cdap.api.dataset.lib.cube.CubeFact;
+import co.cask.cdap.api.dataset.lib.cube.CubeQuery;
+import co.cask.cdap.api.dataset.lib.cube.DimensionValue;
+import co.cask.cdap.api.dataset.lib.cube.TimeSeries;
+import co.cask.cdap.api.dataset.lib.cube.TimeValue;
+import co.cask.cdap.api.dataset.metrics.MeteredDataset;
+import co.cask.cdap.api.metrics.MetricsCollector;
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Table;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link Cube} that caches query results of a delegating {@link DefaultCube}.
+ *
+ * Results are cached per normalized {@link CubeQuery}, which is the query without its time range, limit and
+ * interpolator. Only closed time buckets are cached, which are buckets that end more than the close delay before
+ * the current time, with the assumption that no more data will be added to them. For each query, the closed
+ * buckets are served from the cache, extending the cached range by querying the delegate for the buckets that
+ * were closed since the last query, and only the trailing open buckets are always queried from the delegate.
+ * The interpolator and limit of the query are applied on the combined result.
+ *
+ * Cached ranges start at a time bucket boundary and are trimmed to the start of each query, so that results are
+ * the same as querying the delegate. Results that hit the scan limit of the delegate are incomplete and are never
+ * cached.
+ *
+ * The cache is bounded by the total number of cached values. Any delete invalidates the whole cache.
+ */
+public class CachingCube implements Cube, MeteredDataset {
+
+  private final DefaultCube delegate;
+  private final long closeDelaySeconds;
+  private final long expireMillis;
+  private final Cache<QueryKey, Entry> cache;
+  private final AtomicLong hits;
+  private final AtomicLong misses;
+
+  @Nullable
+  private MetricsCollector metrics;
+
+  /**
+   * Creates a new instance.
+   *
+   * @param delegate the {@link DefaultCube} to delegate all operations to
+   * @param closeDelaySeconds number of seconds after the end of a time bucket before it is considered as closed
+   * @param maxCachedValues maximum number of values to cache
+   * @param expireSeconds number of seconds to keep cached results of a query, so that changes not made through
+   *                      this instance, such as data expired by TTL, are eventually reflected
+   */
+  public CachingCube(DefaultCube delegate, long closeDelaySeconds, long maxCachedValues, long expireSeconds) {
+    this.delegate = delegate;
+    this.closeDelaySeconds = closeDelaySeconds;
+    this.expireMillis = TimeUnit.SECONDS.toMillis(expireSeconds);
+    this.cache = CacheBuilder.newBuilder()
+      .maximumWeight(maxCachedValues)
+      .weigher(new Weigher<QueryKey, Entry>() {
+        @Override
+        public int weigh(QueryKey key, Entry entry) {
+          return entry.size;
+        }
+      })
+      .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
+      .build();
+    this.hits = new AtomicLong();
+    this.misses = new AtomicLong();
+  }
+
+  @Override
+  public void add(CubeFact fact) {
+    delegate.add(fact);
+  }
+
+  @Override
+  public void add(Collection<? extends CubeFact> facts) {
+    delegate.add(facts);
+  }
+
+  @Override
+  public Collection<TimeSeries> query(CubeQuery query) {
+    int resolution = query.getResolution();
+    // Start of the time bucket that contains the query start, and start of the first open time bucket
+    long startTs = alignDown(query.getStartTs(), resolution);
+    long openTs = alignDown(TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) - closeDelaySeconds,
+                            resolution);
+    // The end timestamp of the query is inclusive
+    long closedEndTs = Math.min(openTs - 1, query.getEndTs()) + 1;
+
+    if (openTs <= 0 || query.getStartTs() >= closedEndTs) {
+      // There is no closed time bucket to serve from the cache
+      return delegate.query(query);
+    }
+
+    QueryKey key = new QueryKey(query);
+    Entry entry = getEntry(key, startTs, closedEndTs);
+
+    Table<Map<String, String>, String, List<TimeValue>> result = HashBasedTable.create();
+    for (Table.Cell<Map<String, String>, String, List<TimeValue>> cell : entry.timeSeries.cellSet()) {
+      List<TimeValue> timeValues = subList(cell.getValue(), query.getStartTs(), closedEndTs);
+      if (!timeValues.isEmpty()) {
+        result.put(cell.getRowKey(), cell.getColumnKey(), new ArrayList<>(timeValues));
+      }
+    }
+
+    if (closedEndTs <= query.getEndTs()) {
+      for (TimeSeries timeSeries : delegate.query(rawQuery(query, closedEndTs, query.getEndTs()))) {
+        List<TimeValue> timeValues = result.get(timeSeries.getDimensionValues(), timeSeries.getMeasureName());
+        if (timeValues == null) {
+          result.put(timeSeries.getDimensionValues(), timeSeries.getMeasureName(),
+                     new ArrayList<>(timeSeries.getTimeValues()));
+        } else {
+          timeValues.addAll(timeSeries.getTimeValues());
+        }
+      }
+    }
+
+    return toQueryResult(query, result);
+  }
+
+  @Override
+  public void delete(CubeDeleteQuery query) {
+    cache.invalidateAll();
+    delegate.delete(query);
+  }
+
+  @Override
+  public Collection<DimensionValue> findDimensionValues(CubeExploreQuery query) {
+    return delegate.findDimensionValues(query);
+  }
+
+  @Override
+  public Collection<String> findMeasureNames(CubeExploreQuery query) {
+    return delegate.findMeasureNames(query);
+  }
+
+  @Override
+  public void setMetricsCollector(MetricsCollector metricsCollector) {
+    this.metrics = metricsCollector;
+    delegate.setMetricsCollector(metricsCollector);
+  }
+
+  @Override
+  public void write(Object ignored, CubeFact cubeFact) {
+    delegate.write(ignored, cubeFact);
+  }
+
+  @Override
+  public void close() throws IOException {
+    cache.invalidateAll();
+    delegate.close();
+  }
+
+  /**
+   * Returns the {@link Entry} that covers the given time range, querying the delegate for what is missing from
+   * the cache. The entry is only cached if the delegate query was not truncated by the scan limit.
+   */
+  private Entry getEntry(QueryKey key, long startTs, long endTs) {
+    Entry entry = cache.getIfPresent(key);
+    long now = System.currentTimeMillis();
+    if (entry != null && entry.createTime + expireMillis < now) {
+      entry = null;
+    }
+    if (entry != null && entry.startTs <= startTs && entry.endTs >= endTs) {
+      recordHit(true);
+      return entry;
+    }
+
+    AtomicBoolean truncated = new AtomicBoolean();
+    if (entry != null && entry.startTs <= startTs && entry.endTs >= startTs) {
+      // Only the time buckets closed since the entry was cached need to be queried
+      recordHit(true);
+      entry = entry.extend(delegate.query(key.toQuery(entry.endTs, endTs - 1), truncated), endTs);
+    } else {
+      recordHit(false);
+      entry = new Entry(now, startTs, startTs, HashBasedTable.<Map<String, String>, String, List<TimeValue>>create(), 0)
+        .extend(delegate.query(key.toQuery(startTs, endTs - 1), truncated), endTs);
+    }
+    if (truncated.get()) {
+      incrementMetric("cube.query.cache.truncated.count", 1);
+    } else {
+      cache.put(key, entry);
+    }
+    return entry;
+  }
+
+  private void incrementMetric(String metricName, long value) {
+    if (metrics != null) {
+      metrics.increment(metricName, value);
+    }
+  }
+
+  private void recordHit(boolean hit) {
+    long hitCount = hit ? hits.incrementAndGet() : hits.get();
+    long missCount = hit ? misses.get() : misses.incrementAndGet();
+    if (metrics != null) {
+      metrics.increment(hit ? "cube.query.cache.hit.count" : "cube.query.cache.miss.count", 1);
+      metrics.gauge("cube.query.cache.hit.ratio.percent", hitCount * 100 / (hitCount + missCount));
+      metrics.gauge("cube.query.cache.size", cache.size());
+    }
+  }
+
+  /**
+   * Applies the interpolator and limit of the given query to the time series.
+   */
+  private Collection<TimeSeries> toQueryResult(CubeQuery query,
+                                               Table<Map<String, String>, String, List<TimeValue>> timeSeries) {
+    List<TimeSeries> result = Lists.newArrayList();
+    for (Table.Cell<Map<String, String>, String, List<TimeValue>> cell : timeSeries.cellSet()) {
+      List<TimeValue> timeValues = new ArrayList<>();
+      for (TimeValue timeValue : new TimeSeriesInterpolator(cell.getValue(), query.getInterpolator(),
+                                                            query.getResolution())) {
+        timeValues.add(timeValue);
+        if (timeValues.size() >= query.getLimit()) {
+          break;
+        }
+      }
+      result.add(new TimeSeries(cell.getColumnKey(), cell.getRowKey(), timeValues));
+    }
+    return result;
+  }
+
+  /**
+   * Returns a query that is the same as the given one, but for the given time range and without limit and
+   * interpolation, for querying the values to be combined with cached values.
+   */
+  private static CubeQuery rawQuery(CubeQuery query, long startTs, long endTs) {
+    return new CubeQuery(query.getAggregation(), startTs, endTs, query.getResolution(), Integer.MAX_VALUE,
+                         query.getMeasurements(), query.getDimensionValues(), query.getGroupByDimensions(), null);
+  }
+
+  /**
+   * Returns the part of a sorted list of {@link TimeValue} that is in the given time range.
+   */
+  private static List<TimeValue> subList(List<TimeValue> timeValues, long startTs, long endTs) {
+    int from = Collections.binarySearch(timeValues, new TimeValue(startTs, 0L));
+    from = from < 0 ? -from - 1 : from;
+    int to = Collections.binarySearch(timeValues, new TimeValue(endTs, 0L));
+    to = to < 0 ? -to - 1 : to;
+    return timeValues.subList(from, Math.max(from, to));
+  }
+
+  private static long alignDown(long ts, int resolution) {
+    return ts < 0 ? 0 : ts / resolution * resolution;
+  }
+
+  /**
+   * The cache key, which is a {@link CubeQuery} without its time range, limit and interpolator.
+   */
+  private static final class QueryKey {
+    private final String aggregation;
+    private final int resolution;
+    private final Map<String, AggregationFunction> measurements;
+    private final Map<String, String> dimensionValues;
+    // Order of the group by dimensions doesn't affect the query result
+    private final SortedSet<String> groupByDimensions;
+    private final int hashCode;
+
+    QueryKey(CubeQuery query) {
+      this.aggregation = query.getAggregation();
+      this.resolution = query.getResolution();
+      this.measurements = new HashMap<>(query.getMeasurements());
+      this.dimensionValues = new HashMap<>(query.getDimensionValues());
+      this.groupByDimensions = ImmutableSortedSet.copyOf(query.getGroupByDimensions());
+      this.hashCode = Objects.hashCode(aggregation, resolution, measurements, dimensionValues, groupByDimensions);
+    }
+
+    CubeQuery toQuery(long startTs, long endTs) {
+      return new CubeQuery(aggregation, startTs, endTs, resolution, Integer.MAX_VALUE, measurements,
+                           dimensionValues, new ArrayList<>(groupByDimensions), null);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      QueryKey other = (QueryKey) o;
+      return resolution == other.resolution
+        && Objects.equal(aggregation, other.aggregation)
+        && measurements.equals(other.measurements)
+        && dimensionValues.equals(other.dimensionValues)
+        && groupByDimensions.equals(other.groupByDimensions);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  /**
+   * Cached time series of closed time buckets in the range of {@code [startTs, endTs)}. Instances are immutable,
+   * so that they can be shared across concurrent queries.
+   */
+  private static final class Entry {
+    private final long createTime;
+    private final long startTs;
+    private final long endTs;
+    private final Table<Map<String, String>, String, List<TimeValue>> timeSeries;
+    private final int size;
+
+    Entry(long createTime, long startTs, long endTs,
+          Table<Map<String, String>, String, List<TimeValue>> timeSeries, int size) {
+      this.createTime = createTime;
+      this.startTs = startTs;
+      this.endTs = endTs;
+      this.timeSeries = timeSeries;
+      this.size = size;
+    }
+
+    /**
+     * Returns a new {@link Entry} that has the time series of this entry, followed by the given time series that
+     * are up to the given end time.
+     */
+    Entry extend(Collection<TimeSeries> newTimeSeries, long newEndTs) {
+      Table<Map<String, String>, String, List<TimeValue>> result = HashBasedTable.create(timeSeries);
+      int newSize = size;
+      for (TimeSeries series : newTimeSeries) {
+        List<TimeValue> timeValues = result.get(series.getDimensionValues(), series.getMeasureName());
+        List<TimeValue> combined = new ArrayList<>((timeValues == null ? 0 : timeValues.size())
+                                                     + series.getTimeValues().size());
+        if (timeValues != null) {
+          combined.addAll(timeValues);
+        }
+        combined.addAll(series.getTimeValues());
+        result.put(series.getDimensionValues(), series.getMeasureName(), Collections.unmodifiableList(combined));
+        newSize += series.getTimeValues().size();
+      }
+      return new Entry(createTime, startTs, newEndTs, result, newSize);
+    }
+  }
+}
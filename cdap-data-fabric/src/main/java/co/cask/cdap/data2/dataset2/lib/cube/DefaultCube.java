@@ -33,12 +33,11 @@ import co.cask.cdap.data2.dataset2.lib.timeseries.FactScan;
 import co.cask.cdap.data2.dataset2.lib.timeseries.FactScanResult;
 import co.cask.cdap.data2.dataset2.lib.timeseries.FactScanner;
 import co.cask.cdap.data2.dataset2.lib.timeseries.FactTable;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.google.common.collect.PeekingIterator;
 import com.google.common.collect.Sets;
 import com.google.common.collect.Table;
 import org.slf4j.Logger;
@@ -46,12 +45,13 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.SortedSet;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.Nullable;
 
 /**
@@ -67,6 +67,7 @@ public class DefaultCube implements Cube, MeteredDataset {
   private final Map<Integer, FactTable> resolutionToFactTable;
   private final Map<String, ? extends Aggregation> aggregations;
   private final Map<String, AggregationAlias> aggregationAliasMap;
+  private final int maxRecordsToScan;
 
   @Nullable
   private MetricsCollector metrics;
@@ -74,12 +75,20 @@ public class DefaultCube implements Cube, MeteredDataset {
   public DefaultCube(int[] resolutions, FactTableSupplier factTableSupplier,
                      Map<String, ? extends Aggregation> aggregations,
                      Map<String, AggregationAlias> aggregationAliasMap) {
+    this(resolutions, factTableSupplier, aggregations, aggregationAliasMap, MAX_RECORDS_TO_SCAN);
+  }
+
+  @VisibleForTesting
+  DefaultCube(int[] resolutions, FactTableSupplier factTableSupplier,
+              Map<String, ? extends Aggregation> aggregations,
+              Map<String, AggregationAlias> aggregationAliasMap, int maxRecordsToScan) {
     this.aggregations = aggregations;
     this.resolutionToFactTable = Maps.newHashMap();
     for (int resolution : resolutions) {
       resolutionToFactTable.put(resolution, factTableSupplier.get(resolution, 3600));
     }
     this.aggregationAliasMap = aggregationAliasMap;
+    this.maxRecordsToScan = maxRecordsToScan;
   }
 
   @Override
@@ -126,6 +135,17 @@ public class DefaultCube implements Cube, MeteredDataset {
 
   @Override
   public Collection<TimeSeries> query(CubeQuery query) {
+    return query(query, null);
+  }
+
+  /**
+   * Executes the given query.
+   *
+   * @param query the query to execute
+   * @param truncated if not {@code null}, set to {@code true} if the scan stopped at the maximum number of records
+   *                  to scan, in which case the result is incomplete
+   */
+  Collection<TimeSeries> query(CubeQuery query, @Nullable AtomicBoolean truncated) {
     /*
       CubeQuery example: "dataset read ops for app per dataset". Or:
 
@@ -164,7 +184,8 @@ public class DefaultCube implements Cube, MeteredDataset {
 
     incrementMetric("cube.query.request.count", 1);
 
-    if (!resolutionToFactTable.containsKey(query.getResolution())) {
+    FactTable table = resolutionToFactTable.get(query.getResolution());
+    if (table == null) {
       incrementMetric("cube.query.request.failure.count", 1);
       throw new IllegalArgumentException("There's no data aggregated for specified resolution to satisfy the query: " +
                                            query.toString());
@@ -208,9 +229,8 @@ public class DefaultCube implements Cube, MeteredDataset {
                                  query.getMeasurements().keySet(), dimensionValues);
 
     // 3) execute scan query
-    FactTable table = resolutionToFactTable.get(query.getResolution());
     FactScanner scanner = table.scan(scan);
-    Table<Map<String, String>, String, Map<Long, Long>> resultMap = getTimeSeries(query, scanner);
+    Table<Map<String, String>, String, TimeSeriesAccumulator> resultMap = getTimeSeries(query, scanner, truncated);
 
     incrementMetric("cube.query.request.success.count", 1);
     incrementMetric("cube.query.result.size", resultMap.size());
@@ -329,9 +349,11 @@ public class DefaultCube implements Cube, MeteredDataset {
     return currentBest;
   }
 
-  private Table<Map<String, String>, String, Map<Long, Long>> getTimeSeries(CubeQuery query, FactScanner scanner) {
+  private Table<Map<String, String>, String, TimeSeriesAccumulator> getTimeSeries(CubeQuery query,
+                                                                                 FactScanner scanner,
+                                                                                 @Nullable AtomicBoolean truncated) {
     // {dimension values, measure} -> {time -> value}s
-    Table<Map<String, String>, String, Map<Long, Long>> result = HashBasedTable.create();
+    Table<Map<String, String>, String, TimeSeriesAccumulator> result = HashBasedTable.create();
 
     int count = 0;
     while (scanner.hasNext()) {
@@ -366,34 +388,27 @@ public class DefaultCube implements Cube, MeteredDataset {
         continue;
       }
 
-      for (TimeValue timeValue : next) {
-        Map<Long, Long> timeValues = result.get(seriesDimensions, next.getMeasureName());
-        if (timeValues == null) {
-          result.put(seriesDimensions, next.getMeasureName(), Maps.<Long, Long>newHashMap());
+      Iterator<TimeValue> timeValues = next.iterator();
+      if (timeValues.hasNext()) {
+        TimeSeriesAccumulator accumulator = result.get(seriesDimensions, next.getMeasureName());
+        if (accumulator == null) {
+          AggregationFunction function = query.getMeasurements().get(next.getMeasureName());
+          if (function == null) {
+            // should never happen: developer error
+            throw new RuntimeException("Unknown MeasureType: " + function);
+          }
+          accumulator = new TimeSeriesAccumulator(function, query.getResolution());
+          result.put(seriesDimensions, next.getMeasureName(), accumulator);
         }
-
-        AggregationFunction function = query.getMeasurements().get(next.getMeasureName());
-        if (AggregationFunction.SUM == function) {
-          Long value =  result.get(seriesDimensions, next.getMeasureName()).get(timeValue.getTimestamp());
-          value = value == null ? 0 : value;
-          value += timeValue.getValue();
-          result.get(seriesDimensions, next.getMeasureName()).put(timeValue.getTimestamp(), value);
-        } else if (AggregationFunction.MAX == function) {
-          Long value = result.get(seriesDimensions, next.getMeasureName()).get(timeValue.getTimestamp());
-          value = value != null && value > timeValue.getValue() ? value : timeValue.getValue();
-          result.get(seriesDimensions, next.getMeasureName()).put(timeValue.getTimestamp(), value);
-        } else if (AggregationFunction.MIN == function) {
-          Long value =  result.get(seriesDimensions, next.getMeasureName()).get(timeValue.getTimestamp());
-          value = value != null && value < timeValue.getValue() ? value : timeValue.getValue();
-          result.get(seriesDimensions, next.getMeasureName()).put(timeValue.getTimestamp(), value);
-        } else if (AggregationFunction.LATEST == function) {
-          result.get(seriesDimensions, next.getMeasureName()).put(timeValue.getTimestamp(), timeValue.getValue());
-        } else {
-          // should never happen: developer error
-          throw new RuntimeException("Unknown MeasureType: " + function);
+        while (timeValues.hasNext()) {
+          TimeValue timeValue = timeValues.next();
+          accumulator.add(timeValue.getTimestamp(), timeValue.getValue());
         }
       }
-      if (++count >= MAX_RECORDS_TO_SCAN) {
+      if (++count >= maxRecordsToScan) {
+        if (truncated != null) {
+          truncated.set(scanner.hasNext());
+        }
         break;
       }
     }
@@ -402,26 +417,22 @@ public class DefaultCube implements Cube, MeteredDataset {
 
   private Collection<TimeSeries> convertToQueryResult(CubeQuery query,
                                                       Table<Map<String, String>, String,
-                                                        Map<Long, Long>> resultTable) {
+                                                        TimeSeriesAccumulator> resultTable) {
 
     List<TimeSeries> result = Lists.newArrayList();
     // iterating each groupValue dimensions
-    for (Map.Entry<Map<String, String>, Map<String, Map<Long, Long>>> row : resultTable.rowMap().entrySet()) {
+    for (Map.Entry<Map<String, String>, Map<String, TimeSeriesAccumulator>> row : resultTable.rowMap().entrySet()) {
       // iterating each measure
-      for (Map.Entry<String, Map<Long, Long>> measureEntry : row.getValue().entrySet()) {
-        // generating time series for a grouping and a measure
+      for (Map.Entry<String, TimeSeriesAccumulator> measureEntry : row.getValue().entrySet()) {
+        // generating time series for a grouping and a measure. Each interpolated value consumes at most one
+        // data point, plus one more point to interpolate towards, hence no need to materialize more than that.
         int count = 0;
-        List<TimeValue> timeValues = Lists.newArrayList();
-        for (Map.Entry<Long, Long> timeValue : measureEntry.getValue().entrySet()) {
-          timeValues.add(new TimeValue(timeValue.getKey(), timeValue.getValue()));
-        }
-        Collections.sort(timeValues);
-        PeekingIterator<TimeValue> timeValueItor = Iterators.peekingIterator(
-          new TimeSeriesInterpolator(timeValues, query.getInterpolator(), query.getResolution()).iterator());
+        List<TimeValue> timeValues = measureEntry.getValue().getTimeValues(Math.max(query.getLimit(), 1) + 1L);
+        Iterator<TimeValue> timeValueItor =
+          new TimeSeriesInterpolator(timeValues, query.getInterpolator(), query.getResolution()).iterator();
         List<TimeValue> resultTimeValues = Lists.newArrayList();
         while (timeValueItor.hasNext()) {
-          TimeValue timeValue = timeValueItor.next();
-          resultTimeValues.add(new TimeValue(timeValue.getTimestamp(), timeValue.getValue()));
+          resultTimeValues.add(timeValueItor.next());
           if (++count >= query.getLimit()) {
             break;
           }
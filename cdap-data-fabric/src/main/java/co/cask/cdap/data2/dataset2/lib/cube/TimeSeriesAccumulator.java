@@ -0,0 +1,203 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.lib.cube;
+
+import co.cask.cdap.api.dataset.lib.cube.AggregationFunction;
+import co.cask.cdap.api.dataset.lib.cube.TimeValue;
+import com.google.common.base.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Accumulates the values of a single time series of a {@link co.cask.cdap.api.dataset.lib.cube.CubeQuery} result
+ * in primitive arrays. Values are placed in time buckets aligned to the resolution of the accumulator, and values
+ * in the same bucket are combined with the {@link AggregationFunction} of the query. Values added with a finer
+ * resolution are therefore downsampled to the resolution of the accumulator on the fly.
+ *
+ * Buckets are allocated in fixed-size pages on demand, so that sparse series over long time ranges don't allocate
+ * memory for the whole range. Instances of this class are not thread safe.
+ */
+final class TimeSeriesAccumulator {
+
+  // Small pages with 64 buckets each, so that the presence of values can be tracked with one long
+  private static final int PAGE_SHIFT = 6;
+  private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+  private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+  private final AggregationFunction function;
+  private final int resolution;
+  private final Map<Long, Page> pages;
+
+  // Points are usually added in time order, hence remember the last page to avoid map lookups
+  private long lastPageIndex;
+  private Page lastPage;
+  private int size;
+
+  /**
+   * Creates a new instance.
+   *
+   * @param function the {@link AggregationFunction} for combining values in the same time bucket
+   * @param resolution the resolution in seconds of the time buckets
+   */
+  TimeSeriesAccumulator(AggregationFunction function, int resolution) {
+    Preconditions.checkArgument(resolution > 0, "Resolution must be positive: %s", resolution);
+    this.function = function;
+    this.resolution = resolution;
+    this.pages = new HashMap<>();
+  }
+
+  /**
+   * Adds a value to the time bucket that contains the given timestamp.
+   *
+   * @param timestamp timestamp in seconds
+   * @param value the value to add
+   */
+  void add(long timestamp, long value) {
+    long bucket = floorDiv(timestamp, resolution);
+    Page page = getPage(bucket >> PAGE_SHIFT);
+    int idx = (int) (bucket & PAGE_MASK);
+
+    if (!page.isSet(idx)) {
+      page.set(idx, value, timestamp);
+      size++;
+      return;
+    }
+
+    long current = page.values[idx];
+    switch (function) {
+      case SUM:
+        page.values[idx] = current + value;
+        break;
+      case MAX:
+        page.values[idx] = Math.max(current, value);
+        break;
+      case MIN:
+        page.values[idx] = Math.min(current, value);
+        break;
+      case LATEST:
+        // Keep the value with the latest timestamp. For the same timestamp, the one added last wins.
+        if (timestamp >= page.timestamps[idx]) {
+          page.values[idx] = value;
+          page.timestamps[idx] = timestamp;
+        }
+        break;
+      default:
+        // should never happen: developer error
+        throw new RuntimeException("Unknown MeasureType: " + function);
+    }
+  }
+
+  /**
+   * Returns the number of time buckets that have value.
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Returns the values in time order, with the timestamp of each value set to the start of its time bucket.
+   *
+   * @param limit maximum number of values to return
+   */
+  List<TimeValue> getTimeValues(long limit) {
+    List<TimeValue> result = new ArrayList<>((int) Math.min(size, limit));
+    if (limit <= 0) {
+      return result;
+    }
+
+    long[] pageIndices = new long[pages.size()];
+    int i = 0;
+    for (Long pageIndex : pages.keySet()) {
+      pageIndices[i++] = pageIndex;
+    }
+    Arrays.sort(pageIndices);
+
+    for (long pageIndex : pageIndices) {
+      Page page = pages.get(pageIndex);
+      long baseBucket = pageIndex << PAGE_SHIFT;
+      for (int idx = page.nextSet(0); idx >= 0; idx = page.nextSet(idx + 1)) {
+        result.add(new TimeValue((baseBucket + idx) * resolution, page.values[idx]));
+        if (result.size() >= limit) {
+          return result;
+        }
+      }
+    }
+    return result;
+  }
+
+  private Page getPage(long pageIndex) {
+    if (lastPage != null && lastPageIndex == pageIndex) {
+      return lastPage;
+    }
+    Page page = pages.get(pageIndex);
+    if (page == null) {
+      page = new Page(function == AggregationFunction.LATEST);
+      pages.put(pageIndex, page);
+    }
+    lastPageIndex = pageIndex;
+    lastPage = page;
+    return page;
+  }
+
+  private static long floorDiv(long x, long y) {
+    long result = x / y;
+    return (x % y != 0 && ((x ^ y) < 0)) ? result - 1 : result;
+  }
+
+  /**
+   * A fixed-size page of time buckets.
+   */
+  private static final class Page {
+    private final long[] values;
+    // Source timestamp of each value, only needed for the LATEST function
+    private final long[] timestamps;
+    // Bit set of buckets that have value
+    private long present;
+
+    Page(boolean trackTimestamps) {
+      this.values = new long[PAGE_SIZE];
+      this.timestamps = trackTimestamps ? new long[PAGE_SIZE] : null;
+    }
+
+    boolean isSet(int idx) {
+      return (present & (1L << idx)) != 0;
+    }
+
+    void set(int idx, long value, long timestamp) {
+      present |= 1L << idx;
+      values[idx] = value;
+      if (timestamps != null) {
+        timestamps[idx] = timestamp;
+      }
+    }
+
+    /**
+     * Returns the index of the first bucket that has value, starting from the given index, or {@code -1} if none.
+     */
+    int nextSet(int fromIdx) {
+      if (fromIdx >= PAGE_SIZE) {
+        return -1;
+      }
+      long bits = present & (-1L << fromIdx);
+      return bits == 0 ? -1 : Long.numberOfTrailingZeros(bits);
+    }
+  }
+}
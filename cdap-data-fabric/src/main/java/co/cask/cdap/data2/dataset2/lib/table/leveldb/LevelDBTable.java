@@ -30,6 +30,7 @@ import co.cask.cdap.data2.dataset2.lib.table.BufferingTable;
 import co.cask.cdap.data2.dataset2.lib.table.FuzzyRowFilter;
 import co.cask.cdap.data2.dataset2.lib.table.IncrementValue;
 import co.cask.cdap.data2.dataset2.lib.table.PutValue;
+import co.cask.cdap.data2.dataset2.lib.table.TableProperties;
 import co.cask.cdap.data2.dataset2.lib.table.Update;
 import co.cask.cdap.data2.dataset2.lib.table.inmemory.PrefixedNamespaces;
 import com.google.common.collect.Maps;
@@ -45,21 +46,28 @@ import javax.annotation.Nullable;
 public class LevelDBTable extends BufferingTable {
 
   private final LevelDBTableCore core;
+  private final boolean enableReadlessIncrements;
   private long persistedVersion;
 
   public LevelDBTable(DatasetContext datasetContext, String tableName,
                       LevelDBTableService service, CConfiguration cConf,
                       DatasetSpecification spec) throws IOException {
     super(PrefixedNamespaces.namespace(cConf, datasetContext.getNamespaceId(), tableName),
-          false, spec.getProperties());
-    this.core = new LevelDBTableCore(getTableName(), service);
+          TableProperties.supportsReadlessIncrements(spec.getProperties()), spec.getProperties());
+    this.enableReadlessIncrements = TableProperties.supportsReadlessIncrements(spec.getProperties());
+    this.core = new LevelDBTableCore(getTableName(), service, enableReadlessIncrements);
   }
 
   @WriteOnly
   @Override
   public void increment(byte[] row, byte[][] columns, long[] amounts) {
-    // for local operation with leveldb, we don't worry about the cost of reads
-    internalIncrementAndGet(row, columns, amounts);
+    if (enableReadlessIncrements) {
+      // increments are persisted as deltas, which are summed up at read time
+      super.increment(row, columns, amounts);
+    } else {
+      // for local operation with leveldb, we don't worry about the cost of reads
+      internalIncrementAndGet(row, columns, amounts);
+    }
   }
 
   @Override
@@ -96,8 +104,12 @@ public class LevelDBTable extends BufferingTable {
   @WriteOnly
   private void persist(NavigableMap<byte[], NavigableMap<byte[], Long>> increments,
                        NavigableMap<byte[], NavigableMap<byte[], byte[]>> puts) throws IOException {
-    for (Map.Entry<byte[], NavigableMap<byte[], Long>> incEntry : increments.entrySet()) {
-      core.increment(incEntry.getKey(), incEntry.getValue());
+    if (enableReadlessIncrements) {
+      core.persistIncrements(increments, persistedVersion);
+    } else {
+      for (Map.Entry<byte[], NavigableMap<byte[], Long>> incEntry : increments.entrySet()) {
+        core.increment(incEntry.getKey(), incEntry.getValue());
+      }
     }
     core.persist(puts, persistedVersion);
   }
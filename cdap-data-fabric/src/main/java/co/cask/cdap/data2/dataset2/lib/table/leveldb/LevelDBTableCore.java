@@ -36,10 +36,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
 import javax.annotation.Nullable;
@@ -65,6 +67,14 @@ public class LevelDBTableCore {
   // used for obtaining the next row/column for upper bound
   private static final byte[] ONE_ZERO = { 0x00 };
 
+  // prefix bytes used to mark values that are increment deltas vs. full sums, same as for HBase tables
+  private static final byte[] DELTA_MAGIC_PREFIX = { 'X', 'D' };
+  // expected length for values storing deltas (prefix + increment value)
+  private static final int DELTA_FULL_LENGTH = DELTA_MAGIC_PREFIX.length + Bytes.SIZEOF_LONG;
+
+  // number of deltas of a column encountered in a read that triggers folding of the deltas
+  private static final int FOLD_DELTAS_THRESHOLD = 32;
+
   private static byte[] upperBound(byte[] column) {
     return Bytes.add(column, ONE_ZERO);
   }
@@ -77,10 +87,18 @@ public class LevelDBTableCore {
 
   private final String tableName;
   private final LevelDBTableService service;
+  // whether values can be increment deltas; for other tables, values with the delta prefix are regular values
+  private final boolean readlessIncrements;
 
   public LevelDBTableCore(String tableName, LevelDBTableService service) throws IOException {
+    this(tableName, service, false);
+  }
+
+  public LevelDBTableCore(String tableName, LevelDBTableService service,
+                          boolean readlessIncrements) throws IOException {
     this.tableName = tableName;
     this.service = service;
+    this.readlessIncrements = readlessIncrements;
   }
 
   private DB getDB() throws IOException {
@@ -170,6 +188,24 @@ public class LevelDBTableCore {
     db.write(batch, service.getWriteOptions());
   }
 
+  /**
+   * Writes the given increments as delta values, without reading the existing values. The deltas are summed up
+   * with the existing value of the column at read time.
+   */
+  public void persistIncrements(Map<byte[], ? extends Map<byte[], Long>> increments, long version)
+    throws IOException {
+    Preconditions.checkState(readlessIncrements, "Readless increments are not enabled for table %s", tableName);
+    DB db = getDB();
+    WriteBatch batch = db.createWriteBatch();
+    for (Map.Entry<byte[], ? extends Map<byte[], Long>> row : increments.entrySet()) {
+      for (Map.Entry<byte[], Long> column : row.getValue().entrySet()) {
+        byte[] key = createPutKey(row.getKey(), column.getKey(), version);
+        batch.put(key, Bytes.add(DELTA_MAGIC_PREFIX, Bytes.toBytes(column.getValue())));
+      }
+    }
+    db.write(batch, service.getWriteOptions());
+  }
+
   public void put(byte[] row, byte[] column, byte[] value, long version) throws IOException {
     getDB().put(createPutKey(row, column, version), value);
   }
@@ -203,7 +239,7 @@ public class LevelDBTableCore {
     DBIterator iterator = getDB().iterator();
     seekToStart(iterator, startRow);
     byte[] endKey = stopRow == null ? null : createEndKey(stopRow);
-    return new LevelDBScanner(iterator, endKey, filter, columns, tx);
+    return new LevelDBScanner(this, iterator, endKey, filter, columns, tx);
   }
 
   /**
@@ -223,9 +259,88 @@ public class LevelDBTableCore {
 
     byte[] startKey = createStartKey(row, columns == null ? startCol : columns[0]);
     byte[] endKey = createEndKey(row, columns == null ? stopCol : upperBound(columns[columns.length - 1]));
+    List<byte[]> foldColumns = new ArrayList<>();
+    NavigableMap<byte[], byte[]> result;
     try (DBIterator iterator = getDB().iterator()) {
       iterator.seek(startKey);
-      return getRow(iterator, endKey, tx, false, columns, limit).getSecond();
+      result = getRow(iterator, endKey, tx, false, columns, limit, readlessIncrements, foldColumns).getSecond();
+    }
+    foldIncrements(row, foldColumns, tx);
+    return result;
+  }
+
+  /**
+   * Folds the increment deltas of the given columns that are visible to all transactions into one value, so that
+   * reads don't need to sum up the same deltas again. LevelDB doesn't provide hooks into its compaction,
+   * hence this is done when a read comes across a large number of deltas for a column.
+   *
+   * @param row the row of the columns
+   * @param columns the columns to fold
+   * @param tx the transaction of the read, which is used to determine the deltas visible to all transactions
+   */
+  private void foldIncrements(byte[] row, Collection<byte[]> columns, @Nullable Transaction tx) throws IOException {
+    if (!readlessIncrements || tx == null || columns.isEmpty()) {
+      return;
+    }
+    DB db = getDB();
+    WriteBatch batch = db.createWriteBatch();
+    try (DBIterator iterator = db.iterator()) {
+      for (byte[] column : columns) {
+        addToFoldBatch(batch, iterator, row, column, tx);
+      }
+    }
+    db.write(batch, getWriteOptions());
+  }
+
+  /**
+   * Helper to add the writes for folding the increment deltas of a column to a batch. All deltas that are
+   * visible to all transactions, together with the value below them, are replaced by their sum written
+   * at the version of the latest delta.
+   */
+  private void addToFoldBatch(WriteBatch batch, DBIterator iterator, byte[] row, byte[] column, Transaction tx) {
+    byte[] endKey = createEndKey(row, upperBound(column));
+    iterator.seek(createStartKey(row, column));
+
+    byte[] latestKey = null;
+    List<byte[]> foldedKeys = new ArrayList<>();
+    long sum = 0L;
+    while (iterator.hasNext()) {
+      Map.Entry<byte[], byte[]> entry = iterator.next();
+      if (KeyValue.KEY_COMPARATOR.compare(entry.getKey(), endKey) >= 0) {
+        break;
+      }
+      long version = KeyValue.fromKey(entry.getKey()).getTimestamp();
+      // Only fold values that are committed and visible to all current and future transactions
+      if (version >= tx.getVisibilityUpperBound() || Arrays.binarySearch(tx.getInvalids(), version) >= 0) {
+        continue;
+      }
+
+      byte[] value = entry.getValue();
+      if (latestKey == null) {
+        if (!isDelta(value)) {
+          // Latest value is a full value already, nothing to fold
+          return;
+        }
+        latestKey = entry.getKey();
+      } else {
+        foldedKeys.add(entry.getKey());
+      }
+      if (isDelta(value)) {
+        sum += getDelta(value);
+        continue;
+      }
+      if (!Bytes.equals(value, DELETE_MARKER)) {
+        sum += toLong(row, column, value);
+      }
+      break;
+    }
+
+    if (latestKey == null || foldedKeys.isEmpty()) {
+      return;
+    }
+    batch.put(latestKey, Bytes.toBytes(sum));
+    for (byte[] key : foldedKeys) {
+      batch.delete(key);
     }
   }
 
@@ -255,18 +370,25 @@ public class LevelDBTableCore {
    *                 advanced past the beginning of the next row (so that next time, we still see the entire next row).
    * @param columns If non-null, only columns contained in this will be returned. The given columns should be sorted.
    * @param limit If non-negative, at most this many columns will be returned. If multiRow is true, this is ignored.
+   * @param readlessIncrements If true, values can be increment deltas that are summed up with the older values.
+   * @param foldColumns A list to add the columns that have enough increment deltas to be worth folding
    * @return a pair consisting of the row key of the next non-empty row and the column map for that row. If multiRow
    *         is false, null is returned for row key because the caller already knows it.
    */
   private static ImmutablePair<byte[], NavigableMap<byte[], byte[]>>
-  getRow(DBIterator iterator, byte[] endKey, Transaction tx, boolean multiRow, byte[][] columns, int limit)
-    throws IOException {
+  getRow(DBIterator iterator, byte[] endKey, Transaction tx, boolean multiRow, byte[][] columns, int limit,
+         boolean readlessIncrements, List<byte[]> foldColumns) throws IOException {
 
     byte[] rowBeingRead = null;
     byte[] previousRow = null;
     byte[] previousCol = null;
     NavigableMap<byte[], byte[]> map = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
 
+    // whether the value of the previous column is being summed up from increment deltas
+    boolean summing = false;
+    long sum = 0L;
+    int deltas = 0;
+
     while (iterator.hasNext()) {
       Map.Entry<byte[], byte[]> entry = iterator.peekNext();
 
@@ -300,8 +422,35 @@ public class LevelDBTableCore {
       boolean seenThisColumn = previousRow != null && Bytes.equals(previousRow, row) &&
                                previousCol != null && Bytes.equals(previousCol, column);
       if (seenThisColumn) {
+        // older versions only matter if the newer ones are increment deltas
+        if (summing) {
+          byte[] value = entry.getValue();
+          if (isDelta(value)) {
+            sum += getDelta(value);
+            deltas++;
+            continue;
+          }
+          if (!Bytes.equals(value, DELETE_MARKER)) {
+            sum += toLong(row, column, value);
+          }
+          summing = false;
+          addSum(map, previousCol, sum, deltas, foldColumns);
+          if (limit > 0 && map.size() >= limit) {
+            break;
+          }
+        }
         continue;
       }
+
+      // a new column is reached, hence the deltas of the previous column are all summed up
+      if (summing) {
+        summing = false;
+        addSum(map, previousCol, sum, deltas, foldColumns);
+        if (limit > 0 && map.size() >= limit) {
+          break;
+        }
+      }
+
       // remember that this is the last column we have seen
       previousRow = row;
       previousCol = column;
@@ -309,6 +458,16 @@ public class LevelDBTableCore {
       // is it a column we want?
       if (columns == null || Arrays.binarySearch(columns, column, Bytes.BYTES_COMPARATOR) >= 0) {
         byte[] value = entry.getValue();
+        if (readlessIncrements && isDelta(value)) {
+          // the value of the column is the sum of this and the older values
+          summing = true;
+          sum = getDelta(value);
+          deltas = 1;
+          if (multiRow && rowBeingRead == null) {
+            rowBeingRead = kv.getRow();
+          }
+          continue;
+        }
         // only add to map if it is not a delete
         if (tx == null || !Bytes.equals(value, DELETE_MARKER)) {
           map.put(column, value);
@@ -322,10 +481,39 @@ public class LevelDBTableCore {
         }
       }
     }
+    if (summing) {
+      addSum(map, previousCol, sum, deltas, foldColumns);
+    }
     // note this will return null for the row being read if multiRow is false (because the caller knows the row)
     return new ImmutablePair<>(rowBeingRead, map);
   }
 
+  private static void addSum(NavigableMap<byte[], byte[]> map, byte[] column, long sum, int deltas,
+                             List<byte[]> foldColumns) {
+    map.put(column, Bytes.toBytes(sum));
+    if (deltas >= FOLD_DELTAS_THRESHOLD) {
+      foldColumns.add(column);
+    }
+  }
+
+  private static boolean isDelta(byte[] value) {
+    return value.length == DELTA_FULL_LENGTH
+      && Bytes.equals(value, 0, DELTA_MAGIC_PREFIX.length, DELTA_MAGIC_PREFIX, 0, DELTA_MAGIC_PREFIX.length);
+  }
+
+  private static long getDelta(byte[] value) {
+    return Bytes.toLong(value, DELTA_MAGIC_PREFIX.length);
+  }
+
+  private static long toLong(byte[] row, byte[] column, byte[] value) {
+    if (value.length != Bytes.SIZEOF_LONG) {
+      throw new NumberFormatException("Attempted to increment a value that is not convertible to long," +
+                                        " row: " + Bytes.toStringBinary(row) +
+                                        " column: " + Bytes.toStringBinary(column));
+    }
+    return Bytes.toLong(value);
+  }
+
   public void deleteRows(byte[] prefix) throws IOException {
     Preconditions.checkNotNull(prefix, "prefix must not be null");
     DB db = getDB();
@@ -405,7 +593,7 @@ public class LevelDBTableCore {
     DBIterator deleteIterator = db.iterator();
     seekToStart(deleteIterator, startRow);
     final int deletesPerRound = 1024; // todo make configurable
-    try (Scanner scanner = new LevelDBScanner(iterator, endKey, filter, columns, null)) {
+    try (Scanner scanner = new LevelDBScanner(this, iterator, endKey, filter, columns, null)) {
       Row rowValues;
       WriteBatch batch = db.createWriteBatch();
       int deletesInBatch = 0;
@@ -485,14 +673,16 @@ public class LevelDBTableCore {
    */
   private static class LevelDBScanner implements Scanner {
 
+    private final LevelDBTableCore core;
     private final Transaction tx;
     private byte[] endKey;
     private final DBIterator iterator;
     private final byte[][] columns;
     private final FuzzyRowFilter filter;
 
-    LevelDBScanner(DBIterator iterator, byte[] endKey,
+    LevelDBScanner(LevelDBTableCore core, DBIterator iterator, byte[] endKey,
                    @Nullable FuzzyRowFilter filter, @Nullable byte[][] columns, @Nullable Transaction tx) {
+      this.core = core;
       this.tx = tx;
       this.endKey = endKey;
       this.iterator = iterator;
@@ -504,10 +694,13 @@ public class LevelDBTableCore {
     public Row next() {
       try {
         while (true) {
-          ImmutablePair<byte[], NavigableMap<byte[], byte[]>> result = getRow(iterator, endKey, tx, true, columns, -1);
+          List<byte[]> foldColumns = new ArrayList<>();
+          ImmutablePair<byte[], NavigableMap<byte[], byte[]>> result =
+            getRow(iterator, endKey, tx, true, columns, -1, core.readlessIncrements, foldColumns);
           if (result.getFirst() == null) {
             return null;
           }
+          core.foldIncrements(result.getFirst(), foldColumns, tx);
           // apply row filter if any
           if (filter != null) {
             FuzzyRowFilter.ReturnCode code = filter.filterRow(result.getFirst());
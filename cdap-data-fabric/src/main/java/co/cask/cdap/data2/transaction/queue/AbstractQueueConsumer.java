@@ -221,7 +221,8 @@ public abstract class AbstractQueueConsumer implements QueueConsumer, Transactio
     boolean isReachedDequeueTimeLimit = false;
     Stopwatch stopwatch = new Stopwatch();
     stopwatch.start();
-    while (consumingEntries.size() < maxBatchSize && getEntries(consumingEntries, maxBatchSize, stopwatch)) {
+    while (consumingEntries.size() < maxBatchSize
+      && getEntries(consumingEntries, maxBatchSize, claimedStateValue, stopwatch)) {
 
       // ANDREAS: this while loop should stop once getEntries/populateCache reaches the end of the queue. Currently, it
       // will retry as long as it gets at least one entry in every round, even if that is an entry that must be ignored
@@ -281,16 +282,18 @@ public abstract class AbstractQueueConsumer implements QueueConsumer, Transactio
    * Try to dequeue (claim) entries up to a maximum size.
    * @param entries For claimed entries to fill in.
    * @param maxBatchSize Maximum number of entries to claim.
+   * @param claimedStateValue The state value of entries claimed by this consumer in the current transaction
+   *                          or {@code null} if claiming is not needed.
    * @return The entries instance.
    * @throws java.io.IOException
    */
-  private boolean getEntries(SortedMap<byte[], SimpleQueueEntry> entries,
-                             int maxBatchSize, Stopwatch stopwatch) throws IOException {
+  private boolean getEntries(SortedMap<byte[], SimpleQueueEntry> entries, int maxBatchSize,
+                             @Nullable byte[] claimedStateValue, Stopwatch stopwatch) throws IOException {
     boolean hasEntry = fetchFromCache(entries, maxBatchSize);
 
     // If not enough entries from the cache, try to get more.
     if (entries.size() < maxBatchSize) {
-      populateRowCache(entries.keySet(), maxBatchSize, stopwatch);
+      populateRowCache(entries.keySet(), maxBatchSize, claimedStateValue, stopwatch);
       hasEntry = fetchFromCache(entries, maxBatchSize) || hasEntry;
     }
 
@@ -311,7 +314,8 @@ public abstract class AbstractQueueConsumer implements QueueConsumer, Transactio
     return true;
   }
 
-  private void populateRowCache(Set<byte[]> excludeRows, int maxBatchSize, Stopwatch stopwatch) throws IOException {
+  private void populateRowCache(Set<byte[]> excludeRows, int maxBatchSize,
+                                @Nullable byte[] claimedStateValue, Stopwatch stopwatch) throws IOException {
 
     long readPointer = transaction.getReadPointer();
 
@@ -355,7 +359,6 @@ public abstract class AbstractQueueConsumer implements QueueConsumer, Transactio
           continue;
         }
 
-        // Based on the strategy to determine if include the given entry or not.
         byte[] dataBytes = entry.getSecond().get(QueueEntryRow.DATA_COLUMN);
         byte[] metaBytes = entry.getSecond().get(QueueEntryRow.META_COLUMN);
 
@@ -365,8 +368,11 @@ public abstract class AbstractQueueConsumer implements QueueConsumer, Transactio
 
         byte[] stateBytes = entry.getSecond().get(stateColumnName);
 
+        // An entry that was claimed for this consumer while scanning (see getScanner) can be consumed directly.
+        // Otherwise, based on the strategy to determine if include the given entry or not.
         int counter = Bytes.toInt(rowKey, rowKey.length - 4, Ints.BYTES);
-        if (!shouldInclude(writePointer, counter, metaBytes, stateBytes)) {
+        boolean claimed = claimedStateValue != null && Bytes.equals(claimedStateValue, stateBytes);
+        if (!claimed && !shouldInclude(writePointer, counter, metaBytes, stateBytes)) {
           continue;
         }
 
@@ -383,12 +389,7 @@ public abstract class AbstractQueueConsumer implements QueueConsumer, Transactio
   }
 
   private byte[] encodeStateColumn(ConsumerEntryState state) {
-    // State column content is encoded as (writePointer) + (instanceId) + (state)
-    byte[] stateContent = new byte[Longs.BYTES + Ints.BYTES + 1];
-    Bytes.putLong(stateContent, 0, transaction.getWritePointer());
-    Bytes.putInt(stateContent, Longs.BYTES, getConfig().getInstanceId());
-    Bytes.putByte(stateContent, Longs.BYTES + Ints.BYTES, state.getState());
-    return stateContent;
+    return QueueEntryRow.getStateValue(transaction.getWritePointer(), getConfig().getInstanceId(), state);
   }
 
   private boolean shouldInclude(long enqueueWritePointer, int counter,
@@ -84,6 +84,22 @@ public class QueueEntryRow {
     return Bytes.startsWith(columnName, QueueEntryRow.STATE_COLUMN_PREFIX);
   }
 
+  /**
+   * Encodes the value of the state column, which is (writePointer) + (instanceId) + (state).
+   *
+   * @param writePointer write pointer of the transaction that changes the state
+   * @param instanceId the consumer instance id
+   * @param state the consumer entry state
+   * @return the encoded state value
+   */
+  public static byte[] getStateValue(long writePointer, int instanceId, ConsumerEntryState state) {
+    byte[] stateValue = new byte[Longs.BYTES + Ints.BYTES + 1];
+    Bytes.putLong(stateValue, 0, writePointer);
+    Bytes.putInt(stateValue, Longs.BYTES, instanceId);
+    Bytes.putByte(stateValue, Longs.BYTES + Ints.BYTES, state.getState());
+    return stateValue;
+  }
+
   /**
    * @param stateValue value of the state column
    * @return write pointer of the latest change of the state value
@@ -16,8 +16,12 @@
 
 package co.cask.cdap.data2.transaction.queue.hbase;
 
+import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.data2.queue.ConsumerConfig;
 import co.cask.cdap.data2.queue.DequeueStrategy;
+import co.cask.cdap.data2.transaction.queue.ConsumerEntryState;
+import co.cask.cdap.data2.transaction.queue.QueueEntryRow;
+import co.cask.cdap.data2.transaction.queue.coprocessor.QueueEntryClaimer;
 import com.google.common.io.ByteArrayDataInput;
 import com.google.common.io.ByteArrayDataOutput;
 import com.google.common.io.ByteStreams;
@@ -38,6 +42,7 @@ import javax.annotation.Nullable;
 public class DequeueScanAttributes {
   private static final String ATTR_CONSUMER_CONFIG = "cdap.queue.dequeue.consumerConfig";
   private static final String ATTR_TX = "cdap.queue.dequeue.transaction";
+  private static final String ATTR_MAX_CLAIMS = "cdap.queue.dequeue.maxClaims";
 
   public static Map<String, byte[]> addAttribute(ConsumerConfig consumerConfig, Map<String, byte[]> attributes) {
     try {
@@ -59,6 +64,52 @@ public class DequeueScanAttributes {
     }
   }
 
+  /**
+   * Adds an attribute to request the region server to claim up to the given number of unclaimed entries
+   * while scanning. It only has effect for FIFO consumers with group size greater than one.
+   */
+  public static Map<String, byte[]> addMaxClaimsAttribute(int maxClaims, Map<String, byte[]> attributes) {
+    attributes.put(ATTR_MAX_CLAIMS, Bytes.toBytes(maxClaims));
+    return attributes;
+  }
+
+  /**
+   * Returns the maximum number of entries to be claimed by the region server while scanning,
+   * or {@code 0} if the scan doesn't request claiming.
+   */
+  public static int getMaxClaims(Scan scan) {
+    byte[] maxClaimsAttr = scan.getAttribute(ATTR_MAX_CLAIMS);
+    return maxClaimsAttr == null ? 0 : Bytes.toInt(maxClaimsAttr);
+  }
+
+  /**
+   * Creates a {@link QueueEntryClaimer} for claiming entries in the region server while scanning, based on the
+   * attributes of the given scan.
+   *
+   * @return a new {@link QueueEntryClaimer}, or {@code null} if the scan doesn't request claiming or
+   *         the consumer is not a FIFO consumer with group size greater than one
+   */
+  @Nullable
+  public static QueueEntryClaimer createClaimer(Scan scan) {
+    int maxClaims = getMaxClaims(scan);
+    if (maxClaims <= 0) {
+      return null;
+    }
+    ConsumerConfig consumerConfig = getConsumerConfig(scan);
+    Transaction tx = getTx(scan);
+    if (consumerConfig == null || tx == null
+      || consumerConfig.getDequeueStrategy() != DequeueStrategy.FIFO || consumerConfig.getGroupSize() <= 1) {
+      return null;
+    }
+
+    byte[] stateColumn = Bytes.add(QueueEntryRow.STATE_COLUMN_PREFIX, Bytes.toBytes(consumerConfig.getGroupId()));
+    byte[] claimedStateValue = QueueEntryRow.getStateValue(tx.getWritePointer(), consumerConfig.getInstanceId(),
+                                                           ConsumerEntryState.CLAIMED);
+    return new QueueEntryClaimer(QueueEntryRow.COLUMN_FAMILY,
+                                 new byte[][] { QueueEntryRow.DATA_COLUMN, QueueEntryRow.META_COLUMN },
+                                 stateColumn, claimedStateValue, maxClaims);
+  }
+
   @Nullable
   public static ConsumerConfig getConsumerConfig(Scan scan) {
     byte[] consumerConfigAttr = scan.getAttribute(ATTR_CONSUMER_CONFIG);
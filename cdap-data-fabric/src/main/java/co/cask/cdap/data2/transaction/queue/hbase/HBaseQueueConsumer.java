@@ -20,6 +20,7 @@ import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.queue.QueueName;
 import co.cask.cdap.data2.queue.ConsumerConfig;
 import co.cask.cdap.data2.queue.DequeueResult;
+import co.cask.cdap.data2.queue.DequeueStrategy;
 import co.cask.cdap.data2.transaction.queue.AbstractQueueConsumer;
 import co.cask.cdap.data2.transaction.queue.QueueEntryRow;
 import co.cask.cdap.data2.transaction.queue.QueueScanner;
@@ -50,6 +51,7 @@ abstract class HBaseQueueConsumer extends AbstractQueueConsumer {
   private boolean closed;
   private boolean canConsume;
   private boolean completed;
+  private int maxClaims;
 
   /**
    * Creates a HBaseQueue2Consumer.
@@ -73,6 +75,7 @@ abstract class HBaseQueueConsumer extends AbstractQueueConsumer {
 
   @Override
   public DequeueResult<byte[]> dequeue(int maxBatchSize) throws IOException {
+    maxClaims = maxBatchSize;
     DequeueResult<byte[]> result = super.dequeue(maxBatchSize);
 
     if (canConsume && result.isEmpty() && state.getNextBarrier() != null) {
@@ -136,6 +139,15 @@ abstract class HBaseQueueConsumer extends AbstractQueueConsumer {
 
     Map<String, byte[]> attributes = DequeueScanAttributes.addAttribute(transaction,
                                      DequeueScanAttributes.addAttribute(getConfig(), new HashMap<String, byte[]>()));
+    // For FIFO, ask the region server to claim entries while scanning, so that claiming doesn't need one
+    // checkAndPut call per entry. If the region server doesn't claim (e.g. older coprocessor), entries are
+    // returned unclaimed and are claimed by the claimEntry method as usual.
+    // Each region scanner claims up to maxClaims entries, hence a scan that goes through multiple regions or shards
+    // can claim more entries than the batch size. The extra entries stay in the entry cache of this consumer and
+    // are dequeued by it in the following dequeue calls, the same as entries claimed in a rolled back transaction.
+    if (getConfig().getDequeueStrategy() == DequeueStrategy.FIFO && getConfig().getGroupSize() > 1) {
+      DequeueScanAttributes.addMaxClaimsAttribute(maxClaims, attributes);
+    }
     Scan scan = createScan(startRow, getScanStopRow(stopRow), numRows, attributes);
 
     return queueStrategy.createScanner(getConfig(), hTable, scan, numRows);
@@ -18,6 +18,7 @@ package co.cask.cdap.data2.transaction.stream;
 import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.flow.flowlet.StreamEvent;
 import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.data.file.FileReader;
 import co.cask.cdap.data.file.ReadFilter;
 import co.cask.cdap.data.file.ReadFilters;
@@ -94,6 +95,20 @@ import javax.annotation.concurrent.NotThreadSafe;
  *   state = ConsumerEntryState.getState(), either CLAIMED or PROCESSED
  * }</pre>
  *
+ * <p>
+ * For FIFO, writing a state for every event can be avoided by setting
+ * {@link Constants.Stream#CONSUMER_FIFO_RANGE_SIZE}. Each stream file is then divided into ranges of that many
+ * bytes, and a consumer instance claims a whole range by writing a lease row, which has the same key schema with
+ * the offset set to the range start. The lease value is the state value followed by the progress of the range:
+ *
+ * <pre>{@code
+ *   lease_value = <write_pointer> <instance_id> <state> <processed_offset>
+ *   processed_offset = 8 bytes offset of the last event processed in the range, or -1 if none
+ * }</pre>
+ *
+ * Only the consumer instance that holds the lease consumes the events in the range, and it updates the
+ * processed offset once per transaction. Ranges held by instances that no longer exist after a group size
+ * change are taken over by the remaining instances, which resume after the processed offset.
  */
 @NotThreadSafe
 public abstract class AbstractStreamFileConsumer implements StreamConsumer {
@@ -106,6 +121,9 @@ public abstract class AbstractStreamFileConsumer implements StreamConsumer {
   // Persist state at most once per second.
   private static final long STATE_PERSIST_MIN_INTERVAL = TimeUnit.SECONDS.toNanos(1);
 
+  // Maximum number of range leases to remember. Forgotten leases are read from the state table again when needed.
+  private static final int MAX_RANGE_LEASES = 1000;
+
   private static final DequeueResult<StreamEvent> EMPTY_RESULT = DequeueResult.Empty.result();
   private static final Function<PollStreamEvent, byte[]> EVENT_ROW_KEY = new Function<PollStreamEvent, byte[]>() {
     @Override
@@ -152,6 +170,11 @@ public abstract class AbstractStreamFileConsumer implements StreamConsumer {
   private final Map<byte[], SortedMap<byte[], byte[]>> entryStates;
   private final Set<byte[]> entryStatesScanCompleted;
 
+  // Size of the ranges claimed in FIFO range claim mode, or 0 if events are claimed individually.
+  private final long fifoRangeSize;
+  // Map from lease row key to the range leases looked up by this consumer.
+  private final Map<byte[], RangeLease> rangeLeases;
+
   private final StreamConsumerState consumerState;
   private final List<StreamEventOffset> eventCache;
   private Transaction transaction;
@@ -191,6 +214,10 @@ public abstract class AbstractStreamFileConsumer implements StreamConsumer {
     this.entryStates = Maps.newTreeMap(ROW_PREFIX_COMPARATOR);
     this.entryStatesScanCompleted = Sets.newTreeSet(ROW_PREFIX_COMPARATOR);
 
+    long rangeSize = cConf.getLong(Constants.Stream.CONSUMER_FIFO_RANGE_SIZE, 0L);
+    this.fifoRangeSize = consumerConfig.getDequeueStrategy() == DequeueStrategy.FIFO && rangeSize > 0 ? rangeSize : 0L;
+    this.rangeLeases = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+
     this.eventCache = Lists.newArrayList();
     this.consumerState = beginConsumerState;
     this.lastPersistedState = new StreamConsumerState(beginConsumerState);
@@ -336,9 +363,16 @@ public abstract class AbstractStreamFileConsumer implements StreamConsumer {
       return true;
     }
 
-    // For each polled events, set the state column to PROCESSED
-    updateState(Iterables.transform(polledEvents, EVENT_ROW_KEY), polledEvents.size(),
-                encodeStateColumn(ConsumerEntryState.PROCESSED));
+    if (fifoRangeSize > 0) {
+      // For each range that has polled events, advance the processed offset of the lease
+      for (Map.Entry<RangeLease, Long> entry : getPolledRangeOffsets().entrySet()) {
+        updateState(ImmutableList.of(entry.getKey().getRow()), 1, encodeRangeLease(entry.getValue()));
+      }
+    } else {
+      // For each polled events, set the state column to PROCESSED
+      updateState(Iterables.transform(polledEvents, EVENT_ROW_KEY), polledEvents.size(),
+                  encodeStateColumn(ConsumerEntryState.PROCESSED));
+    }
 
     committed = true;
     return true;
@@ -352,6 +386,11 @@ public abstract class AbstractStreamFileConsumer implements StreamConsumer {
       persistConsumerState();
     }
 
+    // Remember the committed progress of the range leases
+    for (Map.Entry<RangeLease, Long> entry : getPolledRangeOffsets().entrySet()) {
+      entry.getKey().setProcessedOffset(entry.getValue());
+    }
+
     // Cleanup the entryStates map to free up memory
     for (PollStreamEvent event : polledEvents) {
       SortedMap<byte[], byte[]> states = entryStates.get(event.getStateRow());
@@ -374,6 +413,17 @@ public abstract class AbstractStreamFileConsumer implements StreamConsumer {
     // Insert all polled events back to beginning of the eventCache
     eventCache.addAll(0, Lists.transform(polledEvents, CONVERT_STREAM_EVENT_OFFSET));
 
+    // For range claim, the leases are still held, so the events will be claimed again by the next poll.
+    // Only need to restore the processed offsets of the leases if committed.
+    if (fifoRangeSize > 0) {
+      if (committed) {
+        for (RangeLease lease : getPolledRangeOffsets().keySet()) {
+          updateState(ImmutableList.of(lease.getRow()), 1, encodeRangeLease(lease.getProcessedOffset()));
+        }
+      }
+      return true;
+    }
+
     // Special case for FIFO. On rollback, put the CLAIMED state into the entry states for claim entry to use.
     byte[] fifoState = null;
     if (consumerConfig.getDequeueStrategy() == DequeueStrategy.FIFO && consumerConfig.getGroupSize() > 1) {
@@ -452,11 +502,19 @@ public abstract class AbstractStreamFileConsumer implements StreamConsumer {
     int eventsClaimed = 0;
     while (result.size() < maxEvents && iterator.hasNext()) {
       StreamEventOffset event = iterator.next();
-      byte[] stateRow = claimEntry(event.getOffset(), stateContent);
-      if (stateRow == null) {
-        continue;
+      if (fifoRangeSize > 0) {
+        RangeLease lease = claimRangeEntry(event.getOffset());
+        if (lease == null) {
+          continue;
+        }
+        result.add(new PollStreamEvent(event, lease.getRow(), lease));
+      } else {
+        byte[] stateRow = claimEntry(event.getOffset(), stateContent);
+        if (stateRow == null) {
+          continue;
+        }
+        result.add(new PollStreamEvent(event, stateRow, null));
       }
-      result.add(new PollStreamEvent(event, stateRow));
       eventsClaimed++;
     }
     return eventsClaimed;
@@ -491,6 +549,100 @@ public abstract class AbstractStreamFileConsumer implements StreamConsumer {
     return stateContent;
   }
 
+  /**
+   * Encodes the value for a range lease row with the current transaction and consumer information.
+   *
+   * @param processedOffset The offset of the last processed event in the range, or {@code -1} if none
+   * @return The lease value byte array
+   */
+  private byte[] encodeRangeLease(long processedOffset) {
+    return Bytes.add(encodeStateColumn(ConsumerEntryState.CLAIMED), Bytes.toBytes(processedOffset));
+  }
+
+  /**
+   * Returns the largest offset of the polled events for each range lease that the events were claimed with.
+   */
+  private Map<RangeLease, Long> getPolledRangeOffsets() {
+    Map<RangeLease, Long> offsets = Maps.newIdentityHashMap();
+    for (PollStreamEvent event : polledEvents) {
+      RangeLease lease = event.getRangeLease();
+      if (lease == null) {
+        continue;
+      }
+      long offset = event.getStreamEventOffset().getOffset().getOffset();
+      Long current = offsets.get(lease);
+      if (current == null || current < offset) {
+        offsets.put(lease, offset);
+      }
+    }
+    return offsets;
+  }
+
+  /**
+   * Try to claim a stream event offset in range claim mode. The event is claimed if this consumer holds the lease
+   * of the range that contains the event, and the event was not processed before.
+   *
+   * @return The lease of the range if successfully claimed or {@code null} if not claimed.
+   */
+  @Nullable
+  private RangeLease claimRangeEntry(StreamFileOffset offset) throws IOException {
+    long rangeStart = offset.getOffset() - (offset.getOffset() % fifoRangeSize);
+    ByteArrayDataOutput out = ByteStreams.newDataOutput(50);
+    out.writeLong(consumerConfig.getGroupId());
+    StreamUtils.encodeOffset(out, new StreamFileOffset(offset, rangeStart));
+    byte[] row = out.toByteArray();
+
+    RangeLease lease = rangeLeases.get(row);
+    if (lease == null) {
+      if (rangeLeases.size() >= MAX_RANGE_LEASES) {
+        rangeLeases.clear();
+      }
+      lease = acquireRangeLease(row);
+      rangeLeases.put(row, lease);
+    }
+    return lease.isOwned() && offset.getOffset() > lease.getProcessedOffset() ? lease : null;
+  }
+
+  /**
+   * Reads the lease of a range from the state table, and claims the lease if the range is not held by
+   * a live consumer instance.
+   *
+   * @param row the lease row key.
+   */
+  private RangeLease acquireRangeLease(byte[] row) throws IOException {
+    byte[] stopRow = Arrays.copyOf(row, row.length);
+    Bytes.putLong(stopRow, stopRow.length - Longs.BYTES, Bytes.toLong(row, row.length - Longs.BYTES) + 1);
+
+    // Loop until the lease is held by either this or other live instance, as the claim can race with other instances
+    while (true) {
+      byte[] leaseValue = null;
+      try (StateScanner scanner = scanStates(row, stopRow)) {
+        if (scanner.nextStateRow()) {
+          leaseValue = scanner.getState();
+        }
+      }
+
+      long processedOffset = -1L;
+      if (leaseValue != null) {
+        int instanceId = QueueEntryRow.getStateInstanceId(leaseValue);
+        if (leaseValue.length >= Longs.BYTES + Ints.BYTES + 1 + Longs.BYTES) {
+          processedOffset = Bytes.toLong(leaseValue, Longs.BYTES + Ints.BYTES + 1);
+        }
+        if (instanceId == consumerConfig.getInstanceId()) {
+          return new RangeLease(row, true, processedOffset);
+        }
+        if (instanceId < consumerConfig.getGroupSize()) {
+          return new RangeLease(row, false, processedOffset);
+        }
+      }
+
+      // The range is either not claimed yet or held by an instance that no longer exists
+      if (claimFifoEntry(row, encodeRangeLease(processedOffset), leaseValue)) {
+        return new RangeLease(row, true, processedOffset);
+      }
+    }
+  }
+
   /**
    * Try to claim a stream event offset.
    *
@@ -640,11 +792,13 @@ public abstract class AbstractStreamFileConsumer implements StreamConsumer {
 
     private final byte[] stateRow;
     private final StreamEventOffset streamEventOffset;
+    private final RangeLease rangeLease;
 
-    protected PollStreamEvent(StreamEventOffset streamEventOffset, byte[] stateRow) {
+    protected PollStreamEvent(StreamEventOffset streamEventOffset, byte[] stateRow, @Nullable RangeLease rangeLease) {
       super(streamEventOffset);
       this.streamEventOffset = streamEventOffset;
       this.stateRow = stateRow;
+      this.rangeLease = rangeLease;
     }
 
     public StreamEventOffset getStreamEventOffset() {
@@ -661,6 +815,49 @@ public abstract class AbstractStreamFileConsumer implements StreamConsumer {
     private byte[] getStateRow() {
       return stateRow;
     }
+
+    @Nullable
+    private RangeLease getRangeLease() {
+      return rangeLease;
+    }
+  }
+
+  /**
+   * Represents the lease of a stream file range in FIFO range claim mode.
+   */
+  private static final class RangeLease {
+
+    private final byte[] row;
+    private final boolean owned;
+    private long processedOffset;
+
+    private RangeLease(byte[] row, boolean owned, long processedOffset) {
+      this.row = row;
+      this.owned = owned;
+      this.processedOffset = processedOffset;
+    }
+
+    byte[] getRow() {
+      return row;
+    }
+
+    /**
+     * Returns {@code true} if the lease is held by this consumer instance.
+     */
+    boolean isOwned() {
+      return owned;
+    }
+
+    /**
+     * Returns the offset of the last processed event in the range that is committed, or {@code -1} if none.
+     */
+    long getProcessedOffset() {
+      return processedOffset;
+    }
+
+    void setProcessedOffset(long processedOffset) {
+      this.processedOffset = processedOffset;
+    }
   }
 
   /**
@@ -0,0 +1,262 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.lib.cube;
+
+import co.cask.cdap.api.dataset.lib.cube.AggregationFunction;
+import co.cask.cdap.api.dataset.lib.cube.Cube;
+import co.cask.cdap.api.dataset.lib.cube.CubeDeleteQuery;
+import co.cask.cdap.api.dataset.lib.cube.CubeFact;
+import co.cask.cdap.api.dataset.lib.cube.CubeQuery;
+import co.cask.cdap.api.dataset.lib.cube.Interpolator;
+import co.cask.cdap.api.dataset.lib.cube.Interpolators;
+import co.cask.cdap.api.dataset.lib.cube.MeasureType;
+import co.cask.cdap.api.dataset.lib.cube.TimeSeries;
+import co.cask.cdap.api.dataset.lib.cube.TimeValue;
+import co.cask.cdap.api.metrics.MetricsCollector;
+import co.cask.cdap.data2.dataset2.lib.table.inmemory.InMemoryMetricsTable;
+import co.cask.cdap.data2.dataset2.lib.table.inmemory.InMemoryTableService;
+import co.cask.cdap.data2.dataset2.lib.timeseries.EntityTable;
+import co.cask.cdap.data2.dataset2.lib.timeseries.FactTable;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * Unit tests for {@link CachingCube}.
+ */
+public class CachingCubeTest {
+
+  private static final Aggregation AGG = new DefaultAggregation(ImmutableList.of("dim1", "dim2"),
+                                                                ImmutableList.of("dim1"));
+
+  @Test
+  public void testClosedBucketsCached() {
+    DefaultCube delegate = createCube("closedCube");
+    CachingCube cube = new CachingCube(delegate, 60, 1000, 600);
+    Map<String, Long> metrics = Maps.newHashMap();
+    cube.setMetricsCollector(createCollector(metrics));
+
+    long now = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+    long closed = now - 3600;
+    write(cube, closed, 1, "1", "a");
+    write(cube, closed + 1, 2, "1", "b");
+    write(cube, now, 3, "1", "a");
+
+    CubeQuery query = query(closed - 10, now + 10, ImmutableList.of("dim2"), null, Integer.MAX_VALUE);
+    Collection<TimeSeries> expected = ImmutableList.of(
+      new TimeSeries("metric", ImmutableMap.of("dim2", "a"), timeValues(closed, 1, now, 3)),
+      new TimeSeries("metric", ImmutableMap.of("dim2", "b"), timeValues(closed + 1, 2)));
+    assertResult(expected, cube.query(query));
+    assertResult(expected, delegate.query(query));
+    Assert.assertEquals(Long.valueOf(1), metrics.get("cube.query.cache.miss.count"));
+
+    // Data written to the open time bucket is visible, while changes to closed buckets are not seen
+    write(delegate, closed, 10, "1", "a");
+    write(delegate, now, 10, "1", "a");
+    assertResult(ImmutableList.of(
+      new TimeSeries("metric", ImmutableMap.of("dim2", "a"), timeValues(closed, 1, now, 13)),
+      new TimeSeries("metric", ImmutableMap.of("dim2", "b"), timeValues(closed + 1, 2))), cube.query(query));
+    Assert.assertEquals(Long.valueOf(1), metrics.get("cube.query.cache.hit.count"));
+    Assert.assertEquals(Long.valueOf(50), metrics.get("cube.query.cache.hit.ratio.percent"));
+
+    // Smaller time range and limit is served from the same entry
+    query = query(closed + 1, now + 10, ImmutableList.of("dim2"), null, 1);
+    assertResult(ImmutableList.of(
+      new TimeSeries("metric", ImmutableMap.of("dim2", "a"), timeValues(now, 13)),
+      new TimeSeries("metric", ImmutableMap.of("dim2", "b"), timeValues(closed + 1, 2))), cube.query(query));
+    Assert.assertEquals(Long.valueOf(2), metrics.get("cube.query.cache.hit.count"));
+
+    // Delete invalidates the cache
+    cube.delete(new CubeDeleteQuery(closed + 1, closed + 1, 1, ImmutableMap.of("dim1", "1")));
+    assertResult(ImmutableList.of(
+      new TimeSeries("metric", ImmutableMap.of("dim2", "a"), timeValues(closed, 11, now, 13))),
+                 cube.query(query(closed - 10, now + 10, ImmutableList.of("dim2"), null, Integer.MAX_VALUE)));
+    Assert.assertEquals(Long.valueOf(2), metrics.get("cube.query.cache.miss.count"));
+  }
+
+  @Test
+  public void testExtendAndInterpolate() {
+    DefaultCube delegate = createCube("extendCube");
+    CachingCube cube = new CachingCube(delegate, 0, 1000, 600);
+
+    long now = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+    long start = now - 100;
+    write(cube, start, 2, "1", "a");
+    write(cube, start + 4, 6, "1", "a");
+
+    CubeQuery query = query(start, start + 3, new ArrayList<String>(), new Interpolators.Linear(), Integer.MAX_VALUE);
+    assertResult(delegate.query(query), cube.query(query));
+
+    // Move the query window forward, the cached entry is extended
+    write(cube, start + 8, 10, "1", "a");
+    query = query(start + 2, now + 100, new ArrayList<String>(), new Interpolators.Linear(), Integer.MAX_VALUE);
+    Collection<TimeSeries> result = cube.query(query);
+    assertResult(delegate.query(query), result);
+    Assert.assertEquals(timeValues(start + 4, 6, start + 5, 7, start + 6, 8, start + 7, 9, start + 8, 10),
+                        result.iterator().next().getTimeValues());
+
+    // Query with a time range before the cached range
+    query = query(start - 10, now, new ArrayList<String>(), new Interpolators.Step(), 3);
+    assertResult(delegate.query(query), cube.query(query));
+  }
+
+  @Test
+  public void testTotalsNotCached() {
+    DefaultCube delegate = createCube("totalsCube");
+    CachingCube cube = new CachingCube(delegate, 60, 1000, 600);
+
+    write(cube, 10, 1, "1", "a");
+    CubeQuery query = CubeQuery.builder()
+      .select().measurement("metric", AggregationFunction.SUM)
+      .from(null).resolution(Integer.MAX_VALUE, TimeUnit.SECONDS)
+      .where().dimension("dim1", "1").timeRange(0, Integer.MAX_VALUE)
+      .limit(100).build();
+    assertResult(ImmutableList.of(new TimeSeries("metric", new HashMap<String, String>(), timeValues(0, 1))),
+                 cube.query(query));
+
+    write(cube, 10, 1, "1", "a");
+    assertResult(ImmutableList.of(new TimeSeries("metric", new HashMap<String, String>(), timeValues(0, 2))),
+                 cube.query(query));
+  }
+
+  @Test
+  public void testUnalignedStart() {
+    DefaultCube delegate = createCube("unalignedCube");
+    CachingCube cube = new CachingCube(delegate, 0, 1000, 600);
+    Map<String, Long> metrics = Maps.newHashMap();
+    cube.setMetricsCollector(createCollector(metrics));
+
+    long now = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+    long bucket = (now - 3600) / 60 * 60;
+    write(cube, bucket + 10, 1, "1", "a");
+    write(cube, bucket + 70, 2, "1", "a");
+
+    // Queries starting in the middle of a time bucket give the same result as the delegate
+    CubeQuery query = query(bucket + 30, now, ImmutableList.of("dim2"), null, Integer.MAX_VALUE, 60);
+    assertResult(delegate.query(query), cube.query(query));
+    query = query(bucket, now, ImmutableList.of("dim2"), null, Integer.MAX_VALUE, 60);
+    assertResult(ImmutableList.of(
+      new TimeSeries("metric", ImmutableMap.of("dim2", "a"), timeValues(bucket, 1, bucket + 60, 2))),
+                 cube.query(query));
+    assertResult(delegate.query(query), cube.query(query));
+    Assert.assertEquals(Long.valueOf(1), metrics.get("cube.query.cache.miss.count"));
+    Assert.assertEquals(Long.valueOf(2), metrics.get("cube.query.cache.hit.count"));
+  }
+
+  @Test
+  public void testTruncatedNotCached() {
+    DefaultCube delegate = createCube("truncatedCube", 1);
+    CachingCube cube = new CachingCube(delegate, 0, 1000, 600);
+    Map<String, Long> metrics = Maps.newHashMap();
+    cube.setMetricsCollector(createCollector(metrics));
+
+    long start = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) - 100;
+    write(cube, start, 1, "1", "a");
+    write(cube, start, 2, "1", "b");
+
+    CubeQuery query = query(start, start + 10, ImmutableList.of("dim2"), null, Integer.MAX_VALUE);
+    Collection<TimeSeries> result = cube.query(query);
+    Assert.assertEquals(1, result.size());
+    assertResult(delegate.query(query), result);
+    assertResult(delegate.query(query), cube.query(query));
+    Assert.assertEquals(Long.valueOf(2), metrics.get("cube.query.cache.miss.count"));
+    Assert.assertEquals(Long.valueOf(2), metrics.get("cube.query.cache.truncated.count"));
+    Assert.assertNull(metrics.get("cube.query.cache.hit.count"));
+  }
+
+  private DefaultCube createCube(String name) {
+    return createCube(name, Integer.MAX_VALUE);
+  }
+
+  private DefaultCube createCube(final String name, int maxRecordsToScan) {
+    FactTableSupplier supplier = new FactTableSupplier() {
+      @Override
+      public FactTable get(int resolution, int rollTime) {
+        String entityTableName = "EntityTable-" + name;
+        InMemoryTableService.create(entityTableName);
+        String dataTableName = "DataTable-" + name + "-" + resolution;
+        InMemoryTableService.create(dataTableName);
+        return new FactTable(new InMemoryMetricsTable(dataTableName),
+                             new EntityTable(new InMemoryMetricsTable(entityTableName)),
+                             resolution, rollTime);
+      }
+    };
+    return new DefaultCube(new int[] {1, 60, Integer.MAX_VALUE}, supplier, ImmutableMap.of("agg", AGG),
+                           ImmutableMap.<String, AggregationAlias>of(), maxRecordsToScan);
+  }
+
+  private void write(Cube cube, long ts, long value, String dim1, String dim2) {
+    cube.add(new CubeFact(ts)
+               .addDimensionValues(ImmutableMap.of("dim1", dim1, "dim2", dim2))
+               .addMeasurement("metric", MeasureType.COUNTER, value));
+  }
+
+  private CubeQuery query(long startTs, long endTs, List<String> groupBy,
+                          @Nullable Interpolator interpolator, int limit) {
+    return query(startTs, endTs, groupBy, interpolator, limit, 1);
+  }
+
+  private CubeQuery query(long startTs, long endTs, List<String> groupBy,
+                          @Nullable Interpolator interpolator, int limit, int resolution) {
+    return CubeQuery.builder()
+      .select().measurement("metric", AggregationFunction.SUM)
+      .from(null).resolution(resolution, TimeUnit.SECONDS)
+      .where().dimension("dim1", "1").timeRange(startTs, endTs)
+      .groupBy().dimensions(groupBy)
+      .limit(limit)
+      .interpolator(interpolator)
+      .build();
+  }
+
+  private void assertResult(Collection<TimeSeries> expected, Collection<TimeSeries> actual) {
+    Assert.assertEquals(new HashSet<>(expected), new HashSet<>(actual));
+  }
+
+  private List<TimeValue> timeValues(long... longs) {
+    List<TimeValue> timeValues = new ArrayList<>();
+    for (int i = 0; i < longs.length; i += 2) {
+      timeValues.add(new TimeValue(longs[i], longs[i + 1]));
+    }
+    return timeValues;
+  }
+
+  private MetricsCollector createCollector(final Map<String, Long> metrics) {
+    return new MetricsCollector() {
+      @Override
+      public void increment(String metricName, long value) {
+        Long current = metrics.get(metricName);
+        metrics.put(metricName, current == null ? value : current + value);
+      }
+
+      @Override
+      public void gauge(String metricName, long value) {
+        metrics.put(metricName, value);
+      }
+    };
+  }
+}
@@ -16,14 +16,27 @@
 
 package co.cask.cdap.data2.dataset2.lib.cube;
 
+import co.cask.cdap.api.dataset.lib.cube.AggregationFunction;
 import co.cask.cdap.api.dataset.lib.cube.Cube;
+import co.cask.cdap.api.dataset.lib.cube.CubeFact;
+import co.cask.cdap.api.dataset.lib.cube.CubeQuery;
+import co.cask.cdap.api.dataset.lib.cube.MeasureType;
+import co.cask.cdap.api.dataset.lib.cube.TimeSeries;
 import co.cask.cdap.data2.dataset2.lib.table.inmemory.InMemoryMetricsTable;
 import co.cask.cdap.data2.dataset2.lib.table.inmemory.InMemoryTableService;
 import co.cask.cdap.data2.dataset2.lib.timeseries.EntityTable;
 import co.cask.cdap.data2.dataset2.lib.timeseries.FactTable;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import org.junit.Assert;
+import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  *
@@ -48,4 +61,73 @@ public class DefaultCubeTest extends AbstractCubeTest {
 
     return new DefaultCube(resolutions, supplier, aggregations, ImmutableMap.<String, AggregationAlias>of());
   }
+
+  @Test
+  public void testUnknownResolution() throws Exception {
+    Aggregation agg = new DefaultAggregation(ImmutableList.of("dim1", "dim2"), ImmutableList.of("dim1"));
+    Cube cube = getCube("resolutionCube", new int[] {1, 5}, ImmutableMap.of("agg", agg));
+
+    writeInc(cube, "metric1", 1, 1, "1", "1");
+    writeInc(cube, "metric1", 12, 3, "1", "1");
+
+    verifyCountQuery(cube, 0, 30, 5, "metric1", AggregationFunction.SUM,
+                     ImmutableMap.of("dim1", "1"), new ArrayList<String>(),
+                     ImmutableList.of(new TimeSeries("metric1", new HashMap<String, String>(),
+                                                     timeValues(0, 1, 10, 3))));
+
+    // There is no 10 seconds resolution, so the query must fail rather than scan a finer resolution
+    try {
+      cube.query(CubeQuery.builder()
+                   .select().measurement("metric1", AggregationFunction.SUM)
+                   .from(null).resolution(10, TimeUnit.SECONDS)
+                   .where().timeRange(0, 30)
+                   .limit(100).build());
+      Assert.fail("Expected failure for a resolution without a fact table");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testWideGroupByQuery() throws Exception {
+    Aggregation agg = new DefaultAggregation(ImmutableList.of("dim1", "dim2"), ImmutableList.of("dim1"));
+    Cube cube = getCube("wideCube", new int[] {1, 60}, ImmutableMap.of("agg", agg));
+
+    int seriesCount = 10;
+    int duration = (int) TimeUnit.MINUTES.toSeconds(10);
+    List<CubeFact> facts = new ArrayList<>();
+    for (int ts = 0; ts < duration; ts++) {
+      for (int series = 0; series < seriesCount; series++) {
+        facts.add(new CubeFact(ts)
+                    .addDimensionValues(ImmutableMap.of("dim1", "1", "dim2", String.valueOf(series)))
+                    .addMeasurement("metric1", MeasureType.COUNTER, 1L));
+      }
+    }
+    cube.add(facts);
+
+    CubeQuery query = CubeQuery.builder()
+      .select().measurement("metric1", AggregationFunction.SUM)
+      .from(null).resolution(1, TimeUnit.SECONDS)
+      .where().dimension("dim1", "1").timeRange(0, duration)
+      .groupBy().dimension("dim2")
+      .limit(Integer.MAX_VALUE).build();
+
+    Collection<TimeSeries> result = cube.query(query);
+    Assert.assertEquals(seriesCount, result.size());
+    for (TimeSeries timeSeries : result) {
+      Assert.assertEquals(duration, timeSeries.getTimeValues().size());
+    }
+
+    // Same data at one minute resolution
+    query = CubeQuery.builder()
+      .select().measurement("metric1", AggregationFunction.SUM)
+      .from(null).resolution(60, TimeUnit.SECONDS)
+      .where().dimension("dim1", "1").timeRange(0, duration)
+      .groupBy().dimension("dim2")
+      .limit(Integer.MAX_VALUE).build();
+    for (TimeSeries timeSeries : cube.query(query)) {
+      Assert.assertEquals(duration / 60, timeSeries.getTimeValues().size());
+      Assert.assertEquals(60L, timeSeries.getTimeValues().get(0).getValue());
+    }
+  }
 }
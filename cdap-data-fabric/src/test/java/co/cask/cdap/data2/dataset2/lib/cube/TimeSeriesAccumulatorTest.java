@@ -0,0 +1,122 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.lib.cube;
+
+import co.cask.cdap.api.dataset.lib.cube.AggregationFunction;
+import co.cask.cdap.api.dataset.lib.cube.TimeValue;
+import com.google.common.collect.ImmutableList;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for {@link TimeSeriesAccumulator}.
+ */
+public class TimeSeriesAccumulatorTest {
+
+  @Test
+  public void testAggregationFunctions() {
+    Assert.assertEquals(ImmutableList.of(new TimeValue(1, 5), new TimeValue(2, 4)),
+                        accumulate(AggregationFunction.SUM, 1, 1, 2, 1, 3, 2, 4));
+    Assert.assertEquals(ImmutableList.of(new TimeValue(1, 3), new TimeValue(2, 4)),
+                        accumulate(AggregationFunction.MAX, 1, 1, 2, 1, 3, 2, 4));
+    Assert.assertEquals(ImmutableList.of(new TimeValue(1, 2), new TimeValue(2, 4)),
+                        accumulate(AggregationFunction.MIN, 1, 1, 2, 1, 3, 2, 4));
+    Assert.assertEquals(ImmutableList.of(new TimeValue(1, 3), new TimeValue(2, 4)),
+                        accumulate(AggregationFunction.LATEST, 1, 1, 2, 1, 3, 2, 4));
+  }
+
+  @Test
+  public void testDownsampling() {
+    // Values at 1 second resolution downsampled to 10 seconds
+    Assert.assertEquals(ImmutableList.of(new TimeValue(0, 6), new TimeValue(10, 4)),
+                        accumulate(AggregationFunction.SUM, 10, 1, 1, 5, 2, 9, 3, 10, 4));
+    Assert.assertEquals(ImmutableList.of(new TimeValue(0, 3), new TimeValue(10, 4)),
+                        accumulate(AggregationFunction.MAX, 10, 1, 1, 5, 3, 9, 2, 10, 4));
+    Assert.assertEquals(ImmutableList.of(new TimeValue(0, 1), new TimeValue(10, 4)),
+                        accumulate(AggregationFunction.MIN, 10, 5, 3, 1, 1, 9, 2, 10, 4));
+    // The value with the latest timestamp in the bucket wins, regardless of the order they are added
+    Assert.assertEquals(ImmutableList.of(new TimeValue(0, 2), new TimeValue(10, 4)),
+                        accumulate(AggregationFunction.LATEST, 10, 9, 2, 5, 3, 1, 1, 10, 4));
+  }
+
+  @Test
+  public void testSparseAndOrdering() {
+    TimeSeriesAccumulator accumulator = new TimeSeriesAccumulator(AggregationFunction.SUM, 1);
+    // Add values far apart and out of order
+    long[] timestamps = { 1000000000L, 5L, 1451606400L, 64L, 63L, 0L };
+    for (long ts : timestamps) {
+      accumulator.add(ts, ts);
+    }
+    Assert.assertEquals(timestamps.length, accumulator.size());
+
+    List<TimeValue> timeValues = accumulator.getTimeValues(Integer.MAX_VALUE);
+    Assert.assertEquals(ImmutableList.of(new TimeValue(0, 0), new TimeValue(5, 5), new TimeValue(63, 63),
+                                         new TimeValue(64, 64), new TimeValue(1000000000L, 1000000000L),
+                                         new TimeValue(1451606400L, 1451606400L)), timeValues);
+
+    // Limit the number of values
+    Assert.assertEquals(timeValues.subList(0, 3), accumulator.getTimeValues(3));
+    Assert.assertTrue(accumulator.getTimeValues(0).isEmpty());
+  }
+
+  @Test
+  public void testWideGroupBy() {
+    int seriesCount = 10;
+    int duration = (int) TimeUnit.MINUTES.toSeconds(10);
+
+    for (int resolution : new int[] { 1, 60 }) {
+      TimeSeriesAccumulator[] accumulators = accumulateWide(seriesCount, duration, 120, resolution);
+      for (TimeSeriesAccumulator accumulator : accumulators) {
+        List<TimeValue> timeValues = accumulator.getTimeValues(Integer.MAX_VALUE);
+        Assert.assertEquals(duration / resolution, timeValues.size());
+        for (int i = 0; i < timeValues.size(); i++) {
+          Assert.assertEquals(new TimeValue(i * resolution, resolution), timeValues.get(i));
+        }
+      }
+    }
+  }
+
+  /**
+   * Accumulates a value of 1 for every second of the given duration into each series. Values are added the way
+   * the scan returns them, with the rows of each series in turn, each covering multiple data points.
+   */
+  private TimeSeriesAccumulator[] accumulateWide(int seriesCount, int duration, int rowDuration, int resolution) {
+    TimeSeriesAccumulator[] accumulators = new TimeSeriesAccumulator[seriesCount];
+    for (int i = 0; i < seriesCount; i++) {
+      accumulators[i] = new TimeSeriesAccumulator(AggregationFunction.SUM, resolution);
+    }
+    for (int row = 0; row < duration; row += rowDuration) {
+      for (TimeSeriesAccumulator accumulator : accumulators) {
+        for (int ts = row; ts < row + rowDuration; ts++) {
+          accumulator.add(ts, 1L);
+        }
+      }
+    }
+    return accumulators;
+  }
+
+  private List<TimeValue> accumulate(AggregationFunction function, int resolution, long... timeValues) {
+    TimeSeriesAccumulator accumulator = new TimeSeriesAccumulator(function, resolution);
+    for (int i = 0; i < timeValues.length; i += 2) {
+      accumulator.add(timeValues[i], timeValues[i + 1]);
+    }
+    return accumulator.getTimeValues(Integer.MAX_VALUE);
+  }
+}
@@ -16,12 +16,18 @@
 
 package co.cask.cdap.data2.dataset2.lib.partitioned;
 
+import co.cask.cdap.api.dataset.lib.PartitionConsumerState;
 import co.cask.cdap.api.dataset.lib.PartitionKey;
+import co.cask.cdap.api.dataset.lib.partitioned.ConsumablePartition;
 import co.cask.cdap.api.dataset.lib.partitioned.ConsumerWorkingSet;
 import co.cask.cdap.api.dataset.lib.partitioned.DefaultConsumablePartition;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Iterator;
 import java.util.UUID;
 
 public class ConsumerWorkingSetTest {
@@ -54,6 +60,88 @@ public class ConsumerWorkingSetTest {
     Assert.assertEquals(0, bytes[0]);
     ConsumerWorkingSet deserializedState = ConsumerWorkingSet.fromBytes(bytes);
     Assert.assertEquals(stateToSerialize, deserializedState);
+
+    // Version 1 is only written when asked for
+    bytes = stateToSerialize.toBytes(1);
+    Assert.assertEquals(1, bytes[0]);
+    deserializedState = ConsumerWorkingSet.fromBytes(bytes);
+    Assert.assertEquals(stateToSerialize, deserializedState);
+  }
+
+  @Test
+  public void testUnsupportedFieldType() {
+    ConsumerWorkingSet workingSet = new ConsumerWorkingSet();
+    workingSet.addPartition(PartitionKey.builder().addField("b", true).build());
+    try {
+      workingSet.toBytes(1);
+      Assert.fail("Expected failure to serialize a partition key field that is not a string, long or int");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testDeserializeVersionZero() {
+    PartitionConsumerState consumerState = new PartitionConsumerState(10L, ImmutableList.of(5L, 7L));
+    DefaultConsumablePartition available = new DefaultConsumablePartition(generateUniqueKey());
+    DefaultConsumablePartition inProgress = new DefaultConsumablePartition(generateUniqueKey());
+    inProgress.take();
+    inProgress.setTimestamp(System.currentTimeMillis());
+
+    // serialize in the format of version 0, in which each partition key is serialized as JSON
+    ByteArrayDataOutput output = ByteStreams.newDataOutput();
+    output.writeByte(0);
+    output.writeInt(2);
+    for (DefaultConsumablePartition partition : ImmutableList.of(available, inProgress)) {
+      byte[] partitionBytes = partition.toBytes();
+      output.writeInt(partitionBytes.length);
+      output.write(partitionBytes);
+    }
+    byte[] markerBytes = consumerState.toBytes();
+    output.writeInt(markerBytes.length);
+    output.write(markerBytes);
+
+    ConsumerWorkingSet workingSet = ConsumerWorkingSet.fromBytes(output.toByteArray());
+    Assert.assertEquals(ImmutableList.of(available, inProgress), workingSet.getPartitions());
+    Assert.assertEquals(inProgress, workingSet.lookup(inProgress.getPartitionKey()));
+
+    // it can be serialized in either format again
+    testSerDe(workingSet);
+  }
+
+  @Test
+  public void testLookup() {
+    ConsumerWorkingSet workingSet = new ConsumerWorkingSet();
+    PartitionKey key1 = generateUniqueKey();
+    PartitionKey key2 = generateUniqueKey();
+    PartitionKey key3 = generateUniqueKey();
+    workingSet.addPartition(key1);
+    workingSet.addPartition(key2);
+    workingSet.getPartitions().add(new DefaultConsumablePartition(key3));
+
+    Assert.assertEquals(key2, workingSet.lookup(key2).getPartitionKey());
+    Assert.assertEquals(key2, workingSet.remove(key2).getPartitionKey());
+    assertNotFound(workingSet, key2);
+    // the remaining partitions keep their order
+    Assert.assertEquals(key1, workingSet.getPartitions().get(0).getPartitionKey());
+    Assert.assertEquals(key3, workingSet.getPartitions().get(1).getPartitionKey());
+
+    // partitions removed through the iterator of the partitions list can not be looked up anymore
+    Iterator<ConsumablePartition> iterator = workingSet.getPartitions().iterator();
+    iterator.next();
+    iterator.remove();
+    assertNotFound(workingSet, key1);
+    Assert.assertEquals(key3, workingSet.lookup(key3).getPartitionKey());
+    Assert.assertEquals(1, workingSet.getPartitions().size());
+  }
+
+  private void assertNotFound(ConsumerWorkingSet workingSet, PartitionKey key) {
+    try {
+      workingSet.lookup(key);
+      Assert.fail("Expected partition key to not be found: " + key);
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
   }
 
   private PartitionKey generateUniqueKey() {
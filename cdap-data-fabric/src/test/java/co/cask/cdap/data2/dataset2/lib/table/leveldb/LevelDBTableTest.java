@@ -16,9 +16,13 @@
 
 package co.cask.cdap.data2.dataset2.lib.table.leveldb;
 
+import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.dataset.DatasetContext;
 import co.cask.cdap.api.dataset.DatasetProperties;
 import co.cask.cdap.api.dataset.DatasetSpecification;
+import co.cask.cdap.api.dataset.table.Row;
+import co.cask.cdap.api.dataset.table.Scanner;
+import co.cask.cdap.api.dataset.table.Table;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.guice.ConfigModule;
@@ -33,6 +37,8 @@ import co.cask.cdap.security.authorization.AuthorizationEnforcementModule;
 import co.cask.cdap.security.authorization.AuthorizationTestModule;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
+import org.apache.tephra.Transaction;
+import org.iq80.leveldb.DBIterator;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.ClassRule;
@@ -89,7 +95,105 @@ public class LevelDBTableTest extends BufferingTableTest<LevelDBTable> {
 
   @Override
   protected boolean isReadlessIncrementSupported() {
-    return false;
+    return true;
+  }
+
+  @Test
+  public void testReadlessIncrementFolding() throws Exception {
+    DatasetProperties props = DatasetProperties.builder().add(Table.PROPERTY_READLESS_INCREMENT, "true").build();
+    LevelDBTableAdmin admin = getTableAdmin(CONTEXT1, MY_TABLE, props);
+    admin.create();
+    try {
+      byte[] row = Bytes.toBytes("r");
+      byte[] column = Bytes.toBytes("c");
+
+      // Each transaction writes one delta
+      for (int i = 0; i < 100; i++) {
+        Transaction tx = txClient.startShort();
+        LevelDBTable table = getTable(CONTEXT1, MY_TABLE, props);
+        table.startTx(tx);
+        table.increment(row, new byte[][] { column }, new long[] { 1L });
+        Assert.assertTrue(txClient.canCommit(tx, table.getTxChanges()));
+        Assert.assertTrue(table.commitTx());
+        Assert.assertTrue(txClient.commit(tx));
+        table.postTxCommit();
+      }
+
+      LevelDBTable table = getTable(CONTEXT1, MY_TABLE, props);
+      Assert.assertEquals(100, countCells(table.getTableName()));
+
+      // Reading the value should sum up the deltas and fold them into one value
+      Transaction tx = txClient.startShort();
+      table.startTx(tx);
+      Assert.assertEquals(100L, Bytes.toLong(table.get(row, column)));
+      // The latest delta may not be below the visibility upper bound of the transaction, hence may not be folded
+      Assert.assertTrue(countCells(table.getTableName()) <= 2);
+      Assert.assertEquals(100L, Bytes.toLong(table.get(row, column)));
+
+      // Deltas are summed up with the folded value
+      table.increment(row, new byte[][] { column }, new long[] { 5L });
+      Assert.assertTrue(txClient.canCommit(tx, table.getTxChanges()));
+      Assert.assertTrue(table.commitTx());
+      Assert.assertTrue(txClient.commit(tx));
+
+      tx = txClient.startShort();
+      table.startTx(tx);
+      Assert.assertEquals(105L, Bytes.toLong(table.get(row, column)));
+      txClient.abort(tx);
+    } finally {
+      admin.drop();
+    }
+  }
+
+  @Test
+  public void testDeltaLikeValuesWithoutReadlessIncrements() throws Exception {
+    DatasetProperties props = DatasetProperties.EMPTY;
+    LevelDBTableAdmin admin = getTableAdmin(CONTEXT1, MY_TABLE, props);
+    admin.create();
+    try {
+      byte[] row = Bytes.toBytes("r");
+      byte[] column = Bytes.toBytes("c");
+      // Values of the same length and prefix as increment deltas
+      byte[] value1 = Bytes.add(new byte[] { 'X', 'D' }, Bytes.toBytes(1L));
+      byte[] value2 = Bytes.add(new byte[] { 'X', 'D' }, Bytes.toBytes(2L));
+
+      // Write enough versions that deltas would be folded
+      for (int i = 0; i < 40; i++) {
+        Transaction tx = txClient.startShort();
+        LevelDBTable table = getTable(CONTEXT1, MY_TABLE, props);
+        table.startTx(tx);
+        table.put(row, column, i % 2 == 0 ? value1 : value2);
+        Assert.assertTrue(txClient.canCommit(tx, table.getTxChanges()));
+        Assert.assertTrue(table.commitTx());
+        Assert.assertTrue(txClient.commit(tx));
+        table.postTxCommit();
+      }
+
+      // The latest value is read back unchanged and nothing is rewritten
+      LevelDBTable table = getTable(CONTEXT1, MY_TABLE, props);
+      Transaction tx = txClient.startShort();
+      table.startTx(tx);
+      Assert.assertArrayEquals(value2, table.get(row, column));
+      try (Scanner scanner = table.scan(null, null)) {
+        Row result = scanner.next();
+        Assert.assertNotNull(result);
+        Assert.assertArrayEquals(value2, result.get(column));
+      }
+      Assert.assertEquals(40, countCells(table.getTableName()));
+      txClient.abort(tx);
+    } finally {
+      admin.drop();
+    }
+  }
+
+  private int countCells(String tableName) throws IOException {
+    int count = 0;
+    try (DBIterator iterator = service.getTable(tableName).iterator()) {
+      for (iterator.seekToFirst(); iterator.hasNext(); iterator.next()) {
+        count++;
+      }
+    }
+    return count;
   }
 
   @Test
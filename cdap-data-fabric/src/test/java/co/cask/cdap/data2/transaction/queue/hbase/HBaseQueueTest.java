@@ -69,10 +69,14 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Supplier;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ConcurrentHashMultiset;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
+import com.google.common.collect.Multiset;
+import com.google.common.collect.Sets;
 import com.google.common.io.InputSupplier;
 import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
@@ -89,6 +93,7 @@ import org.apache.hadoop.hbase.client.HTableInterface;
 import org.apache.hadoop.hbase.client.ResultScanner;
 import org.apache.hadoop.hbase.regionserver.HRegion;
 import org.apache.tephra.TransactionAware;
+import org.apache.tephra.TransactionContext;
 import org.apache.tephra.TransactionExecutor;
 import org.apache.tephra.TransactionExecutorFactory;
 import org.apache.tephra.TransactionManager;
@@ -110,7 +115,13 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * HBase queue tests.
@@ -617,6 +628,111 @@ public abstract class HBaseQueueTest extends QueueTest {
     Assert.assertEquals(ImmutableList.of(0, 1, 2, 3, 4, 5), dequeued.get(0));
   }
 
+  @Test (timeout = 30000L)
+  public void testFifoClaim() throws Exception {
+    QueueName queueName = QueueName.fromFlowlet(NamespaceId.DEFAULT.getEntityName(),
+                                                "app", "fifoclaim", "flowlet", "queue");
+    ConsumerGroupConfig groupConfig = new ConsumerGroupConfig(0L, 2, DequeueStrategy.FIFO, null);
+    configureGroups(queueName, ImmutableList.of(groupConfig));
+
+    // Enqueue 10 items
+    createEnqueueRunnable(queueName, 10, 1, null).run();
+
+    try (
+      QueueConsumer consumer0 = queueClientFactory.createConsumer(queueName, new ConsumerConfig(groupConfig, 0), 1);
+      QueueConsumer consumer1 = queueClientFactory.createConsumer(queueName, new ConsumerConfig(groupConfig, 1), 1)
+    ) {
+      TransactionContext txContext0 = new TransactionContext(txSystemClient, (TransactionAware) consumer0);
+      TransactionContext txContext1 = new TransactionContext(txSystemClient, (TransactionAware) consumer1);
+
+      // Consumer 0 claims 4 entries without committing
+      txContext0.start();
+      Set<Integer> dequeued0 = toIntSet(consumer0.dequeue(4));
+      Assert.assertEquals(4, dequeued0.size());
+
+      // Consumer 1 should skip the entries claimed by consumer 0
+      txContext1.start();
+      Set<Integer> dequeued1 = toIntSet(consumer1.dequeue(10));
+      Assert.assertTrue(Sets.intersection(dequeued0, dequeued1).isEmpty());
+      txContext1.finish();
+
+      // Rollback consumer 0, which should get the same entries again, but none of the one claimed by consumer 1.
+      // It can get more entries than before, as the region server can claim more entries than the batch size
+      // when the scan goes through multiple regions or shards.
+      txContext0.abort();
+      txContext0.start();
+      Set<Integer> redequeued0 = toIntSet(consumer0.dequeue(10));
+      Assert.assertTrue(redequeued0.containsAll(dequeued0));
+      Assert.assertTrue(Sets.intersection(redequeued0, dequeued1).isEmpty());
+      txContext0.finish();
+
+      // Each entry is consumed by exactly one consumer
+      Assert.assertEquals(ImmutableSet.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), Sets.union(redequeued0, dequeued1));
+
+      // Nothing left for both consumers
+      txContext0.start();
+      Assert.assertTrue(consumer0.dequeue(10).isEmpty());
+      txContext0.finish();
+      txContext1.start();
+      Assert.assertTrue(consumer1.dequeue(10).isEmpty());
+      txContext1.finish();
+    }
+  }
+
+  @Test (timeout = 60000L)
+  public void testConcurrentFifoClaim() throws Exception {
+    final QueueName queueName = QueueName.fromFlowlet(NamespaceId.DEFAULT.getEntityName(),
+                                                      "app", "concurrentfifoclaim", "flowlet", "queue");
+    final ConsumerGroupConfig groupConfig = new ConsumerGroupConfig(0L, 3, DequeueStrategy.FIFO, null);
+    configureGroups(queueName, ImmutableList.of(groupConfig));
+
+    final int count = 200;
+    createEnqueueRunnable(queueName, count, 10, null).run();
+
+    // Each consumer instance dequeues concurrently until all entries are consumed
+    final Multiset<Integer> dequeued = ConcurrentHashMultiset.create();
+    ExecutorService executor = Executors.newFixedThreadPool(groupConfig.getGroupSize());
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < groupConfig.getGroupSize(); i++) {
+        final ConsumerConfig consumerConfig = new ConsumerConfig(groupConfig, i);
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            try (QueueConsumer consumer = queueClientFactory.createConsumer(queueName, consumerConfig, 1)) {
+              TransactionContext txContext = new TransactionContext(txSystemClient, (TransactionAware) consumer);
+              while (dequeued.size() < count) {
+                txContext.start();
+                for (byte[] data : consumer.dequeue(7)) {
+                  dequeued.add(Bytes.toInt(data));
+                }
+                txContext.finish();
+              }
+            }
+            return null;
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    // Each entry should be dequeued exactly once
+    Assert.assertEquals(count, dequeued.size());
+    Assert.assertEquals(count, dequeued.elementSet().size());
+  }
+
+  private Set<Integer> toIntSet(Iterable<byte[]> result) {
+    Set<Integer> values = new HashSet<>();
+    for (byte[] data : result) {
+      values.add(Bytes.toInt(data));
+    }
+    return values;
+  }
+
   @Override
   protected void verifyConsumerConfigExists(QueueName... queueNames) throws Exception {
     for (QueueName queueName : queueNames) {
@@ -16,9 +16,15 @@
 
 package co.cask.cdap.hive.datasets;
 
+import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.data.batch.RecordScannable;
 import co.cask.cdap.api.data.batch.RecordScanner;
 import co.cask.cdap.api.data.batch.Split;
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.cdap.api.dataset.DatasetManagementException;
+import co.cask.cdap.api.dataset.lib.KeyValueTable;
+import co.cask.cdap.api.dataset.lib.ObjectMappedTable;
+import co.cask.cdap.api.dataset.table.Table;
 import com.google.common.base.Throwables;
 import com.google.gson.Gson;
 import org.apache.hadoop.conf.Configuration;
@@ -35,17 +41,22 @@ import org.apache.hadoop.mapred.Reporter;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Map reduce input format to read from datasets that implement RecordScannable.
  */
 public class DatasetInputFormat implements InputFormat<Void, ObjectWritable> {
+  private static final Logger LOG = LoggerFactory.getLogger(DatasetInputFormat.class);
   private static final Gson GSON = new Gson();
 
   @Override
@@ -61,7 +72,7 @@ public class DatasetInputFormat implements InputFormat<Void, ObjectWritable> {
         JobContext jobContext = ShimLoader.getHadoopShims().newJobContext(job);
         Path[] tablePaths = FileInputFormat.getInputPaths(jobContext);
 
-        List<Split> dsSplits = recordScannable.getSplits();
+        List<Split> dsSplits = getSplits(jobConf, datasetAccessor, recordScannable);
 
         InputSplit[] inputSplits = new InputSplit[dsSplits.size()];
         for (int i = 0; i < dsSplits.size(); i++) {
@@ -72,6 +83,59 @@ public class DatasetInputFormat implements InputFormat<Void, ObjectWritable> {
     }
   }
 
+  /**
+   * Returns the splits of the given dataset. For datasets that are keyed by row key, only the splits
+   * that cover the range of row keys selected by the predicates of the query are returned.
+   */
+  private List<Split> getSplits(Configuration conf, DatasetAccessor datasetAccessor,
+                                RecordScannable<?> recordScannable) throws IOException {
+    if (!(recordScannable instanceof Table || recordScannable instanceof ObjectMappedTable
+      || recordScannable instanceof KeyValueTable)) {
+      return recordScannable.getSplits();
+    }
+
+    RowKeyRange keyRange = RowKeyRange.ALL;
+    try {
+      if (recordScannable instanceof KeyValueTable) {
+        // KeyValueTable is explored with the fields of the KeyValue class
+        keyRange = RowKeyRange.create(conf, "key", Schema.Type.BYTES);
+      } else {
+        // Both Table and ObjectMappedTable have the schema and the row field in the dataset properties
+        Map<String, String> properties = datasetAccessor.getDatasetSpec().getProperties();
+        String schemaStr = properties.get(Table.PROPERTY_SCHEMA);
+        String rowField = properties.get(Table.PROPERTY_SCHEMA_ROW_FIELD);
+        Schema.Field keyField = (schemaStr == null || rowField == null)
+          ? null : Schema.parseJson(schemaStr).getField(rowField);
+        if (keyField != null) {
+          Schema keySchema = keyField.getSchema();
+          keySchema = keySchema.isNullable() ? keySchema.getNonNullable() : keySchema;
+          keyRange = RowKeyRange.create(conf, rowField, keySchema.getType());
+        }
+      }
+    } catch (DatasetManagementException e) {
+      throw new IOException("Could not get dataset specification", e);
+    }
+
+    if (keyRange.isAll()) {
+      return recordScannable.getSplits();
+    }
+    if (keyRange.isEmpty()) {
+      return Collections.emptyList();
+    }
+    LOG.debug("Reading row keys from {} to {} of dataset {}",
+              keyRange.getStart() == null ? null : Bytes.toStringBinary(keyRange.getStart()),
+              keyRange.getStop() == null ? null : Bytes.toStringBinary(keyRange.getStop()),
+              datasetAccessor.getDatasetId());
+
+    if (recordScannable instanceof Table) {
+      return ((Table) recordScannable).getSplits(-1, keyRange.getStart(), keyRange.getStop());
+    }
+    if (recordScannable instanceof ObjectMappedTable) {
+      return ((ObjectMappedTable<?>) recordScannable).getSplits(-1, keyRange.getStart(), keyRange.getStop());
+    }
+    return ((KeyValueTable) recordScannable).getSplits(-1, keyRange.getStart(), keyRange.getStop());
+  }
+
   @Override
   public RecordReader<Void, ObjectWritable> getRecordReader(final InputSplit split, JobConf jobConf, Reporter reporter)
     throws IOException {
@@ -35,6 +35,7 @@ import co.cask.cdap.proto.id.DatasetId;
 import com.google.common.collect.Lists;
 import org.apache.commons.lang.StringUtils;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.serde2.ColumnProjectionUtils;
 import org.apache.hadoop.hive.serde2.SerDe;
 import org.apache.hadoop.hive.serde2.SerDeException;
 import org.apache.hadoop.hive.serde2.SerDeStats;
@@ -49,7 +50,9 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import javax.annotation.Nullable;
 
 /**
  * SerDe to serialize Dataset Objects. It MUST implement the deprecated SerDe interface instead of extending the
@@ -95,12 +98,24 @@ public class DatasetSerDe implements SerDe {
       getDatasetSchema(conf, datasetId);
     }
 
-    this.deserializer = new ObjectDeserializer(properties, schema);
+    this.deserializer = new ObjectDeserializer(properties, schema, getReadColumnIds(conf));
     ArrayList<String> columnNames = Lists.newArrayList(StringUtils.split(properties.getProperty("columns"), ","));
     this.serializer = new ObjectSerializer(columnNames);
     this.objectInspector = deserializer.getInspector();
   }
 
+  /**
+   * Returns the ids of the columns read by the query as pushed down by Hive, or {@code null} if all columns
+   * are needed. Only the columns read are translated from the dataset records.
+   */
+  @Nullable
+  private List<Integer> getReadColumnIds(@Nullable Configuration conf) {
+    if (conf == null || ColumnProjectionUtils.isReadAllColumns(conf)) {
+      return null;
+    }
+    return ColumnProjectionUtils.getReadColumnIDs(conf);
+  }
+
   private void getDatasetSchema(Configuration conf, DatasetId datasetId) throws SerDeException {
 
     try (ContextManager.Context hiveContext = ContextManager.getContext(conf)) {
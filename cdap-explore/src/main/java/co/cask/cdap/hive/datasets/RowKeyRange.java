@@ -0,0 +1,227 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.hive.datasets;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.data.schema.Schema;
+import com.google.common.collect.Lists;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.ql.exec.Utilities;
+import org.apache.hadoop.hive.ql.index.IndexPredicateAnalyzer;
+import org.apache.hadoop.hive.ql.index.IndexSearchCondition;
+import org.apache.hadoop.hive.ql.plan.ExprNodeConstantDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeGenericFuncDesc;
+import org.apache.hadoop.hive.ql.plan.TableScanDesc;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqual;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqualOrGreaterThan;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqualOrLessThan;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPGreaterThan;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPLessThan;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Represents a range of row keys to be read from a dataset, derived from the predicates on the row key column
+ * of a Hive query. The range always covers all the rows that satisfy the query, hence Hive still applies
+ * the query predicates on the rows read.
+ */
+final class RowKeyRange {
+
+  private static final Logger LOG = LoggerFactory.getLogger(RowKeyRange.class);
+
+  static final RowKeyRange ALL = new RowKeyRange(null, null);
+
+  // Inclusive start row key; null means start from the first row
+  private final byte[] start;
+  // Exclusive stop row key; null means scan to the last row
+  private final byte[] stop;
+
+  /**
+   * Creates a {@link RowKeyRange} from the filter expression of the Hive query in the given configuration.
+   *
+   * @param conf the job configuration that Hive passes to the input format
+   * @param keyColumn name of the row key column of the Hive table
+   * @param keyType type of the row key
+   * @return the {@link RowKeyRange} for the query; {@link #ALL} if the query has no predicates that can be used
+   */
+  static RowKeyRange create(Configuration conf, String keyColumn, Schema.Type keyType) {
+    // the conf contains a 'hive.io.filter.expr.serialized' key which contains the serialized form of ExprNodeDesc
+    String serializedExpr = conf.get(TableScanDesc.FILTER_EXPR_CONF_STR);
+    if (serializedExpr == null) {
+      return ALL;
+    }
+
+    try {
+      ExprNodeGenericFuncDesc expr;
+      // Older versions of Hive use Utilities.deserializeExpression(String, Configuration),
+      // whereas newer versions use Utilities.deserializeExpression(String).
+      try {
+        expr = Utilities.deserializeExpression(serializedExpr);
+      } catch (NoSuchMethodError e) {
+        expr = (ExprNodeGenericFuncDesc) Utilities.class.getMethod(
+          "deserializeExpression", String.class, Configuration.class).invoke(null, serializedExpr, conf);
+      }
+
+      // Analyze the query to extract predicates on the row key column. Only the conjunctions at the top level
+      // are extracted by the analyzer, so every condition must hold for the rows that satisfy the query.
+      IndexPredicateAnalyzer analyzer = new IndexPredicateAnalyzer();
+      for (CompareOp op : CompareOp.values()) {
+        analyzer.addComparisonOp(op.getOpClassName());
+      }
+      analyzer.clearAllowedColumnNames();
+      analyzer.allowColumnName(keyColumn.toLowerCase());
+
+      List<IndexSearchCondition> conditions = Lists.newArrayList();
+      analyzer.analyzePredicate(expr, conditions);
+
+      byte[] start = null;
+      byte[] stop = null;
+      for (IndexSearchCondition condition : conditions) {
+        CompareOp op = CompareOp.from(condition.getComparisonOp());
+        ExprNodeConstantDesc constant = condition.getConstantDesc();
+        byte[] key = constant == null ? null : toRowKey(constant.getValue(), keyType);
+        if (op == null || key == null) {
+          continue;
+        }
+        // Only strings and bytes have the same ordering as the encoded row keys
+        if (op != CompareOp.EQUAL && keyType != Schema.Type.STRING && keyType != Schema.Type.BYTES) {
+          continue;
+        }
+
+        byte[] condStart = null;
+        byte[] condStop = null;
+        switch (op) {
+          case EQUAL:
+            condStart = key;
+            condStop = Bytes.add(key, new byte[1]);
+            break;
+          case GREATER:
+            condStart = Bytes.add(key, new byte[1]);
+            break;
+          case EQUAL_OR_GREATER:
+            condStart = key;
+            break;
+          case LESS:
+            condStop = key;
+            break;
+          case EQUAL_OR_LESS:
+            condStop = Bytes.add(key, new byte[1]);
+            break;
+        }
+        if (condStart != null && (start == null || Bytes.compareTo(condStart, start) > 0)) {
+          start = condStart;
+        }
+        if (condStop != null && (stop == null || Bytes.compareTo(condStop, stop) < 0)) {
+          stop = condStop;
+        }
+      }
+      return new RowKeyRange(start, stop);
+    } catch (Throwable t) {
+      LOG.warn("Exception analyzing query predicate. A full table scan will be performed.", t);
+      return ALL;
+    }
+  }
+
+  private RowKeyRange(@Nullable byte[] start, @Nullable byte[] stop) {
+    this.start = start;
+    this.stop = stop;
+  }
+
+  /**
+   * Returns the inclusive start row key or {@code null} if there is no lower bound.
+   */
+  @Nullable
+  byte[] getStart() {
+    return start;
+  }
+
+  /**
+   * Returns the exclusive stop row key or {@code null} if there is no upper bound.
+   */
+  @Nullable
+  byte[] getStop() {
+    return stop;
+  }
+
+  /**
+   * Returns {@code true} if this range covers all rows.
+   */
+  boolean isAll() {
+    return start == null && stop == null;
+  }
+
+  /**
+   * Returns {@code true} if there is no row key in this range.
+   */
+  boolean isEmpty() {
+    return start != null && stop != null && Bytes.compareTo(start, stop) >= 0;
+  }
+
+  /**
+   * Encodes the given constant value of the Hive query the same way as the row key is encoded in the dataset.
+   * Returns {@code null} if the value cannot be encoded.
+   */
+  @Nullable
+  private static byte[] toRowKey(Object value, Schema.Type keyType) {
+    switch (keyType) {
+      case STRING:
+        return value instanceof String ? Bytes.toBytes((String) value) : null;
+      case BYTES:
+        if (value instanceof byte[]) {
+          return (byte[]) value;
+        }
+        return value instanceof String ? Bytes.toBytes((String) value) : null;
+      case INT:
+        return value instanceof Integer ? Bytes.toBytes((Integer) value) : null;
+      case LONG:
+        return value instanceof Long ? Bytes.toBytes((Long) value) : null;
+      default:
+        return null;
+    }
+  }
+
+  private enum CompareOp {
+    EQUAL(GenericUDFOPEqual.class.getName()),
+    EQUAL_OR_GREATER(GenericUDFOPEqualOrGreaterThan.class.getName()),
+    EQUAL_OR_LESS(GenericUDFOPEqualOrLessThan.class.getName()),
+    GREATER(GenericUDFOPGreaterThan.class.getName()),
+    LESS(GenericUDFOPLessThan.class.getName());
+
+    private final String opClassName;
+
+    CompareOp(String opClassName) {
+      this.opClassName = opClassName;
+    }
+
+    String getOpClassName() {
+      return opClassName;
+    }
+
+    @Nullable
+    static CompareOp from(String opClassName) {
+      for (CompareOp op : values()) {
+        if (op.getOpClassName().equals(opClassName)) {
+          return op;
+        }
+      }
+      return null;
+    }
+  }
+}
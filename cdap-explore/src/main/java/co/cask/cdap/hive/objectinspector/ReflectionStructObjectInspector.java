@@ -16,11 +16,18 @@
 
 package co.cask.cdap.hive.objectinspector;
 
+import co.cask.cdap.internal.io.ASMFieldAccessorFactory;
+import co.cask.cdap.internal.io.FieldAccessor;
+import co.cask.cdap.internal.io.FieldAccessorFactory;
+import co.cask.cdap.internal.io.ReflectionFieldAccessorFactory;
+import com.google.common.reflect.TypeToken;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorUtils;
 import org.apache.hadoop.hive.serde2.objectinspector.SettableStructObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.StructField;
 import org.apache.hadoop.util.ReflectionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
@@ -36,10 +43,14 @@ import java.util.Map;
  * Always use the ObjectInspectorFactory to create new ObjectInspector objects,
  * instead of directly creating an instance of this class.
  *
+ * Field values are read and written through {@link FieldAccessor}s generated with ASM, which avoids
+ * the cost of reflective access for every field of every row.
  */
 public class ReflectionStructObjectInspector extends
     SettableStructObjectInspector {
 
+  private static final Logger LOG = LoggerFactory.getLogger(ReflectionStructObjectInspector.class);
+
   /**
    * MyField.
    *
@@ -48,11 +59,18 @@ public class ReflectionStructObjectInspector extends
 
     protected int fieldId;
     protected Field field;
+    protected FieldAccessor fieldAccessor;
     protected ObjectInspector fieldObjectInspector;
 
     public MyField(int fieldId, Field field, ObjectInspector fieldObjectInspector) {
+      this(fieldId, field, new ReflectionFieldAccessorFactory().getFieldAccessor(
+        TypeToken.of(field.getDeclaringClass()), field.getName()), fieldObjectInspector);
+    }
+
+    public MyField(int fieldId, Field field, FieldAccessor fieldAccessor, ObjectInspector fieldObjectInspector) {
       this.fieldId = fieldId;
       this.field = field;
+      this.fieldAccessor = fieldAccessor;
       this.fieldObjectInspector = fieldObjectInspector;
     }
 
@@ -78,6 +96,11 @@ public class ReflectionStructObjectInspector extends
     }
   }
 
+  // Instances of this class are cached by the ObjectInspectorFactory, hence the generated accessors are reused
+  // for as long as the inspector is.
+  private final FieldAccessorFactory accessorFactory = new ASMFieldAccessorFactory();
+  private final FieldAccessorFactory reflectionAccessorFactory = new ReflectionFieldAccessorFactory();
+
   Class<?> objectClass;
   List<MyField> fields;
 
@@ -141,7 +164,8 @@ public class ReflectionStructObjectInspector extends
       }
       if (!shouldIgnoreField(reflectionFields[i].getName())) {
         reflectionFields[i].setAccessible(true);
-        fields.add(new MyField(i, reflectionFields[i], structFieldObjectInspectors.get(used++)));
+        fields.add(new MyField(i, reflectionFields[i], createFieldAccessor(reflectionFields[i]),
+                               structFieldObjectInspectors.get(used++)));
       }
     }
     assert (fields.size() == structFieldObjectInspectors.size());
@@ -174,8 +198,7 @@ public class ReflectionStructObjectInspector extends
     }
     MyField f = (MyField) fieldRef;
     try {
-      Object r = f.field.get(data);
-      return r;
+      return f.fieldAccessor.get(data);
     } catch (Exception e) {
       throw new RuntimeException("cannot get field " + f.field + " from " + data.getClass() + " " + data, e);
     }
@@ -189,7 +212,7 @@ public class ReflectionStructObjectInspector extends
     try {
       ArrayList<Object> result = new ArrayList<>(fields.size());
       for (int i = 0; i < fields.size(); i++) {
-        result.add(fields.get(i).field.get(data));
+        result.add(fields.get(i).fieldAccessor.get(data));
       }
       return result;
     } catch (Exception e) {
@@ -206,11 +229,25 @@ public class ReflectionStructObjectInspector extends
   public Object setStructFieldData(Object struct, StructField field, Object fieldValue) {
     MyField myField = (MyField) field;
     try {
-      myField.field.set(struct, fieldValue);
+      myField.fieldAccessor.set(struct, fieldValue);
     } catch (Exception e) {
       throw new RuntimeException("cannot set field " + myField.field + " of " + struct.getClass() + " " + struct, e);
     }
     return struct;
   }
 
+  /**
+   * Creates a {@link FieldAccessor} for the given field. If the accessor class cannot be generated,
+   * for example when the {@link ClassLoader} of the field class does not allow defining classes,
+   * a reflection based accessor is used instead.
+   */
+  private FieldAccessor createFieldAccessor(Field field) {
+    TypeToken<?> type = TypeToken.of(field.getDeclaringClass());
+    try {
+      return accessorFactory.getFieldAccessor(type, field.getName());
+    } catch (Throwable t) {
+      LOG.debug("Failed to generate field accessor for {}. Using reflection instead.", field, t);
+      return reflectionAccessorFactory.getFieldAccessor(type, field.getName());
+    }
+  }
 }
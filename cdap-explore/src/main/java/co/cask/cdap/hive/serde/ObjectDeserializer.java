@@ -21,9 +21,14 @@ import co.cask.cdap.api.data.format.StructuredRecord;
 import co.cask.cdap.api.data.format.UnexpectedFormatException;
 import co.cask.cdap.api.data.schema.Schema;
 import co.cask.cdap.hive.objectinspector.ObjectInspectorFactory;
+import co.cask.cdap.internal.io.ASMFieldAccessorFactory;
+import co.cask.cdap.internal.io.FieldAccessor;
+import co.cask.cdap.internal.io.FieldAccessorFactory;
+import co.cask.cdap.internal.io.ReflectionFieldAccessorFactory;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.reflect.TypeToken;
 import org.apache.hadoop.hive.serde.serdeConstants;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
@@ -33,6 +38,8 @@ import org.apache.hadoop.hive.serde2.typeinfo.PrimitiveTypeInfo;
 import org.apache.hadoop.hive.serde2.typeinfo.StructTypeInfo;
 import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
 import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
@@ -43,18 +50,31 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.Nullable;
 
 /**
  * Helper class for translating objects that fit a cdap {@link Schema} into objects
  * that Hive can understand.
  */
 public class ObjectDeserializer {
+  private static final Logger LOG = LoggerFactory.getLogger(ObjectDeserializer.class);
+
   private final List<String> fieldNames;
   private final List<TypeInfo> fieldTypes;
   private final ObjectInspector inspector;
   // we can almost do without the schema. The problem is that everything in Hive is lowercase,
   // but when we look up record fields we need the case sensitive field name.
   private final Schema schema;
+  // the top level fields that are read by the query; null means all fields are read
+  private final boolean[] projection;
+  // accessors for the fields of records that are not StructuredRecord, created once per record class and field.
+  // The factories are not shared across instances so that the generated classes are not held beyond the query.
+  private final FieldAccessorFactory accessorFactory;
+  private final FieldAccessorFactory reflectionAccessorFactory = new ReflectionFieldAccessorFactory();
+  private final ConcurrentMap<Class<?>, ConcurrentMap<String, FieldAccessor>> fieldAccessors =
+    new ConcurrentHashMap<>();
 
   /**
    * Creates an ObjectTranslator that will be able to deserialize objects that fit a {@link Schema} into objects
@@ -80,18 +100,46 @@ public class ObjectDeserializer {
          schema, fieldOffset);
   }
 
+  /**
+   * Creates an ObjectTranslator that will be able to deserialize objects that fit a {@link Schema} into objects
+   * that a Hive ObjectInspector can understand. Only the columns with the given ids are translated when
+   * flattening records, with all other columns set to {@code null}.
+   *
+   * @param properties Properties object passed to a SerDe during initialization that contains the table columns
+   * @param readColumnIds ids of the columns read by the query or {@code null} if all columns are read
+   */
+  public ObjectDeserializer(Properties properties, Schema schema, @Nullable List<Integer> readColumnIds) {
+    this(Lists.newArrayList(properties.getProperty(serdeConstants.LIST_COLUMNS).split(",")),
+         TypeInfoUtils.getTypeInfosFromTypeString(properties.getProperty(serdeConstants.LIST_COLUMN_TYPES)),
+         schema, 0, readColumnIds);
+  }
+
   public ObjectDeserializer(List<String> fieldNames, List<TypeInfo> fieldTypes, Schema schema) {
     this(fieldNames, fieldTypes, schema, 0);
   }
 
   @VisibleForTesting
   ObjectDeserializer(List<String> fieldNames, List<TypeInfo> fieldTypes, Schema schema, int fieldOffset) {
+    this(fieldNames, fieldTypes, schema, fieldOffset, null);
+  }
+
+  @VisibleForTesting
+  ObjectDeserializer(List<String> fieldNames, List<TypeInfo> fieldTypes, Schema schema, int fieldOffset,
+                     @Nullable List<Integer> readColumnIds) {
+    this(fieldNames, fieldTypes, schema, fieldOffset, readColumnIds, new ASMFieldAccessorFactory());
+  }
+
+  @VisibleForTesting
+  ObjectDeserializer(List<String> fieldNames, List<TypeInfo> fieldTypes, Schema schema, int fieldOffset,
+                     @Nullable List<Integer> readColumnIds, FieldAccessorFactory accessorFactory) {
     this.fieldNames = fieldNames.subList(fieldOffset, fieldNames.size());
     this.fieldTypes = fieldTypes.subList(fieldOffset, fieldTypes.size());
     // inspector should still use all names and types passed in. This is in case there are some fields that are
     // determined outside of this class, such as the stream case where timestamp and headers are read elsewhere
     this.inspector = createInspector(fieldNames, fieldTypes);
     this.schema = schema;
+    this.projection = createProjection(readColumnIds, fieldOffset, this.fieldNames.size());
+    this.accessorFactory = accessorFactory;
   }
 
   /**
@@ -116,7 +164,7 @@ public class ObjectDeserializer {
     if (fieldTypes.size() == 1) {
       return deserializeField(obj, fieldTypes.get(0), schema);
     } else {
-      return flattenRecord(obj, fieldNames, fieldTypes, schema);
+      return flattenRecord(obj, fieldNames, fieldTypes, schema, projection);
     }
   }
 
@@ -130,11 +178,12 @@ public class ObjectDeserializer {
    * @throws IllegalAccessException
    */
   public List<Object> translateRecord(Object obj) throws NoSuchFieldException, IllegalAccessException {
-    return flattenRecord(obj, fieldNames, fieldTypes, schema);
+    return flattenRecord(obj, fieldNames, fieldTypes, schema, projection);
   }
 
-  private List<Object> flattenRecord(Object obj, List<String> fieldNames, List<TypeInfo> fieldTypes,
-                                     Schema schema) throws NoSuchFieldException, IllegalAccessException {
+  private List<Object> flattenRecord(Object obj, List<String> fieldNames, List<TypeInfo> fieldTypes, Schema schema,
+                                     @Nullable boolean[] projection)
+    throws NoSuchFieldException, IllegalAccessException {
     boolean isNullable = schema.isNullable();
     if (obj == null) {
       if (isNullable) {
@@ -150,6 +199,11 @@ public class ObjectDeserializer {
     Map<String, Schema.Field> fieldMap = getFieldMap(schema);
     List<Object> objectFields = Lists.newArrayListWithCapacity(fieldNames.size());
     for (int i = 0; i < fieldNames.size(); i++) {
+      // skip the fields that are not read by the query
+      if (projection != null && !projection[i]) {
+        objectFields.add(null);
+        continue;
+      }
       String hiveName = fieldNames.get(i);
       TypeInfo fieldType = fieldTypes.get(i);
       Schema.Field schemaField = fieldMap.get(hiveName);
@@ -203,7 +257,7 @@ public class ObjectDeserializer {
         StructTypeInfo structTypeInfo = (StructTypeInfo) typeInfo;
         ArrayList<String> innerFieldNames = structTypeInfo.getAllStructFieldNames();
         ArrayList<TypeInfo> innerFieldTypes = structTypeInfo.getAllStructFieldTypeInfos();
-        return flattenRecord(field, innerFieldNames, innerFieldTypes, schema);
+        return flattenRecord(field, innerFieldNames, innerFieldTypes, schema, null);
       case UNION:
         // TODO: decide what to do here
         return field;
@@ -314,16 +368,40 @@ public class ObjectDeserializer {
   }
 
   // get a field from the object using the get method if the object is a StructuredRecord,
-  // or using reflection if it is not.
-  private Object getRecordField(Object record, String fieldName)
-    throws NoSuchFieldException, IllegalAccessException {
+  // or using a generated field accessor if it is not.
+  private Object getRecordField(Object record, String fieldName) throws NoSuchFieldException {
     if (record instanceof StructuredRecord) {
       return ((StructuredRecord) record).get(fieldName);
     }
-    Class recordClass = record.getClass();
+    return getFieldAccessor(record.getClass(), fieldName).get(record);
+  }
+
+  // get the accessor for a field declared in the given class, creating it on first use.
+  private FieldAccessor getFieldAccessor(Class<?> recordClass, String fieldName) throws NoSuchFieldException {
+    ConcurrentMap<String, FieldAccessor> accessors = fieldAccessors.get(recordClass);
+    if (accessors == null) {
+      accessors = new ConcurrentHashMap<>();
+      ConcurrentMap<String, FieldAccessor> existing = fieldAccessors.putIfAbsent(recordClass, accessors);
+      accessors = existing == null ? accessors : existing;
+    }
+    FieldAccessor accessor = accessors.get(fieldName);
+    if (accessor != null) {
+      return accessor;
+    }
+
+    // Only fields declared in the record class are translated
     Field field = recordClass.getDeclaredField(fieldName);
-    field.setAccessible(true);
-    return field.get(record);
+    TypeToken<?> type = TypeToken.of(recordClass);
+    try {
+      accessor = accessorFactory.getFieldAccessor(type, field.getName());
+    } catch (Throwable t) {
+      // The accessor class cannot be generated if the ClassLoader of the record class does not allow
+      // defining classes. Fallback to use reflection.
+      LOG.debug("Failed to generate field accessor for {}. Using reflection instead.", field, t);
+      accessor = reflectionAccessorFactory.getFieldAccessor(type, field.getName());
+    }
+    FieldAccessor existing = accessors.putIfAbsent(fieldName, accessor);
+    return existing == null ? accessor : existing;
   }
 
   // get a map from the expected hive name of a field in the schema to the field in the schema.
@@ -335,6 +413,25 @@ public class ObjectDeserializer {
     return fieldMap;
   }
 
+  /**
+   * Creates the projection of fields from the given list of column ids, or returns {@code null} if all the
+   * fields are read.
+   */
+  @Nullable
+  private boolean[] createProjection(@Nullable List<Integer> readColumnIds, int fieldOffset, int numFields) {
+    if (readColumnIds == null) {
+      return null;
+    }
+    boolean[] projection = new boolean[numFields];
+    for (int columnId : readColumnIds) {
+      int idx = columnId - fieldOffset;
+      if (idx >= 0 && idx < numFields) {
+        projection[idx] = true;
+      }
+    }
+    return projection;
+  }
+
   private ObjectInspector createInspector(List<String> fieldNames, List<TypeInfo> fieldTypes) {
     List<ObjectInspector> fieldInspectors = Lists.newArrayListWithCapacity(fieldTypes.size());
     for (TypeInfo typeInfo : fieldTypes) {
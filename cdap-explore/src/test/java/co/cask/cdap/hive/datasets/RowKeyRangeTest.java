@@ -0,0 +1,112 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.hive.datasets;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.data.schema.Schema;
+import com.google.common.collect.Lists;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.ql.exec.Utilities;
+import org.apache.hadoop.hive.ql.plan.ExprNodeColumnDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeConstantDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeGenericFuncDesc;
+import org.apache.hadoop.hive.ql.plan.TableScanDesc;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPAnd;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqual;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqualOrGreaterThan;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPGreaterThan;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPLessThan;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link RowKeyRange}.
+ */
+public class RowKeyRangeTest {
+
+  @Test
+  public void testNoFilter() {
+    Assert.assertTrue(RowKeyRange.create(new Configuration(), "key", Schema.Type.STRING).isAll());
+  }
+
+  @Test
+  public void testStringRange() {
+    ExprNodeDesc key = column("key", TypeInfoFactory.stringTypeInfo);
+
+    // key >= 'b' AND key < 'd'
+    RowKeyRange range = create(and(compare(new GenericUDFOPEqualOrGreaterThan(), key, "b"),
+                                   compare(new GenericUDFOPLessThan(), key, "d")), "key", Schema.Type.STRING);
+    Assert.assertArrayEquals(Bytes.toBytes("b"), range.getStart());
+    Assert.assertArrayEquals(Bytes.toBytes("d"), range.getStop());
+    Assert.assertFalse(range.isEmpty());
+
+    // key = 'c' AND key > 'a'
+    range = create(and(compare(new GenericUDFOPEqual(), key, "c"),
+                       compare(new GenericUDFOPGreaterThan(), key, "a")), "key", Schema.Type.STRING);
+    Assert.assertArrayEquals(Bytes.toBytes("c"), range.getStart());
+    Assert.assertArrayEquals(new byte[] { 'c', 0 }, range.getStop());
+
+    // key > 'd' AND key < 'b'
+    range = create(and(compare(new GenericUDFOPGreaterThan(), key, "d"),
+                       compare(new GenericUDFOPLessThan(), key, "b")), "key", Schema.Type.STRING);
+    Assert.assertTrue(range.isEmpty());
+  }
+
+  @Test
+  public void testNumericKey() {
+    ExprNodeDesc key = column("id", TypeInfoFactory.longTypeInfo);
+
+    // Range on numeric key cannot be used, since the encoded row keys are not ordered the same way
+    RowKeyRange range = create(compare(new GenericUDFOPGreaterThan(), key, 5L), "id", Schema.Type.LONG);
+    Assert.assertTrue(range.isAll());
+
+    range = create(compare(new GenericUDFOPEqual(), key, 5L), "id", Schema.Type.LONG);
+    Assert.assertArrayEquals(Bytes.toBytes(5L), range.getStart());
+    Assert.assertArrayEquals(Bytes.add(Bytes.toBytes(5L), new byte[1]), range.getStop());
+  }
+
+  @Test
+  public void testOtherColumn() {
+    ExprNodeDesc value = column("value", TypeInfoFactory.stringTypeInfo);
+    RowKeyRange range = create(compare(new GenericUDFOPEqual(), value, "x"), "key", Schema.Type.STRING);
+    Assert.assertTrue(range.isAll());
+  }
+
+  private RowKeyRange create(ExprNodeGenericFuncDesc expr, String keyColumn, Schema.Type keyType) {
+    Configuration conf = new Configuration();
+    conf.set(TableScanDesc.FILTER_EXPR_CONF_STR, Utilities.serializeExpression(expr));
+    return RowKeyRange.create(conf, keyColumn, keyType);
+  }
+
+  private ExprNodeDesc column(String name, TypeInfo typeInfo) {
+    return new ExprNodeColumnDesc(typeInfo, name, "t", false);
+  }
+
+  private ExprNodeGenericFuncDesc compare(GenericUDF udf, ExprNodeDesc column, Object value) {
+    return new ExprNodeGenericFuncDesc(TypeInfoFactory.booleanTypeInfo, udf,
+                                       Lists.<ExprNodeDesc>newArrayList(column, new ExprNodeConstantDesc(value)));
+  }
+
+  private ExprNodeGenericFuncDesc and(ExprNodeDesc left, ExprNodeDesc right) {
+    return new ExprNodeGenericFuncDesc(TypeInfoFactory.booleanTypeInfo, new GenericUDFOPAnd(),
+                                       Lists.<ExprNodeDesc>newArrayList(left, right));
+  }
+}
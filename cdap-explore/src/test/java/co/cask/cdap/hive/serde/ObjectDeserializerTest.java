@@ -19,6 +19,9 @@ package co.cask.cdap.hive.serde;
 import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.data.format.StructuredRecord;
 import co.cask.cdap.api.data.schema.Schema;
+import co.cask.cdap.internal.io.ASMFieldAccessorFactory;
+import co.cask.cdap.internal.io.FieldAccessorFactory;
+import co.cask.cdap.internal.io.ReflectionFieldAccessorFactory;
 import co.cask.cdap.internal.io.ReflectionSchemaGenerator;
 import co.cask.cdap.internal.io.SchemaGenerator;
 import com.google.common.collect.ImmutableMap;
@@ -166,6 +169,53 @@ public class ObjectDeserializerTest {
     }
   }
 
+  // record with many fields, both accessible and private ones
+  public static class WideRecord {
+    final long l0;
+    final long l1;
+    final long l2;
+    final long l3;
+    final long l4;
+    final long l5;
+    final long l6;
+    final long l7;
+    final long l8;
+    final long l9;
+    final long l10;
+    final long l11;
+    private final String s0;
+    private final String s1;
+    private final String s2;
+    private final String s3;
+    private final String s4;
+    private final String s5;
+    private final String s6;
+    private final String s7;
+
+    WideRecord(long value) {
+      this.l0 = value + 0;
+      this.l1 = value + 1;
+      this.l2 = value + 2;
+      this.l3 = value + 3;
+      this.l4 = value + 4;
+      this.l5 = value + 5;
+      this.l6 = value + 6;
+      this.l7 = value + 7;
+      this.l8 = value + 8;
+      this.l9 = value + 9;
+      this.l10 = value + 10;
+      this.l11 = value + 11;
+      this.s0 = "s" + value;
+      this.s1 = "s" + value;
+      this.s2 = "s" + value;
+      this.s3 = "s" + value;
+      this.s4 = "s" + value;
+      this.s5 = "s" + value;
+      this.s6 = "s" + value;
+      this.s7 = "s" + value;
+    }
+  }
+
   public static class NestedRecord {
     final Map<Integer, String> mapField;
     final List<Boolean> listField;
@@ -384,6 +434,52 @@ public class ObjectDeserializerTest {
     assertSimpleRecordEquals((List<Object>) expected.get(2), (List<Object>) translated.get(2));
   }
 
+  @Test
+  public void testProjection() throws Exception {
+    NestedRecord nestedRecord = new NestedRecord();
+    ObjectDeserializer translator = new ObjectDeserializer(
+      NestedRecord.getFieldNames(), NestedRecord.getFieldTypes(), schemaGenerator.generate(NestedRecord.class),
+      0, Lists.newArrayList(1));
+    List<Object> translated = translator.translateRecord(nestedRecord);
+    List<Object> expected = nestedRecord.getAsList();
+    // only the projected field is translated
+    Assert.assertEquals(expected.size(), translated.size());
+    Assert.assertNull(translated.get(0));
+    Assert.assertEquals(expected.get(1), translated.get(1));
+    Assert.assertNull(translated.get(2));
+  }
+
+  @Test
+  public void testWideRecord() throws Exception {
+    ObjectDeserializer deserializer = createWideRecordDeserializer(new ASMFieldAccessorFactory());
+    ObjectDeserializer reflectionDeserializer = createWideRecordDeserializer(new ReflectionFieldAccessorFactory());
+    List<Schema.Field> fields = schemaGenerator.generate(WideRecord.class).getFields();
+
+    // Translating through the generated accessors gives the same result as through reflection
+    for (int i = 0; i < 10; i++) {
+      List<Object> translated = deserializer.translateRecord(new WideRecord(i));
+      Assert.assertEquals(reflectionDeserializer.translateRecord(new WideRecord(i)), translated);
+      Assert.assertEquals(fields.size(), translated.size());
+      for (int j = 0; j < fields.size(); j++) {
+        String name = fields.get(j).getName();
+        Object expected = name.startsWith("l") ? (Object) (i + Long.parseLong(name.substring(1))) : "s" + i;
+        Assert.assertEquals(name, expected, translated.get(j));
+      }
+    }
+  }
+
+  private ObjectDeserializer createWideRecordDeserializer(FieldAccessorFactory factory) throws Exception {
+    Schema schema = schemaGenerator.generate(WideRecord.class);
+    List<String> names = Lists.newArrayList();
+    List<TypeInfo> types = Lists.newArrayList();
+    for (Schema.Field field : schema.getFields()) {
+      names.add(field.getName().toLowerCase());
+      types.add(field.getSchema().getType() == Schema.Type.STRING
+                  ? TypeInfoFactory.stringTypeInfo : TypeInfoFactory.longTypeInfo);
+    }
+    return new ObjectDeserializer(names, types, schema, 0, null, factory);
+  }
+
   @SuppressWarnings("unchecked")
   private void assertSimpleRecordEquals(List<Object> expected, List<Object> actual) {
     // compare the non-array fields
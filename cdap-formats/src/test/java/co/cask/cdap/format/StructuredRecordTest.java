@@ -0,0 +1,121 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.format;
+
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.format.UnexpectedFormatException;
+import co.cask.cdap.api.data.schema.Schema;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * Tests for {@link StructuredRecord}.
+ */
+public class StructuredRecordTest {
+
+  private static final Schema SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("id", Schema.of(Schema.Type.LONG)),
+    Schema.Field.of("name", Schema.of(Schema.Type.STRING)),
+    Schema.Field.of("score", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE))));
+
+  @Test
+  public void testFieldAccess() {
+    StructuredRecord record = StructuredRecord.builder(SCHEMA)
+      .set("id", 1L)
+      .set(1, "one")
+      .build();
+
+    Assert.assertEquals(1L, record.<Long>get("id").longValue());
+    Assert.assertEquals(1L, record.<Long>get(0).longValue());
+    Assert.assertEquals("one", record.get("name"));
+    Assert.assertEquals("one", record.get(1));
+    Assert.assertNull(record.get("score"));
+    Assert.assertNull(record.get(2));
+    Assert.assertNull(record.get("unknown"));
+    Assert.assertEquals(1, SCHEMA.getFieldIndex("name"));
+    Assert.assertEquals(-1, SCHEMA.getFieldIndex("unknown"));
+  }
+
+  @Test
+  public void testBuilderReuse() {
+    StructuredRecord.Builder builder = StructuredRecord.builder(SCHEMA).set("id", 1L).set("name", "one");
+    StructuredRecord first = builder.build();
+    StructuredRecord second = builder.set("id", 2L).set("score", 0.5d).build();
+
+    // Setting fields after build doesn't change records built before
+    Assert.assertEquals(1L, first.<Long>get("id").longValue());
+    Assert.assertNull(first.get("score"));
+    Assert.assertEquals(2L, second.<Long>get("id").longValue());
+    Assert.assertEquals("one", second.get("name"));
+    Assert.assertEquals(0.5d, second.<Double>get("score"), 0.0d);
+  }
+
+  @Test
+  public void testValidation() {
+    StructuredRecord.Builder builder = StructuredRecord.builder(SCHEMA);
+    try {
+      builder.set("unknown", 1);
+      Assert.fail("Expected an exception for an unknown field");
+    } catch (UnexpectedFormatException e) {
+      // expected
+    }
+    try {
+      builder.set(3, 1);
+      Assert.fail("Expected an exception for an unknown position");
+    } catch (UnexpectedFormatException e) {
+      // expected
+    }
+    try {
+      builder.set(0, null);
+      Assert.fail("Expected an exception for setting a non-nullable field to null");
+    } catch (UnexpectedFormatException e) {
+      // expected
+    }
+    try {
+      builder.set("id", 1L).build();
+      Assert.fail("Expected an exception for a non-nullable field without value");
+    } catch (UnexpectedFormatException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testEqualsAndSerialization() throws Exception {
+    StructuredRecord record = StructuredRecord.builder(SCHEMA).set("id", 1L).set("name", "one").build();
+    StructuredRecord same = StructuredRecord.builder(SCHEMA).set("name", "one").set("id", 1L).build();
+    Assert.assertEquals(record, same);
+    Assert.assertEquals(record.hashCode(), same.hashCode());
+    Assert.assertNotEquals(record, StructuredRecord.builder(SCHEMA).set("id", 2L).set("name", "one").build());
+
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+      oos.writeObject(record);
+    }
+    try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+      StructuredRecord deserialized = (StructuredRecord) ois.readObject();
+      Assert.assertEquals(record, deserialized);
+      Assert.assertEquals("one", deserialized.get(1));
+    }
+  }
+}
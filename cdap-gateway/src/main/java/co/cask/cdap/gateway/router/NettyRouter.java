@@ -24,6 +24,7 @@ import co.cask.cdap.gateway.router.handlers.HttpRequestHandler;
 import co.cask.cdap.gateway.router.handlers.HttpStatusRequestHandler;
 import co.cask.cdap.gateway.router.handlers.IdleEventProcessor;
 import co.cask.cdap.gateway.router.handlers.SecurityAuthenticationHttpHandler;
+import co.cask.cdap.gateway.router.handlers.ValidatedTokenCache;
 import co.cask.cdap.security.auth.AccessTokenTransformer;
 import co.cask.cdap.security.auth.TokenValidator;
 import co.cask.cdap.security.tools.SSLHandlerFactory;
@@ -93,6 +94,7 @@ public class NettyRouter extends AbstractIdleService {
   private final RouterServiceLookup serviceLookup;
   private final boolean securityEnabled;
   private final TokenValidator tokenValidator;
+  private final ValidatedTokenCache tokenCache;
   private final AccessTokenTransformer accessTokenTransformer;
   private final CConfiguration configuration;
   private final String realm;
@@ -121,6 +123,8 @@ public class NettyRouter extends AbstractIdleService {
     this.securityEnabled = cConf.getBoolean(Constants.Security.ENABLED, false);
     this.realm = cConf.get(Constants.Security.CFG_REALM);
     this.tokenValidator = tokenValidator;
+    this.tokenCache = new ValidatedTokenCache(cConf.getInt(Constants.Security.Router.TOKEN_CACHE_SIZE),
+                                              cConf.getLong(Constants.Security.Router.TOKEN_CACHE_EXPIRATION_MS));
     this.accessTokenTransformer = accessTokenTransformer;
     this.discoveryServiceClient = discoveryServiceClient;
     this.configuration = cConf;
@@ -195,6 +199,10 @@ public class NettyRouter extends AbstractIdleService {
       timer.stop();
     }
 
+    if (securityEnabled) {
+      LOG.info("Validated access token cache statistics: {}", tokenCache.getStats());
+    }
+
     LOG.info("Stopped Netty Router.");
   }
 
@@ -255,7 +263,7 @@ public class NettyRouter extends AbstractIdleService {
           pipeline.addLast("http-status-request-handler", new HttpStatusRequestHandler());
           if (securityEnabled) {
             pipeline.addLast("access-token-authenticator", new SecurityAuthenticationHttpHandler(
-              realm, tokenValidator, configuration, accessTokenTransformer, discoveryServiceClient));
+              realm, tokenValidator, tokenCache, configuration, accessTokenTransformer, discoveryServiceClient));
           }
           // for now there's only one hardcoded rule, but if there will be more, we may want it generic and configurable
           pipeline.addLast("http-request-handler",
@@ -65,6 +65,7 @@ public class SecurityAuthenticationHttpHandler extends SimpleChannelHandler {
   private static final Logger AUDIT_LOG = LoggerFactory.getLogger("http-access");
 
   private final TokenValidator tokenValidator;
+  private final ValidatedTokenCache tokenCache;
   private final AccessTokenTransformer accessTokenTransformer;
   private final DiscoveryServiceClient discoveryServiceClient;
   private final Iterable<Discoverable> discoverables;
@@ -74,11 +75,13 @@ public class SecurityAuthenticationHttpHandler extends SimpleChannelHandler {
 
 
   public SecurityAuthenticationHttpHandler(String realm, TokenValidator tokenValidator,
+                                           ValidatedTokenCache tokenCache,
                                            CConfiguration configuration,
                                            AccessTokenTransformer accessTokenTransformer,
                                            DiscoveryServiceClient discoveryServiceClient) {
     this.realm = realm;
     this.tokenValidator = tokenValidator;
+    this.tokenCache = tokenCache;
     this.accessTokenTransformer = accessTokenTransformer;
     this.discoveryServiceClient = discoveryServiceClient;
     this.discoverables = discoveryServiceClient.discover(Constants.Service.EXTERNAL_AUTHENTICATION);
@@ -132,54 +135,62 @@ public class SecurityAuthenticationHttpHandler extends SimpleChannelHandler {
     logEntry.setClientIP(((InetSocketAddress) ctx.getChannel().getRemoteAddress()).getAddress());
     logEntry.setRequestLine(msg.getMethod(), msg.getUri(), msg.getProtocolVersion());
 
-    TokenState tokenState = tokenValidator.validate(accessToken);
-    if (!tokenState.isValid()) {
-      HttpResponse httpResponse = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.UNAUTHORIZED);
-      logEntry.setResponseCode(HttpResponseStatus.UNAUTHORIZED.getCode());
-
-      JsonObject jsonObject = new JsonObject();
-      if (tokenState == TokenState.MISSING) {
-        httpResponse.addHeader(HttpHeaders.Names.WWW_AUTHENTICATE,
-                               String.format("Bearer realm=\"%s\"", realm));
-        LOG.debug("Authentication failed due to missing token");
-
-      } else {
-        httpResponse.addHeader(HttpHeaders.Names.WWW_AUTHENTICATE,
-                               String.format("Bearer realm=\"%s\" error=\"invalid_token\"" +
-                                               " error_description=\"%s\"", realm, tokenState.getMsg()));
-        jsonObject.addProperty("error", "invalid_token");
-        jsonObject.addProperty("error_description", tokenState.getMsg());
-        LOG.debug("Authentication failed due to invalid token, reason={};", tokenState);
+    // Skip decoding and validating the token if it was validated before
+    AccessTokenTransformer.AccessTokenIdentifierPair accessTokenIdentifierPair =
+      accessToken == null ? null : tokenCache.getIfValid(accessToken);
+    if (accessTokenIdentifierPair == null) {
+      TokenState tokenState = tokenValidator.validate(accessToken);
+      if (!tokenState.isValid()) {
+        HttpResponse httpResponse = new DefaultHttpResponse(HttpVersion.HTTP_1_1,
+                                                            HttpResponseStatus.UNAUTHORIZED);
+        logEntry.setResponseCode(HttpResponseStatus.UNAUTHORIZED.getCode());
+
+        JsonObject jsonObject = new JsonObject();
+        if (tokenState == TokenState.MISSING) {
+          httpResponse.addHeader(HttpHeaders.Names.WWW_AUTHENTICATE,
+                                 String.format("Bearer realm=\"%s\"", realm));
+          LOG.debug("Authentication failed due to missing token");
+
+        } else {
+          httpResponse.addHeader(HttpHeaders.Names.WWW_AUTHENTICATE,
+                                 String.format("Bearer realm=\"%s\" error=\"invalid_token\"" +
+                                                 " error_description=\"%s\"", realm, tokenState.getMsg()));
+          jsonObject.addProperty("error", "invalid_token");
+          jsonObject.addProperty("error_description", tokenState.getMsg());
+          LOG.debug("Authentication failed due to invalid token, reason={};", tokenState);
+        }
+        JsonArray externalAuthenticationURIs = new JsonArray();
+
+        // Waiting for service to get discovered
+        stopWatchWait(externalAuthenticationURIs);
+
+        jsonObject.add("auth_uri", externalAuthenticationURIs);
+
+        ChannelBuffer content = ChannelBuffers.wrappedBuffer(jsonObject.toString().getBytes(Charsets.UTF_8));
+        httpResponse.setContent(content);
+        int contentLength = content.readableBytes();
+        httpResponse.setHeader(HttpHeaders.Names.CONTENT_LENGTH, contentLength);
+        httpResponse.setHeader(HttpHeaders.Names.CONTENT_TYPE, "application/json;charset=UTF-8");
+        logEntry.setResponseContentLength(new Long(contentLength));
+        ChannelFuture writeFuture = Channels.future(inboundChannel);
+        Channels.write(ctx, writeFuture, httpResponse);
+        writeFuture.addListener(ChannelFutureListener.CLOSE);
+        return false;
+      }
+      accessTokenIdentifierPair = accessTokenTransformer.transform(accessToken);
+      if (accessToken != null) {
+        tokenCache.put(accessToken, accessTokenIdentifierPair);
       }
-      JsonArray externalAuthenticationURIs = new JsonArray();
-
-      // Waiting for service to get discovered
-      stopWatchWait(externalAuthenticationURIs);
-
-      jsonObject.add("auth_uri", externalAuthenticationURIs);
-
-      ChannelBuffer content = ChannelBuffers.wrappedBuffer(jsonObject.toString().getBytes(Charsets.UTF_8));
-      httpResponse.setContent(content);
-      int contentLength = content.readableBytes();
-      httpResponse.setHeader(HttpHeaders.Names.CONTENT_LENGTH, contentLength);
-      httpResponse.setHeader(HttpHeaders.Names.CONTENT_TYPE, "application/json;charset=UTF-8");
-      logEntry.setResponseContentLength(new Long(contentLength));
-      ChannelFuture writeFuture = Channels.future(inboundChannel);
-      Channels.write(ctx, writeFuture, httpResponse);
-      writeFuture.addListener(ChannelFutureListener.CLOSE);
-      return false;
-    } else {
-      AccessTokenTransformer.AccessTokenIdentifierPair accessTokenIdentifierPair =
-        accessTokenTransformer.transform(accessToken);
-      logEntry.setUserName(accessTokenIdentifierPair.getAccessTokenIdentifierObj().getUsername());
-      msg.setHeader(HttpHeaders.Names.AUTHORIZATION,
-                    "CDAP-verified " + accessTokenIdentifierPair.getAccessTokenIdentifierStr());
-      msg.setHeader(Constants.Security.Headers.USER_ID,
-                    accessTokenIdentifierPair.getAccessTokenIdentifierObj().getUsername());
-      msg.setHeader(Constants.Security.Headers.USER_IP,
-                    ((InetSocketAddress) ctx.getChannel().getRemoteAddress()).getAddress().getHostAddress());
-      return true;
     }
+
+    logEntry.setUserName(accessTokenIdentifierPair.getAccessTokenIdentifierObj().getUsername());
+    msg.setHeader(HttpHeaders.Names.AUTHORIZATION,
+                  "CDAP-verified " + accessTokenIdentifierPair.getAccessTokenIdentifierStr());
+    msg.setHeader(Constants.Security.Headers.USER_ID,
+                  accessTokenIdentifierPair.getAccessTokenIdentifierObj().getUsername());
+    msg.setHeader(Constants.Security.Headers.USER_IP,
+                  ((InetSocketAddress) ctx.getChannel().getRemoteAddress()).getAddress().getHostAddress());
+    return true;
   }
 
   /**
@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.gateway.router.handlers;
+
+import co.cask.cdap.security.auth.AccessTokenTransformer.AccessTokenIdentifierPair;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * A bounded cache of access tokens that were validated by the router, so that requests reusing the same token
+ * don't need to decode the token and recompute its digest again.
+ *
+ * A cached token is accepted until the token expires, or until the cache expiration passed since it was validated,
+ * whichever comes first. Secret keys are only removed by key rotation after all tokens signed with them have expired,
+ * hence the token expiration already covers key rotation. The cache expiration bounds the time that a token is still
+ * accepted after its key is removed in any other way. This class is thread safe.
+ */
+public final class ValidatedTokenCache {
+
+  private final Cache<String, AccessTokenIdentifierPair> cache;
+
+  /**
+   * Creates a new instance.
+   *
+   * @param maxSize maximum number of tokens to cache
+   * @param expirationMillis maximum time in milliseconds to accept a cached token
+   */
+  public ValidatedTokenCache(int maxSize, long expirationMillis) {
+    this.cache = CacheBuilder.newBuilder()
+      .maximumSize(maxSize)
+      .expireAfterWrite(expirationMillis, TimeUnit.MILLISECONDS)
+      .recordStats()
+      .build();
+  }
+
+  /**
+   * Returns the identifier of the given access token if the token was validated and is not expired,
+   * or {@code null} if the token needs to be validated.
+   */
+  @Nullable
+  public AccessTokenIdentifierPair getIfValid(String accessToken) {
+    AccessTokenIdentifierPair identifierPair = cache.getIfPresent(accessToken);
+    if (identifierPair == null) {
+      return null;
+    }
+    if (identifierPair.getAccessTokenIdentifierObj().getExpireTimestamp() < System.currentTimeMillis()) {
+      cache.invalidate(accessToken);
+      return null;
+    }
+    return identifierPair;
+  }
+
+  /**
+   * Caches a validated access token.
+   *
+   * @param accessToken the access token from the Authorization header
+   * @param identifierPair the identifier of the access token
+   */
+  public void put(String accessToken, AccessTokenIdentifierPair identifierPair) {
+    cache.put(accessToken, identifierPair);
+  }
+
+  /**
+   * Returns the hit, miss and eviction statistics of the cache.
+   */
+  public CacheStats getStats() {
+    return cache.stats();
+  }
+}
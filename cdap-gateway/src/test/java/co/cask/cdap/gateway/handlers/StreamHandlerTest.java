@@ -48,7 +48,12 @@ import com.google.gson.GsonBuilder;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParser;
+import org.apache.avro.file.DataFileStream;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.util.Utf8;
 import org.apache.commons.lang3.ArrayUtils;
+import org.jboss.netty.handler.codec.http.HttpHeaders;
 import org.jboss.netty.handler.codec.http.HttpMethod;
 import org.jboss.netty.handler.codec.http.HttpResponseStatus;
 import org.junit.After;
@@ -60,7 +65,9 @@ import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 
@@ -207,6 +214,45 @@ public class StreamHandlerTest extends GatewayTestBase {
     urlConn.disconnect();
   }
 
+  @Test
+  public void testFetchAvroEvents() throws Exception {
+    // Create new stream.
+    HttpURLConnection urlConn = openURL(createURL("streams/test_stream_avro"), HttpMethod.PUT);
+    Assert.assertEquals(HttpResponseStatus.OK.getCode(), urlConn.getResponseCode());
+    urlConn.disconnect();
+
+    // Enqueue 10 entries
+    for (int i = 0; i < 10; ++i) {
+      urlConn = openURL(createURL("streams/test_stream_avro"), HttpMethod.POST);
+      urlConn.setDoOutput(true);
+      urlConn.addRequestProperty("test_stream_avro.header1", Integer.toString(i));
+      urlConn.getOutputStream().write(Integer.toString(i).getBytes(Charsets.UTF_8));
+      Assert.assertEquals(HttpResponseStatus.OK.getCode(), urlConn.getResponseCode());
+      urlConn.disconnect();
+    }
+
+    // Fetch 10 entries as Avro
+    urlConn = openURL(createURL("streams/test_stream_avro/events?limit=10"), HttpMethod.GET);
+    urlConn.setRequestProperty(HttpHeaders.Names.ACCEPT, "avro/binary");
+    Assert.assertEquals(HttpResponseStatus.OK.getCode(), urlConn.getResponseCode());
+    Assert.assertEquals("avro/binary", urlConn.getContentType());
+
+    int count = 0;
+    try (DataFileStream<GenericRecord> reader = new DataFileStream<>(urlConn.getInputStream(),
+                                                                     new GenericDatumReader<GenericRecord>())) {
+      for (GenericRecord record : reader) {
+        int actual = Integer.parseInt(Charsets.UTF_8.decode((ByteBuffer) record.get("body")).toString());
+        Assert.assertEquals(count, actual);
+        Map<?, ?> headers = (Map<?, ?>) record.get("headers");
+        Assert.assertEquals(Integer.toString(count), headers.get(new Utf8("header1")).toString());
+        Assert.assertTrue((Long) record.get("timestamp") > 0L);
+        count++;
+      }
+    }
+    Assert.assertEquals(10, count);
+    urlConn.disconnect();
+  }
+
   @Test
   public void testListStreams() throws Exception {
     List<StreamDetail> specs = listStreams(NamespaceId.DEFAULT);
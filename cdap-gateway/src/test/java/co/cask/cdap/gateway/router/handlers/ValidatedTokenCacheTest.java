@@ -0,0 +1,67 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.gateway.router.handlers;
+
+import co.cask.cdap.security.auth.AccessTokenIdentifier;
+import co.cask.cdap.security.auth.AccessTokenTransformer;
+import co.cask.cdap.security.auth.AccessTokenTransformer.AccessTokenIdentifierPair;
+import com.google.common.collect.ImmutableList;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for {@link ValidatedTokenCache}.
+ */
+public class ValidatedTokenCacheTest {
+
+  private static final AccessTokenTransformer TRANSFORMER = new AccessTokenTransformer(null, null);
+
+  @Test
+  public void testCache() {
+    ValidatedTokenCache cache = new ValidatedTokenCache(10, TimeUnit.MINUTES.toMillis(1));
+    long now = System.currentTimeMillis();
+    AccessTokenIdentifierPair valid = createIdentifier("valid", now + TimeUnit.MINUTES.toMillis(10));
+    AccessTokenIdentifierPair expired = createIdentifier("expired", now - 1);
+
+    Assert.assertNull(cache.getIfValid("token1"));
+    cache.put("token1", valid);
+    Assert.assertSame(valid, cache.getIfValid("token1"));
+
+    // Expired tokens are not accepted from the cache
+    cache.put("token2", expired);
+    Assert.assertNull(cache.getIfValid("token2"));
+
+    Assert.assertEquals(1L, cache.getStats().missCount());
+  }
+
+  @Test
+  public void testCacheExpiration() throws InterruptedException {
+    ValidatedTokenCache cache = new ValidatedTokenCache(10, 1L);
+    cache.put("token", createIdentifier("user", System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(10)));
+    TimeUnit.MILLISECONDS.sleep(10);
+    Assert.assertNull(cache.getIfValid("token"));
+  }
+
+  private AccessTokenIdentifierPair createIdentifier(String user, long expireTimestamp) {
+    AccessTokenIdentifier identifier = new AccessTokenIdentifier(user, ImmutableList.<String>of(),
+                                                                 System.currentTimeMillis(), expireTimestamp);
+    return TRANSFORMER.new AccessTokenIdentifierPair(user, identifier);
+  }
+}
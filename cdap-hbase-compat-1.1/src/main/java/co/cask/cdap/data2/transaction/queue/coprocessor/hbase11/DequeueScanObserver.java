@@ -16,23 +16,41 @@
 
 package co.cask.cdap.data2.transaction.queue.coprocessor.hbase11;
 
+import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.data2.queue.ConsumerConfig;
+import co.cask.cdap.data2.transaction.queue.coprocessor.QueueEntryClaimer;
 import co.cask.cdap.data2.transaction.queue.hbase.DequeueScanAttributes;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.coprocessor.BaseRegionObserver;
 import org.apache.hadoop.hbase.coprocessor.ObserverContext;
 import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
+import org.apache.hadoop.hbase.filter.BinaryComparator;
+import org.apache.hadoop.hbase.filter.CompareFilter;
 import org.apache.hadoop.hbase.filter.Filter;
 import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.regionserver.InternalScanner;
+import org.apache.hadoop.hbase.regionserver.Region;
 import org.apache.hadoop.hbase.regionserver.RegionScanner;
 import org.apache.tephra.Transaction;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
- *
+ * Region observer for dequeue scans. It adds a {@link DequeueFilter} to filter out entries that cannot be consumed
+ * by the consumer. If the scan {@link DequeueScanAttributes#getMaxClaims(Scan) requests} it, entries are also
+ * claimed for a FIFO consumer in the region while scanning, which saves one checkAndPut call per entry from
+ * the client.
  */
 public class DequeueScanObserver extends BaseRegionObserver {
+
+  // Claimers of the scanners opened for dequeue that need to claim entries
+  private final ConcurrentMap<InternalScanner, QueueEntryClaimer> claimers = new ConcurrentHashMap<>();
+
   @Override
   public RegionScanner preScannerOpen(ObserverContext<RegionCoprocessorEnvironment> e, Scan scan, RegionScanner s)
     throws IOException {
@@ -55,4 +73,54 @@ public class DequeueScanObserver extends BaseRegionObserver {
 
     return super.preScannerOpen(e, scan, s);
   }
+
+  @Override
+  public RegionScanner postScannerOpen(ObserverContext<RegionCoprocessorEnvironment> e, Scan scan, RegionScanner s)
+    throws IOException {
+    QueueEntryClaimer claimer = DequeueScanAttributes.createClaimer(scan);
+    if (claimer != null) {
+      claimers.put(s, claimer);
+    }
+    return super.postScannerOpen(e, scan, s);
+  }
+
+  @Override
+  public boolean postScannerNext(ObserverContext<RegionCoprocessorEnvironment> e, InternalScanner s,
+                                 List<Result> results, int limit, boolean hasMore) throws IOException {
+    QueueEntryClaimer claimer = claimers.get(s);
+    if (claimer != null) {
+      claimer.claim(new ClaimRegionAdapter(e.getEnvironment().getRegion()), results);
+    }
+    return super.postScannerNext(e, s, results, limit, hasMore);
+  }
+
+  @Override
+  public void postScannerClose(ObserverContext<RegionCoprocessorEnvironment> e, InternalScanner s)
+    throws IOException {
+    claimers.remove(s);
+    super.postScannerClose(e, s);
+  }
+
+  /**
+   * A {@link QueueEntryClaimer.RegionAdapter} that claims entries through the {@link Region} of the coprocessor.
+   */
+  private static final class ClaimRegionAdapter implements QueueEntryClaimer.RegionAdapter {
+
+    private final Region region;
+
+    ClaimRegionAdapter(Region region) {
+      this.region = region;
+    }
+
+    @Override
+    public boolean putIfAbsent(byte[] row, byte[] family, byte[] qualifier, Put put) throws IOException {
+      return region.checkAndMutate(row, family, qualifier, CompareFilter.CompareOp.EQUAL,
+                                   new BinaryComparator(Bytes.EMPTY_BYTE_ARRAY), put, true);
+    }
+
+    @Override
+    public String getRegionName() {
+      return region.getRegionInfo().getRegionNameAsString();
+    }
+  }
 }
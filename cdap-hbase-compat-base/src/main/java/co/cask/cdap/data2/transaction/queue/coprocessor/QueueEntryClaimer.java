@@ -0,0 +1,167 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.transaction.queue.coprocessor;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.ListIterator;
+
+/**
+ * Claims queue entries for a FIFO consumer in the results of a dequeue scanner, from inside the region server.
+ * The same as the client side claiming, an entry is claimed by atomically setting the state column of the consumer
+ * group if it is absent. Entries that are claimed are returned with the new state, while entries that are claimed
+ * by others concurrently are removed from the results.
+ * <p>
+ * The claiming is done in {@code postScannerNext}, after the scanner has produced the results and without holding
+ * any row lock, hence each claim is a regular check and mutate that takes the row lock of the entry on its own. It
+ * is therefore atomic with respect to concurrent claims made by other region scanners or by clients. Claiming is
+ * best effort: if a claim fails with an exception (e.g. the region is too busy or closing), the current and
+ * remaining entries are returned unclaimed, so that the client claims them as if the region server never did.
+ * </p>
+ * <p>
+ * This class is not thread safe. An instance is meant to be used by a single region scanner.
+ * </p>
+ */
+public final class QueueEntryClaimer {
+
+  private static final Logger LOG = LoggerFactory.getLogger(QueueEntryClaimer.class);
+
+  private final byte[] family;
+  private final byte[][] requiredColumns;
+  private final byte[] stateColumn;
+  private final byte[] claimedStateValue;
+  private int remaining;
+
+  /**
+   * Creates a new instance.
+   *
+   * @param family column family of the queue entries
+   * @param requiredColumns columns that must be present for a row to be a queue entry that can be claimed
+   * @param stateColumn the state column of the consumer group
+   * @param claimedStateValue the value to set to the state column when claiming an entry
+   * @param maxClaims maximum number of entries to claim
+   */
+  public QueueEntryClaimer(byte[] family, byte[][] requiredColumns,
+                           byte[] stateColumn, byte[] claimedStateValue, int maxClaims) {
+    this.family = family;
+    this.requiredColumns = requiredColumns;
+    this.stateColumn = stateColumn;
+    this.claimedStateValue = claimedStateValue;
+    this.remaining = maxClaims;
+  }
+
+  /**
+   * Returns the number of entries that can still be claimed.
+   */
+  public int getRemaining() {
+    return remaining;
+  }
+
+  /**
+   * Claims the unclaimed entries in the given scan results, modifying the list in place.
+   *
+   * @param region the region that the results are scanned from
+   * @param results results returned by the scanner
+   */
+  public void claim(RegionAdapter region, List<Result> results) {
+    ListIterator<Result> iterator = results.listIterator();
+    while (remaining > 0 && iterator.hasNext()) {
+      Result result = iterator.next();
+      if (!isClaimable(result)) {
+        continue;
+      }
+
+      byte[] row = result.getRow();
+      Put put = new Put(row);
+      put.add(family, stateColumn, claimedStateValue);
+      boolean claimed;
+      try {
+        claimed = region.putIfAbsent(row, family, stateColumn, put);
+      } catch (IOException e) {
+        // Leave the remaining entries unclaimed, which will be claimed by the client instead
+        LOG.debug("Failed to claim queue entry in region {}", region.getRegionName(), e);
+        return;
+      }
+
+      if (claimed) {
+        remaining--;
+        iterator.set(addStateCell(result));
+      } else {
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Returns a new {@link Result} that has the claimed state cell added to the given {@link Result},
+   * keeping the cells sorted by qualifier.
+   */
+  private Result addStateCell(Result result) {
+    Cell[] cells = result.rawCells();
+    List<Cell> newCells = new ArrayList<>(cells.length + 1);
+    int idx = 0;
+    while (idx < cells.length && Bytes.compareTo(cells[idx].getQualifierArray(), cells[idx].getQualifierOffset(),
+                                                 cells[idx].getQualifierLength(),
+                                                 stateColumn, 0, stateColumn.length) < 0) {
+      idx++;
+    }
+    newCells.addAll(Arrays.asList(cells).subList(0, idx));
+    newCells.add(new KeyValue(result.getRow(), family, stateColumn, claimedStateValue));
+    newCells.addAll(Arrays.asList(cells).subList(idx, cells.length));
+    return Result.create(newCells);
+  }
+
+  private boolean isClaimable(Result result) {
+    if (result.isEmpty() || result.getValue(family, stateColumn) != null) {
+      return false;
+    }
+    for (byte[] column : requiredColumns) {
+      if (result.getValue(family, column) == null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Adapter to the HBase version specific region class for performing the atomic claim.
+   */
+  public interface RegionAdapter {
+
+    /**
+     * Atomically applies the given {@link Put} if the given column is absent in the row.
+     *
+     * @return {@code true} if the put was applied
+     */
+    boolean putIfAbsent(byte[] row, byte[] family, byte[] qualifier, Put put) throws IOException;
+
+    /**
+     * Returns the name of the region, for logging purpose.
+     */
+    String getRegionName();
+  }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.transaction.queue.coprocessor;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Unit tests for {@link QueueEntryClaimer}.
+ */
+public class QueueEntryClaimerTest {
+
+  private static final byte[] FAMILY = Bytes.toBytes("q");
+  private static final byte[] DATA = Bytes.toBytes("d");
+  private static final byte[] META = Bytes.toBytes("m");
+  private static final byte[] STATE = Bytes.toBytes("s1");
+  private static final byte[] OTHER_STATE = Bytes.toBytes("s2");
+  private static final byte[] CLAIMED = Bytes.toBytes("claimed");
+
+  @Test
+  public void testClaim() {
+    TestRegionAdapter region = new TestRegionAdapter();
+    List<Result> results = new ArrayList<>(Arrays.asList(entry("r1"), entry("r2"), entry("r3")));
+
+    QueueEntryClaimer claimer = createClaimer(2);
+    claimer.claim(region, results);
+
+    // Only up to max claims are claimed, the rest is returned unclaimed
+    Assert.assertEquals(3, results.size());
+    assertClaimed(results.get(0), "r1");
+    assertClaimed(results.get(1), "r2");
+    Assert.assertNull(results.get(2).getValue(FAMILY, STATE));
+    Assert.assertEquals(0, claimer.getRemaining());
+    Assert.assertEquals(new TreeSet<>(Arrays.asList("r1", "r2")), region.claimed);
+
+    // Further claims won't do anything
+    results = new ArrayList<>(Arrays.asList(entry("r4")));
+    claimer.claim(region, results);
+    Assert.assertNull(results.get(0).getValue(FAMILY, STATE));
+    Assert.assertEquals(2, region.claimed.size());
+  }
+
+  @Test
+  public void testSkip() {
+    TestRegionAdapter region = new TestRegionAdapter();
+
+    // Already has state, missing meta, missing data, and empty results are not claimed
+    Result claimed = Result.create(cells("r1", DATA, META, STATE));
+    Result noMeta = Result.create(cells("r2", DATA));
+    Result noData = Result.create(cells("r3", META));
+    Result empty = Result.create(new ArrayList<Cell>());
+    List<Result> results = new ArrayList<>(Arrays.asList(claimed, noMeta, noData, empty, entry("r5")));
+
+    QueueEntryClaimer claimer = createClaimer(10);
+    claimer.claim(region, results);
+
+    Assert.assertEquals(5, results.size());
+    Assert.assertSame(claimed, results.get(0));
+    Assert.assertSame(noMeta, results.get(1));
+    Assert.assertSame(noData, results.get(2));
+    Assert.assertSame(empty, results.get(3));
+    assertClaimed(results.get(4), "r5");
+    Assert.assertEquals(new TreeSet<>(Arrays.asList("r5")), region.claimed);
+    Assert.assertEquals(9, claimer.getRemaining());
+  }
+
+  @Test
+  public void testConcurrentClaim() {
+    TestRegionAdapter region = new TestRegionAdapter();
+    // Simulate another consumer has claimed r2 after the scanner read it
+    region.claimed.add("r2");
+
+    List<Result> results = new ArrayList<>(Arrays.asList(entry("r1"), entry("r2"), entry("r3")));
+    QueueEntryClaimer claimer = createClaimer(10);
+    claimer.claim(region, results);
+
+    // The entry claimed by the other consumer is removed from the results
+    Assert.assertEquals(2, results.size());
+    assertClaimed(results.get(0), "r1");
+    assertClaimed(results.get(1), "r3");
+    Assert.assertEquals(8, claimer.getRemaining());
+
+    // Two claimers over the same entries never claim the same entry
+    List<Result> results1 = new ArrayList<>(Arrays.asList(entry("r4"), entry("r5")));
+    List<Result> results2 = new ArrayList<>(Arrays.asList(entry("r4"), entry("r5"), entry("r6")));
+    createClaimer(10).claim(region, results1);
+    createClaimer(10).claim(region, results2);
+    Assert.assertEquals(2, results1.size());
+    Assert.assertEquals(1, results2.size());
+    assertClaimed(results2.get(0), "r6");
+  }
+
+  @Test
+  public void testClaimFailure() {
+    TestRegionAdapter region = new TestRegionAdapter();
+    region.failOn = "r2";
+
+    Result r2 = entry("r2");
+    Result r3 = entry("r3");
+    List<Result> results = new ArrayList<>(Arrays.asList(entry("r1"), r2, r3));
+    QueueEntryClaimer claimer = createClaimer(10);
+    claimer.claim(region, results);
+
+    // On failure, the current and remaining entries are returned unclaimed for the client to claim
+    Assert.assertEquals(3, results.size());
+    assertClaimed(results.get(0), "r1");
+    Assert.assertSame(r2, results.get(1));
+    Assert.assertSame(r3, results.get(2));
+    Assert.assertEquals(new TreeSet<>(Arrays.asList("r1")), region.claimed);
+  }
+
+  @Test
+  public void testCellsSorted() {
+    TestRegionAdapter region = new TestRegionAdapter();
+    // The state column of another consumer group sorts after the claimed state column
+    List<Result> results = new ArrayList<>(Arrays.asList(Result.create(cells("r1", DATA, META, OTHER_STATE))));
+    createClaimer(1).claim(region, results);
+
+    Cell[] cells = results.get(0).rawCells();
+    Assert.assertEquals(4, cells.length);
+    byte[][] expected = { DATA, META, STATE, OTHER_STATE };
+    for (int i = 0; i < expected.length; i++) {
+      Assert.assertArrayEquals(expected[i], Bytes.copy(cells[i].getQualifierArray(), cells[i].getQualifierOffset(),
+                                                       cells[i].getQualifierLength()));
+    }
+    Assert.assertArrayEquals(CLAIMED, results.get(0).getValue(FAMILY, STATE));
+  }
+
+  private QueueEntryClaimer createClaimer(int maxClaims) {
+    return new QueueEntryClaimer(FAMILY, new byte[][] { DATA, META }, STATE, CLAIMED, maxClaims);
+  }
+
+  private void assertClaimed(Result result, String row) {
+    Assert.assertEquals(row, Bytes.toString(result.getRow()));
+    Assert.assertArrayEquals(CLAIMED, result.getValue(FAMILY, STATE));
+    Assert.assertArrayEquals(Bytes.toBytes(row), result.getValue(FAMILY, DATA));
+  }
+
+  private Result entry(String row) {
+    return Result.create(cells(row, DATA, META));
+  }
+
+  private List<Cell> cells(String row, byte[]... qualifiers) {
+    List<Cell> cells = new ArrayList<>();
+    for (byte[] qualifier : qualifiers) {
+      cells.add(new KeyValue(Bytes.toBytes(row), FAMILY, qualifier, Bytes.toBytes(row)));
+    }
+    return cells;
+  }
+
+  /**
+   * A {@link QueueEntryClaimer.RegionAdapter} that keeps the claimed rows in memory.
+   */
+  private static final class TestRegionAdapter implements QueueEntryClaimer.RegionAdapter {
+
+    private final Set<String> claimed = new TreeSet<>();
+    private String failOn;
+
+    @Override
+    public synchronized boolean putIfAbsent(byte[] row, byte[] family, byte[] qualifier,
+                                            Put put) throws IOException {
+      String key = Bytes.toString(row);
+      if (key.equals(failOn)) {
+        throw new IOException("Region too busy");
+      }
+      return claimed.add(key);
+    }
+
+    @Override
+    public String getRegionName() {
+      return "test";
+    }
+  }
+}
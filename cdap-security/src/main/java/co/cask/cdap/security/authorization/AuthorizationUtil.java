@@ -0,0 +1,60 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.security.authorization;
+
+import co.cask.cdap.api.Predicate;
+import co.cask.cdap.proto.id.EntityId;
+import co.cask.cdap.security.spi.authorization.AuthorizationEnforcer;
+import com.google.common.base.Function;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Utility methods for authorization.
+ */
+public final class AuthorizationUtil {
+
+  private AuthorizationUtil() {
+  }
+
+  /**
+   * Filters the given items to the ones whose entities pass the given filter. If the filter is a
+   * {@link PrivilegeIndex}, the whole collection is filtered in one pass with {@link PrivilegeIndex#filter}.
+   *
+   * @param filter the filter created by {@link AuthorizationEnforcer#createFilter}
+   * @param items the items to filter
+   * @param toEntityId a {@link Function} that returns the {@link EntityId} of an item
+   * @param <T> type of the items
+   * @return a new list of the items that pass the filter, in the same order as the given items
+   */
+  public static <T> List<T> filter(Predicate<EntityId> filter, Collection<T> items,
+                                   Function<? super T, ? extends EntityId> toEntityId) {
+    if (filter instanceof PrivilegeIndex) {
+      return ((PrivilegeIndex) filter).filter(items, toEntityId);
+    }
+    List<T> result = new ArrayList<>(items.size());
+    for (T item : items) {
+      if (filter.apply(toEntityId.apply(item))) {
+        result.add(item);
+      }
+    }
+    return result;
+  }
+}
@@ -76,18 +76,7 @@ public class DefaultAuthorizationEnforcementService extends AbstractAuthorizatio
       return ALLOW_ALL;
     }
     Map<EntityId, Set<Action>> privileges = getPrivileges(principal);
-    final Set<EntityId> allowedEntities = privileges != null ? privileges.keySet() : Collections.<EntityId>emptySet();
-
-    return new Predicate<EntityId>() {
-      @Override
-      public boolean apply(EntityId entityId) {
-        boolean parentPassed = false;
-        if (entityId instanceof ParentedId) {
-          parentPassed = apply(((ParentedId) entityId).getParent());
-        }
-        return (parentPassed || allowedEntities.contains(entityId));
-      }
-    };
+    return new PrivilegeIndex(privileges != null ? privileges.keySet() : Collections.<EntityId>emptySet());
   }
 
   protected boolean isSecurityAuthorizationEnabled() {
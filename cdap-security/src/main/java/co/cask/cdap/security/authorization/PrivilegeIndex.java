@@ -0,0 +1,156 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.security.authorization;
+
+import co.cask.cdap.api.Predicate;
+import co.cask.cdap.proto.id.EntityId;
+import co.cask.cdap.proto.id.ParentedId;
+import com.google.common.base.Function;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * A hierarchical index of the entities that a principal has privileges on, following the entity hierarchy
+ * (namespace, application, program and so on). An entity is visible if the principal has privileges on the entity
+ * or on any of its ancestors. Lookups walk down the tree from the root of the entity hierarchy and stop at the first
+ * privileged entity, or as soon as there are no privileges below an entity.
+ *
+ * Instances of this class are immutable once created, hence safe to use from multiple threads.
+ */
+public final class PrivilegeIndex implements Predicate<EntityId> {
+
+  // Marker node for entities that are visible together with all their descendants
+  private static final Node ALL_VISIBLE = new Node();
+
+  private final Map<EntityId, Node> roots;
+
+  /**
+   * Creates an index of the given entities.
+   *
+   * @param entities the entities that the principal has privileges on
+   */
+  public PrivilegeIndex(Collection<? extends EntityId> entities) {
+    this.roots = new HashMap<>();
+    for (EntityId entity : entities) {
+      Map<EntityId, Node> children = roots;
+      Node node = null;
+      for (EntityId id : entity.getHierarchy()) {
+        node = children.get(id);
+        if (node == null) {
+          node = new Node();
+          children.put(id, node);
+        }
+        children = node.getChildren();
+      }
+      if (node != null) {
+        node.privileged = true;
+      }
+    }
+  }
+
+  @Override
+  public boolean apply(EntityId entityId) {
+    return resolve(entityId) == ALL_VISIBLE;
+  }
+
+  /**
+   * Filters the given items to the ones whose entities are visible, in one pass over the items. The lookup in the
+   * index is done once for each distinct parent entity, so that filtering many entities of the same namespace or
+   * application only costs a hash lookup per entity.
+   *
+   * @param items the items to filter
+   * @param toEntityId a {@link Function} that returns the {@link EntityId} of an item
+   * @param <T> type of the items
+   * @return a new list of the visible items, in the same order as the given items
+   */
+  public <T> List<T> filter(Collection<T> items, Function<? super T, ? extends EntityId> toEntityId) {
+    List<T> result = new ArrayList<>(items.size());
+    Map<EntityId, Node> parentNodes = new HashMap<>();
+    for (T item : items) {
+      EntityId entityId = toEntityId.apply(item);
+      if (!(entityId instanceof ParentedId)) {
+        if (apply(entityId)) {
+          result.add(item);
+        }
+        continue;
+      }
+
+      EntityId parent = ((ParentedId) entityId).getParent();
+      Node parentNode;
+      if (parentNodes.containsKey(parent)) {
+        parentNode = parentNodes.get(parent);
+      } else {
+        parentNode = resolve(parent);
+        parentNodes.put(parent, parentNode);
+      }
+      if (parentNode == ALL_VISIBLE || (parentNode != null && parentNode.isPrivileged(entityId))) {
+        result.add(item);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the node of the given entity, {@link #ALL_VISIBLE} if the entity is visible, or {@code null} if there
+   * are no privileges on the entity or any of its descendants.
+   */
+  @Nullable
+  private Node resolve(EntityId entityId) {
+    Map<EntityId, Node> children = roots;
+    Node node = null;
+    for (EntityId id : entityId.getHierarchy()) {
+      node = children.get(id);
+      if (node == null) {
+        return null;
+      }
+      if (node.privileged) {
+        return ALL_VISIBLE;
+      }
+      children = node.children;
+      if (children == null) {
+        return null;
+      }
+    }
+    return node;
+  }
+
+  /**
+   * A node in the entity hierarchy.
+   */
+  private static final class Node {
+    private boolean privileged;
+    private Map<EntityId, Node> children;
+
+    Map<EntityId, Node> getChildren() {
+      if (children == null) {
+        children = new HashMap<>();
+      }
+      return children;
+    }
+
+    boolean isPrivileged(EntityId entityId) {
+      Node node = children == null ? null : children.get(entityId);
+      return node != null && node.privileged;
+    }
+  }
+}
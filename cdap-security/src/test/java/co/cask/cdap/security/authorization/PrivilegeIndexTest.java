@@ -0,0 +1,119 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.security.authorization;
+
+import co.cask.cdap.proto.ProgramType;
+import co.cask.cdap.proto.id.ApplicationId;
+import co.cask.cdap.proto.id.DatasetId;
+import co.cask.cdap.proto.id.EntityId;
+import co.cask.cdap.proto.id.InstanceId;
+import co.cask.cdap.proto.id.NamespaceId;
+import co.cask.cdap.proto.id.ProgramId;
+import co.cask.cdap.proto.id.StreamId;
+import com.google.common.base.Function;
+import com.google.common.base.Functions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests for {@link PrivilegeIndex}.
+ */
+public class PrivilegeIndexTest {
+
+  private static final NamespaceId NS1 = new NamespaceId("ns1");
+  private static final NamespaceId NS2 = new NamespaceId("ns2");
+  private static final NamespaceId NS3 = new NamespaceId("ns3");
+
+  @Test
+  public void testVisibility() {
+    ApplicationId app1 = NS2.app("app1");
+    ApplicationId app2 = NS2.app("app2");
+    ProgramId flow = app2.program(ProgramType.FLOW, "flow");
+    ProgramId worker = app2.program(ProgramType.WORKER, "worker");
+    InstanceId instance = new InstanceId("cdap");
+
+    PrivilegeIndex index = new PrivilegeIndex(ImmutableSet.<EntityId>of(NS1, app1, flow, instance));
+
+    // Privileges on an entity make the entity and all its descendants visible
+    Assert.assertTrue(index.apply(NS1));
+    Assert.assertTrue(index.apply(NS1.dataset("ds")));
+    Assert.assertTrue(index.apply(NS1.app("app").program(ProgramType.SERVICE, "service")));
+    Assert.assertTrue(index.apply(app1));
+    Assert.assertTrue(index.apply(app1.program(ProgramType.MAPREDUCE, "mr")));
+    Assert.assertTrue(index.apply(flow));
+    Assert.assertTrue(index.apply(instance));
+
+    // Privileges on descendants do not make the ancestors or siblings visible
+    Assert.assertFalse(index.apply(NS2));
+    Assert.assertFalse(index.apply(app2));
+    Assert.assertFalse(index.apply(worker));
+    Assert.assertFalse(index.apply(NS2.dataset("ds")));
+    Assert.assertFalse(index.apply(NS3));
+    Assert.assertFalse(index.apply(NS3.stream("s")));
+    Assert.assertFalse(index.apply(new InstanceId("other")));
+
+    PrivilegeIndex emptyIndex = new PrivilegeIndex(Collections.<EntityId>emptySet());
+    Assert.assertFalse(emptyIndex.apply(NS1));
+    Assert.assertFalse(emptyIndex.apply(flow));
+  }
+
+  @Test
+  public void testFilter() {
+    List<EntityId> entities = new ArrayList<>();
+    for (NamespaceId namespace : ImmutableList.of(NS1, NS2, NS3)) {
+      for (int i = 0; i < 10; i++) {
+        entities.add(namespace.dataset("ds" + i));
+        entities.add(namespace.stream("s" + i));
+        entities.add(namespace.app("app" + (i % 3)).program(ProgramType.FLOW, "flow" + i));
+      }
+      entities.add(namespace);
+    }
+
+    DatasetId ds3 = NS2.dataset("ds3");
+    StreamId s5 = NS2.stream("s5");
+    ApplicationId app1 = NS3.app("app1");
+    PrivilegeIndex index = new PrivilegeIndex(ImmutableSet.<EntityId>of(NS1, ds3, s5, app1));
+
+    List<EntityId> expected = new ArrayList<>();
+    for (EntityId entity : entities) {
+      if (index.apply(entity)) {
+        expected.add(entity);
+      }
+    }
+    Function<EntityId, EntityId> identity = Functions.identity();
+    List<EntityId> filtered = index.filter(entities, identity);
+    Assert.assertEquals(expected, filtered);
+
+    // All entities of ns1, two of ns2 and the flows of app1 in ns3
+    Assert.assertEquals(31 + 2 + 3, filtered.size());
+    Assert.assertTrue(filtered.contains(ds3));
+    Assert.assertTrue(filtered.contains(s5));
+    Assert.assertTrue(filtered.contains(app1.program(ProgramType.FLOW, "flow1")));
+    Assert.assertFalse(filtered.contains(NS2));
+    Assert.assertFalse(filtered.contains(NS3));
+
+    // Filtering through the util gives the same result
+    Assert.assertEquals(expected, AuthorizationUtil.filter(index, entities, identity));
+  }
+}
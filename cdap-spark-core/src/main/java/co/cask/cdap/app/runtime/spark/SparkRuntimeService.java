@@ -241,6 +241,7 @@ final class SparkRuntimeService extends AbstractExecutionThreadService {
           return sparkSubmitter.submit(runtimeContext, configs, localizeResources, jobJar, runtimeContext.getRunId());
         }
       };
+      runtimeContext.emitClassLoadingMetrics();
     } catch (Throwable t) {
       cleanupTask.run();
       throw t;
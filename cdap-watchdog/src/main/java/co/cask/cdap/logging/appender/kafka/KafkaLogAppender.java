@@ -16,28 +16,58 @@
 
 package co.cask.cdap.logging.appender.kafka;
 
+import co.cask.cdap.api.metrics.MetricsCollectionService;
+import co.cask.cdap.api.metrics.MetricsContext;
 import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.logging.LoggingConfiguration;
 import co.cask.cdap.logging.appender.LogAppender;
 import co.cask.cdap.logging.appender.LogMessage;
+import co.cask.cdap.proto.id.NamespaceId;
 import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
 import com.google.inject.Inject;
+import org.apache.twill.common.Threads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Log appender that publishes log messages to Kafka.
+ *
+ * With the async producer type, events are serialized on the logging thread and put into a bounded queue, from
+ * which a publisher thread sends them to Kafka in batches. Events are dropped instead of blocking the logging
+ * thread when the queue is full. With the sync producer type, events are published on the logging thread.
  */
 public final class KafkaLogAppender extends LogAppender {
   private static final Logger LOG = LoggerFactory.getLogger(KafkaLogAppender.class);
 
   private static final String APPENDER_NAME = "KafkaLogAppender";
+  private static final Map<String, String> METRICS_CONTEXT =
+    ImmutableMap.of(Constants.Metrics.Tag.NAMESPACE, NamespaceId.SYSTEM.getNamespace(),
+                    Constants.Metrics.Tag.COMPONENT, "log.appender");
+  private static final long STOP_TIMEOUT_SECONDS = 5L;
+
   private final SimpleKafkaProducer producer;
   private final LoggingEventSerializer loggingEventSerializer;
+  // Null if events are published on the logging thread
+  private final BlockingQueue<Map.Entry<String, byte[]>> queue;
+  private final int batchSize;
+  private final AtomicLong droppedEvents = new AtomicLong();
 
   private final AtomicBoolean stopped = new AtomicBoolean(false);
+  private volatile MetricsContext metricsContext;
+  private Thread publisherThread;
 
   @Inject
   KafkaLogAppender(CConfiguration cConf) {
@@ -51,14 +81,49 @@ public final class KafkaLogAppender extends LogAppender {
       addError("Error initializing KafkaLogAppender.", e);
       throw Throwables.propagate(e);
     }
+
+    int queueSize = cConf.getInt(LoggingConfiguration.LOG_PUBLISH_QUEUE_SIZE,
+                                 LoggingConfiguration.DEFAULT_LOG_PUBLISH_QUEUE_SIZE);
+    boolean sync = "sync".equals(cConf.get(LoggingConfiguration.KAFKA_PRODUCER_TYPE,
+                                           LoggingConfiguration.DEFAULT_KAFKA_PRODUCER_TYPE));
+    this.queue = (sync || queueSize <= 0) ? null : new ArrayBlockingQueue<Map.Entry<String, byte[]>>(queueSize);
+    this.batchSize = Math.max(1, cConf.getInt(LoggingConfiguration.LOG_PUBLISH_BATCH_SIZE,
+                                              LoggingConfiguration.DEFAULT_LOG_PUBLISH_BATCH_SIZE));
     addInfo("Successfully initialized KafkaLogAppender.");
   }
 
+  /**
+   * Sets the {@link MetricsCollectionService} for emitting metrics about published and dropped events.
+   */
+  @Inject(optional = true)
+  void setMetricsCollectionService(MetricsCollectionService metricsCollectionService) {
+    this.metricsContext = metricsCollectionService.getContext(METRICS_CONTEXT);
+  }
+
+  @Override
+  public void start() {
+    super.start();
+    if (queue != null && publisherThread == null) {
+      publisherThread = Threads.createDaemonThreadFactory("kafka-log-publisher").newThread(new Runnable() {
+        @Override
+        public void run() {
+          publishQueuedEvents();
+        }
+      });
+      publisherThread.start();
+    }
+  }
+
   @Override
   protected void append(LogMessage logMessage) {
     try {
       byte [] bytes = loggingEventSerializer.toBytes(logMessage.getLoggingEvent(), logMessage.getLoggingContext());
-      producer.publish(logMessage.getLoggingContext().getLogPartition(), bytes);
+      String key = logMessage.getLoggingContext().getLogPartition();
+      if (queue == null) {
+        producer.publish(key, bytes);
+      } else if (!queue.offer(Maps.immutableEntry(key, bytes)) && droppedEvents.getAndIncrement() == 0) {
+        addWarn("Log event queue is full, dropping log events.");
+      }
     } catch (Throwable t) {
       LOG.error("Got exception while serializing log event {}.", logMessage.getLoggingEvent(), t);
     }
@@ -71,6 +136,52 @@ public final class KafkaLogAppender extends LogAppender {
     }
 
     super.stop();
+    if (publisherThread != null) {
+      publisherThread.interrupt();
+      try {
+        publisherThread.join(TimeUnit.SECONDS.toMillis(STOP_TIMEOUT_SECONDS));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    if (queue != null) {
+      // Publish whatever left in the queue
+      List<Map.Entry<String, byte[]>> batch = new ArrayList<>(batchSize);
+      while (queue.drainTo(batch, batchSize) > 0) {
+        publish(batch);
+      }
+    }
     producer.stop();
   }
+
+  /**
+   * Takes events from the queue and publishes them in batches until the publisher thread is interrupted.
+   */
+  private void publishQueuedEvents() {
+    List<Map.Entry<String, byte[]>> batch = new ArrayList<>(batchSize);
+    try {
+      while (!Thread.currentThread().isInterrupted()) {
+        batch.add(queue.take());
+        queue.drainTo(batch, batchSize - 1);
+        publish(batch);
+      }
+    } catch (InterruptedException e) {
+      // Interrupted by stop, which publishes the remaining events
+    }
+  }
+
+  private void publish(List<Map.Entry<String, byte[]>> batch) {
+    producer.publish(batch);
+
+    MetricsContext metricsContext = this.metricsContext;
+    if (metricsContext != null) {
+      metricsContext.increment("log.publish.events", batch.size());
+      long dropped = droppedEvents.getAndSet(0);
+      if (dropped > 0) {
+        metricsContext.increment("log.publish.dropped", dropped);
+      }
+      metricsContext.gauge("log.publish.queued", queue.size());
+    }
+    batch.clear();
+  }
 }
@@ -20,11 +20,11 @@ import ch.qos.logback.classic.spi.ILoggingEvent;
 import co.cask.cdap.common.logging.LoggingContext;
 import co.cask.cdap.logging.serialize.LogSchema;
 import co.cask.cdap.logging.serialize.LoggingEvent;
+import co.cask.cdap.logging.serialize.LoggingEventEncoder;
 import com.google.common.base.Throwables;
 import kafka.utils.VerifiableProperties;
 import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericDatumReader;
-import org.apache.avro.generic.GenericDatumWriter;
 import org.apache.avro.generic.GenericRecord;
 import org.apache.avro.io.BinaryDecoder;
 import org.apache.avro.io.BinaryEncoder;
@@ -40,6 +40,18 @@ import java.nio.ByteBuffer;
  * Avro serializer for ILoggingEvent.
  */
 public final class LoggingEventSerializer {
+
+  // Buffers larger than this are not kept for reuse, so that an occasional huge event doesn't pin memory
+  private static final int MAX_REUSE_BUFFER_SIZE = 64 * 1024;
+
+  // Per thread buffer and encoder for serializing events, since log events are serialized on the logging thread
+  private static final ThreadLocal<EncoderBuffer> ENCODER_BUFFER = new ThreadLocal<EncoderBuffer>() {
+    @Override
+    protected EncoderBuffer initialValue() {
+      return new EncoderBuffer();
+    }
+  };
+
   private final LogSchema logSchema;
 
   public LoggingEventSerializer() throws IOException {
@@ -54,16 +66,24 @@ public final class LoggingEventSerializer {
     return logSchema.getAvroSchema();
   }
 
+  /**
+   * Serializes the given event to Avro binary. The event is encoded directly with a buffer and encoder that are
+   * reused by the calling thread, so the only allocation is the returned array.
+   */
   public byte[] toBytes(ILoggingEvent loggingEvent, LoggingContext loggingContext) {
-    ByteArrayOutputStream out = new ByteArrayOutputStream();
-    BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(out, null);
-    GenericDatumWriter<GenericRecord> writer = new GenericDatumWriter<>(logSchema.getAvroSchema());
+    EncoderBuffer buffer = ENCODER_BUFFER.get();
     try {
-      writer.write(LoggingEvent.encode(logSchema.getAvroSchema(), loggingEvent, loggingContext), encoder);
+      LoggingEventEncoder.encode(loggingEvent, loggingContext, buffer.getEncoder());
+      return buffer.toByteArray();
     } catch (IOException e) {
       throw Throwables.propagate(e);
+    } finally {
+      if (buffer.capacity() > MAX_REUSE_BUFFER_SIZE) {
+        ENCODER_BUFFER.remove();
+      } else {
+        buffer.reset();
+      }
     }
-    return out.toByteArray();
   }
 
   public ILoggingEvent fromBytes(ByteBuffer buffer) {
@@ -92,4 +112,25 @@ public final class LoggingEventSerializer {
   public ILoggingEvent fromGenericRecord(GenericRecord datum) {
     return LoggingEvent.decode(datum);
   }
+
+  /**
+   * A {@link ByteArrayOutputStream} with a {@link BinaryEncoder} that writes to it.
+   */
+  private static final class EncoderBuffer extends ByteArrayOutputStream {
+
+    private final BinaryEncoder encoder;
+
+    EncoderBuffer() {
+      super(1024);
+      this.encoder = EncoderFactory.get().directBinaryEncoder(this, null);
+    }
+
+    BinaryEncoder getEncoder() {
+      return encoder;
+    }
+
+    int capacity() {
+      return buf.length;
+    }
+  }
 }
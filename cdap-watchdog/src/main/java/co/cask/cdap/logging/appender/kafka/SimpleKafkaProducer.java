@@ -27,6 +27,9 @@ import org.apache.twill.common.Threads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
@@ -77,6 +80,35 @@ public final class SimpleKafkaProducer {
     }
   }
 
+  /**
+   * Publishes a batch of log messages with one call to the underlying producer.
+   *
+   * @param messages list of key and serialized log event pairs
+   */
+  public void publish(List<Map.Entry<String, byte[]>> messages) {
+    if (messages.isEmpty()) {
+      return;
+    }
+    List<KeyedMessage<String, byte[]>> data = new ArrayList<>(messages.size());
+    for (Map.Entry<String, byte[]> message : messages) {
+      data.add(new KeyedMessage<>(kafkaTopic, message.getKey(), message.getValue()));
+    }
+
+    // Clear the interrupt flag, otherwise it won't be able to publish
+    boolean threadInterrupted = Thread.interrupted();
+    try {
+      producer.send(data);
+    } catch (Throwable t) {
+      LOG.error("Exception when trying to publish {} log messages to kafka with topic {}",
+                messages.size(), kafkaTopic, t);
+    } finally {
+      // Reset the interrupt flag if needed
+      if (threadInterrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
   public void stop() {
     producer.close();
   }
@@ -21,18 +21,28 @@ import co.cask.cdap.common.logging.LoggingContext;
 import co.cask.cdap.logging.write.LogWriteEvent;
 import org.apache.avro.generic.GenericRecord;
 
+import java.nio.ByteBuffer;
+import javax.annotation.Nullable;
+
 /**
  * Represents a log event fetched from Kafka.
  */
 public final class KafkaLogEvent extends LogWriteEvent {
   private final int partition;
   private final long nextOffset;
+  private final ByteBuffer encoded;
 
   public KafkaLogEvent(GenericRecord genericRecord, ILoggingEvent logEvent, LoggingContext loggingContext,
                        int partition, long nextOffset) {
+    this(genericRecord, logEvent, loggingContext, partition, nextOffset, null);
+  }
+
+  public KafkaLogEvent(GenericRecord genericRecord, ILoggingEvent logEvent, LoggingContext loggingContext,
+                       int partition, long nextOffset, @Nullable ByteBuffer encoded) {
     super(genericRecord, logEvent, loggingContext);
     this.partition = partition;
     this.nextOffset = nextOffset;
+    this.encoded = encoded;
   }
 
   public int getPartition() {
@@ -43,4 +53,11 @@ public final class KafkaLogEvent extends LogWriteEvent {
     return nextOffset;
   }
 
+  /**
+   * Returns the event as encoded in the Kafka message, or {@code null} if it is not available.
+   */
+  @Nullable
+  public ByteBuffer getEncoded() {
+    return encoded == null ? null : encoded.duplicate();
+  }
 }
@@ -0,0 +1,96 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.logging.save;
+
+import com.google.common.primitives.Longs;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A log event buffered by the {@link KafkaLogWriterPlugin}. It only retains the Avro encoded event together with
+ * the fields needed for sorting and checkpointing, instead of the decoded event.
+ */
+final class BufferedLogEvent implements Comparable<BufferedLogEvent> {
+
+  // Estimated memory used by an instance besides the encoded event
+  private static final int OVERHEAD_BYTES = 64;
+
+  private final long timestamp;
+  private final int partition;
+  private final long nextOffset;
+  private final byte[] encoded;
+
+  BufferedLogEvent(long timestamp, int partition, long nextOffset, byte[] encoded) {
+    this.timestamp = timestamp;
+    this.partition = partition;
+    this.nextOffset = nextOffset;
+    this.encoded = encoded;
+  }
+
+  /**
+   * Reads an event written by {@link #writeTo(DataOutput)}.
+   */
+  static BufferedLogEvent readFrom(DataInput input) throws IOException {
+    long timestamp = input.readLong();
+    int partition = input.readInt();
+    long nextOffset = input.readLong();
+    byte[] encoded = new byte[input.readInt()];
+    input.readFully(encoded);
+    return new BufferedLogEvent(timestamp, partition, nextOffset, encoded);
+  }
+
+  long getTimestamp() {
+    return timestamp;
+  }
+
+  int getPartition() {
+    return partition;
+  }
+
+  long getNextOffset() {
+    return nextOffset;
+  }
+
+  /**
+   * Returns the event encoded with the log event Avro schema.
+   */
+  byte[] getEncoded() {
+    return encoded;
+  }
+
+  /**
+   * Returns the estimated number of bytes used by this event in memory.
+   */
+  long getSize() {
+    return encoded.length + OVERHEAD_BYTES;
+  }
+
+  void writeTo(DataOutput output) throws IOException {
+    output.writeLong(timestamp);
+    output.writeInt(partition);
+    output.writeLong(nextOffset);
+    output.writeInt(encoded.length);
+    output.write(encoded);
+  }
+
+  @Override
+  public int compareTo(BufferedLogEvent other) {
+    return Longs.compare(timestamp, other.timestamp);
+  }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.logging.save;
+
+import co.cask.cdap.api.dataset.lib.AbstractCloseableIterator;
+import co.cask.cdap.api.dataset.lib.CloseableIterator;
+import co.cask.cdap.common.logging.LoggingContext;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.PeekingIterator;
+import com.google.common.io.Closeables;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * The buffered log events of one logging context in one event time bucket. Events are kept in memory until they
+ * are spilled to a local file. Each spill writes the events in memory as one sorted run, and the runs are merged
+ * with the events still in memory when the events are read back for writing to the log file.
+ */
+final class BufferedLogEvents {
+  private static final Logger LOG = LoggerFactory.getLogger(BufferedLogEvents.class);
+
+  private final LoggingContext loggingContext;
+  private final long arrivalBucket;
+  private final File spillFile;
+  // Start offset in the spill file and number of events of each sorted run
+  private final List<Long> runOffsets = new ArrayList<>();
+  private final List<Integer> runSizes = new ArrayList<>();
+
+  private List<BufferedLogEvent> events = new ArrayList<>();
+  private long memoryBytes;
+  private int size;
+
+  /**
+   * Creates a new instance.
+   *
+   * @param loggingContext the {@link LoggingContext} of the events
+   * @param arrivalBucket the event arrival time bucket of the first event
+   * @param spillFile the file for spilling events, which is only created when events are spilled
+   */
+  BufferedLogEvents(LoggingContext loggingContext, long arrivalBucket, File spillFile) {
+    this.loggingContext = loggingContext;
+    this.arrivalBucket = arrivalBucket;
+    this.spillFile = spillFile;
+  }
+
+  LoggingContext getLoggingContext() {
+    return loggingContext;
+  }
+
+  long getArrivalBucket() {
+    return arrivalBucket;
+  }
+
+  /**
+   * Adds an event to memory.
+   *
+   * @return the estimated memory used by the event
+   */
+  long add(BufferedLogEvent event) {
+    events.add(event);
+    memoryBytes += event.getSize();
+    size++;
+    return event.getSize();
+  }
+
+  /**
+   * Returns the total number of events, including the spilled ones.
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Returns the estimated memory used by the events that are not spilled.
+   */
+  long getMemoryBytes() {
+    return memoryBytes;
+  }
+
+  /**
+   * Writes the events in memory to the spill file as a sorted run.
+   *
+   * @return the number of bytes written to the spill file
+   */
+  long spill() throws IOException {
+    if (events.isEmpty()) {
+      return 0L;
+    }
+    Collections.sort(events);
+
+    // Start from the end of the file, which may have a partial run from a failed spill
+    long offset = spillFile.length();
+    try (DataOutputStream output = new DataOutputStream(
+      new BufferedOutputStream(new FileOutputStream(spillFile, true)))) {
+      for (BufferedLogEvent event : events) {
+        event.writeTo(output);
+      }
+    }
+    runOffsets.add(offset);
+    runSizes.add(events.size());
+
+    events = new ArrayList<>();
+    memoryBytes = 0L;
+    return spillFile.length() - offset;
+  }
+
+  /**
+   * Returns all the events sorted by timestamp. Events with the same timestamp are returned in the order they
+   * were added.
+   */
+  CloseableIterator<BufferedLogEvent> iterator() throws IOException {
+    Collections.sort(events);
+    if (runOffsets.isEmpty()) {
+      return new MergeIterator(Collections.<PeekingIterator<BufferedLogEvent>>singletonList(
+        Iterators.peekingIterator(events.iterator())), Collections.<Closeable>emptyList());
+    }
+
+    List<PeekingIterator<BufferedLogEvent>> iterators = new ArrayList<>(runOffsets.size() + 1);
+    List<Closeable> closeables = new ArrayList<>(runOffsets.size());
+    try {
+      for (int i = 0; i < runOffsets.size(); i++) {
+        RunIterator runIterator = new RunIterator(spillFile, runOffsets.get(i), runSizes.get(i));
+        closeables.add(runIterator);
+        iterators.add(Iterators.peekingIterator(runIterator));
+      }
+    } catch (IOException e) {
+      for (Closeable closeable : closeables) {
+        Closeables.closeQuietly(closeable);
+      }
+      throw e;
+    }
+    // Events in memory are added after the spilled ones
+    iterators.add(Iterators.peekingIterator(events.iterator()));
+    return new MergeIterator(iterators, closeables);
+  }
+
+  /**
+   * Deletes the spill file.
+   */
+  void delete() {
+    if (spillFile.exists() && !spillFile.delete()) {
+      LOG.warn("Failed to delete log event spill file {}", spillFile);
+    }
+  }
+
+  /**
+   * Merges sorted iterators. Ties are taken from the iterator that comes first.
+   */
+  private static final class MergeIterator extends AbstractCloseableIterator<BufferedLogEvent> {
+
+    private final List<PeekingIterator<BufferedLogEvent>> iterators;
+    private final List<Closeable> closeables;
+
+    MergeIterator(List<PeekingIterator<BufferedLogEvent>> iterators, List<Closeable> closeables) {
+      this.iterators = iterators;
+      this.closeables = closeables;
+    }
+
+    @Override
+    protected BufferedLogEvent computeNext() {
+      PeekingIterator<BufferedLogEvent> min = null;
+      for (PeekingIterator<BufferedLogEvent> iterator : iterators) {
+        if (iterator.hasNext() && (min == null || iterator.peek().compareTo(min.peek()) < 0)) {
+          min = iterator;
+        }
+      }
+      return min == null ? endOfData() : min.next();
+    }
+
+    @Override
+    public void close() {
+      for (Closeable closeable : closeables) {
+        Closeables.closeQuietly(closeable);
+      }
+    }
+  }
+
+  /**
+   * Reads the events of one sorted run from the spill file.
+   */
+  private static final class RunIterator implements Iterator<BufferedLogEvent>, Closeable {
+
+    private final DataInputStream input;
+    private int remaining;
+
+    RunIterator(File file, long offset, int size) throws IOException {
+      FileInputStream fileInput = new FileInputStream(file);
+      try {
+        fileInput.getChannel().position(offset);
+      } catch (IOException e) {
+        Closeables.closeQuietly(fileInput);
+        throw e;
+      }
+      this.input = new DataInputStream(new BufferedInputStream(fileInput));
+      this.remaining = size;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return remaining > 0;
+    }
+
+    @Override
+    public BufferedLogEvent next() {
+      if (remaining <= 0) {
+        throw new NoSuchElementException();
+      }
+      try {
+        BufferedLogEvent event = BufferedLogEvent.readFrom(input);
+        remaining--;
+        return event;
+      } catch (IOException e) {
+        throw new RuntimeException("Failed to read log events from spill file", e);
+      }
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("Remove not supported");
+    }
+
+    @Override
+    public void close() throws IOException {
+      input.close();
+    }
+  }
+}
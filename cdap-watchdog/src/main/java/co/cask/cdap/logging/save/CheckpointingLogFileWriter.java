@@ -16,6 +16,7 @@
 
 package co.cask.cdap.logging.save;
 
+import co.cask.cdap.common.logging.LoggingContext;
 import co.cask.cdap.logging.kafka.KafkaLogEvent;
 import co.cask.cdap.logging.write.AvroFileWriter;
 import co.cask.cdap.logging.write.LogFileWriter;
@@ -24,6 +25,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -72,6 +75,35 @@ public class CheckpointingLogFileWriter implements LogFileWriter<KafkaLogEvent>
     avroFileWriter.append(events);
   }
 
+  /**
+   * Appends log events buffered by the {@link KafkaLogWriterPlugin}.
+   *
+   * @param loggingContext the LoggingContext of the events
+   * @param events events sorted by timestamp
+   */
+  void appendBuffered(LoggingContext loggingContext, List<BufferedLogEvent> events) throws Exception {
+    if (events.isEmpty()) {
+      return;
+    }
+
+    BufferedLogEvent event = events.get(0);
+    int partition = event.getPartition();
+    Checkpoint maxCheckpoint = partitionCheckpointMap.get(partition);
+    maxCheckpoint = maxCheckpoint == null ? new Checkpoint(-1, -1) : maxCheckpoint;
+
+    List<ByteBuffer> encoded = new ArrayList<>(events.size());
+    for (BufferedLogEvent e : events) {
+      if (e.getNextOffset() > maxCheckpoint.getNextOffset()) {
+        maxCheckpoint = new Checkpoint(e.getNextOffset(), e.getTimestamp());
+      }
+      encoded.add(ByteBuffer.wrap(e.getEncoded()));
+    }
+
+    avroFileWriter.appendEncoded(loggingContext, event.getTimestamp(), encoded);
+    // Only advance the checkpoint once the events are appended
+    partitionCheckpointMap.put(partition, maxCheckpoint);
+  }
+
   @Override
   public void close() throws IOException {
     if (!closed.compareAndSet(false, true)) {
@@ -16,6 +16,8 @@
 
 package co.cask.cdap.logging.save;
 
+import co.cask.cdap.api.metrics.MetricsCollectionService;
+import co.cask.cdap.api.metrics.MetricsContext;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.io.RootLocationFactory;
@@ -23,31 +25,36 @@ import co.cask.cdap.common.logging.LoggingContext;
 import co.cask.cdap.common.namespace.NamespaceQueryAdmin;
 import co.cask.cdap.common.namespace.NamespacedLocationFactory;
 import co.cask.cdap.common.security.Impersonator;
+import co.cask.cdap.common.utils.DirUtils;
 import co.cask.cdap.logging.LoggingConfiguration;
 import co.cask.cdap.logging.appender.kafka.LoggingEventSerializer;
 import co.cask.cdap.logging.kafka.KafkaLogEvent;
 import co.cask.cdap.logging.write.AvroFileWriter;
 import co.cask.cdap.logging.write.FileMetaDataManager;
 import co.cask.cdap.logging.write.LogCleanup;
-import co.cask.cdap.logging.write.LogFileWriter;
+import co.cask.cdap.proto.id.NamespaceId;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterators;
-import com.google.common.collect.Lists;
 import com.google.common.collect.PeekingIterator;
-import com.google.common.collect.RowSortedTable;
-import com.google.common.collect.TreeBasedTable;
 import com.google.common.util.concurrent.ListeningScheduledExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.EncoderFactory;
 import org.apache.twill.common.Threads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.AbstractMap;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
 import java.util.SortedSet;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
@@ -64,12 +71,13 @@ public class KafkaLogWriterPlugin extends AbstractKafkaLogProcessor {
   private static final long SLEEP_TIME_MS = 100;
 
   private final String logBaseDir;
-  private final LogFileWriter<KafkaLogEvent> logFileWriter;
-  // Table structure - <event time bucket, log context, event arrival time bucket, log event>
-  private final RowSortedTable<Long, String, Map.Entry<Long, List<KafkaLogEvent>>> messageTable;
+  private final CheckpointingLogFileWriter logFileWriter;
   private final long eventBucketIntervalMs;
   private final int logCleanupIntervalMins;
   private final long maxNumberOfBucketsInTable;
+  private final long maxBufferBytes;
+  private final File spillBaseDir;
+  private final MetricsContext metricsContext;
   private final LoggingEventSerializer serializer;
   private final LogCleanup logCleanup;
   private final CheckpointManager checkpointManager;
@@ -77,14 +85,21 @@ public class KafkaLogWriterPlugin extends AbstractKafkaLogProcessor {
   private ListeningScheduledExecutorService scheduledExecutor;
   private CountDownLatch countDownLatch;
   private int partition;
+  private LogEventBuffer messageBuffer;
+  // Used for encoding events that don't carry the encoded bytes
+  private DatumWriter<GenericRecord> datumWriter;
+  private ByteArrayOutputStream encodeOutput;
+  private BinaryEncoder encoder;
 
   KafkaLogWriterPlugin(CConfiguration cConf, FileMetaDataManager fileMetaDataManager,
                        CheckpointManagerFactory checkpointManagerFactory, RootLocationFactory rootLocationFactory,
                        NamespaceQueryAdmin namespaceQueryAdmin, NamespacedLocationFactory namespacedLocationFactory,
-                       Impersonator impersonator) throws Exception {
+                       Impersonator impersonator, MetricsCollectionService metricsCollectionService) throws Exception {
 
     this.serializer = new LoggingEventSerializer();
-    this.messageTable = TreeBasedTable.create();
+    this.metricsContext = metricsCollectionService.getContext(
+      ImmutableMap.of(Constants.Metrics.Tag.NAMESPACE, NamespaceId.SYSTEM.getNamespace(),
+                      Constants.Metrics.Tag.COMPONENT, Constants.Service.LOGSAVER));
 
     this.logBaseDir = cConf.get(LoggingConfiguration.LOG_BASE_DIR);
     Preconditions.checkNotNull(this.logBaseDir, "Log base dir cannot be null");
@@ -133,6 +148,13 @@ public class KafkaLogWriterPlugin extends AbstractKafkaLogProcessor {
                                 "Maximum number of event buckets in memory is invalid: %s",
                                 this.maxNumberOfBucketsInTable);
 
+    this.maxBufferBytes = cConf.getLong(LoggingConfiguration.LOG_SAVER_MAX_BUFFER_BYTES,
+                                        LoggingConfiguration.DEFAULT_LOG_SAVER_MAX_BUFFER_BYTES);
+    Preconditions.checkArgument(this.maxBufferBytes > 0,
+                                "Maximum buffer size in bytes is invalid: %s", this.maxBufferBytes);
+    this.spillBaseDir = new File(new File(cConf.get(Constants.CFG_LOCAL_DATA_DIR),
+                                          cConf.get(Constants.AppFabric.TEMP_DIR)), "logsaver-spill").getAbsoluteFile();
+
     long topicCreationSleepMs = cConf.getLong(LoggingConfiguration.LOG_SAVER_TOPIC_WAIT_SLEEP_MS,
                                                 LoggingConfiguration.DEFAULT_LOG_SAVER_TOPIC_WAIT_SLEEP_MS);
     Preconditions.checkArgument(topicCreationSleepMs > 0,
@@ -173,8 +195,13 @@ public class KafkaLogWriterPlugin extends AbstractKafkaLogProcessor {
         Threads.createDaemonThreadFactory("log-saver-log-processor-" + partition)));
     }
 
+    // Spilled events from a previous run are not checkpointed, hence they will be read from Kafka again
+    File spillDir = new File(spillBaseDir, "partition-" + partition);
+    deleteSpillDir(spillDir);
+    messageBuffer = new LogEventBuffer(maxBufferBytes, spillDir, metricsContext, partition);
+
     countDownLatch = new CountDownLatch(1);
-    LogWriter logWriter = new LogWriter(logFileWriter, messageTable,
+    LogWriter logWriter = new LogWriter(logFileWriter, messageBuffer,
                                         eventBucketIntervalMs, maxNumberOfBucketsInTable, countDownLatch);
     scheduledExecutor.execute(logWriter);
   }
@@ -194,8 +221,8 @@ public class KafkaLogWriterPlugin extends AbstractKafkaLogProcessor {
         // Get the oldest bucket in the table
         long oldestBucketKey;
         int numBuckets;
-        synchronized (messageTable) {
-          SortedSet<Long> rowKeySet = messageTable.rowKeySet();
+        synchronized (messageBuffer) {
+          SortedSet<Long> rowKeySet = messageBuffer.getBuckets();
           numBuckets = rowKeySet.size();
           oldestBucketKey = numBuckets == 0 ? System.currentTimeMillis() : rowKeySet.first();
           long latestBucketKey = numBuckets == 0 ? oldestBucketKey : rowKeySet.last();
@@ -211,22 +238,16 @@ public class KafkaLogWriterPlugin extends AbstractKafkaLogProcessor {
             while (peekingIterator.hasNext()) {
               KafkaLogEvent event = peekingIterator.next();
               LoggingContext loggingContext = event.getLoggingContext();
-              long key = event.getLogEvent().getTimeStamp() / eventBucketIntervalMs;
-
-              Map.Entry<Long, List<KafkaLogEvent>> entry =
-                messageTable.get(key, loggingContext.getLogPathFragment(logBaseDir));
-              List<KafkaLogEvent> msgList;
-              if (entry == null) {
-                long eventArrivalBucketKey = System.currentTimeMillis() / eventBucketIntervalMs;
-                msgList = Lists.newArrayList();
-                messageTable.put(key, loggingContext.getLogPathFragment(logBaseDir),
-                                 new AbstractMap.SimpleEntry<>(eventArrivalBucketKey, msgList));
-              } else {
-                msgList = messageTable.get(key, loggingContext.getLogPathFragment(logBaseDir)).getValue();
-              }
-              msgList.add(new KafkaLogEvent(event.getGenericRecord(), event.getLogEvent(), loggingContext,
-                                            event.getPartition(), event.getNextOffset()));
+              long timestamp = event.getLogEvent().getTimeStamp();
+              long key = timestamp / eventBucketIntervalMs;
+              long eventArrivalBucketKey = System.currentTimeMillis() / eventBucketIntervalMs;
+
+              // Only keep the encoded event, which is much smaller than the decoded one
+              messageBuffer.add(key, loggingContext.getLogPathFragment(logBaseDir), loggingContext,
+                                eventArrivalBucketKey, new BufferedLogEvent(timestamp, event.getPartition(),
+                                                                            event.getNextOffset(), encode(event)));
             }
+            messageBuffer.spillIfNeeded();
             break;
           }
         }
@@ -269,7 +290,9 @@ public class KafkaLogWriterPlugin extends AbstractKafkaLogProcessor {
     } catch (Exception e) {
       LOG.error("Caught exception while closing logWriter {}", e.getMessage(), e);
     }
-    messageTable.clear();
+    if (messageBuffer != null) {
+      messageBuffer.clear();
+    }
   }
 
   @Override
@@ -281,6 +304,38 @@ public class KafkaLogWriterPlugin extends AbstractKafkaLogProcessor {
     }
   }
 
+  /**
+   * Returns the log event encoded with the log schema.
+   */
+  private byte[] encode(KafkaLogEvent event) throws IOException {
+    ByteBuffer encoded = event.getEncoded();
+    if (encoded != null) {
+      byte[] bytes = new byte[encoded.remaining()];
+      encoded.get(bytes);
+      return bytes;
+    }
+
+    if (datumWriter == null) {
+      datumWriter = new GenericDatumWriter<>(serializer.getAvroSchema());
+      encodeOutput = new ByteArrayOutputStream();
+    }
+    encodeOutput.reset();
+    encoder = EncoderFactory.get().directBinaryEncoder(encodeOutput, encoder);
+    datumWriter.write(event.getGenericRecord(), encoder);
+    return encodeOutput.toByteArray();
+  }
+
+  private void deleteSpillDir(File spillDir) {
+    if (!spillDir.exists()) {
+      return;
+    }
+    try {
+      DirUtils.deleteDirectoryContents(spillDir);
+    } catch (IOException e) {
+      LOG.warn("Failed to delete log event spill directory {}", spillDir, e);
+    }
+  }
+
   @VisibleForTesting
   CheckpointManager getCheckPointManager() {
     return this.checkpointManager;
@@ -30,6 +30,7 @@ import org.apache.twill.kafka.client.KafkaConsumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.ByteBuffer;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
@@ -80,14 +81,15 @@ public class KafkaMessageCallback implements KafkaConsumer.MessageCallback {
     while (messages.hasNext()) {
       FetchedMessage message = messages.next();
       try {
-        GenericRecord genericRecord = serializer.toGenericRecord(message.getPayload());
+        ByteBuffer payload = message.getPayload();
+        GenericRecord genericRecord = serializer.toGenericRecord(payload.duplicate());
         ILoggingEvent event = serializer.fromGenericRecord(genericRecord);
         LOG.trace("Got event {} for partition {}", event, partition);
 
         LoggingContext loggingContext = LoggingContextHelper.getLoggingContext(event.getMDCPropertyMap());
         KafkaLogEvent logEvent = new KafkaLogEvent(genericRecord, event, loggingContext,
                                                    message.getTopicPartition().getPartition(),
-                                                   message.getNextOffset());
+                                                   message.getNextOffset(), payload);
         events.add(logEvent);
         if (event.getTimeStamp() < oldestProcessed) {
           oldestProcessed = event.getTimeStamp();
@@ -0,0 +1,158 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.logging.save;
+
+import co.cask.cdap.api.metrics.MetricsContext;
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.common.logging.LoggingContext;
+import com.google.common.collect.RowSortedTable;
+import com.google.common.collect.TreeBasedTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+
+/**
+ * Buffers log events by event time bucket and logging context until they are written by the {@link LogWriter}.
+ * The memory used by the buffered events is bounded by a byte budget. When the budget is exceeded, the events of
+ * the newest time buckets, which are the last to be written, are spilled to local files.
+ *
+ * Methods that read or modify the buckets must be called while holding the lock of this instance.
+ */
+final class LogEventBuffer {
+  private static final Logger LOG = LoggerFactory.getLogger(LogEventBuffer.class);
+
+  // Table structure - <event time bucket, log path fragment, buffered events>
+  private final RowSortedTable<Long, String, BufferedLogEvents> table = TreeBasedTable.create();
+  private final long maxBufferedBytes;
+  private final File spillDir;
+  private final MetricsContext metricsContext;
+  private final String bufferedBytesMetric;
+
+  private long bufferedBytes;
+  private long spillFileCount;
+
+  /**
+   * Creates a new instance.
+   *
+   * @param maxBufferedBytes the maximum number of bytes of events to keep in memory
+   * @param spillDir the local directory for spill files
+   * @param metricsContext the {@link MetricsContext} for emitting buffer metrics
+   * @param partition the Kafka partition that the events are from
+   */
+  LogEventBuffer(long maxBufferedBytes, File spillDir, MetricsContext metricsContext, int partition) {
+    this.maxBufferedBytes = maxBufferedBytes;
+    this.spillDir = spillDir;
+    this.metricsContext = metricsContext;
+    this.bufferedBytesMetric = Constants.Metrics.Name.Log.BUFFER_BYTES + "." + partition;
+  }
+
+  /**
+   * Returns the event time buckets that have events, in ascending order.
+   */
+  synchronized SortedSet<Long> getBuckets() {
+    return table.rowKeySet();
+  }
+
+  /**
+   * Returns a modifiable view of the events in the given event time bucket, keyed by log path fragment.
+   * Entries removed from the view must be released by calling {@link #release(BufferedLogEvents)}.
+   */
+  synchronized Map<String, BufferedLogEvents> getBucket(long bucket) {
+    return table.row(bucket);
+  }
+
+  /**
+   * Adds an event to the buffer.
+   *
+   * @param bucket the event time bucket of the event
+   * @param pathFragment the log path fragment of the logging context
+   * @param loggingContext the {@link LoggingContext} of the event
+   * @param arrivalBucket the event arrival time bucket
+   * @param event the event to add
+   */
+  synchronized void add(long bucket, String pathFragment, LoggingContext loggingContext,
+                        long arrivalBucket, BufferedLogEvent event) {
+    BufferedLogEvents events = table.get(bucket, pathFragment);
+    if (events == null) {
+      events = new BufferedLogEvents(loggingContext, arrivalBucket,
+                                     new File(spillDir, "events-" + spillFileCount++ + ".spill"));
+      table.put(bucket, pathFragment, events);
+    }
+    bufferedBytes += events.add(event);
+  }
+
+  /**
+   * Spills events to local files if the events in memory exceed the byte budget. Events of the newest buckets are
+   * spilled first, until the events in memory use no more than half of the budget.
+   */
+  synchronized void spillIfNeeded() {
+    if (bufferedBytes > maxBufferedBytes) {
+      long spilledBytes = 0L;
+      try {
+        if (!spillDir.isDirectory() && !spillDir.mkdirs() && !spillDir.isDirectory()) {
+          throw new IOException("Failed to create directory " + spillDir);
+        }
+        long target = maxBufferedBytes / 2;
+        List<Long> buckets = new ArrayList<>(table.rowKeySet());
+        for (int i = buckets.size() - 1; i >= 0 && bufferedBytes > target; i--) {
+          for (BufferedLogEvents events : table.row(buckets.get(i)).values()) {
+            long memoryBytes = events.getMemoryBytes();
+            if (memoryBytes == 0) {
+              continue;
+            }
+            spilledBytes += events.spill();
+            bufferedBytes -= memoryBytes;
+            if (bufferedBytes <= target) {
+              break;
+            }
+          }
+        }
+      } catch (IOException e) {
+        LOG.warn("Failed to spill log events to {}. Keeping the events in memory.", spillDir, e);
+      }
+      LOG.debug("Spilled {} bytes of log events to {}", spilledBytes, spillDir);
+      metricsContext.increment(Constants.Metrics.Name.Log.BUFFER_SPILL_BYTES, spilledBytes);
+    }
+    metricsContext.gauge(bufferedBytesMetric, bufferedBytes);
+  }
+
+  /**
+   * Releases the memory and spill file used by events that were removed from the buffer.
+   */
+  synchronized void release(BufferedLogEvents events) {
+    bufferedBytes -= events.getMemoryBytes();
+    events.delete();
+    metricsContext.gauge(bufferedBytesMetric, bufferedBytes);
+  }
+
+  /**
+   * Removes all the events from the buffer and deletes the spill files.
+   */
+  synchronized void clear() {
+    for (BufferedLogEvents events : table.values()) {
+      events.delete();
+    }
+    table.clear();
+    bufferedBytes = 0L;
+  }
+}
@@ -16,20 +16,15 @@
 
 package co.cask.cdap.logging.save;
 
-import co.cask.cdap.logging.kafka.KafkaLogEvent;
-import co.cask.cdap.logging.write.LogFileWriter;
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.ListMultimap;
-import com.google.common.collect.RowSortedTable;
+import co.cask.cdap.api.dataset.lib.CloseableIterator;
+import com.google.common.collect.Iterators;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Collection;
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.SortedSet;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -40,21 +35,24 @@ import java.util.concurrent.TimeUnit;
 public class LogWriter implements Runnable {
   private static final Logger LOG = LoggerFactory.getLogger(LogWriter.class);
   private static final long SLEEP_TIME_NS = TimeUnit.MILLISECONDS.toNanos(100);
+  // Maximum number of events to read back from the buffer for one append to the log file
+  private static final int WRITE_BATCH_SIZE = 1000;
 
-  private final LogFileWriter<KafkaLogEvent> logFileWriter;
-  private final RowSortedTable<Long, String, Entry<Long, List<KafkaLogEvent>>> messageTable;
+  private final CheckpointingLogFileWriter logFileWriter;
+  private final LogEventBuffer buffer;
   private final long eventBucketIntervalMs;
   private final long maxNumberOfBucketsInTable;
   private final CountDownLatch stopLatch;
   private final ExponentialBackoff exponentialBackoff;
 
-  private final ListMultimap<String, KafkaLogEvent> writeListMap = ArrayListMultimap.create();
+  private final List<BufferedLogEvents> writeList = new ArrayList<>();
+  // Number of events of the first entry in writeList that are already appended to the log file
+  private int writtenEvents;
 
-  public LogWriter(LogFileWriter<KafkaLogEvent> logFileWriter,
-                   RowSortedTable<Long, String, Entry<Long, List<KafkaLogEvent>>> messageTable,
-                   long eventBucketIntervalMs, long maxNumberOfBucketsInTable, final CountDownLatch stopLatch) {
+  LogWriter(CheckpointingLogFileWriter logFileWriter, LogEventBuffer buffer,
+            long eventBucketIntervalMs, long maxNumberOfBucketsInTable, final CountDownLatch stopLatch) {
     this.logFileWriter = logFileWriter;
-    this.messageTable = messageTable;
+    this.buffer = buffer;
     this.eventBucketIntervalMs = eventBucketIntervalMs;
     this.maxNumberOfBucketsInTable = maxNumberOfBucketsInTable;
     this.stopLatch = stopLatch;
@@ -75,32 +73,30 @@ public class LogWriter implements Runnable {
     while (true) {
       try {
         // Read new messages only if previous write was successful.
-        if (writeListMap.isEmpty()) {
+        if (writeList.isEmpty()) {
           int messages = 0;
 
           // The newest event that we can write to disk
           // We try to buffer events up to (eventBucketIntervalMs * maxNumberOfBucketsInTable) time
           // so that we collect almost all events for a time bucket before we sort it.
           long limitKey = (System.currentTimeMillis() / eventBucketIntervalMs) - maxNumberOfBucketsInTable;
-          synchronized (messageTable) {
-            SortedSet<Long> rowKeySet = messageTable.rowKeySet();
+          synchronized (buffer) {
+            SortedSet<Long> rowKeySet = buffer.getBuckets();
             if (!rowKeySet.isEmpty()) {
               int numBuckets = rowKeySet.size();
               long oldestBucketKey = rowKeySet.first();
 
-              Map<String, Entry<Long, List<KafkaLogEvent>>> row = messageTable.row(oldestBucketKey);
-              for (Iterator<Map.Entry<String, Entry<Long, List<KafkaLogEvent>>>> it = row.entrySet().iterator();
-                   it.hasNext(); ) {
-                Map.Entry<String, Entry<Long, List<KafkaLogEvent>>> mapEntry = it.next();
+              Map<String, BufferedLogEvents> row = buffer.getBucket(oldestBucketKey);
+              for (Iterator<BufferedLogEvents> it = row.values().iterator(); it.hasNext(); ) {
+                BufferedLogEvents events = it.next();
                 // Stop if event arrival time is more than the limit (this is for events being generated now)
                 // However, if we have reached maxNumberOfBucketsInTable then it means we are reading old
                 // events and we can write as soon as we fill up maxNumberOfBucketsInTable
-                if (numBuckets < maxNumberOfBucketsInTable &&
-                  limitKey < mapEntry.getValue().getKey()) {
+                if (numBuckets < maxNumberOfBucketsInTable && limitKey < events.getArrivalBucket()) {
                   break;
                 }
-                writeListMap.putAll(mapEntry.getKey(), mapEntry.getValue().getValue());
-                messages += mapEntry.getValue().getValue().size();
+                writeList.add(events);
+                messages += events.size();
                 it.remove();
               }
             }
@@ -109,9 +105,9 @@ public class LogWriter implements Runnable {
           LOG.trace("Got {} log messages to save", messages);
         }
 
-        long sleepTimeNanos = writeListMap.isEmpty() ? SLEEP_TIME_NS : 1;
+        long sleepTimeNanos = writeList.isEmpty() ? SLEEP_TIME_NS : 1;
 
-        // Wait for more data to arrive if writeListMap is empty, otherwise check if stopped
+        // Wait for more data to arrive if writeList is empty, otherwise check if stopped
         if (stopLatch.await(sleepTimeNanos, TimeUnit.NANOSECONDS)) {
           // if count down occurred return
           LOG.debug("Returning since stop latch is cancelled");
@@ -120,14 +116,13 @@ public class LogWriter implements Runnable {
           LOG.trace("Waiting for events, sleeping for {} ns", sleepTimeNanos);
         }
 
-        for (Iterator<Entry<String, Collection<KafkaLogEvent>>> it = writeListMap.asMap().entrySet().iterator();
-             it.hasNext(); ) {
-          Entry<String, Collection<KafkaLogEvent>> mapEntry = it.next();
-          List<KafkaLogEvent> list = (List<KafkaLogEvent>) mapEntry.getValue();
-          Collections.sort(list);
-          logFileWriter.append(list);
+        for (Iterator<BufferedLogEvents> it = writeList.iterator(); it.hasNext(); ) {
+          BufferedLogEvents events = it.next();
+          write(events);
           // Remove successfully written message
+          buffer.release(events);
           it.remove();
+          writtenEvents = 0;
         }
 
         logFileWriter.flush(false);
@@ -144,4 +139,25 @@ public class LogWriter implements Runnable {
       }
     }
   }
+
+  /**
+   * Writes the events in time order, merging the spilled events with the ones in memory. If a previous attempt
+   * failed part way, the events that were already appended are skipped, so that they are not written twice.
+   */
+  private void write(BufferedLogEvents events) throws Exception {
+    List<BufferedLogEvent> batch = new ArrayList<>(Math.min(events.size(), WRITE_BATCH_SIZE));
+    try (CloseableIterator<BufferedLogEvent> iterator = events.iterator()) {
+      Iterators.advance(iterator, writtenEvents);
+      while (iterator.hasNext()) {
+        batch.add(iterator.next());
+        if (batch.size() >= WRITE_BATCH_SIZE) {
+          logFileWriter.appendBuffered(events.getLoggingContext(), batch);
+          writtenEvents += batch.size();
+          batch.clear();
+        }
+      }
+    }
+    logFileWriter.appendBuffered(events.getLoggingContext(), batch);
+    writtenEvents += batch.size();
+  }
 }
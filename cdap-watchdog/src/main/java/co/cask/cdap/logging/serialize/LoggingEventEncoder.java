@@ -0,0 +1,206 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.logging.serialize;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ClassPackagingData;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.LoggerContextVO;
+import ch.qos.logback.classic.spi.StackTraceElementProxy;
+import co.cask.cdap.common.logging.LoggingContext;
+import org.apache.avro.io.Encoder;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Encodes {@link ILoggingEvent} to Avro binary with the schema in {@link LogSchema}, by writing the fields
+ * directly to an {@link Encoder} instead of building {@link org.apache.avro.generic.GenericRecord}s first.
+ * The output is the same as writing the record returned by
+ * {@link LoggingEvent#encode(org.apache.avro.Schema, ILoggingEvent, LoggingContext)} with a
+ * {@link org.apache.avro.generic.GenericDatumWriter}, hence the fields must be written in schema order.
+ */
+public final class LoggingEventEncoder {
+
+  // Branch indices of the ["null", type] unions in the schema
+  private static final int NULL_INDEX = 0;
+  private static final int VALUE_INDEX = 1;
+
+  private LoggingEventEncoder() {}
+
+  /**
+   * Encodes the given event.
+   *
+   * @param event the event to encode
+   * @param loggingContext the {@link LoggingContext} that the event was emitted in
+   * @param encoder the {@link Encoder} to write to
+   * @throws IOException if failed to write to the encoder
+   */
+  public static void encode(ILoggingEvent event, LoggingContext loggingContext, Encoder encoder) throws IOException {
+    event.prepareForDeferredProcessing();
+
+    encoder.writeLong(event.getTimeStamp());
+    encoder.writeInt(event.getLevel() == null ? Level.ERROR_INT : event.getLevel().toInt());
+    writeMap(LoggingEvent.generateContextMdc(loggingContext, event.getMDCPropertyMap()), encoder);
+    // Marker is never serialized
+    encoder.writeIndex(NULL_INDEX);
+    writeString(event.getThreadName(), encoder);
+    writeString(event.getMessage(), encoder);
+    writeArguments(event.getArgumentArray(), encoder);
+    writeString(event.getFormattedMessage(), encoder);
+    writeString(event.getLoggerName(), encoder);
+    writeLoggerContext(event.getLoggerContextVO(), encoder);
+    writeThrowableProxy(event.getThrowableProxy(), encoder);
+
+    boolean hasCallerData = event.hasCallerData();
+    encoder.writeBoolean(hasCallerData);
+    writeStackTraceElements(hasCallerData ? event.getCallerData() : null, encoder);
+  }
+
+  private static void writeString(String value, Encoder encoder) throws IOException {
+    if (value == null) {
+      encoder.writeIndex(NULL_INDEX);
+    } else {
+      encoder.writeIndex(VALUE_INDEX);
+      encoder.writeString(value);
+    }
+  }
+
+  private static void writeMap(Map<String, String> map, Encoder encoder) throws IOException {
+    if (map == null) {
+      encoder.writeIndex(NULL_INDEX);
+      return;
+    }
+    encoder.writeIndex(VALUE_INDEX);
+    encoder.writeMapStart();
+    encoder.setItemCount(map.size());
+    for (Map.Entry<String, String> entry : map.entrySet()) {
+      encoder.startItem();
+      encoder.writeString(entry.getKey());
+      writeString(entry.getValue(), encoder);
+    }
+    encoder.writeMapEnd();
+  }
+
+  private static void writeArguments(Object[] arguments, Encoder encoder) throws IOException {
+    if (arguments == null) {
+      encoder.writeIndex(NULL_INDEX);
+      return;
+    }
+    encoder.writeIndex(VALUE_INDEX);
+    encoder.writeArrayStart();
+    encoder.setItemCount(arguments.length);
+    for (Object argument : arguments) {
+      encoder.startItem();
+      writeString(argument == null ? null : argument.toString(), encoder);
+    }
+    encoder.writeArrayEnd();
+  }
+
+  private static void writeLoggerContext(LoggerContextVO context, Encoder encoder) throws IOException {
+    if (context == null) {
+      encoder.writeIndex(NULL_INDEX);
+      return;
+    }
+    encoder.writeIndex(VALUE_INDEX);
+    writeString(context.getName(), encoder);
+    writeMap(LoggingEvent.encodeMdcMap(context.getPropertyMap()), encoder);
+    encoder.writeLong(context.getBirthTime());
+  }
+
+  private static void writeThrowableProxy(IThrowableProxy throwableProxy, Encoder encoder) throws IOException {
+    if (throwableProxy == null) {
+      encoder.writeIndex(NULL_INDEX);
+      return;
+    }
+    encoder.writeIndex(VALUE_INDEX);
+    writeString(throwableProxy.getClassName(), encoder);
+    writeString(throwableProxy.getMessage(), encoder);
+    encoder.writeInt(throwableProxy.getCommonFrames());
+
+    StackTraceElementProxy[] proxies = throwableProxy.getStackTraceElementProxyArray();
+    if (proxies == null) {
+      encoder.writeIndex(NULL_INDEX);
+    } else {
+      encoder.writeIndex(VALUE_INDEX);
+      encoder.writeArrayStart();
+      encoder.setItemCount(proxies.length);
+      for (StackTraceElementProxy proxy : proxies) {
+        encoder.startItem();
+        // Array items are not nullable
+        writeStackTraceElement(proxy.getStackTraceElement(), encoder);
+        writeClassPackagingData(proxy.getClassPackagingData(), encoder);
+      }
+      encoder.writeArrayEnd();
+    }
+
+    writeThrowableProxy(throwableProxy.getCause(), encoder);
+
+    IThrowableProxy[] suppressed = throwableProxy.getSuppressed();
+    if (suppressed == null) {
+      encoder.writeIndex(NULL_INDEX);
+    } else {
+      encoder.writeIndex(VALUE_INDEX);
+      encoder.writeArrayStart();
+      encoder.setItemCount(suppressed.length);
+      for (IThrowableProxy proxy : suppressed) {
+        encoder.startItem();
+        writeThrowableProxy(proxy, encoder);
+      }
+      encoder.writeArrayEnd();
+    }
+  }
+
+  private static void writeStackTraceElements(StackTraceElement[] elements, Encoder encoder) throws IOException {
+    if (elements == null) {
+      encoder.writeIndex(NULL_INDEX);
+      return;
+    }
+    encoder.writeIndex(VALUE_INDEX);
+    encoder.writeArrayStart();
+    encoder.setItemCount(elements.length);
+    for (StackTraceElement element : elements) {
+      encoder.startItem();
+      writeStackTraceElement(element, encoder);
+    }
+    encoder.writeArrayEnd();
+  }
+
+  private static void writeStackTraceElement(StackTraceElement element, Encoder encoder) throws IOException {
+    if (element == null) {
+      encoder.writeIndex(NULL_INDEX);
+      return;
+    }
+    encoder.writeIndex(VALUE_INDEX);
+    writeString(element.getClassName(), encoder);
+    writeString(element.getMethodName(), encoder);
+    writeString(element.getFileName(), encoder);
+    encoder.writeInt(element.getLineNumber());
+  }
+
+  private static void writeClassPackagingData(ClassPackagingData data, Encoder encoder) throws IOException {
+    if (data == null) {
+      encoder.writeIndex(NULL_INDEX);
+      return;
+    }
+    encoder.writeIndex(VALUE_INDEX);
+    writeString(data.getCodeLocation(), encoder);
+    writeString(data.getVersion(), encoder);
+    encoder.writeBoolean(data.isExact());
+  }
+}
@@ -35,6 +35,7 @@ import org.slf4j.LoggerFactory;
 import java.io.Closeable;
 import java.io.Flushable;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Iterator;
@@ -116,6 +117,35 @@ public final class AvroFileWriter implements Closeable, Flushable {
     avroFile.flush();
   }
 
+  /**
+   * Appends log events that are already encoded with the log schema to an appropriate Avro file based on the
+   * given LoggingContext.
+   *
+   * @param loggingContext the LoggingContext of the events
+   * @param timestamp timestamp of the first event
+   * @param events encoded log events
+   * @throws IOException
+   */
+  public void appendEncoded(LoggingContext loggingContext, long timestamp, List<ByteBuffer> events) throws Exception {
+    if (events.isEmpty()) {
+      LOG.debug("Empty append list.");
+      return;
+    }
+
+    if (LOG.isTraceEnabled()) {
+      LOG.trace("Appending {} encoded messages for logging context {}", events.size(),
+                loggingContext.getLogPathFragment(logBaseDir));
+    }
+
+    AvroFile avroFile = getAvroFile(loggingContext, timestamp);
+    avroFile = rotateFile(avroFile, loggingContext, timestamp);
+
+    for (ByteBuffer event : events) {
+      avroFile.appendEncoded(event);
+    }
+    avroFile.flush();
+  }
+
   @Override
   public void close() throws IOException {
     if (!closed.compareAndSet(false, true)) {
@@ -316,6 +346,15 @@ public final class AvroFileWriter implements Closeable, Flushable {
       }
     }
 
+    public void appendEncoded(ByteBuffer event) throws IOException {
+      try {
+        dataFileWriter.appendEncoded(event);
+      } catch (Exception e) {
+        close();
+        throw new IOException("Exception while appending to file " + location, e);
+      }
+    }
+
     public long getPos() throws IOException {
       try {
         return outputStream.getPos();
@@ -30,6 +30,7 @@ import org.apache.twill.kafka.client.TopicPartition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Flushable;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
@@ -45,7 +46,9 @@ public final class KafkaMetricsProcessorService extends AbstractExecutionThreadS
   private final MessageCallbackFactory callbackFactory;
   private final String topicPrefix;
   private final Set<Integer> partitions;
+  private final long flushIntervalMillis;
   private Cancellable unsubscribe;
+  private KafkaConsumer.MessageCallback callback;
   private final MetricDatasetFactory metricDatasetFactory;
 
   @Nullable
@@ -60,11 +63,14 @@ public final class KafkaMetricsProcessorService extends AbstractExecutionThreadS
                                       MetricDatasetFactory metricDatasetFactory,
                                       MessageCallbackFactory callbackFactory,
                                       @Named(Constants.Metrics.KAFKA_TOPIC_PREFIX) String topicPrefix,
+                                      @Named(Constants.Metrics.KAFKA_CONSUMER_FLUSH_INTERVAL_MS)
+                                      long flushIntervalMillis,
                                       @Assisted Set<Integer> partitions) {
     this.kafkaClient = kafkaClient;
     this.callbackFactory = callbackFactory;
     this.topicPrefix = topicPrefix;
     this.partitions = partitions;
+    this.flushIntervalMillis = flushIntervalMillis;
     this.metricDatasetFactory = metricDatasetFactory;
   }
 
@@ -85,14 +91,27 @@ public final class KafkaMetricsProcessorService extends AbstractExecutionThreadS
     }
     LOG.info("Metrics Processing Service started for partitions {}.", partitions);
 
+    long sleepMillis = flushIntervalMillis > 0 ? Math.min(flushIntervalMillis, 1000L) : 1000L;
+    long lastFlushTime = System.currentTimeMillis();
     while (isRunning()) {
       try {
-        TimeUnit.SECONDS.sleep(1);
+        TimeUnit.MILLISECONDS.sleep(sleepMillis);
       } catch (InterruptedException e) {
         // It's triggered by stop
         Thread.currentThread().interrupt();
         continue;
       }
+
+      // Write metrics buffered by the callback periodically, even if no new message arrives
+      long now = System.currentTimeMillis();
+      if (callback instanceof Flushable && now - lastFlushTime >= flushIntervalMillis) {
+        lastFlushTime = now;
+        try {
+          ((Flushable) callback).flush();
+        } catch (Exception e) {
+          LOG.warn("Failed to flush metrics. Will retry later.", e);
+        }
+      }
     }
   }
 
@@ -165,7 +184,8 @@ public final class KafkaMetricsProcessorService extends AbstractExecutionThreadS
       }
     }
 
-    unsubscribe = preparer.consume(callbackFactory.create(getMetaTable(), metricsContext));
+    callback = callbackFactory.create(getMetaTable(), metricsContext);
+    unsubscribe = preparer.consume(callback);
     LOG.info("Consumer created for topic {}, partitions {}", topic, partitions);
     return true;
   }
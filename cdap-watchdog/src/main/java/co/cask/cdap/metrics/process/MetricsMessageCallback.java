@@ -24,6 +24,7 @@ import co.cask.cdap.api.metrics.MetricsContext;
 import co.cask.cdap.common.io.BinaryDecoder;
 import co.cask.cdap.internal.io.DatumReader;
 import co.cask.common.io.ByteBufferInputStream;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import org.apache.twill.kafka.client.FetchedMessage;
@@ -31,6 +32,7 @@ import org.apache.twill.kafka.client.KafkaConsumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Flushable;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.Iterator;
@@ -41,9 +43,11 @@ import javax.annotation.Nullable;
 
 /**
  * A {@link KafkaConsumer.MessageCallback} that decodes message into {@link co.cask.cdap.api.metrics.MetricValues}
- * and stores it in {@link MetricStore}.
+ * and stores it in {@link MetricStore}. Decoded metrics are pre-aggregated in memory and written to the store
+ * when the flush interval has passed since the oldest buffered metric, when the number of buffered metrics
+ * reaches the limit, or when {@link #flush()} is called.
  */
-public final class MetricsMessageCallback implements KafkaConsumer.MessageCallback {
+public final class MetricsMessageCallback implements KafkaConsumer.MessageCallback, Flushable {
 
   private static final Logger LOG = LoggerFactory.getLogger(MetricsMessageCallback.class);
 
@@ -52,20 +56,44 @@ public final class MetricsMessageCallback implements KafkaConsumer.MessageCallba
   private long recordProcessed;
   private final MetricStore metricStore;
   private final Map<String, String> metricsContext;
+  private final long flushIntervalMillis;
+  private final int maxBufferedMetrics;
+  private final MetricsPreAggregator aggregator;
+  private long firstBufferedTime;
 
   public MetricsMessageCallback(DatumReader<MetricValues> recordReader,
                                 Schema recordSchema,
                                 MetricStore metricStore,
                                 @Nullable
                                 MetricsContext metricsContext) {
+    this(recordReader, recordSchema, metricStore, metricsContext, 0L, 0);
+  }
+
+  /**
+   * Constructs a {@link MetricsMessageCallback} that pre-aggregates metrics before writing them to the store.
+   *
+   * @param flushIntervalMillis maximum time in milliseconds to buffer metrics; metrics are written right away
+   *                            if it is not positive
+   * @param maxBufferedMetrics maximum number of distinct metric values to buffer
+   */
+  public MetricsMessageCallback(DatumReader<MetricValues> recordReader,
+                                Schema recordSchema,
+                                MetricStore metricStore,
+                                @Nullable
+                                MetricsContext metricsContext,
+                                long flushIntervalMillis,
+                                int maxBufferedMetrics) {
     this.recordReader = recordReader;
     this.recordSchema = recordSchema;
     this.metricStore = metricStore;
     this.metricsContext = metricsContext == null ? Collections.<String, String>emptyMap() : metricsContext.getTags();
+    this.flushIntervalMillis = flushIntervalMillis;
+    this.maxBufferedMetrics = maxBufferedMetrics;
+    this.aggregator = new MetricsPreAggregator();
   }
 
   @Override
-  public void onReceived(Iterator<FetchedMessage> messages) {
+  public synchronized void onReceived(Iterator<FetchedMessage> messages) {
     // Decode the metrics records.
     final ByteBufferInputStream is = new ByteBufferInputStream(null);
     List<MetricValues> records = Lists.newArrayList();
@@ -85,14 +113,18 @@ public final class MetricsMessageCallback implements KafkaConsumer.MessageCallba
       return;
     }
 
-    try {
-      addProcessingStats(records);
-      metricStore.add(records);
-    } catch (Exception e) {
-      String msg = "Failed to add metrics data to a store";
-      LOG.error(msg);
-      // todo: will it shut down the whole the metrics processor service??
-      throw new RuntimeException(msg, e);
+    addProcessingStats(records);
+    if (aggregator.isEmpty()) {
+      firstBufferedTime = System.currentTimeMillis();
+    }
+    aggregator.addAll(records);
+    if (aggregator.size() >= maxBufferedMetrics
+      || System.currentTimeMillis() - firstBufferedTime >= flushIntervalMillis) {
+      try {
+        flush();
+      } catch (IOException e) {
+        throw Throwables.propagate(e);
+      }
     }
 
     recordProcessed += records.size();
@@ -115,9 +147,35 @@ public final class MetricsMessageCallback implements KafkaConsumer.MessageCallba
                                         new MetricValue("metrics.process.delay.ms", MetricType.GAUGE, delay))));
   }
 
+  /**
+   * Writes all buffered metrics to the store.
+   *
+   * @throws IOException if failed to write to the store; the metrics are kept in the buffer for the next flush
+   */
+  @Override
+  public synchronized void flush() throws IOException {
+    if (aggregator.isEmpty()) {
+      return;
+    }
+    List<MetricValues> metrics = aggregator.drain();
+    try {
+      metricStore.add(metrics);
+    } catch (Exception e) {
+      // Keep the metrics in the buffer so that they are retried in the next flush.
+      aggregator.addAll(metrics);
+      String msg = "Failed to add metrics data to a store";
+      LOG.error(msg);
+      throw new IOException(msg, e);
+    }
+  }
+
   @Override
   public void finished() {
-    // Just log
+    try {
+      flush();
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    }
     LOG.info("Metrics MessageCallback completed.");
   }
 }
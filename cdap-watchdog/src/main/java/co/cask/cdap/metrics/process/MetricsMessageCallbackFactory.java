@@ -40,17 +40,25 @@ public final class MetricsMessageCallbackFactory implements MessageCallbackFacto
   private final Schema recordSchema;
   private final MetricStore metricStore;
   private final int persistThreshold;
+  private final long flushIntervalMillis;
+  private final int maxBufferedMetrics;
 
   @Inject
   public MetricsMessageCallbackFactory(SchemaGenerator schemaGenerator, DatumReaderFactory readerFactory,
                                        MetricStore metricStore,
                                        @Named(Constants.Metrics.KAFKA_CONSUMER_PERSIST_THRESHOLD)
-                                       int persistThreshold) {
+                                       int persistThreshold,
+                                       @Named(Constants.Metrics.KAFKA_CONSUMER_FLUSH_INTERVAL_MS)
+                                       long flushIntervalMillis,
+                                       @Named(Constants.Metrics.KAFKA_CONSUMER_MAX_BUFFERED_METRICS)
+                                       int maxBufferedMetrics) {
     try {
       this.recordSchema = schemaGenerator.generate(MetricValues.class);
       this.datumReader = readerFactory.create(TypeToken.of(MetricValues.class), recordSchema);
       this.metricStore = metricStore;
       this.persistThreshold = persistThreshold;
+      this.flushIntervalMillis = flushIntervalMillis;
+      this.maxBufferedMetrics = maxBufferedMetrics;
 
     } catch (UnsupportedTypeException e) {
       throw Throwables.propagate(e);
@@ -61,6 +69,8 @@ public final class MetricsMessageCallbackFactory implements MessageCallbackFacto
   public KafkaConsumer.MessageCallback create(KafkaConsumerMetaTable metaTable, MetricsContext metricsContext) {
     metricStore.setMetricsContext(metricsContext);
     return new PersistedMessageCallback(
-      new MetricsMessageCallback(datumReader, recordSchema, metricStore, metricsContext), metaTable, persistThreshold);
+      new MetricsMessageCallback(datumReader, recordSchema, metricStore, metricsContext,
+                                 flushIntervalMillis, maxBufferedMetrics),
+      metaTable, persistThreshold);
   }
 }
@@ -0,0 +1,161 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.metrics.process;
+
+import co.cask.cdap.api.metrics.MetricType;
+import co.cask.cdap.api.metrics.MetricValue;
+import co.cask.cdap.api.metrics.MetricValues;
+import com.google.common.base.Objects;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Coalesces {@link MetricValues} in memory before they are written to the metric store. Metrics with the same
+ * tags, timestamp and name are combined into one value: counters are summed up and for gauges only the latest
+ * value is kept, which gives the same result as writing them one by one. Since every buffered entry is expanded
+ * into one write per aggregation and resolution by the cube, combining them reduces the number of writes to the
+ * underlying tables. Instances of this class are not thread safe.
+ */
+final class MetricsPreAggregator {
+
+  // Buffered metrics, keyed by tags and timestamp, then by metric name
+  private final Map<Key, Map<String, MutableMetricValue>> buffer = new LinkedHashMap<>();
+  private int size;
+
+  /**
+   * Adds the given {@link MetricValues} to the buffer.
+   */
+  void add(MetricValues metricValues) {
+    Key key = new Key(metricValues.getTags(), metricValues.getTimestamp());
+    Map<String, MutableMetricValue> metrics = buffer.get(key);
+    if (metrics == null) {
+      metrics = new LinkedHashMap<>();
+      buffer.put(key, metrics);
+    }
+
+    for (MetricValue metricValue : metricValues.getMetrics()) {
+      MutableMetricValue value = metrics.get(metricValue.getName());
+      if (value == null) {
+        metrics.put(metricValue.getName(), new MutableMetricValue(metricValue.getType(), metricValue.getValue()));
+        size++;
+      } else {
+        value.update(metricValue.getType(), metricValue.getValue());
+      }
+    }
+  }
+
+  /**
+   * Adds all the given {@link MetricValues} to the buffer.
+   */
+  void addAll(Collection<? extends MetricValues> metricValues) {
+    for (MetricValues values : metricValues) {
+      add(values);
+    }
+  }
+
+  /**
+   * Returns the number of distinct metric values in the buffer.
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Returns {@code true} if there is nothing in the buffer.
+   */
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Removes and returns all the buffered metrics, with one {@link MetricValues} for each distinct tags and
+   * timestamp.
+   */
+  List<MetricValues> drain() {
+    List<MetricValues> result = new ArrayList<>(buffer.size());
+    for (Map.Entry<Key, Map<String, MutableMetricValue>> entry : buffer.entrySet()) {
+      List<MetricValue> metrics = new ArrayList<>(entry.getValue().size());
+      for (Map.Entry<String, MutableMetricValue> metric : entry.getValue().entrySet()) {
+        metrics.add(new MetricValue(metric.getKey(), metric.getValue().type, metric.getValue().value));
+      }
+      result.add(new MetricValues(entry.getKey().tags, entry.getKey().timestamp, metrics));
+    }
+    buffer.clear();
+    size = 0;
+    return result;
+  }
+
+  /**
+   * Key for the buffered metrics.
+   */
+  private static final class Key {
+    private final Map<String, String> tags;
+    private final long timestamp;
+    private final int hashCode;
+
+    Key(Map<String, String> tags, long timestamp) {
+      this.tags = tags;
+      this.timestamp = timestamp;
+      this.hashCode = Objects.hashCode(tags, timestamp);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key other = (Key) o;
+      return timestamp == other.timestamp && tags.equals(other.tags);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  /**
+   * A combined metric value.
+   */
+  private static final class MutableMetricValue {
+    private MetricType type;
+    private long value;
+
+    MutableMetricValue(MetricType type, long value) {
+      this.type = type;
+      this.value = value;
+    }
+
+    void update(MetricType newType, long newValue) {
+      if (newType == MetricType.GAUGE) {
+        // A gauge overwrites the previous value
+        type = MetricType.GAUGE;
+        value = newValue;
+      } else {
+        // A counter increments the previous value, regardless of whether it was set by a counter or a gauge
+        value += newValue;
+      }
+    }
+  }
+}
@@ -24,6 +24,8 @@ import org.apache.twill.kafka.client.TopicPartition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Flushable;
+import java.io.IOException;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -31,8 +33,10 @@ import java.util.concurrent.atomic.AtomicInteger;
 /**
  * A {@link KafkaConsumer.MessageCallback} that persists offset information into a VCTable while
  * delegating the actual message consumption to another {@link KafkaConsumer.MessageCallback}.
+ * If the delegate is {@link Flushable}, it is flushed before offsets are persisted, so that the persisted
+ * offsets never go beyond the messages that are buffered but not yet processed by the delegate.
  */
-public final class PersistedMessageCallback implements KafkaConsumer.MessageCallback {
+public final class PersistedMessageCallback implements KafkaConsumer.MessageCallback, Flushable {
 
   private static final Logger LOG = LoggerFactory.getLogger(PersistedMessageCallback.class);
 
@@ -58,22 +62,37 @@ public final class PersistedMessageCallback implements KafkaConsumer.MessageCall
   }
 
   @Override
-  public void onReceived(Iterator<FetchedMessage> messages) {
+  public synchronized void onReceived(Iterator<FetchedMessage> messages) {
     delegate.onReceived(new OffsetTrackingIterator(messages));
     if (messageCount.get() >= persistThreshold) {
       messageCount.set(0);
-      persistOffsets();
+      flush();
     }
   }
 
+  /**
+   * Flushes the delegate if it is {@link Flushable} and then persists the offsets of the messages consumed.
+   */
   @Override
-  public void finished() {
-    try {
-      delegate.finished();
-    } finally {
-      // Save the offset
-      persistOffsets();
+  public synchronized void flush() {
+    if (delegate instanceof Flushable) {
+      try {
+        ((Flushable) delegate).flush();
+      } catch (IOException e) {
+        // Don't persist offsets of messages that failed to be processed.
+        LOG.error("Failed to flush message callback. Offsets are not persisted. {}", e.getMessage(), e);
+        return;
+      }
     }
+    persistOffsets();
+  }
+
+  @Override
+  public synchronized void finished() {
+    // The delegate processes all buffered messages when finished. Offsets are not saved if it failed,
+    // so that those messages will be consumed again.
+    delegate.finished();
+    persistOffsets();
   }
 
   private void persistOffsets() {
@@ -175,6 +175,22 @@ public final class MetricsProcessorTwillRunnable extends AbstractMasterTwillRunn
                           Constants.Metrics.DEFAULT_KAFKA_CONSUMER_PERSIST_THRESHOLD);
     }
 
+    @SuppressWarnings("unused")
+    @Provides
+    @Named(Constants.Metrics.KAFKA_CONSUMER_FLUSH_INTERVAL_MS)
+    public long providesConsumerFlushInterval(CConfiguration cConf) {
+      return cConf.getLong(Constants.Metrics.KAFKA_CONSUMER_FLUSH_INTERVAL_MS,
+                           Constants.Metrics.DEFAULT_KAFKA_CONSUMER_FLUSH_INTERVAL_MS);
+    }
+
+    @SuppressWarnings("unused")
+    @Provides
+    @Named(Constants.Metrics.KAFKA_CONSUMER_MAX_BUFFERED_METRICS)
+    public int providesConsumerMaxBufferedMetrics(CConfiguration cConf) {
+      return cConf.getInt(Constants.Metrics.KAFKA_CONSUMER_MAX_BUFFERED_METRICS,
+                          Constants.Metrics.DEFAULT_KAFKA_CONSUMER_MAX_BUFFERED_METRICS);
+    }
+
     @SuppressWarnings("unused")
     @Provides
     @Named(Constants.Metrics.KAFKA_TOPIC_PREFIX)
@@ -35,9 +35,11 @@ import co.cask.cdap.api.metrics.MetricValue;
 import co.cask.cdap.api.metrics.MetricValues;
 import co.cask.cdap.api.metrics.MetricsContext;
 import co.cask.cdap.api.metrics.TagValue;
+import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.data2.dataset2.lib.cube.Aggregation;
 import co.cask.cdap.data2.dataset2.lib.cube.AggregationAlias;
+import co.cask.cdap.data2.dataset2.lib.cube.CachingCube;
 import co.cask.cdap.data2.dataset2.lib.cube.DefaultAggregation;
 import co.cask.cdap.data2.dataset2.lib.cube.DefaultCube;
 import co.cask.cdap.data2.dataset2.lib.cube.FactTableSupplier;
@@ -64,6 +66,8 @@ import javax.annotation.Nullable;
  */
 public class DefaultMetricStore implements MetricStore {
   public static final int TOTALS_RESOLUTION = Integer.MAX_VALUE;
+  // 1 sec, 1 min, 1 hour and "all time totals"
+  private static final int[] DEFAULT_RESOLUTIONS = new int[] {1, 60, 3600, TOTALS_RESOLUTION};
   static final Map<String, Aggregation> AGGREGATIONS;
 
   private static final String BY_NAMESPACE = "namespace";
@@ -196,14 +200,35 @@ public class DefaultMetricStore implements MetricStore {
     AGGREGATIONS = Collections.unmodifiableMap(aggs);
   }
 
+  public DefaultMetricStore(MetricDatasetFactory dsFactory) {
+    this(dsFactory, DEFAULT_RESOLUTIONS);
+  }
+
   @Inject
-  public DefaultMetricStore(final MetricDatasetFactory dsFactory) {
-    // 1 sec, 1 min, 1 hour and "all time totals"
-    this(dsFactory, new int[] {1, 60, 3600, TOTALS_RESOLUTION});
+  public DefaultMetricStore(MetricDatasetFactory dsFactory, CConfiguration cConf) {
+    this(dsFactory, DEFAULT_RESOLUTIONS,
+         cConf.getLong(Constants.Metrics.QUERY_CACHE_MAX_VALUES, Constants.Metrics.DEFAULT_QUERY_CACHE_MAX_VALUES),
+         cConf.getLong(Constants.Metrics.QUERY_CACHE_CLOSE_DELAY_SECONDS,
+                       Constants.Metrics.DEFAULT_QUERY_CACHE_CLOSE_DELAY_SECONDS),
+         cConf.getLong(Constants.Metrics.QUERY_CACHE_EXPIRE_SECONDS,
+                       Constants.Metrics.DEFAULT_QUERY_CACHE_EXPIRE_SECONDS));
   }
 
   // NOTE: should never be used apart from data migration during cdap upgrade
-  public DefaultMetricStore(final MetricDatasetFactory dsFactory, final int resolutions[]) {
+  public DefaultMetricStore(MetricDatasetFactory dsFactory, int resolutions[]) {
+    this(dsFactory, resolutions, 0L, 0L, 0L);
+  }
+
+  /**
+   * Creates a new instance.
+   *
+   * @param cacheMaxValues maximum number of values in the query result cache, or {@code 0} to disable the cache
+   * @param cacheCloseDelaySeconds number of seconds after the end of a time bucket before its query results can be
+   *                               cached
+   * @param cacheExpireSeconds number of seconds to keep cached query results
+   */
+  private DefaultMetricStore(final MetricDatasetFactory dsFactory, final int resolutions[], final long cacheMaxValues,
+                             final long cacheCloseDelaySeconds, final long cacheExpireSeconds) {
     this.resolutions = resolutions;
     final FactTableSupplier factTableSupplier = new FactTableSupplier() {
       @Override
@@ -216,8 +241,14 @@ public class DefaultMetricStore implements MetricStore {
       @Override
       public Cube get() {
         DefaultCube cube = new DefaultCube(resolutions, factTableSupplier, AGGREGATIONS, AGGREGATIONS_ALIAS_DIMENSIONS);
-        cube.setMetricsCollector(metricsContext);
-        return cube;
+        if (cacheMaxValues <= 0) {
+          cube.setMetricsCollector(metricsContext);
+          return cube;
+        }
+        // Dashboards poll the same queries repeatedly, serve the closed time buckets from memory
+        CachingCube cachingCube = new CachingCube(cube, cacheCloseDelaySeconds, cacheMaxValues, cacheExpireSeconds);
+        cachingCube.setMetricsCollector(metricsContext);
+        return cachingCube;
       }
     });
   }
@@ -0,0 +1,124 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.logging.save;
+
+import co.cask.cdap.api.dataset.lib.CloseableIterator;
+import co.cask.cdap.api.metrics.NoopMetricsContext;
+import co.cask.cdap.common.logging.LoggingContext;
+import co.cask.cdap.common.logging.logback.TestLoggingContext;
+import com.google.common.primitives.Longs;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests for {@link LogEventBuffer} and {@link BufferedLogEvents}.
+ */
+public class LogEventBufferTest {
+
+  @ClassRule
+  public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
+
+  private static final LoggingContext LOGGING_CONTEXT = new TestLoggingContext("ns", "app", "run", "instance");
+
+  @Test
+  public void testSpillAndMerge() throws IOException {
+    File spillFile = new File(TEMP_FOLDER.newFolder(), "events.spill");
+    BufferedLogEvents events = new BufferedLogEvents(LOGGING_CONTEXT, 1L, spillFile);
+
+    // Three runs, two spilled and one in memory, with interleaving and duplicate timestamps
+    events.add(createEvent(5L, 0));
+    events.add(createEvent(1L, 1));
+    events.add(createEvent(3L, 2));
+    Assert.assertTrue(events.spill() > 0);
+    Assert.assertEquals(0L, events.getMemoryBytes());
+
+    events.add(createEvent(4L, 3));
+    events.add(createEvent(3L, 4));
+    events.spill();
+
+    events.add(createEvent(2L, 5));
+    events.add(createEvent(3L, 6));
+    events.add(createEvent(6L, 7));
+    Assert.assertEquals(8, events.size());
+
+    List<Long> timestamps = new ArrayList<>();
+    List<Long> offsets = new ArrayList<>();
+    try (CloseableIterator<BufferedLogEvent> iterator = events.iterator()) {
+      while (iterator.hasNext()) {
+        BufferedLogEvent event = iterator.next();
+        timestamps.add(event.getTimestamp());
+        offsets.add(event.getNextOffset());
+        // The encoded bytes are preserved
+        Assert.assertArrayEquals(Longs.toByteArray(event.getNextOffset()), event.getEncoded());
+      }
+    }
+    Assert.assertEquals(Longs.asList(1L, 2L, 3L, 3L, 3L, 4L, 5L, 6L), timestamps);
+    // Events with the same timestamp are in the order they were added
+    Assert.assertEquals(Longs.asList(1L, 5L, 2L, 4L, 6L, 3L, 0L, 7L), offsets);
+
+    events.delete();
+    Assert.assertFalse(spillFile.exists());
+  }
+
+  @Test
+  public void testByteBudget() throws IOException {
+    File spillDir = new File(TEMP_FOLDER.newFolder(), "spill");
+    long eventSize = createEvent(0L, 0).getSize();
+    LogEventBuffer buffer = new LogEventBuffer(eventSize * 10, spillDir, new NoopMetricsContext(), 0);
+
+    // Add events to 4 buckets, with 2 events in each bucket
+    for (int i = 0; i < 8; i++) {
+      buffer.add(i / 2, "path", LOGGING_CONTEXT, 0L, createEvent(i, i));
+    }
+    // Nothing is spilled while under budget
+    buffer.spillIfNeeded();
+    Assert.assertFalse(spillDir.exists());
+
+    for (int i = 8; i < 11; i++) {
+      buffer.add(3, "path", LOGGING_CONTEXT, 0L, createEvent(7L, i));
+    }
+    buffer.spillIfNeeded();
+
+    // The newest buckets are spilled until the memory usage is at most half of the budget
+    Assert.assertEquals(2 * eventSize, buffer.getBucket(0L).get("path").getMemoryBytes());
+    Assert.assertEquals(2 * eventSize, buffer.getBucket(1L).get("path").getMemoryBytes());
+    Assert.assertEquals(0L, buffer.getBucket(2L).get("path").getMemoryBytes());
+    Assert.assertEquals(0L, buffer.getBucket(3L).get("path").getMemoryBytes());
+    Assert.assertEquals(5, buffer.getBucket(3L).get("path").size());
+    Assert.assertEquals(2, spillDir.list().length);
+
+    // Release the newest bucket after removing it, which deletes its spill file
+    BufferedLogEvents newest = buffer.getBucket(3L).remove("path");
+    buffer.release(newest);
+    Assert.assertEquals(1, spillDir.list().length);
+
+    buffer.clear();
+    Assert.assertTrue(buffer.getBuckets().isEmpty());
+    Assert.assertEquals(0, spillDir.list().length);
+  }
+
+  private BufferedLogEvent createEvent(long timestamp, long offset) {
+    return new BufferedLogEvent(timestamp, 0, offset, Longs.toByteArray(offset));
+  }
+}
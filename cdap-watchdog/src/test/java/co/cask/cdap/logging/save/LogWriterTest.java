@@ -0,0 +1,120 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.logging.save;
+
+import co.cask.cdap.api.metrics.NoopMetricsContext;
+import co.cask.cdap.common.logging.LoggingContext;
+import co.cask.cdap.common.logging.logback.TestLoggingContext;
+import com.google.common.primitives.Longs;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for {@link LogWriter}.
+ */
+public class LogWriterTest {
+
+  @ClassRule
+  public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
+
+  private static final LoggingContext LOGGING_CONTEXT = new TestLoggingContext("ns", "app", "run", "instance");
+
+  @Test
+  public void testRetryAfterPartialWrite() throws Exception {
+    File spillDir = new File(TEMP_FOLDER.newFolder(), "spill");
+    LogEventBuffer buffer = new LogEventBuffer(Long.MAX_VALUE, spillDir, new NoopMetricsContext(), 0);
+
+    // More events than a few write batches, all in one bucket
+    int eventCount = 2500;
+    for (int i = 0; i < eventCount; i++) {
+      buffer.add(0L, "path", LOGGING_CONTEXT, 0L, new BufferedLogEvent(i, 0, i, Longs.toByteArray(i)));
+    }
+
+    // Fails the second append, after the first batch is written
+    FailingLogFileWriter logFileWriter = new FailingLogFileWriter(1);
+    CountDownLatch stopLatch = new CountDownLatch(1);
+    Thread thread = new Thread(new LogWriter(logFileWriter, buffer, 1L, 0L, stopLatch));
+    thread.start();
+    try {
+      long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+      while (logFileWriter.getWrittenOffsets().size() < eventCount && System.currentTimeMillis() < deadline) {
+        TimeUnit.MILLISECONDS.sleep(100);
+      }
+    } finally {
+      stopLatch.countDown();
+      thread.join();
+    }
+
+    Assert.assertTrue(logFileWriter.failed);
+    // Every event is written exactly once, in order
+    List<Long> expected = new ArrayList<>();
+    for (long i = 0; i < eventCount; i++) {
+      expected.add(i);
+    }
+    Assert.assertEquals(expected, logFileWriter.getWrittenOffsets());
+  }
+
+  /**
+   * A {@link CheckpointingLogFileWriter} that keeps the offsets of the appended events in memory, and fails
+   * an append once.
+   */
+  private static final class FailingLogFileWriter extends CheckpointingLogFileWriter {
+
+    private final List<Long> writtenOffsets = new ArrayList<>();
+    private final int failAfter;
+    private int appends;
+    private volatile boolean failed;
+
+    FailingLogFileWriter(int failAfter) {
+      super(null, null, 0L);
+      this.failAfter = failAfter;
+    }
+
+    synchronized List<Long> getWrittenOffsets() {
+      return new ArrayList<>(writtenOffsets);
+    }
+
+    @Override
+    synchronized void appendBuffered(LoggingContext loggingContext, List<BufferedLogEvent> events) throws Exception {
+      if (events.isEmpty()) {
+        return;
+      }
+      if (!failed && appends++ == failAfter) {
+        failed = true;
+        throw new IOException("Simulated failure");
+      }
+      for (BufferedLogEvent event : events) {
+        writtenOffsets.add(event.getNextOffset());
+      }
+    }
+
+    @Override
+    public void flush(boolean force) throws IOException {
+      // no-op
+    }
+  }
+}
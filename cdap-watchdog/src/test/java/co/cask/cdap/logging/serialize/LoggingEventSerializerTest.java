@@ -30,12 +30,18 @@ import co.cask.cdap.logging.context.LoggingContextHelper;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 import kafka.utils.VerifiableProperties;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
@@ -108,10 +114,23 @@ public class LoggingEventSerializerTest {
     iLoggingEvent.getMDCPropertyMap().putAll(mdcMap);
     iLoggingEvent.setTimeStamp(1234567890L);
 
+    Exception suppressed = new Exception("Suppressed Exception");
+    e2.addSuppressed(suppressed);
+    ch.qos.logback.classic.spi.LoggingEvent suppressedEvent = new ch.qos.logback.classic.spi.LoggingEvent();
+    suppressedEvent.setThrowableProxy(new ThrowableProxy(e2));
+    suppressedEvent.setLoggerContextRemoteView(new LoggerContextVO("logger_context2", contextMap, 1L));
+    suppressedEvent.setMDCPropertyMap(mdcMap);
+    suppressedEvent.setCallerData(new StackTraceElement[0]);
+
     // Serialize
     LoggingEvent event = new LoggingEvent(iLoggingEvent);
     byte [] serializedBytes = serializer.toBytes(event, LoggingContextAccessor.getLoggingContext());
 
+    // The direct encoding must be the same as encoding through GenericRecord
+    Assert.assertArrayEquals(toBytesWithGenericRecord(serializer, event), serializedBytes);
+    Assert.assertArrayEquals(toBytesWithGenericRecord(serializer, suppressedEvent),
+                             serializer.toBytes(suppressedEvent, LoggingContextAccessor.getLoggingContext()));
+
     // De-serialize
     ILoggingEvent actualEvent = serializer.fromBytes(ByteBuffer.wrap(serializedBytes));
     System.out.println(actualEvent);
@@ -159,6 +178,7 @@ public class LoggingEventSerializerTest {
     // Serialize
     LoggingEvent event = new LoggingEvent(iLoggingEvent);
     byte [] serializedBytes = serializer.toBytes(event, LoggingContextAccessor.getLoggingContext());
+    Assert.assertArrayEquals(toBytesWithGenericRecord(serializer, event), serializedBytes);
 
     // De-serialize
     ILoggingEvent actualEvent = serializer.fromBytes(ByteBuffer.wrap(serializedBytes));
@@ -167,6 +187,16 @@ public class LoggingEventSerializerTest {
     assertLoggingEventEquals(iLoggingEvent, actualEvent);
   }
 
+  private byte[] toBytesWithGenericRecord(LoggingEventSerializer serializer,
+                                          ILoggingEvent event) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(out, null);
+    GenericRecord record = LoggingEvent.encode(serializer.getAvroSchema(), event,
+                                               LoggingContextAccessor.getLoggingContext());
+    new GenericDatumWriter<GenericRecord>(serializer.getAvroSchema()).write(record, encoder);
+    return out.toByteArray();
+  }
+
   public static void assertLoggingEventEquals(ILoggingEvent expected, ILoggingEvent actual) {
     expected.getMDCPropertyMap().putAll(
       ImmutableMap.of(".namespaceId", "TEST_ACCT_ID1", ".applicationId", "TEST_APP_ID1", ".runId", "RUN1",
@@ -0,0 +1,95 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.metrics.process;
+
+import co.cask.cdap.api.metrics.MetricType;
+import co.cask.cdap.api.metrics.MetricValue;
+import co.cask.cdap.api.metrics.MetricValues;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unit tests for {@link MetricsPreAggregator}.
+ */
+public class MetricsPreAggregatorTest {
+
+  @Test
+  public void testAggregation() {
+    Map<String, String> tags1 = ImmutableMap.of("ns", "ns1", "app", "app1");
+    Map<String, String> tags2 = ImmutableMap.of("ns", "ns1", "app", "app2");
+
+    MetricsPreAggregator aggregator = new MetricsPreAggregator();
+    Assert.assertTrue(aggregator.isEmpty());
+
+    aggregator.add(new MetricValues(tags1, 10L, ImmutableList.of(
+      new MetricValue("count", MetricType.COUNTER, 1L), new MetricValue("size", MetricType.GAUGE, 5L))));
+    // Same tags in a different map instance and same timestamp
+    aggregator.add(new MetricValues(new HashMap<>(tags1), 10L, ImmutableList.of(
+      new MetricValue("count", MetricType.COUNTER, 2L), new MetricValue("size", MetricType.GAUGE, 3L))));
+    // Different timestamp
+    aggregator.add(new MetricValues(tags1, "count", 11L, 4L, MetricType.COUNTER));
+    // Different tags
+    aggregator.add(new MetricValues(tags2, "count", 10L, 8L, MetricType.COUNTER));
+
+    Assert.assertEquals(4, aggregator.size());
+
+    List<MetricValues> result = aggregator.drain();
+    Assert.assertTrue(aggregator.isEmpty());
+    Assert.assertEquals(3, result.size());
+
+    assertMetrics(result.get(0), tags1, 10L, ImmutableMap.of("count", 3L, "size", 3L));
+    assertMetrics(result.get(1), tags1, 11L, ImmutableMap.of("count", 4L));
+    assertMetrics(result.get(2), tags2, 10L, ImmutableMap.of("count", 8L));
+  }
+
+  @Test
+  public void testMixedTypes() {
+    Map<String, String> tags = ImmutableMap.of("ns", "ns1");
+    MetricsPreAggregator aggregator = new MetricsPreAggregator();
+
+    // A counter after a gauge increments the gauge value
+    aggregator.add(new MetricValues(tags, "m", 10L, 5L, MetricType.GAUGE));
+    aggregator.add(new MetricValues(tags, "m", 10L, 2L, MetricType.COUNTER));
+    MetricValue value = aggregator.drain().get(0).getMetrics().iterator().next();
+    Assert.assertEquals(MetricType.GAUGE, value.getType());
+    Assert.assertEquals(7L, value.getValue());
+
+    // A gauge after a counter overwrites the value
+    aggregator.add(new MetricValues(tags, "m", 10L, 2L, MetricType.COUNTER));
+    aggregator.add(new MetricValues(tags, "m", 10L, 5L, MetricType.GAUGE));
+    value = aggregator.drain().get(0).getMetrics().iterator().next();
+    Assert.assertEquals(MetricType.GAUGE, value.getType());
+    Assert.assertEquals(5L, value.getValue());
+  }
+
+  private void assertMetrics(MetricValues metricValues, Map<String, String> tags,
+                             long timestamp, Map<String, Long> expected) {
+    Assert.assertEquals(tags, metricValues.getTags());
+    Assert.assertEquals(timestamp, metricValues.getTimestamp());
+    Map<String, Long> actual = new HashMap<>();
+    for (MetricValue metricValue : metricValues.getMetrics()) {
+      actual.put(metricValue.getName(), metricValue.getValue());
+    }
+    Assert.assertEquals(expected, actual);
+  }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.metrics.process;
+
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.cdap.api.metrics.MetricDataQuery;
+import co.cask.cdap.api.metrics.MetricDeleteQuery;
+import co.cask.cdap.api.metrics.MetricSearchQuery;
+import co.cask.cdap.api.metrics.MetricStore;
+import co.cask.cdap.api.metrics.MetricTimeSeries;
+import co.cask.cdap.api.metrics.MetricType;
+import co.cask.cdap.api.metrics.MetricValues;
+import co.cask.cdap.api.metrics.MetricsContext;
+import co.cask.cdap.api.metrics.TagValue;
+import co.cask.cdap.common.io.BinaryEncoder;
+import co.cask.cdap.data2.dataset2.lib.table.inmemory.InMemoryMetricsTable;
+import co.cask.cdap.data2.dataset2.lib.table.inmemory.InMemoryTableService;
+import co.cask.cdap.internal.io.ASMDatumWriterFactory;
+import co.cask.cdap.internal.io.ASMFieldAccessorFactory;
+import co.cask.cdap.internal.io.DatumWriter;
+import co.cask.cdap.internal.io.ReflectionDatumReaderFactory;
+import co.cask.cdap.internal.io.ReflectionSchemaGenerator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.reflect.TypeToken;
+import org.apache.twill.kafka.client.FetchedMessage;
+import org.apache.twill.kafka.client.TopicPartition;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Unit tests for {@link PersistedMessageCallback} with a {@link MetricsMessageCallback} delegate.
+ */
+public class PersistedMessageCallbackTest {
+
+  @Test
+  public void testFailedFlush() throws Exception {
+    TypeToken<MetricValues> metricValueType = TypeToken.of(MetricValues.class);
+    Schema schema = new ReflectionSchemaGenerator().generate(metricValueType.getType());
+    DatumWriter<MetricValues> writer = new ASMDatumWriterFactory(new ASMFieldAccessorFactory())
+      .create(metricValueType, schema);
+
+    InMemoryTableService.create("testFailedFlush");
+    KafkaConsumerMetaTable metaTable = new KafkaConsumerMetaTable(new InMemoryMetricsTable("testFailedFlush"));
+    TestMetricStore metricStore = new TestMetricStore();
+
+    // Buffer metrics for long enough that they are only written on flush
+    PersistedMessageCallback callback = new PersistedMessageCallback(
+      new MetricsMessageCallback(new ReflectionDatumReaderFactory().create(metricValueType, schema), schema,
+                                 metricStore, null, Long.MAX_VALUE, Integer.MAX_VALUE),
+      metaTable, Integer.MAX_VALUE);
+
+    TopicPartition topicPartition = new TopicPartition("metrics", 0);
+    List<FetchedMessage> messages = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      MetricValues metricValues = new MetricValues(ImmutableMap.of("tag", "value"), "count", 10L, 1L,
+                                                   MetricType.COUNTER);
+      messages.add(createMessage(topicPartition, encode(writer, metricValues), i + 1));
+    }
+    callback.onReceived(messages.iterator());
+    Assert.assertTrue(metricStore.added.isEmpty());
+
+    // A failed flush must not persist the offsets
+    metricStore.failure = true;
+    callback.flush();
+    Assert.assertTrue(metricStore.added.isEmpty());
+    Assert.assertEquals(-1L, metaTable.get(topicPartition));
+
+    // The buffered metrics are retried in the next flush, after which the offsets are persisted
+    metricStore.failure = false;
+    callback.flush();
+    Assert.assertEquals(3L, metaTable.get(topicPartition));
+
+    long count = 0;
+    for (MetricValues metricValues : metricStore.added) {
+      if (metricValues.getTags().equals(ImmutableMap.of("tag", "value"))) {
+        count += metricValues.getMetrics().iterator().next().getValue();
+      }
+    }
+    Assert.assertEquals(3L, count);
+  }
+
+  private ByteBuffer encode(DatumWriter<MetricValues> writer, MetricValues metricValues) throws Exception {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    writer.encode(metricValues, new BinaryEncoder(os));
+    return ByteBuffer.wrap(os.toByteArray());
+  }
+
+  private FetchedMessage createMessage(final TopicPartition topicPartition, final ByteBuffer payload,
+                                       final long nextOffset) {
+    return new FetchedMessage() {
+      @Override
+      public TopicPartition getTopicPartition() {
+        return topicPartition;
+      }
+
+      @Override
+      public ByteBuffer getPayload() {
+        return payload;
+      }
+
+      @Override
+      public long getNextOffset() {
+        return nextOffset;
+      }
+    };
+  }
+
+  /**
+   * A {@link MetricStore} that keeps added metrics in memory and can be set to fail on writes.
+   */
+  private static final class TestMetricStore implements MetricStore {
+
+    private final List<MetricValues> added = new ArrayList<>();
+    private boolean failure;
+
+    @Override
+    public void setMetricsContext(MetricsContext metricsContext) {
+      // no-op
+    }
+
+    @Override
+    public void add(MetricValues metricValues) throws Exception {
+      add(ImmutableList.of(metricValues));
+    }
+
+    @Override
+    public void add(Collection<? extends MetricValues> metricValues) throws Exception {
+      if (failure) {
+        throw new Exception("Simulated failure");
+      }
+      added.addAll(metricValues);
+    }
+
+    @Override
+    public Collection<MetricTimeSeries> query(MetricDataQuery query) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void deleteBefore(long timestamp) throws Exception {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void delete(MetricDeleteQuery query) throws Exception {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void deleteAll() throws Exception {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Collection<TagValue> findNextAvailableTags(MetricSearchQuery query) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Collection<String> findMetricNames(MetricSearchQuery query) {
+      throw new UnsupportedOperationException();
+    }
+  }
+}